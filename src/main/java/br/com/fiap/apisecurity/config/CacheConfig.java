@@ -0,0 +1,52 @@
+package br.com.fiap.apisecurity.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties props) {
+        AtomicReference<RastreamentoCacheManager> rastreamento = new AtomicReference<>();
+        CaffeineCacheManager manager = new CaffeineCacheManager() {
+            // todo cache (com spec própria ou o padrão) avisa o rastreamento das entradas descartadas por tamanho ou
+            // TTL, para o índice id -> chaves não guardar páginas que já saíram. evictionListener, e não
+            // removalListener: roda sob o lock da entrada, sem corrida com um put da mesma chave
+            @Override
+            protected com.github.benmanes.caffeine.cache.Cache<Object, Object> createNativeCaffeineCache(String nome) {
+                return construir(props.getSpecs().getOrDefault(nome, props.getPadrao()))
+                        .evictionListener((chave, valor, causa) -> rastreamento.get().aoDescartar(nome, chave, valor))
+                        .build();
+            }
+        };
+        rastreamento.set(new RastreamentoCacheManager(manager, props.getLimiteRastreamento()));
+        props.getSpecs().keySet().forEach(manager::getCache); // caches com spec própria existem desde a subida
+        return rastreamento.get();
+    }
+
+    private static Caffeine<Object, Object> construir(String spec) {
+        // manutenção (descarte por tamanho/TTL) na própria thread que grava: o índice do rastreamento encolhe junto
+        // com o cache, em vez de crescer até o limite numa rajada enquanto a limpeza espera no pool comum
+        Caffeine<Object, Object> builder = Caffeine.from(spec).executor(Runnable::run);
+        if (!spec.contains("recordStats")) builder.recordStats();
+        // maximumWeight: o peso de uma página/lista é a quantidade de itens que ela guarda
+        if (spec.contains("maximumWeight")) builder.weigher(CacheConfig::peso);
+        return builder;
+    }
+
+    static int peso(Object chave, Object valor) {
+        if (valor instanceof Slice<?> slice) return Math.max(1, slice.getNumberOfElements());
+        if (valor instanceof Collection<?> colecao) return Math.max(1, colecao.size());
+        return 1;
+    }
+}
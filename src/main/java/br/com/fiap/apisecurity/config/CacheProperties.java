@@ -0,0 +1,43 @@
+package br.com.fiap.apisecurity.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Especificações Caffeine (ex.: "maximumSize=1000,expireAfterWrite=10m") por nome de cache
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+
+    // usada pelos caches sem especificação própria
+    private String padrao = "maximumSize=1000,expireAfterWrite=10m";
+
+    private Map<String, String> specs = new LinkedHashMap<>();
+
+    // pares id -> entrada rastreados por cache antes de cair para a invalidação completa
+    private int limiteRastreamento = 200_000;
+
+    public String getPadrao() {
+        return padrao;
+    }
+
+    public void setPadrao(String padrao) {
+        this.padrao = padrao;
+    }
+
+    public Map<String, String> getSpecs() {
+        return specs;
+    }
+
+    public void setSpecs(Map<String, String> specs) {
+        this.specs = specs;
+    }
+
+    public int getLimiteRastreamento() {
+        return limiteRastreamento;
+    }
+
+    public void setLimiteRastreamento(int limiteRastreamento) {
+        this.limiteRastreamento = limiteRastreamento;
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.fiap.apisecurity.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Invalidação dirigida: remove só as entradas que contêm os ids alterados (ou o cache todo, se o rastreamento transbordou).
+// Dentro de transação a remoção fica para depois do commit (como os contadores de VersoesRecursos): removida antes,
+// uma leitura concorrente recarregaria a linha ainda não commitada e a guardaria velha até o TTL.
+@Component
+public class InvalidacaoCache {
+
+    private final CacheManager cacheManager;
+
+    public InvalidacaoCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public void evictContendo(String cacheName, UUID... ids) {
+        aposCommit(() -> removerContendo(cacheName, ids));
+    }
+
+    // Remove as listagens do(s) pátio(s) informado(s) e as do ADMIN (que enxerga todos); os outros pátios ficam intactos
+    public void limparParticao(String cacheName, UUID... patioIds) {
+        aposCommit(() -> removerParticao(cacheName, patioIds));
+    }
+
+    public void evictChave(String cacheName, Object chave) {
+        aposCommit(() -> {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) cache.evict(chave);
+        });
+    }
+
+    public void limpar(String... cacheNames) {
+        aposCommit(() -> {
+            for (String nome : cacheNames) {
+                Cache cache = cacheManager.getCache(nome);
+                if (cache != null) cache.clear();
+            }
+        });
+    }
+
+    private void removerContendo(String cacheName, UUID[] ids) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache instanceof RastreamentoCache rastreado) {
+            rastreado.evictContendo(Arrays.asList(ids));
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void removerParticao(String cacheName, UUID[] patioIds) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) return;
+        Set<String> escopos = Arrays.stream(patioIds)
+                .filter(Objects::nonNull)
+                .map(id -> "P:" + id)
+                .collect(Collectors.toSet());
+        escopos.add("ADMIN");
+        Predicate<Object> daParticao = chave -> chave instanceof String s && pertence(s, escopos);
+        if (cache instanceof RastreamentoCache rastreado) {
+            rastreado.evictChaves(daParticao); // tira as chaves do índice junto
+        } else if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativo) {
+            nativo.asMap().keySet().removeIf(daParticao);
+        } else {
+            cache.clear();
+        }
+    }
+
+    private static boolean pertence(String chave, Set<String> escopos) {
+        int fim = chave.startsWith("P:") ? chave.indexOf(':', 2) : chave.indexOf(':');
+        return escopos.contains(fim < 0 ? chave : chave.substring(0, fim));
+    }
+
+    private static void aposCommit(Runnable remocao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remocao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remocao.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package br.com.fiap.apisecurity.config;
+
+import br.com.fiap.apisecurity.dto.*;
+import br.com.fiap.apisecurity.model.Vaga;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Decorador que registra, para cada id de Moto/Vaga/Pátio/Leitor, quais páginas e listas em cache o contêm.
+// Permite invalidar só as entradas afetadas; se o índice passar do limite, a próxima invalidação limpa o cache todo.
+// Entradas que saem do cache por qualquer caminho (tamanho, TTL, evict, partição) saem também do índice: os descartes
+// do Caffeine chegam por aoDescartar (evictionListener montado no CacheConfig).
+public class RastreamentoCache implements Cache {
+
+    private final Cache delegate;
+    private final int limite;
+    private final ConcurrentHashMap<UUID, Set<Object>> chavesPorId = new ConcurrentHashMap<>();
+    private final AtomicInteger tamanhoIndice = new AtomicInteger();
+    private volatile boolean transbordou;
+
+    public RastreamentoCache(Cache delegate, int limite) {
+        this.delegate = delegate;
+        this.limite = limite;
+    }
+
+    public void evictContendo(Collection<UUID> ids) {
+        if (transbordou) {
+            clear();
+            return;
+        }
+        for (UUID id : ids) {
+            if (id == null) continue;
+            delegate.evict(id);
+            Set<Object> chaves = chavesPorId.remove(id);
+            if (chaves == null) continue;
+            tamanhoIndice.addAndGet(-chaves.size());
+            chaves.forEach(this::evictIfPresent);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    // o carregador roda dentro do compute do Caffeine: indexação e gravação sob o mesmo lock da entrada
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, () -> {
+            T valor = valueLoader.call();
+            indexar(key, valor);
+            return valor;
+        });
+    }
+
+    // gravação, indexação e desindexação de uma chave passam todas pelo lock da entrada no Caffeine (compute e
+    // evictionListener): uma remoção não tira do índice a chave que outra thread acabou de regravar
+    @Override
+    public void put(Object key, Object value) {
+        Map<Object, Object> mapa = mapaNativo();
+        if (mapa == null || value == null) {
+            indexar(key, value);
+            delegate.put(key, value);
+            return;
+        }
+        mapa.compute(key, (k, antigo) -> {
+            indexar(k, value);
+            if (antigo != null) desindexarSobras(k, antigo, value);
+            return value;
+        });
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Map<Object, Object> mapa = mapaNativo();
+        if (mapa == null || value == null) {
+            indexar(key, value);
+            return delegate.putIfAbsent(key, value);
+        }
+        Object[] existente = new Object[1];
+        mapa.compute(key, (k, antigo) -> {
+            if (antigo != null) {
+                existente[0] = antigo;
+                return antigo;
+            }
+            indexar(k, value);
+            return value;
+        });
+        return existente[0] == null ? null : new SimpleValueWrapper(existente[0]);
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictIfPresent(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        Map<Object, Object> mapa = mapaNativo();
+        if (mapa == null) return delegate.evictIfPresent(key);
+        boolean[] removida = new boolean[1];
+        mapa.computeIfPresent(key, (k, antigo) -> {
+            desindexar(k, antigo);
+            removida[0] = true;
+            return null;
+        });
+        return removida[0];
+    }
+
+    // remove as entradas cujas chaves atendem ao filtro (partições por pátio), tirando-as do índice
+    public void evictChaves(Predicate<Object> filtro) {
+        Map<Object, Object> mapa = mapaNativo();
+        if (mapa == null) {
+            clear();
+            return;
+        }
+        for (Object chave : mapa.keySet()) {
+            if (filtro.test(chave)) evictIfPresent(chave);
+        }
+    }
+
+    // evictionListener do Caffeine (tamanho e expiração), chamado sob o lock da entrada que sai
+    void aoDescartar(Object chave, Object valor) {
+        if (chave != null && valor != null) desindexar(chave, valor);
+    }
+
+    int tamanhoIndice() {
+        return tamanhoIndice.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Object, Object> mapaNativo() {
+        return delegate.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativo
+                ? ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativo).asMap()
+                : null;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        zerarIndice();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean tinhaEntradas = delegate.invalidate();
+        zerarIndice();
+        return tinhaEntradas;
+    }
+
+    private void zerarIndice() {
+        chavesPorId.clear();
+        tamanhoIndice.set(0);
+        transbordou = false;
+    }
+
+    private void indexar(Object chave, Object valor) {
+        if (transbordou) return;
+        Iterable<?> itens = itensDe(valor);
+        Consumer<UUID> registrar = id -> {
+            if (id == null) return;
+            // compute, e não computeIfAbsent + add: desindexar pode estar descartando o conjunto vazio do mesmo id
+            chavesPorId.compute(id, (k, chaves) -> {
+                if (chaves == null) chaves = ConcurrentHashMap.newKeySet();
+                if (chaves.add(chave)) tamanhoIndice.incrementAndGet();
+                return chaves;
+            });
+            if (tamanhoIndice.get() > limite) {
+                transbordou = true;
+                chavesPorId.clear();
+            }
+        };
+        for (Object item : itens) {
+            idsDe(item, registrar);
+            if (transbordou) return;
+        }
+    }
+
+    private void desindexar(Object chave, Object valor) {
+        desindexar(chave, valor, Set.of());
+    }
+
+    // valor substituído: sai do índice só o que o valor novo não tem mais (o resto continua valendo para a chave)
+    private void desindexarSobras(Object chave, Object antigo, Object novo) {
+        Set<UUID> mantidos = new HashSet<>();
+        for (Object item : itensDe(novo)) idsDe(item, mantidos::add);
+        desindexar(chave, antigo, mantidos);
+    }
+
+    private void desindexar(Object chave, Object valor, Set<UUID> mantidos) {
+        if (transbordou) return;
+        Consumer<UUID> retirar = id -> {
+            if (id == null || mantidos.contains(id)) return;
+            chavesPorId.computeIfPresent(id, (k, chaves) -> {
+                if (chaves.remove(chave)) tamanhoIndice.decrementAndGet();
+                return chaves.isEmpty() ? null : chaves;
+            });
+        };
+        for (Object item : itensDe(valor)) idsDe(item, retirar);
+    }
+
+    // entradas únicas são chaveadas pelo próprio id e não entram no índice
+    private static Iterable<?> itensDe(Object valor) {
+        if (valor instanceof Slice<?> slice) return slice.getContent();
+        if (valor instanceof Collection<?> colecao) return colecao;
+        return List.of();
+    }
+
+    private static void idsDe(Object item, Consumer<UUID> registrar) {
+        if (item instanceof MotoDTO m) {
+            registrar.accept(m.getId());
+            registrar.accept(m.getVagaId());
+        } else if (item instanceof VagaDTO v) {
+            registrar.accept(v.getId());
+            registrar.accept(v.getPatioId());
+            if (v.getMoto() != null) registrar.accept(v.getMoto().getId());
+        } else if (item instanceof PatioDTO p) {
+            registrar.accept(p.getId());
+        } else if (item instanceof LeitorDTO l) {
+            registrar.accept(l.getId());
+            registrar.accept(l.getPatioId());
+            registrar.accept(l.getVagaId());
+        } else if (item instanceof RegistroDTO r) {
+            registrar.accept(r.getId());
+            registrar.accept(r.getMotoId());
+            registrar.accept(r.getLeitorId());
+        } else if (item instanceof Vaga v) {
+            registrar.accept(v.getId());
+        }
+    }
+}
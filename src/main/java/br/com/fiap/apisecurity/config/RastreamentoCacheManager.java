@@ -0,0 +1,40 @@
+package br.com.fiap.apisecurity.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class RastreamentoCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final int limiteRastreamento;
+    private final ConcurrentMap<String, RastreamentoCache> caches = new ConcurrentHashMap<>();
+
+    public RastreamentoCacheManager(CacheManager delegate, int limiteRastreamento) {
+        this.delegate = delegate;
+        this.limiteRastreamento = limiteRastreamento;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        RastreamentoCache existente = caches.get(name);
+        if (existente != null) return existente;
+        Cache cache = delegate.getCache(name);
+        if (cache == null) return null;
+        return caches.computeIfAbsent(name, n -> new RastreamentoCache(cache, limiteRastreamento));
+    }
+
+    // evictionListener dos caches Caffeine (CacheConfig)
+    void aoDescartar(String nome, Object chave, Object valor) {
+        RastreamentoCache cache = caches.get(nome);
+        if (cache != null) cache.aoDescartar(chave, valor);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
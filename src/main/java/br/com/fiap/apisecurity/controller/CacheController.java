@@ -0,0 +1,44 @@
+package br.com.fiap.apisecurity.controller;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CacheEstatisticaDTO;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/caches")
+public class CacheController {
+
+    private final CacheManager cacheManager;
+    private final Authz authz;
+
+    public CacheController(CacheManager cacheManager, Authz authz) {
+        this.cacheManager = cacheManager;
+        this.authz = authz;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<CacheEstatisticaDTO>> estatisticas() {
+        authz.requireAdmin();
+        List<CacheEstatisticaDTO> result = new ArrayList<>();
+        for (String nome : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nome);
+            if (cache == null
+                    || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativo)) {
+                continue;
+            }
+            CacheStats stats = nativo.stats();
+            result.add(new CacheEstatisticaDTO(nome, nativo.estimatedSize(), stats.hitCount(), stats.missCount(),
+                    stats.hitRate(), stats.evictionCount(), stats.evictionWeight()));
+        }
+        return ResponseEntity.ok(result);
+    }
+}
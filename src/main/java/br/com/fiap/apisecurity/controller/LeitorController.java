@@ -1,17 +1,22 @@
 package br.com.fiap.apisecurity.controller;
 
+import br.com.fiap.apisecurity.dto.CursorPage;
 import br.com.fiap.apisecurity.dto.LeitorDTO;
+import br.com.fiap.apisecurity.dto.VagaProximaDTO;
 import br.com.fiap.apisecurity.model.Patio;
 import br.com.fiap.apisecurity.model.enums.TipoLeitor;
 import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.service.LeitorService;
 import br.com.fiap.apisecurity.service.PatioService;
 import br.com.fiap.apisecurity.service.VagaService;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,33 +29,62 @@ public class LeitorController {
     private final LeitorService leitorService;
     private final PatioService patioService;
     private final VagaService vagaService;
+    private final VersoesRecursos versoes;
 
     @Autowired
-    public LeitorController(LeitorService leitorService, PatioService patioService, VagaService vagaService) {
+    public LeitorController(LeitorService leitorService, PatioService patioService, VagaService vagaService,
+                            VersoesRecursos versoes) {
         this.leitorService = leitorService;
         this.patioService = patioService;
         this.vagaService = vagaService;
+        this.versoes = versoes;
     }
 
     @GetMapping
-    public ResponseEntity<Page<LeitorDTO>> getAllLeitores(Pageable pageable) {
+    public ResponseEntity<Page<LeitorDTO>> getAllLeitores(Pageable pageable, WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
         return ResponseEntity.ok(leitorService.readAllLeitores(pageable));
     }
 
+    // paginação por cursor (keyset): passe o 'proximoCursor' da resposta anterior até ele vir nulo
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<LeitorDTO>> getLeitoresCursor(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer tamanho,
+                                                       WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
+        try {
+            return ResponseEntity.ok(leitorService.readLeitoresCursor(cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<LeitorDTO> getLeitorById(@PathVariable UUID id) {
+    public ResponseEntity<LeitorDTO> getLeitorById(@PathVariable UUID id, WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
         LeitorDTO leitorDTO = leitorService.readLeitorById(id);
         if (leitorDTO == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(leitorDTO);
     }
 
+    // sugestão de vaga pelo leitor (ex.: ENTRADA): K vagas livres mais próximas da vaga onde ele está instalado
+    @GetMapping("/{id}/vagas-proximas")
+    public ResponseEntity<List<VagaProximaDTO>> getVagasProximas(@PathVariable UUID id,
+                                                                 @RequestParam(defaultValue = "5") int k) {
+        LeitorDTO leitor = leitorService.readLeitorById(id);
+        if (leitor == null || leitor.getVagaId() == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(vagaService.readVagasProximas(leitor.getPatioId(), leitor.getVagaId(), k));
+    }
+
     @GetMapping("/tipo/{tipo}")
-    public ResponseEntity<List<LeitorDTO>> getLeitoresByTipo(@PathVariable TipoLeitor tipo) {
+    public ResponseEntity<List<LeitorDTO>> getLeitoresByTipo(@PathVariable TipoLeitor tipo, WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
         return ResponseEntity.ok(leitorService.readByTipo(tipo));
     }
 
     @GetMapping("/patio/{patioId}")
-    public ResponseEntity<List<LeitorDTO>> getLeitoresByPatio(@PathVariable UUID patioId) {
+    public ResponseEntity<List<LeitorDTO>> getLeitoresByPatio(@PathVariable UUID patioId, WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
         patioService.readPatioById(patioId);
 
         List<LeitorDTO> leitoresDTO = leitorService.readByPatio(patioId);
@@ -59,7 +93,9 @@ public class LeitorController {
     }
 
     @GetMapping("/vaga/{vagaId}/tipo/{tipo}")
-    public ResponseEntity<LeitorDTO> getLeitorByVagaAndTipo(@PathVariable UUID vagaId, @PathVariable TipoLeitor tipo) {
+    public ResponseEntity<LeitorDTO> getLeitorByVagaAndTipo(@PathVariable UUID vagaId, @PathVariable TipoLeitor tipo,
+                                                            WebRequest request) {
+        if (versoes.naoModificado(Recurso.LEITORES, request)) return null;
         Vaga vaga = vagaService.readVagaById(vagaId);
         if (vaga == null) return ResponseEntity.notFound().build();
 
@@ -0,0 +1,31 @@
+package br.com.fiap.apisecurity.controller;
+
+import br.com.fiap.apisecurity.service.metricas.ExposicaoPrometheus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+// Coleta do Prometheus: só ADMIN ou o coletor com app.metricas.token (cadeia própria no SecurityConfig)
+@RestController
+public class MetricasController {
+
+    private static final MediaType FORMATO_PROMETHEUS =
+            MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    private final ExposicaoPrometheus exposicao;
+
+    public MetricasController(ExposicaoPrometheus exposicao) {
+        this.exposicao = exposicao;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metricas() throws IOException {
+        return ResponseEntity.ok()
+                .contentType(FORMATO_PROMETHEUS)
+                .header("Cache-Control", "no-store")
+                .body(exposicao.coletar());
+    }
+}
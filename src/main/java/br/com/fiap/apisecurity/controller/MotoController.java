@@ -1,19 +1,33 @@
 package br.com.fiap.apisecurity.controller;
 
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CursorPage;
+import br.com.fiap.apisecurity.dto.ImportacaoMotosDTO;
 import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.SliceDTO;
 import br.com.fiap.apisecurity.mapper.MotoMapper;
 import br.com.fiap.apisecurity.model.Moto;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
 import br.com.fiap.apisecurity.repository.MotoRepository;
 import br.com.fiap.apisecurity.service.MotoService;
+import br.com.fiap.apisecurity.service.importacao.ImportadorMotos;
+import br.com.fiap.apisecurity.service.paginacao.ModoTotal;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -21,26 +35,57 @@ import java.util.UUID;
 public class MotoController {
 
     private final MotoService motoService;
+    private final ImportadorMotos importador;
+    private final Authz authz;
+    private final VersoesRecursos versoes;
 
     @Autowired
-    public MotoController(MotoService motoService) {
+    public MotoController(MotoService motoService, ImportadorMotos importador, Authz authz,
+                          VersoesRecursos versoes) {
         this.motoService = motoService;
+        this.importador = importador;
+        this.authz = authz;
+        this.versoes = versoes;
     }
 
+    // ?withTotal=false -> Slice sem COUNT; ?withTotal=approx -> total em cache (cabeçalho X-Total-Aproximado)
     @GetMapping
-    public ResponseEntity<Page<MotoDTO>> getAllMotos(Pageable pageable) {
-        return ResponseEntity.ok(motoService.readAllMotos(pageable));
+    public ResponseEntity<?> getAllMotos(Pageable pageable,
+                                         @RequestParam(defaultValue = "true") String withTotal,
+                                         WebRequest request) {
+        if (versoes.naoModificado(Recurso.MOTOS, request)) return null;
+        return switch (ModoTotal.de(withTotal)) {
+            case SEM_TOTAL -> ResponseEntity.ok(new SliceDTO<>(motoService.readMotosSlice(pageable)));
+            case APROXIMADO -> ResponseEntity.ok().header(ModoTotal.HEADER_APROXIMADO, "true")
+                    .body(motoService.readAllMotosTotalAproximado(pageable));
+            case EXATO -> ResponseEntity.ok(motoService.readAllMotos(pageable));
+        };
+    }
+
+    // paginação por cursor (keyset): passe o 'proximoCursor' da resposta anterior até ele vir nulo
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<MotoDTO>> getMotosCursor(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer tamanho,
+                                                       WebRequest request) {
+        if (versoes.naoModificado(Recurso.MOTOS, request)) return null;
+        try {
+            return ResponseEntity.ok(motoService.readMotosCursor(cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<MotoDTO> getMotoById(@PathVariable UUID id) {
+    public ResponseEntity<MotoDTO> getMotoById(@PathVariable UUID id, WebRequest request) {
+        if (versoes.naoModificado(Recurso.MOTOS, request)) return null;
         MotoDTO motoDTO = motoService.readMotoById(id);
         if (motoDTO == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(motoDTO);
     }
 
     @GetMapping("/placa/{placa}")
-    public ResponseEntity<MotoDTO> getByPlaca(@PathVariable String placa) {
+    public ResponseEntity<MotoDTO> getByPlaca(@PathVariable String placa, WebRequest request) {
+        if (versoes.naoModificado(Recurso.MOTOS, request)) return null;
         Moto moto = motoService.readByPlaca(placa);
         if (moto == null) return ResponseEntity.notFound().build();
         return ResponseEntity.ok(MotoMapper.toDto(moto));
@@ -51,6 +96,41 @@ public class MotoController {
         return ResponseEntity.ok(motoService.createMoto(motoDTO));
     }
 
+    // onboarding de pátio: CSV placa,status,vaga (identificacao) como multipart "arquivo" ou corpo text/csv;
+    // somenteValidar=true só devolve os erros por linha, sem gravar
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importar(@RequestParam UUID patioId,
+                                      @RequestParam("arquivo") MultipartFile arquivo,
+                                      @RequestParam(defaultValue = "false") boolean somenteValidar) throws IOException {
+        try (InputStream csv = arquivo.getInputStream()) {
+            return importar(patioId, csv, somenteValidar);
+        }
+    }
+
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    public ResponseEntity<?> importarCsv(@RequestParam UUID patioId,
+                                         @RequestParam(defaultValue = "false") boolean somenteValidar,
+                                         HttpServletRequest request) throws IOException {
+        return importar(patioId, request.getInputStream(), somenteValidar);
+    }
+
+    private ResponseEntity<?> importar(UUID patioId, InputStream csv, boolean somenteValidar) throws IOException {
+        authz.requireAdmin();
+        try {
+            ImportacaoMotosDTO resultado = importador.importar(patioId, csv, somenteValidar);
+            return ResponseEntity.ok(resultado);
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/alocar/patio/{patioId}")
+    public ResponseEntity<MotoDTO> alocarNoPatio(@PathVariable UUID id, @PathVariable UUID patioId) {
+        return ResponseEntity.ok(motoService.alocarNoPatio(id, patioId));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<MotoDTO> updateMoto(@PathVariable UUID id, @RequestBody MotoDTO motoDTO) {
         MotoDTO updated = motoService.updateMoto(id, motoDTO);
@@ -0,0 +1,53 @@
+package br.com.fiap.apisecurity.controller;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.service.aovivo.PainelAoVivo;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.UUID;
+
+// Painel ao vivo (Server-Sent Events). /aovivo passa pela cadeia web (sessão: é o que o EventSource das telas usa);
+// /api/aovivo pela cadeia JWT, para clientes que conseguem mandar o Authorization.
+@RestController
+public class PainelAoVivoController {
+
+    private final PainelAoVivo painel;
+    private final Authz authz;
+
+    public PainelAoVivoController(PainelAoVivo painel, Authz authz) {
+        this.painel = painel;
+        this.authz = authz;
+    }
+
+    // sem patioId: ADMIN acompanha todos os pátios, operador o seu
+    @GetMapping(value = {"/aovivo", "/api/aovivo"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> assinar(@RequestParam(required = false) UUID patioId) {
+        try {
+            if (patioId != null) authz.requireAdminOrSamePatio(patioId);
+            else if (!authz.isAdmin()) patioId = authz.currentUserPatioIdOrThrow();
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "no-store")
+                    .header("X-Accel-Buffering", "no") // nginx: não segurar o stream
+                    .body(painel.assinar(patioId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").build();
+        }
+    }
+
+    @GetMapping("/api/aovivo/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        authz.requireAdmin();
+        return ResponseEntity.ok(painel.status());
+    }
+}
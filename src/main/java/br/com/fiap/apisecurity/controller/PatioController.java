@@ -4,6 +4,8 @@ import br.com.fiap.apisecurity.dto.PatioDTO;
 import br.com.fiap.apisecurity.mapper.PatioMapper;
 import br.com.fiap.apisecurity.model.Patio;
 import br.com.fiap.apisecurity.service.PatioService;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -11,6 +13,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.net.URI;
 import java.util.List;
@@ -21,18 +24,22 @@ import java.util.UUID;
 public class PatioController {
 
     private final PatioService patioService;
+    private final VersoesRecursos versoes;
 
-    public PatioController(PatioService patioService) {
+    public PatioController(PatioService patioService, VersoesRecursos versoes) {
         this.patioService = patioService;
+        this.versoes = versoes;
     }
 
     @GetMapping
-    public Page<PatioDTO> list(@PageableDefault(size = 10, sort = "nome") Pageable pageable) {
+    public Page<PatioDTO> list(@PageableDefault(size = 10, sort = "nome") Pageable pageable, WebRequest request) {
+        if (versoes.naoModificado(Recurso.PATIOS, request)) return null;
         return patioService.readAllPatios(pageable);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PatioDTO> getOne(@PathVariable UUID id) {
+    public ResponseEntity<PatioDTO> getOne(@PathVariable UUID id, WebRequest request) {
+        if (versoes.naoModificado(Recurso.PATIOS, request)) return null;
         var dto = patioService.readPatioById(id);
         return (dto != null) ? ResponseEntity.ok(dto) : ResponseEntity.notFound().build();
     }
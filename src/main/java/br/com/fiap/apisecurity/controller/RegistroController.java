@@ -1,20 +1,42 @@
 package br.com.fiap.apisecurity.controller;
 
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.AgregadoDTO;
+import br.com.fiap.apisecurity.dto.CursorPage;
+import br.com.fiap.apisecurity.dto.IngestaoStatusDTO;
 import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.PermanenciaDTO;
+import br.com.fiap.apisecurity.dto.PermanenciaItemDTO;
 import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.dto.SliceDTO;
 import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.enums.Granularidade;
 import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
 import br.com.fiap.apisecurity.service.MotoService;
 import br.com.fiap.apisecurity.service.RegistroService;
+import br.com.fiap.apisecurity.service.agregacao.AgregadorMovimentacoes;
+import br.com.fiap.apisecurity.service.analise.AnalisePermanencia;
+import br.com.fiap.apisecurity.service.arquivamento.ArquivadorRegistros;
+import br.com.fiap.apisecurity.service.exportacao.ExportadorRegistros;
+import br.com.fiap.apisecurity.service.ingestao.RegistroIngestaoPipeline;
+import br.com.fiap.apisecurity.service.paginacao.ModoTotal;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.UUID;
 
 @RestController
@@ -23,16 +45,52 @@ public class RegistroController {
 
     private final RegistroService registroService;
     private final MotoService motoService;
+    private final RegistroIngestaoPipeline ingestaoPipeline;
+    private final ArquivadorRegistros arquivador;
+    private final Authz authz;
+    private final ExportadorRegistros exportador;
+    private final AgregadorMovimentacoes agregador;
+    private final AnalisePermanencia permanencia;
 
     @Autowired
-    public RegistroController(RegistroService registroService, MotoService motoService) {
+    public RegistroController(RegistroService registroService, MotoService motoService, RegistroIngestaoPipeline ingestaoPipeline,
+                              ArquivadorRegistros arquivador, Authz authz, ExportadorRegistros exportador,
+                              AgregadorMovimentacoes agregador, AnalisePermanencia permanencia) {
         this.registroService = registroService;
         this.motoService = motoService;
+        this.ingestaoPipeline = ingestaoPipeline;
+        this.arquivador = arquivador;
+        this.authz = authz;
+        this.exportador = exportador;
+        this.agregador = agregador;
+        this.permanencia = permanencia;
     }
 
+    // sem withTotal mantém a lista completa; com ele a resposta passa a ser paginada:
+    // true -> Page com COUNT, false -> Slice sem COUNT, approx -> total em cache (cabeçalho X-Total-Aproximado)
     @GetMapping
-    public ResponseEntity<List<RegistroDTO>> getAll() {
-        return ResponseEntity.ok(registroService.readAll());
+    public ResponseEntity<?> getAll(Pageable pageable,
+                                    @RequestParam(required = false) String withTotal) {
+        if (withTotal == null) {
+            return ResponseEntity.ok(registroService.readAll());
+        }
+        return switch (ModoTotal.de(withTotal)) {
+            case SEM_TOTAL -> ResponseEntity.ok(new SliceDTO<>(registroService.readRegistrosSlice(pageable)));
+            case APROXIMADO -> ResponseEntity.ok().header(ModoTotal.HEADER_APROXIMADO, "true")
+                    .body(registroService.readAllRegistrosTotalAproximado(pageable));
+            case EXATO -> ResponseEntity.ok(registroService.readAllRegistros(pageable));
+        };
+    }
+
+    // paginação por cursor (keyset): passe o 'proximoCursor' da resposta anterior até ele vir nulo
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<RegistroDTO>> getRegistrosCursor(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer tamanho) {
+        try {
+            return ResponseEntity.ok(registroService.readRegistrosCursor(cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/moto/{motoId}")
@@ -59,6 +117,138 @@ public class RegistroController {
         return ResponseEntity.ok(registroService.createRegistro(registroDTO));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<RegistroDTO>> createRegistrosBatch(@RequestBody List<RegistroDTO> registros) {
+        return ResponseEntity.ok(registroService.createRegistrosBatch(registros));
+    }
+
+    @PostMapping("/ingestao")
+    public ResponseEntity<Map<String, Object>> ingerir(@RequestBody RegistroDTO registroDTO) {
+        OptionalLong sequencia;
+        try {
+            sequencia = ingestaoPipeline.enfileirar(registroDTO);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (sequencia.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Fila de ingestão cheia, tente novamente."));
+        }
+        return ResponseEntity.accepted().body(Map.of("sequencia", sequencia.getAsLong()));
+    }
+
+    // exportação em streaming (CSV ou NDJSON): memória constante independentemente do período
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(required = false) UUID patioId,
+            @RequestParam(required = false) UUID motoId,
+            @RequestParam(required = false) TipoMovimentacao tipo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim) {
+        ExportadorRegistros.Formato f = "ndjson".equalsIgnoreCase(formato)
+                ? ExportadorRegistros.Formato.NDJSON : ExportadorRegistros.Formato.CSV;
+        ExportadorRegistros.Filtro filtro;
+        try {
+            filtro = exportador.filtroAutorizado(patioId, motoId, tipo, inicio, fim);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody corpo = saida -> exportador.exportar(filtro, f, saida);
+        if (f == ExportadorRegistros.Formato.NDJSON) {
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(corpo);
+        }
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"registros.csv\"")
+                .body(corpo);
+    }
+
+    // dashboards: movimentações por balde (MINUTO | HORA | DIA) a partir dos agregados, sem tocar no bruto
+    @GetMapping("/agregados")
+    public ResponseEntity<List<AgregadoDTO>> getAgregados(
+            @RequestParam UUID patioId,
+            @RequestParam(defaultValue = "HORA") Granularidade granularidade,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) TipoMovimentacao tipo) {
+        authz.requireAdminOrSamePatio(patioId);
+        try {
+            return ResponseEntity.ok(agregador.consultar(patioId, granularidade, inicio, fim, tipo));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // backfill: recalcula os agregados dos dias informados a partir dos registros (quente + arquivo)
+    @PostMapping("/agregados/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirAgregados(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        authz.requireAdmin();
+        try {
+            return ResponseEntity.ok(Map.of("registros", agregador.reconstruir(inicio, fim)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // capacidade: permanência e estadia por vaga com p50/p95/p99 e giro, mantidos em memória pelos eventos
+    @GetMapping("/permanencia")
+    public ResponseEntity<PermanenciaDTO> getPermanencia(@RequestParam UUID patioId) {
+        authz.requireAdminOrSamePatio(patioId);
+        return ResponseEntity.ok(permanencia.patio(patioId));
+    }
+
+    @GetMapping("/permanencia/vagas")
+    public ResponseEntity<List<PermanenciaItemDTO>> getPermanenciaVagas(@RequestParam UUID patioId,
+                                                                        @RequestParam(defaultValue = "50") int limite) {
+        authz.requireAdminOrSamePatio(patioId);
+        return ResponseEntity.ok(permanencia.vagas(patioId, Math.max(1, Math.min(limite, 1000))));
+    }
+
+    @GetMapping("/permanencia/motos/{motoId}")
+    public ResponseEntity<PermanenciaItemDTO> getPermanenciaMoto(@PathVariable UUID motoId) {
+        PermanenciaItemDTO item = permanencia.moto(motoId).orElse(null);
+        if (item == null) return ResponseEntity.notFound().build();
+        if (item.getPatioId() != null) authz.requireAdminOrSamePatio(item.getPatioId());
+        else authz.requireAdmin();
+        return ResponseEntity.ok(item);
+    }
+
+    @GetMapping("/permanencia/status")
+    public ResponseEntity<Map<String, Object>> statusPermanencia() {
+        authz.requireAdmin();
+        return ResponseEntity.ok(permanencia.status());
+    }
+
+    // refaz a janela (app.permanencia.janela-dias) numa passada pelos registros; 409 se já estiver rodando
+    @PostMapping("/permanencia/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirPermanencia() {
+        authz.requireAdmin();
+        try {
+            return ResponseEntity.ok(Map.of("registros", permanencia.reconstruir()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // dispara o arquivamento fora do agendamento (ex.: logo após reduzir o horizonte)
+    @PostMapping("/arquivo")
+    public ResponseEntity<Map<String, Object>> arquivar() {
+        authz.requireAdmin();
+        int movidos = arquivador.arquivar();
+        return ResponseEntity.ok(Map.of("arquivados", movidos, "corte", arquivador.corte()));
+    }
+
+    @GetMapping("/ingestao/status")
+    public ResponseEntity<IngestaoStatusDTO> statusIngestao() {
+        authz.requireAdmin();
+        return ResponseEntity.ok(ingestaoPipeline.status());
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<RegistroDTO> updateRegistro(@PathVariable UUID id, @RequestBody RegistroDTO registroDTO) {
         RegistroDTO atualizado = registroService.updateRegistro(id, registroDTO);
@@ -0,0 +1,38 @@
+package br.com.fiap.apisecurity.controller;
+
+import br.com.fiap.apisecurity.dto.SincronizacaoDTO;
+import br.com.fiap.apisecurity.service.sincronizacao.Sincronizador;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+// Sincronização incremental dos coletores: depois de reconectar, o aparelho manda o último token recebido
+// em vez de baixar de novo as listas de motos e vagas do pátio
+@RestController
+@RequestMapping("/api/sync")
+public class SincronizacaoController {
+
+    private final Sincronizador sincronizador;
+
+    public SincronizacaoController(Sincronizador sincronizador) {
+        this.sincronizador = sincronizador;
+    }
+
+    @GetMapping
+    public ResponseEntity<SincronizacaoDTO> sincronizar(@RequestParam(required = false) String since,
+                                                        @RequestParam(required = false) UUID patioId,
+                                                        @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok()
+                    .header("Cache-Control", "no-store")
+                    .body(sincronizador.sincronizar(since, patioId, limite));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+}
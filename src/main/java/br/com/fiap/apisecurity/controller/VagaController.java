@@ -1,16 +1,27 @@
 package br.com.fiap.apisecurity.controller;
 
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.AlocacaoStatusDTO;
+import br.com.fiap.apisecurity.dto.CursorPage;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.dto.SliceDTO;
 import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
+import br.com.fiap.apisecurity.dto.VagaProximaDTO;
 import br.com.fiap.apisecurity.mapper.VagaMapper;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
 import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.service.PatioService;
 import br.com.fiap.apisecurity.service.VagaService;
+import br.com.fiap.apisecurity.service.ocupacao.AlocadorVagas;
+import br.com.fiap.apisecurity.service.paginacao.ModoTotal;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -21,20 +32,58 @@ public class VagaController {
 
     private final VagaService vagaService;
     private final PatioService patioService;
+    private final AlocadorVagas alocadorVagas;
+    private final Authz authz;
+    private final VersoesRecursos versoes;
 
     @Autowired
-    public VagaController(VagaService vagaService, PatioService patioService) {
+    public VagaController(VagaService vagaService, PatioService patioService,
+                          AlocadorVagas alocadorVagas, Authz authz, VersoesRecursos versoes) {
         this.vagaService = vagaService;
         this.patioService = patioService;
+        this.alocadorVagas = alocadorVagas;
+        this.authz = authz;
+        this.versoes = versoes;
     }
 
+    // ?withTotal=false -> Slice sem COUNT; ?withTotal=approx -> total em cache (cabeçalho X-Total-Aproximado)
     @GetMapping
-    public ResponseEntity<Page<VagaDTO>> getAllVagas(Pageable pageable) {
-        return ResponseEntity.ok(vagaService.readAllVagas(pageable));
+    public ResponseEntity<?> getAllVagas(Pageable pageable,
+                                         @RequestParam(defaultValue = "true") String withTotal,
+                                         WebRequest request) {
+        if (versoes.naoModificado(Recurso.VAGAS, request)) return null;
+        return switch (ModoTotal.de(withTotal)) {
+            case SEM_TOTAL -> ResponseEntity.ok(new SliceDTO<>(vagaService.readVagasSlice(pageable)));
+            case APROXIMADO -> ResponseEntity.ok().header(ModoTotal.HEADER_APROXIMADO, "true")
+                    .body(vagaService.readAllVagasTotalAproximado(pageable));
+            case EXATO -> ResponseEntity.ok(vagaService.readAllVagas(pageable));
+        };
+    }
+
+    // paginação por cursor (keyset): passe o 'proximoCursor' da resposta anterior até ele vir nulo
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<VagaDTO>> getVagasCursor(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer tamanho,
+                                                       WebRequest request) {
+        if (versoes.naoModificado(Recurso.VAGAS, request)) return null;
+        try {
+            return ResponseEntity.ok(vagaService.readVagasCursor(cursor, tamanho));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // seletor de vaga: livres do pátio por prefixo da identificação (?q=A1&limite=20)
+    @GetMapping("/livres")
+    public ResponseEntity<List<VagaOpcaoDTO>> getVagasLivres(@RequestParam(required = false) UUID patioId,
+                                                             @RequestParam(required = false) String q,
+                                                             @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(vagaService.readVagasLivres(patioId, q, limite));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<VagaDTO> getVagaById(@PathVariable UUID id) {
+    public ResponseEntity<VagaDTO> getVagaById(@PathVariable UUID id, WebRequest request) {
+        if (versoes.naoModificado(Recurso.VAGAS, request)) return null;
         Vaga vaga = vagaService.readVagaById(id);
         if (vaga == null) return ResponseEntity.notFound().build();
 
@@ -44,12 +93,33 @@ public class VagaController {
     }
 
     @GetMapping("/patio/{patioId}/status/{status}")
-    public ResponseEntity<List<VagaDTO>> getVagasByPatioAndStatus(@PathVariable UUID patioId, @PathVariable StatusVaga status) {
+    public ResponseEntity<List<VagaDTO>> getVagasByPatioAndStatus(@PathVariable UUID patioId, @PathVariable StatusVaga status,
+                                                                  WebRequest request) {
+        if (versoes.naoModificado(Recurso.VAGAS, request)) return null;
         List<VagaDTO> vagasDTO = vagaService.readByPatioAndStatus(patioId, status);
         if (vagasDTO.isEmpty()) return ResponseEntity.noContent().build();
         return ResponseEntity.ok(vagasDTO);
     }
 
+    @GetMapping("/patio/{patioId}/ocupacao")
+    public ResponseEntity<OcupacaoDTO> getOcupacao(@PathVariable UUID patioId) {
+        return ResponseEntity.ok(vagaService.readOcupacao(patioId));
+    }
+
+    @GetMapping("/patio/{patioId}/proximas")
+    public ResponseEntity<List<VagaProximaDTO>> getVagasProximas(@PathVariable UUID patioId,
+                                                                 @RequestParam double lat,
+                                                                 @RequestParam double lon,
+                                                                 @RequestParam(defaultValue = "5") int k) {
+        return ResponseEntity.ok(vagaService.readVagasProximas(patioId, lat, lon, k));
+    }
+
+    @GetMapping("/alocacao/status")
+    public ResponseEntity<AlocacaoStatusDTO> getAlocacaoStatus() {
+        authz.requireAdmin();
+        return ResponseEntity.ok(alocadorVagas.status());
+    }
+
     @PostMapping
     public ResponseEntity<VagaDTO> createVaga(@RequestBody VagaDTO vagaDTO) {
         return ResponseEntity.ok(vagaService.createVaga(vagaDTO));
@@ -55,10 +55,10 @@ public class AuthController {
             org.springframework.security.core.userdetails.UserDetails principal =
                     (org.springframework.security.core.userdetails.UserDetails) auth.getPrincipal();
 
-            String token = jwtService.generate(principal.getUsername(), principal.getAuthorities());
-
             Usuario u = usuarioRepository.findByEmail(email).orElseThrow();
 
+            String token = jwtService.generate(u, principal.getAuthorities());
+
             java.util.Map<String, Object> body = new java.util.LinkedHashMap<>();
             body.put("accessToken", token);
             body.put("tokenType", "Bearer");
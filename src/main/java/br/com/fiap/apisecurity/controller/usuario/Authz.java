@@ -1,13 +1,16 @@
 package br.com.fiap.apisecurity.controller.usuario;
 
-import br.com.fiap.apisecurity.model.Patio;
 import br.com.fiap.apisecurity.model.enums.CargoUsuario;
 import br.com.fiap.apisecurity.model.usuarios.Usuario;
 import br.com.fiap.apisecurity.repository.UsuarioRepository;
+import br.com.fiap.apisecurity.security.UsuarioAutenticado;
+import br.com.fiap.apisecurity.security.UsuarioPrincipal;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -15,6 +18,7 @@ import java.util.UUID;
 @Component("authz")
 public class Authz {
 
+    private static final String ATRIBUTO_USUARIO = Authz.class.getName() + ".usuario";
 
     private final UsuarioRepository usuarioRepository;
 
@@ -31,15 +35,41 @@ public class Authz {
                 .orElseThrow(() -> new SecurityException("Usuário autenticado não encontrado."));
     }
 
+    // Memoizado no escopo da requisição: services e SpEL (@authz.isAdmin()) consultam o usuário uma única vez
+    public UsuarioAutenticado currentUsuarioOrThrow() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth.getName() == null) {
+            throw new SecurityException("Usuário não autenticado.");
+        }
+        if (auth.getPrincipal() instanceof UsuarioPrincipal principal) {
+            return principal.getUsuario();
+        }
+
+        RequestAttributes attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs != null
+                && attrs.getAttribute(ATRIBUTO_USUARIO, RequestAttributes.SCOPE_REQUEST) instanceof UsuarioAutenticado u
+                && u.email().equalsIgnoreCase(auth.getName())) {
+            return u;
+        }
+
+        UsuarioAutenticado usuario = UsuarioAutenticado.de(currentUserOrThrow());
+        if (attrs != null) {
+            attrs.setAttribute(ATRIBUTO_USUARIO, usuario, RequestAttributes.SCOPE_REQUEST);
+        }
+        return usuario;
+    }
+
     public boolean isAdmin() {
-        Usuario u = currentUserOrThrow();
-        return u.getCargo() == CargoUsuario.ADMIN;
+        return currentUsuarioOrThrow().isAdmin();
+    }
+
+    // Partição das chaves de cache: ADMIN enxerga todos os pátios, operador só o seu
+    public String escopoCache() {
+        return isAdmin() ? "ADMIN" : "P:" + currentUserPatioIdOrThrow();
     }
 
     public UUID currentUserPatioIdOrNull() {
-        Usuario u = currentUserOrThrow();
-        Patio p = u.getPatio();
-        return (p != null) ? p.getId() : null;
+        return currentUsuarioOrThrow().patioId();
     }
 
     public UUID currentUserPatioIdOrThrow() {
@@ -78,8 +108,10 @@ public class Authz {
     }
 
     public boolean isAdminAuthenticated() {
-        return currentUserOptional()
-                .map(u -> u.getCargo() == CargoUsuario.ADMIN)
-                .orElse(false);
+        try {
+            return currentUsuarioOrThrow().cargo() == CargoUsuario.ADMIN;
+        } catch (SecurityException e) {
+            return false;
+        }
     }
 }
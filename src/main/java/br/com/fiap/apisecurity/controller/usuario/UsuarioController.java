@@ -65,18 +65,10 @@ public class UsuarioController {
             if (existente.isPresent() && !existente.get().getId().equals(usuario.getId())) {
                 return ResponseEntity.badRequest().body("E-mail já está em uso");
             }
-            usuario.setEmail(novoEmail);
         }
 
-        if (dto.getNovaSenha() != null && !dto.getNovaSenha().isBlank()) {
-            usuario.setSenha(passwordEncoder.encode(dto.getNovaSenha()));
-        }
-
-        if (dto.getNovoCargo() != null) {
-            usuario.setCargo(dto.getNovoCargo());
-        }
-
-        usuarioRepository.save(usuario);
+        // o serviço revoga os tokens anteriores quando e-mail, senha, cargo ou pátio mudam
+        usuarioService.atualizarPerfil(usuario, dto.getNovoEmail(), dto.getNovaSenha(), dto.getNovoCargo());
         return ResponseEntity.ok("Perfil atualizado com sucesso");
     }
 }
@@ -1,9 +1,13 @@
 package br.com.fiap.apisecurity.controller.viewController;
 
 import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
+import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.service.MotoService;
 import br.com.fiap.apisecurity.service.PatioService;
 import br.com.fiap.apisecurity.service.VagaService;
+import br.com.fiap.apisecurity.service.importacao.ImportadorMotos;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -14,9 +18,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.UUID;
 
@@ -24,21 +31,29 @@ import java.util.UUID;
 @RequestMapping("/motos")
 public class MotoViewController {
 
+    // opções de vaga renderizadas com o formulário; a busca (GET /vagas/livres) troca a lista depois
+    private static final int OPCOES_VAGA = 20;
 
     private final MotoService motoService;
     private final VagaService vagaService;
     private final PatioService patioService;
+    private final ImportadorMotos importador;
 
-    public MotoViewController(MotoService motoService, VagaService vagaService, PatioService patioService) {
+    public MotoViewController(MotoService motoService, VagaService vagaService, PatioService patioService,
+                              ImportadorMotos importador) {
         this.motoService = motoService;
         this.vagaService = vagaService;
         this.patioService = patioService;
+        this.importador = importador;
     }
 
 
     @GetMapping
     public String list(@RequestParam(required = false) String placa,
                        @RequestParam(defaultValue = "false") boolean mostrarInativas,
+                       @RequestParam(required = false) String modo,
+                       @RequestParam(required = false) String cursor,
+                       @RequestParam(required = false) Integer tamanho,
                        @PageableDefault(size = 10, sort = "placa") Pageable pageable,
                        Model model,
                        HttpServletResponse resp) {
@@ -56,6 +71,9 @@ public class MotoViewController {
             var page = new PageImpl<>(content, p0, content.size());
             model.addAttribute("page", page);
             model.addAttribute("content", page.getContent());
+        } else if ("mais".equals(modo)) {
+            // modo "carregar mais": keyset por placa, sem contar o total
+            model.addAttribute("cursorPage", motoService.readMotosCursor(cursor, tamanho != null ? tamanho : pageable.getPageSize()));
         } else {
             var page = motoService.readAllMotos(pageable);
             model.addAttribute("page", page);
@@ -71,9 +89,8 @@ public class MotoViewController {
         dto.setStatus(br.com.fiap.apisecurity.model.enums.StatusMoto.DISPONIVEL);
         model.addAttribute("form", dto);
 
-        var vagas = vagaService.readAllVagas(Pageable.unpaged()).getContent()
-                .stream().filter(v -> v.getMoto() == null).toList();
-        model.addAttribute("vagas", vagas);
+        model.addAttribute("vagas", vagaService.readVagasLivres(null, null, OPCOES_VAGA));
+        model.addAttribute("patios", patioService.readAllPatios(Pageable.unpaged()).getContent());
 
         return "moto/form";
     }
@@ -85,6 +102,33 @@ public class MotoViewController {
         return "redirect:/motos";
     }
 
+    @GetMapping("/importar")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String importarForm(Model model) {
+        model.addAttribute("patios", patioService.readAllPatios(Pageable.unpaged()).getContent());
+        return "moto/importar";
+    }
+
+    @PostMapping("/importar")
+    @PreAuthorize("hasRole('ADMIN')")
+    public String importar(@RequestParam UUID patioId,
+                           @RequestParam("arquivo") MultipartFile arquivo,
+                           @RequestParam(defaultValue = "false") boolean somenteValidar,
+                           Model model) {
+        model.addAttribute("patios", patioService.readAllPatios(Pageable.unpaged()).getContent());
+        model.addAttribute("patioId", patioId);
+        if (arquivo.isEmpty()) {
+            model.addAttribute("error", "Selecione um arquivo CSV.");
+            return "moto/importar";
+        }
+        try (InputStream csv = arquivo.getInputStream()) {
+            model.addAttribute("resultado", importador.importar(patioId, csv, somenteValidar));
+        } catch (IOException | IllegalArgumentException | EntityNotFoundException e) {
+            model.addAttribute("error", e.getMessage());
+        }
+        return "moto/importar";
+    }
+
     @GetMapping("/{id}/editar")
     @PreAuthorize("hasRole('ADMIN')")
     public String editar(
@@ -100,16 +144,21 @@ public class MotoViewController {
             return "redirect:/motos";
         }
 
-        var todas = vagaService.readAllVagas(Pageable.unpaged()).getContent();
-        var vagaAtualId = form.getVagaId();
-        var vagas = todas.stream()
-                .filter(v -> v.getMoto() == null || java.util.Objects.equals(v.getId(), vagaAtualId))
-                .sorted(java.util.Comparator.comparing(
-                        v -> java.util.Optional.ofNullable(v.getIdentificacao()).orElse(v.getId().toString())))
-                .toList();
+        // a vaga atual (ocupada pela própria moto) abre a lista; as demais são as primeiras livres do mesmo pátio
+        var vagas = new ArrayList<VagaOpcaoDTO>();
+        UUID patioFiltro = null;
+        if (form.getVagaId() != null) {
+            Vaga atual = vagaService.readVagaById(form.getVagaId());
+            patioFiltro = atual.getPatio() != null ? atual.getPatio().getId() : null;
+            vagas.add(new VagaOpcaoDTO(atual.getId(), atual.getIdentificacao(), patioFiltro,
+                    atual.getPatio() != null ? atual.getPatio().getNome() : null));
+        }
+        vagas.addAll(vagaService.readVagasLivres(patioFiltro, null, OPCOES_VAGA));
 
         model.addAttribute("form", form);
         model.addAttribute("vagas", vagas);
+        model.addAttribute("patios", patioService.readAllPatios(Pageable.unpaged()).getContent());
+        model.addAttribute("patioFiltro", patioFiltro);
 
         // só adiciona se tiver parâmetros; evita NPE e funciona bem com o template
         if (page != null && size != null) {
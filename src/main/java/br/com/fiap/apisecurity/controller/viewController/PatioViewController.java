@@ -1,7 +1,9 @@
 package br.com.fiap.apisecurity.controller.viewController;
 
 import br.com.fiap.apisecurity.dto.PatioDTO;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
 import br.com.fiap.apisecurity.service.PatioService;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
@@ -13,6 +15,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Controller
@@ -21,9 +25,11 @@ public class PatioViewController {
 
 
     private final PatioService patioService;
+    private final OcupacaoIndex ocupacaoIndex;
 
-    public PatioViewController(PatioService patioService) {
+    public PatioViewController(PatioService patioService, OcupacaoIndex ocupacaoIndex) {
         this.patioService = patioService;
+        this.ocupacaoIndex = ocupacaoIndex;
     }
 
     @GetMapping
@@ -40,6 +46,11 @@ public class PatioViewController {
         var page = patioService.readAllPatios(pageable);
         model.addAttribute("page", page);
         model.addAttribute("content", page.getContent());
+
+        // valor inicial da coluna de ocupação; o painel ao vivo atualiza depois
+        Map<UUID, OcupacaoDTO> ocupacoes = new HashMap<>();
+        for (PatioDTO p : page.getContent()) ocupacoes.put(p.getId(), ocupacaoIndex.ocupacao(p.getId()));
+        model.addAttribute("ocupacoes", ocupacoes);
         return "patio/list";
     }
 
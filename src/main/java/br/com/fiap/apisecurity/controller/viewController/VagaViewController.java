@@ -1,6 +1,7 @@
 package br.com.fiap.apisecurity.controller.viewController;
 
 import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
 import br.com.fiap.apisecurity.service.PatioService;
 import br.com.fiap.apisecurity.service.VagaService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -33,6 +35,9 @@ public class VagaViewController {
 
     @GetMapping
     public String list(@PageableDefault(size = 10, sort = "identificacao") Pageable pageable,
+                       @RequestParam(required = false) String modo,
+                       @RequestParam(required = false) String cursor,
+                       @RequestParam(required = false) Integer tamanho,
                        Model model,
                        HttpServletRequest req,
                        HttpServletResponse resp) {
@@ -43,6 +48,12 @@ public class VagaViewController {
         resp.setHeader("Pragma", "no-cache");
         resp.setDateHeader("Expires", 0);
 
+        if ("mais".equals(modo)) {
+            // modo "carregar mais": keyset por identificação, sem contar o total
+            model.addAttribute("cursorPage", vagaService.readVagasCursor(cursor, tamanho != null ? tamanho : pageable.getPageSize()));
+            return "vaga/list";
+        }
+
         var page = vagaService.readAllVagas(pageable);
         model.addAttribute("page", page);
 
@@ -54,6 +65,15 @@ public class VagaViewController {
     }
 
 
+    // seletor de vaga dos formulários de moto (JSON pela sessão web; a API equivalente é /api/vagas/livres)
+    @GetMapping("/livres")
+    @ResponseBody
+    public List<VagaOpcaoDTO> livres(@RequestParam(required = false) UUID patioId,
+                                     @RequestParam(required = false) String q,
+                                     @RequestParam(required = false) Integer limite) {
+        return vagaService.readVagasLivres(patioId, q, limite);
+    }
+
     @GetMapping("/novo")
     @PreAuthorize("hasRole('ADMIN')")
     public String novo(Model model) {
@@ -0,0 +1,30 @@
+package br.com.fiap.apisecurity.dto;
+
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+
+import java.time.LocalDateTime;
+
+// Um balde do agregado de movimentações: início do intervalo, tipo e quantidade
+public class AgregadoDTO {
+
+    private LocalDateTime inicio;
+    private TipoMovimentacao tipo;
+    private long quantidade;
+
+    public AgregadoDTO() {}
+
+    public AgregadoDTO(LocalDateTime inicio, TipoMovimentacao tipo, long quantidade) {
+        this.inicio = inicio;
+        this.tipo = tipo;
+        this.quantidade = quantidade;
+    }
+
+    public LocalDateTime getInicio() { return inicio; }
+    public void setInicio(LocalDateTime inicio) { this.inicio = inicio; }
+
+    public TipoMovimentacao getTipo() { return tipo; }
+    public void setTipo(TipoMovimentacao tipo) { this.tipo = tipo; }
+
+    public long getQuantidade() { return quantidade; }
+    public void setQuantidade(long quantidade) { this.quantidade = quantidade; }
+}
@@ -0,0 +1,35 @@
+package br.com.fiap.apisecurity.dto;
+
+public class AlocacaoStatusDTO {
+
+    private long tentativas;
+    private long sucessos;
+    private long conflitos;
+    private long esgotadas;
+    private long semVagaLivre;
+    private double taxaConflito;
+    private double latenciaMediaMs;
+
+    public AlocacaoStatusDTO() {}
+
+    public long getTentativas() { return tentativas; }
+    public void setTentativas(long tentativas) { this.tentativas = tentativas; }
+
+    public long getSucessos() { return sucessos; }
+    public void setSucessos(long sucessos) { this.sucessos = sucessos; }
+
+    public long getConflitos() { return conflitos; }
+    public void setConflitos(long conflitos) { this.conflitos = conflitos; }
+
+    public long getEsgotadas() { return esgotadas; }
+    public void setEsgotadas(long esgotadas) { this.esgotadas = esgotadas; }
+
+    public long getSemVagaLivre() { return semVagaLivre; }
+    public void setSemVagaLivre(long semVagaLivre) { this.semVagaLivre = semVagaLivre; }
+
+    public double getTaxaConflito() { return taxaConflito; }
+    public void setTaxaConflito(double taxaConflito) { this.taxaConflito = taxaConflito; }
+
+    public double getLatenciaMediaMs() { return latenciaMediaMs; }
+    public void setLatenciaMediaMs(double latenciaMediaMs) { this.latenciaMediaMs = latenciaMediaMs; }
+}
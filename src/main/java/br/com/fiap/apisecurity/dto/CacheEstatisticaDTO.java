@@ -0,0 +1,46 @@
+package br.com.fiap.apisecurity.dto;
+
+public class CacheEstatisticaDTO {
+
+    private String nome;
+    private long entradas;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+    private long evictionWeight;
+
+    public CacheEstatisticaDTO() {}
+
+    public CacheEstatisticaDTO(String nome, long entradas, long hits, long misses,
+                               double hitRatio, long evictions, long evictionWeight) {
+        this.nome = nome;
+        this.entradas = entradas;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRatio = hitRatio;
+        this.evictions = evictions;
+        this.evictionWeight = evictionWeight;
+    }
+
+    public String getNome() { return nome; }
+    public void setNome(String nome) { this.nome = nome; }
+
+    public long getEntradas() { return entradas; }
+    public void setEntradas(long entradas) { this.entradas = entradas; }
+
+    public long getHits() { return hits; }
+    public void setHits(long hits) { this.hits = hits; }
+
+    public long getMisses() { return misses; }
+    public void setMisses(long misses) { this.misses = misses; }
+
+    public double getHitRatio() { return hitRatio; }
+    public void setHitRatio(double hitRatio) { this.hitRatio = hitRatio; }
+
+    public long getEvictions() { return evictions; }
+    public void setEvictions(long evictions) { this.evictions = evictions; }
+
+    public long getEvictionWeight() { return evictionWeight; }
+    public void setEvictionWeight(long evictionWeight) { this.evictionWeight = evictionWeight; }
+}
@@ -0,0 +1,33 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.List;
+
+// Página por cursor (keyset): sem total nem número de página; 'proximoCursor' é opaco e nulo na última página
+public class CursorPage<T> {
+
+    private List<T> content;
+    private String proximoCursor;
+    private int tamanho;
+    private boolean temMais;
+
+    public CursorPage() {}
+
+    public CursorPage(List<T> content, String proximoCursor, int tamanho) {
+        this.content = content;
+        this.proximoCursor = proximoCursor;
+        this.tamanho = tamanho;
+        this.temMais = proximoCursor != null;
+    }
+
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public String getProximoCursor() { return proximoCursor; }
+    public void setProximoCursor(String proximoCursor) { this.proximoCursor = proximoCursor; }
+
+    public int getTamanho() { return tamanho; }
+    public void setTamanho(int tamanho) { this.tamanho = tamanho; }
+
+    public boolean isTemMais() { return temMais; }
+    public void setTemMais(boolean temMais) { this.temMais = temMais; }
+}
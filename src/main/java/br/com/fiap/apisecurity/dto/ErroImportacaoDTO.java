@@ -0,0 +1,26 @@
+package br.com.fiap.apisecurity.dto;
+
+// Linha rejeitada na importação (linha 1 = primeira linha do arquivo, cabeçalho incluído)
+public class ErroImportacaoDTO {
+
+    private long linha;
+    private String placa;
+    private String mensagem;
+
+    public ErroImportacaoDTO() {}
+
+    public ErroImportacaoDTO(long linha, String placa, String mensagem) {
+        this.linha = linha;
+        this.placa = placa;
+        this.mensagem = mensagem;
+    }
+
+    public long getLinha() { return linha; }
+    public void setLinha(long linha) { this.linha = linha; }
+
+    public String getPlaca() { return placa; }
+    public void setPlaca(String placa) { this.placa = placa; }
+
+    public String getMensagem() { return mensagem; }
+    public void setMensagem(String mensagem) { this.mensagem = mensagem; }
+}
@@ -0,0 +1,44 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Resultado da importação de motos por CSV: contagens e os erros por linha (limitados)
+public class ImportacaoMotosDTO {
+
+    private UUID patioId;
+    private boolean somenteValidacao;
+    private long linhas;
+    private long importadas;
+    private long comErro;
+    private long duracaoMs;
+    private List<ErroImportacaoDTO> erros = new ArrayList<>();
+    private boolean errosTruncados;
+
+    public ImportacaoMotosDTO() {}
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public boolean isSomenteValidacao() { return somenteValidacao; }
+    public void setSomenteValidacao(boolean somenteValidacao) { this.somenteValidacao = somenteValidacao; }
+
+    public long getLinhas() { return linhas; }
+    public void setLinhas(long linhas) { this.linhas = linhas; }
+
+    public long getImportadas() { return importadas; }
+    public void setImportadas(long importadas) { this.importadas = importadas; }
+
+    public long getComErro() { return comErro; }
+    public void setComErro(long comErro) { this.comErro = comErro; }
+
+    public long getDuracaoMs() { return duracaoMs; }
+    public void setDuracaoMs(long duracaoMs) { this.duracaoMs = duracaoMs; }
+
+    public List<ErroImportacaoDTO> getErros() { return erros; }
+    public void setErros(List<ErroImportacaoDTO> erros) { this.erros = erros; }
+
+    public boolean isErrosTruncados() { return errosTruncados; }
+    public void setErrosTruncados(boolean errosTruncados) { this.errosTruncados = errosTruncados; }
+}
@@ -0,0 +1,63 @@
+package br.com.fiap.apisecurity.dto;
+
+public class IngestaoStatusDTO {
+
+    private int filaAtual;
+    private int filaCapacidade;
+    private long eventosAceitos;
+    private long eventosRejeitados;
+    private long eventosCoalescidos;
+    private long eventosGravados;
+    private long eventosComFalha;
+    private long lotesGravados;
+    private int ultimoLote;
+    private int maiorLote;
+    private double mediaLote;
+    private double latenciaEscritaMediaMs;
+    private double latenciaEscritaMaximaMs;
+    private long ultimaSequencia;
+
+    public IngestaoStatusDTO() {}
+
+    public int getFilaAtual() { return filaAtual; }
+    public void setFilaAtual(int filaAtual) { this.filaAtual = filaAtual; }
+
+    public int getFilaCapacidade() { return filaCapacidade; }
+    public void setFilaCapacidade(int filaCapacidade) { this.filaCapacidade = filaCapacidade; }
+
+    public long getEventosAceitos() { return eventosAceitos; }
+    public void setEventosAceitos(long eventosAceitos) { this.eventosAceitos = eventosAceitos; }
+
+    public long getEventosRejeitados() { return eventosRejeitados; }
+    public void setEventosRejeitados(long eventosRejeitados) { this.eventosRejeitados = eventosRejeitados; }
+
+    public long getEventosCoalescidos() { return eventosCoalescidos; }
+    public void setEventosCoalescidos(long eventosCoalescidos) { this.eventosCoalescidos = eventosCoalescidos; }
+
+    public long getEventosGravados() { return eventosGravados; }
+    public void setEventosGravados(long eventosGravados) { this.eventosGravados = eventosGravados; }
+
+    public long getEventosComFalha() { return eventosComFalha; }
+    public void setEventosComFalha(long eventosComFalha) { this.eventosComFalha = eventosComFalha; }
+
+    public long getLotesGravados() { return lotesGravados; }
+    public void setLotesGravados(long lotesGravados) { this.lotesGravados = lotesGravados; }
+
+    public int getUltimoLote() { return ultimoLote; }
+    public void setUltimoLote(int ultimoLote) { this.ultimoLote = ultimoLote; }
+
+    public int getMaiorLote() { return maiorLote; }
+    public void setMaiorLote(int maiorLote) { this.maiorLote = maiorLote; }
+
+    public double getMediaLote() { return mediaLote; }
+    public void setMediaLote(double mediaLote) { this.mediaLote = mediaLote; }
+
+    public double getLatenciaEscritaMediaMs() { return latenciaEscritaMediaMs; }
+    public void setLatenciaEscritaMediaMs(double latenciaEscritaMediaMs) { this.latenciaEscritaMediaMs = latenciaEscritaMediaMs; }
+
+    public double getLatenciaEscritaMaximaMs() { return latenciaEscritaMaximaMs; }
+    public void setLatenciaEscritaMaximaMs(double latenciaEscritaMaximaMs) { this.latenciaEscritaMaximaMs = latenciaEscritaMaximaMs; }
+
+    public long getUltimaSequencia() { return ultimaSequencia; }
+    public void setUltimaSequencia(long ultimaSequencia) { this.ultimaSequencia = ultimaSequencia; }
+}
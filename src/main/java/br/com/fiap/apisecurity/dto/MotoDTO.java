@@ -33,6 +33,12 @@ public class MotoDTO {
         this.vagaId = vagaId;
     }
 
+    // projeção JPQL das listagens (MotoRepository), já com a identificação da vaga
+    public MotoDTO(UUID id, String placa, StatusMoto status, UUID vagaId, String vagaIdentificacao) {
+        this(id, placa, status, vagaId);
+        this.vagaIdentificacao = vagaIdentificacao;
+    }
+
     public String getVagaIdentificacao() {
         return vagaIdentificacao;
     }
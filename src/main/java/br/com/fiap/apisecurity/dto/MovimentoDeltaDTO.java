@@ -0,0 +1,47 @@
+package br.com.fiap.apisecurity.dto;
+
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Painel ao vivo: registro de movimentação commitado no intervalo
+public class MovimentoDeltaDTO {
+
+    private UUID registroId;
+    private UUID motoId;
+    private UUID patioId;
+    private UUID vagaId;
+    private TipoMovimentacao tipo;
+    private LocalDateTime dataHora;
+
+    public MovimentoDeltaDTO() {}
+
+    public MovimentoDeltaDTO(UUID registroId, UUID motoId, UUID patioId, UUID vagaId,
+                             TipoMovimentacao tipo, LocalDateTime dataHora) {
+        this.registroId = registroId;
+        this.motoId = motoId;
+        this.patioId = patioId;
+        this.vagaId = vagaId;
+        this.tipo = tipo;
+        this.dataHora = dataHora;
+    }
+
+    public UUID getRegistroId() { return registroId; }
+    public void setRegistroId(UUID registroId) { this.registroId = registroId; }
+
+    public UUID getMotoId() { return motoId; }
+    public void setMotoId(UUID motoId) { this.motoId = motoId; }
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public UUID getVagaId() { return vagaId; }
+    public void setVagaId(UUID vagaId) { this.vagaId = vagaId; }
+
+    public TipoMovimentacao getTipo() { return tipo; }
+    public void setTipo(TipoMovimentacao tipo) { this.tipo = tipo; }
+
+    public LocalDateTime getDataHora() { return dataHora; }
+    public void setDataHora(LocalDateTime dataHora) { this.dataHora = dataHora; }
+}
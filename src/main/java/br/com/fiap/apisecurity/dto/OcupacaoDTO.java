@@ -0,0 +1,41 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.UUID;
+
+public class OcupacaoDTO {
+
+    private UUID patioId;
+    private int total;
+    private int livres;
+    private int ocupadas;
+    private int indisponiveis;
+    private double percentualOcupacao;
+    private UUID proximaVagaLivreId;
+    private String proximaVagaLivreIdentificacao;
+
+    public OcupacaoDTO() {}
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getLivres() { return livres; }
+    public void setLivres(int livres) { this.livres = livres; }
+
+    public int getOcupadas() { return ocupadas; }
+    public void setOcupadas(int ocupadas) { this.ocupadas = ocupadas; }
+
+    public int getIndisponiveis() { return indisponiveis; }
+    public void setIndisponiveis(int indisponiveis) { this.indisponiveis = indisponiveis; }
+
+    public double getPercentualOcupacao() { return percentualOcupacao; }
+    public void setPercentualOcupacao(double percentualOcupacao) { this.percentualOcupacao = percentualOcupacao; }
+
+    public UUID getProximaVagaLivreId() { return proximaVagaLivreId; }
+    public void setProximaVagaLivreId(UUID proximaVagaLivreId) { this.proximaVagaLivreId = proximaVagaLivreId; }
+
+    public String getProximaVagaLivreIdentificacao() { return proximaVagaLivreIdentificacao; }
+    public void setProximaVagaLivreIdentificacao(String proximaVagaLivreIdentificacao) { this.proximaVagaLivreIdentificacao = proximaVagaLivreIdentificacao; }
+}
@@ -0,0 +1,32 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Evento "delta" do painel ao vivo: tudo o que mudou num pátio desde o último envio
+public class PainelDeltaDTO {
+
+    private UUID patioId;
+    private List<VagaDeltaDTO> vagas = new ArrayList<>();
+    private List<MovimentoDeltaDTO> movimentos = new ArrayList<>();
+    private OcupacaoDTO ocupacao;
+
+    public PainelDeltaDTO() {}
+
+    public PainelDeltaDTO(UUID patioId) {
+        this.patioId = patioId;
+    }
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public List<VagaDeltaDTO> getVagas() { return vagas; }
+    public void setVagas(List<VagaDeltaDTO> vagas) { this.vagas = vagas; }
+
+    public List<MovimentoDeltaDTO> getMovimentos() { return movimentos; }
+    public void setMovimentos(List<MovimentoDeltaDTO> movimentos) { this.movimentos = movimentos; }
+
+    public OcupacaoDTO getOcupacao() { return ocupacao; }
+    public void setOcupacao(OcupacaoDTO ocupacao) { this.ocupacao = ocupacao; }
+}
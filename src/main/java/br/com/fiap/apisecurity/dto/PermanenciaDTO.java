@@ -0,0 +1,80 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Permanência e giro de um pátio desde o início da janela analisada (tempos em segundos)
+public class PermanenciaDTO {
+
+    private UUID patioId;
+    private LocalDateTime desde;
+
+    // sessão = ENTRADA até SAIDA da moto no pátio
+    private long sessoesConcluidas;
+    private long sessoesAbertas;
+    private double permanenciaMedia;
+    private long permanenciaP50;
+    private long permanenciaP95;
+    private long permanenciaP99;
+    private long permanenciaMaxima;
+
+    // estadia = tempo de uma moto numa vaga (ALOCACAO/TROCA_DE_VAGA até a próxima troca ou a saída)
+    private long estadiasVagaConcluidas;
+    private double estadiaVagaMedia;
+    private long estadiaVagaP50;
+    private long estadiaVagaP95;
+    private long estadiaVagaP99;
+
+    private int vagas;
+    private double giroPorVagaDia;
+
+    public PermanenciaDTO() {}
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public LocalDateTime getDesde() { return desde; }
+    public void setDesde(LocalDateTime desde) { this.desde = desde; }
+
+    public long getSessoesConcluidas() { return sessoesConcluidas; }
+    public void setSessoesConcluidas(long sessoesConcluidas) { this.sessoesConcluidas = sessoesConcluidas; }
+
+    public long getSessoesAbertas() { return sessoesAbertas; }
+    public void setSessoesAbertas(long sessoesAbertas) { this.sessoesAbertas = sessoesAbertas; }
+
+    public double getPermanenciaMedia() { return permanenciaMedia; }
+    public void setPermanenciaMedia(double permanenciaMedia) { this.permanenciaMedia = permanenciaMedia; }
+
+    public long getPermanenciaP50() { return permanenciaP50; }
+    public void setPermanenciaP50(long permanenciaP50) { this.permanenciaP50 = permanenciaP50; }
+
+    public long getPermanenciaP95() { return permanenciaP95; }
+    public void setPermanenciaP95(long permanenciaP95) { this.permanenciaP95 = permanenciaP95; }
+
+    public long getPermanenciaP99() { return permanenciaP99; }
+    public void setPermanenciaP99(long permanenciaP99) { this.permanenciaP99 = permanenciaP99; }
+
+    public long getPermanenciaMaxima() { return permanenciaMaxima; }
+    public void setPermanenciaMaxima(long permanenciaMaxima) { this.permanenciaMaxima = permanenciaMaxima; }
+
+    public long getEstadiasVagaConcluidas() { return estadiasVagaConcluidas; }
+    public void setEstadiasVagaConcluidas(long estadiasVagaConcluidas) { this.estadiasVagaConcluidas = estadiasVagaConcluidas; }
+
+    public double getEstadiaVagaMedia() { return estadiaVagaMedia; }
+    public void setEstadiaVagaMedia(double estadiaVagaMedia) { this.estadiaVagaMedia = estadiaVagaMedia; }
+
+    public long getEstadiaVagaP50() { return estadiaVagaP50; }
+    public void setEstadiaVagaP50(long estadiaVagaP50) { this.estadiaVagaP50 = estadiaVagaP50; }
+
+    public long getEstadiaVagaP95() { return estadiaVagaP95; }
+    public void setEstadiaVagaP95(long estadiaVagaP95) { this.estadiaVagaP95 = estadiaVagaP95; }
+
+    public long getEstadiaVagaP99() { return estadiaVagaP99; }
+    public void setEstadiaVagaP99(long estadiaVagaP99) { this.estadiaVagaP99 = estadiaVagaP99; }
+
+    public int getVagas() { return vagas; }
+    public void setVagas(int vagas) { this.vagas = vagas; }
+
+    public double getGiroPorVagaDia() { return giroPorVagaDia; }
+    public void setGiroPorVagaDia(double giroPorVagaDia) { this.giroPorVagaDia = giroPorVagaDia; }
+}
@@ -0,0 +1,43 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Permanência acumulada de uma moto (sessões no pátio) ou de uma vaga (estadias), em segundos
+public class PermanenciaItemDTO {
+
+    private UUID id;
+    private UUID patioId;
+    private long concluidas;
+    private double media;
+    private long maxima;
+    private long ultima;
+    private double giroPorDia;
+    private LocalDateTime emAndamentoDesde;
+
+    public PermanenciaItemDTO() {}
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public long getConcluidas() { return concluidas; }
+    public void setConcluidas(long concluidas) { this.concluidas = concluidas; }
+
+    public double getMedia() { return media; }
+    public void setMedia(double media) { this.media = media; }
+
+    public long getMaxima() { return maxima; }
+    public void setMaxima(long maxima) { this.maxima = maxima; }
+
+    public long getUltima() { return ultima; }
+    public void setUltima(long ultima) { this.ultima = ultima; }
+
+    public double getGiroPorDia() { return giroPorDia; }
+    public void setGiroPorDia(double giroPorDia) { this.giroPorDia = giroPorDia; }
+
+    public LocalDateTime getEmAndamentoDesde() { return emAndamentoDesde; }
+    public void setEmAndamentoDesde(LocalDateTime emAndamentoDesde) { this.emAndamentoDesde = emAndamentoDesde; }
+}
@@ -0,0 +1,50 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Resposta de GET /api/sync: o que mudou no escopo desde o token recebido (ou tudo, quando completo = true).
+// O cliente aplica os registros por id, apaga os removidos e guarda o token para a próxima chamada.
+public class SincronizacaoDTO {
+
+    private String token;
+    private boolean completo;
+    private boolean temMais;
+    private List<MotoDTO> motos = new ArrayList<>();
+    private List<VagaDTO> vagas = new ArrayList<>();
+    private List<LeitorDTO> leitores = new ArrayList<>();
+    // deixaram de existir ou de pertencer ao pátio sincronizado
+    private List<UUID> motosRemovidas = new ArrayList<>();
+    private List<UUID> vagasRemovidas = new ArrayList<>();
+    private List<UUID> leitoresRemovidos = new ArrayList<>();
+
+    public SincronizacaoDTO() {}
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+
+    public boolean isCompleto() { return completo; }
+    public void setCompleto(boolean completo) { this.completo = completo; }
+
+    public boolean isTemMais() { return temMais; }
+    public void setTemMais(boolean temMais) { this.temMais = temMais; }
+
+    public List<MotoDTO> getMotos() { return motos; }
+    public void setMotos(List<MotoDTO> motos) { this.motos = motos; }
+
+    public List<VagaDTO> getVagas() { return vagas; }
+    public void setVagas(List<VagaDTO> vagas) { this.vagas = vagas; }
+
+    public List<LeitorDTO> getLeitores() { return leitores; }
+    public void setLeitores(List<LeitorDTO> leitores) { this.leitores = leitores; }
+
+    public List<UUID> getMotosRemovidas() { return motosRemovidas; }
+    public void setMotosRemovidas(List<UUID> motosRemovidas) { this.motosRemovidas = motosRemovidas; }
+
+    public List<UUID> getVagasRemovidas() { return vagasRemovidas; }
+    public void setVagasRemovidas(List<UUID> vagasRemovidas) { this.vagasRemovidas = vagasRemovidas; }
+
+    public List<UUID> getLeitoresRemovidos() { return leitoresRemovidos; }
+    public void setLeitoresRemovidos(List<UUID> leitoresRemovidos) { this.leitoresRemovidos = leitoresRemovidos; }
+}
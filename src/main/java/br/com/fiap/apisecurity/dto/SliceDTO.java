@@ -0,0 +1,40 @@
+package br.com.fiap.apisecurity.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+// Resposta de ?withTotal=false: a página pedida e se existe a próxima, sem total (nenhum COUNT no banco)
+public class SliceDTO<T> {
+
+    private List<T> content;
+    private int number;
+    private int size;
+    private int numberOfElements;
+    private boolean hasNext;
+
+    public SliceDTO() {}
+
+    public SliceDTO(Slice<T> slice) {
+        this.content = slice.getContent();
+        this.number = slice.getNumber();
+        this.size = slice.getSize();
+        this.numberOfElements = slice.getNumberOfElements();
+        this.hasNext = slice.hasNext();
+    }
+
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+
+    public int getNumber() { return number; }
+    public void setNumber(int number) { this.number = number; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public int getNumberOfElements() { return numberOfElements; }
+    public void setNumberOfElements(int numberOfElements) { this.numberOfElements = numberOfElements; }
+
+    public boolean isHasNext() { return hasNext; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
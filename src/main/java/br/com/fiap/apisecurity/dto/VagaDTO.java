@@ -1,5 +1,6 @@
 package br.com.fiap.apisecurity.dto;
 
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
@@ -50,6 +51,14 @@ public class VagaDTO {
         this.moto = moto;
     }
 
+    // projeção JPQL das listagens (VagaRepository): colunas planas de vaga, pátio e moto
+    public VagaDTO(UUID id, Double coordenadaLat, Double coordenadaLong, StatusVaga status, String identificacao,
+                   UUID patioId, String patioNome,
+                   UUID motoId, String motoPlaca, StatusMoto motoStatus, UUID motoVagaId) {
+        this(id, coordenadaLat, coordenadaLong, status, patioId, patioNome, identificacao,
+                motoId != null ? new MotoDTO(motoId, motoPlaca, motoStatus, motoVagaId) : null);
+    }
+
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
 
@@ -0,0 +1,44 @@
+package br.com.fiap.apisecurity.dto;
+
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+
+import java.util.UUID;
+
+// Painel ao vivo: último estado de uma vaga no intervalo (status == null indica remoção)
+public class VagaDeltaDTO {
+
+    private UUID vagaId;
+    private UUID patioId;
+    private String identificacao;
+    private StatusVaga status;
+    private UUID motoId;
+    private String motoPlaca;
+
+    public VagaDeltaDTO() {}
+
+    public VagaDeltaDTO(UUID vagaId, UUID patioId, String identificacao, StatusVaga status, UUID motoId) {
+        this.vagaId = vagaId;
+        this.patioId = patioId;
+        this.identificacao = identificacao;
+        this.status = status;
+        this.motoId = motoId;
+    }
+
+    public UUID getVagaId() { return vagaId; }
+    public void setVagaId(UUID vagaId) { this.vagaId = vagaId; }
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public String getIdentificacao() { return identificacao; }
+    public void setIdentificacao(String identificacao) { this.identificacao = identificacao; }
+
+    public StatusVaga getStatus() { return status; }
+    public void setStatus(StatusVaga status) { this.status = status; }
+
+    public UUID getMotoId() { return motoId; }
+    public void setMotoId(UUID motoId) { this.motoId = motoId; }
+
+    public String getMotoPlaca() { return motoPlaca; }
+    public void setMotoPlaca(String motoPlaca) { this.motoPlaca = motoPlaca; }
+}
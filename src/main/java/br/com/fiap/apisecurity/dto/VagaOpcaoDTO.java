@@ -0,0 +1,33 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.UUID;
+
+// Item do seletor de vaga (formulários de moto e GET /api/vagas/livres): só o que a opção exibe
+public class VagaOpcaoDTO {
+
+    private UUID id;
+    private String identificacao;
+    private UUID patioId;
+    private String patioNome;
+
+    public VagaOpcaoDTO() {}
+
+    public VagaOpcaoDTO(UUID id, String identificacao, UUID patioId, String patioNome) {
+        this.id = id;
+        this.identificacao = identificacao;
+        this.patioId = patioId;
+        this.patioNome = patioNome;
+    }
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+
+    public String getIdentificacao() { return identificacao; }
+    public void setIdentificacao(String identificacao) { this.identificacao = identificacao; }
+
+    public UUID getPatioId() { return patioId; }
+    public void setPatioId(UUID patioId) { this.patioId = patioId; }
+
+    public String getPatioNome() { return patioNome; }
+    public void setPatioNome(String patioNome) { this.patioNome = patioNome; }
+}
@@ -0,0 +1,37 @@
+package br.com.fiap.apisecurity.dto;
+
+import java.util.UUID;
+
+public class VagaProximaDTO {
+
+    private UUID id;
+    private String identificacao;
+    private Double coordenadaLat;
+    private Double coordenadaLong;
+    private double distanciaMetros;
+
+    public VagaProximaDTO() {}
+
+    public VagaProximaDTO(UUID id, String identificacao, Double coordenadaLat, Double coordenadaLong, double distanciaMetros) {
+        this.id = id;
+        this.identificacao = identificacao;
+        this.coordenadaLat = coordenadaLat;
+        this.coordenadaLong = coordenadaLong;
+        this.distanciaMetros = distanciaMetros;
+    }
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+
+    public String getIdentificacao() { return identificacao; }
+    public void setIdentificacao(String identificacao) { this.identificacao = identificacao; }
+
+    public Double getCoordenadaLat() { return coordenadaLat; }
+    public void setCoordenadaLat(Double coordenadaLat) { this.coordenadaLat = coordenadaLat; }
+
+    public Double getCoordenadaLong() { return coordenadaLong; }
+    public void setCoordenadaLong(Double coordenadaLong) { this.coordenadaLong = coordenadaLong; }
+
+    public double getDistanciaMetros() { return distanciaMetros; }
+    public void setDistanciaMetros(double distanciaMetros) { this.distanciaMetros = distanciaMetros; }
+}
@@ -0,0 +1,34 @@
+package br.com.fiap.apisecurity.event;
+
+import br.com.fiap.apisecurity.model.Leitor;
+import br.com.fiap.apisecurity.model.Registro;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Publicado pelo RegistroService a cada gravação/alteração/remoção de registros (um evento por transação).
+// Consumido após o commit pelos agregados: delta +1 para registro novo, -1 para o estado que deixou de valer.
+public record RegistrosAlteradosEvent(List<Movimento> movimentos) {
+
+    public record Movimento(UUID registroId,
+                            UUID motoId,
+                            UUID leitorId,
+                            UUID patioId,
+                            UUID vagaId,
+                            TipoMovimentacao tipo,
+                            LocalDateTime dataHora,
+                            int delta) {
+
+        public static Movimento de(Registro registro, int delta) {
+            Leitor leitor = registro.getLeitor();
+            UUID patioId = leitor != null && leitor.getPatio() != null ? leitor.getPatio().getId() : null;
+            UUID vagaId = leitor != null && leitor.getVaga() != null ? leitor.getVaga().getId() : null;
+            return new Movimento(registro.getId(),
+                    registro.getMoto() != null ? registro.getMoto().getId() : null,
+                    leitor != null ? leitor.getId() : null,
+                    patioId, vagaId, registro.getTipo(), registro.getDataHora(), delta);
+        }
+    }
+}
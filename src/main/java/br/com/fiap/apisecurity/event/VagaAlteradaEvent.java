@@ -0,0 +1,37 @@
+package br.com.fiap.apisecurity.event;
+
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+
+import java.util.UUID;
+
+// Publicado sempre que uma vaga é criada, muda de status/pátio ou é removida.
+// Consumido após o commit pelos índices em memória e pelo painel ao vivo (status == null indica remoção).
+public record VagaAlteradaEvent(UUID vagaId,
+                                UUID patioId,
+                                UUID patioAnteriorId,
+                                String identificacao,
+                                StatusVaga status,
+                                Double coordenadaLat,
+                                Double coordenadaLong,
+                                UUID motoId) {
+
+    public static VagaAlteradaEvent de(Vaga vaga, UUID patioAnteriorId) {
+        UUID patioId = vaga.getPatio() != null ? vaga.getPatio().getId() : null;
+        UUID motoId = vaga.getMoto() != null ? vaga.getMoto().getId() : null;
+        return new VagaAlteradaEvent(vaga.getId(), patioId, patioAnteriorId, vaga.getIdentificacao(),
+                vaga.getStatus(), vaga.getCoordenadaLat(), vaga.getCoordenadaLong(), motoId);
+    }
+
+    public static VagaAlteradaEvent de(Vaga vaga) {
+        return de(vaga, vaga.getPatio() != null ? vaga.getPatio().getId() : null);
+    }
+
+    public static VagaAlteradaEvent removida(UUID vagaId, UUID patioId) {
+        return new VagaAlteradaEvent(vagaId, null, patioId, null, null, null, null, null);
+    }
+
+    public boolean isRemocao() {
+        return status == null;
+    }
+}
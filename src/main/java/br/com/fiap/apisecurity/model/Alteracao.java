@@ -0,0 +1,68 @@
+package br.com.fiap.apisecurity.model;
+
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Log de alterações da sincronização incremental (GET /api/sync): uma linha por entidade e pátio tocado
+// (o de antes e o de depois, quando ela muda de pátio). Não guarda o estado, só o que mudou: quem sincroniza
+// lê o estado atual. O id da sequência é o token dos clientes; o expurgo remove o que passou da retenção.
+@Entity
+@Immutable
+@Table(name = "tb_alteracao", indexes = {
+        @Index(name = "ix_alteracao_patio", columnList = "patio_id, id"),
+        @Index(name = "ix_alteracao_registrado", columnList = "registrado_em")
+})
+public class Alteracao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_alteracao")
+    @SequenceGenerator(name = "seq_alteracao", sequenceName = "seq_alteracao", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private EntidadeSincronizada entidade;
+
+    @Column(name = "entidade_id", nullable = false)
+    private UUID entidadeId;
+
+    // nulo: entidade fora de qualquer pátio (ex.: moto sem vaga), só o ADMIN enxerga
+    @Column(name = "patio_id")
+    private UUID patioId;
+
+    @Column(name = "registrado_em", nullable = false)
+    private LocalDateTime registradoEm;
+
+    public Alteracao() {}
+
+    public Alteracao(EntidadeSincronizada entidade, UUID entidadeId, UUID patioId, LocalDateTime registradoEm) {
+        this.entidade = entidade;
+        this.entidadeId = entidadeId;
+        this.patioId = patioId;
+        this.registradoEm = registradoEm;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public EntidadeSincronizada getEntidade() {
+        return entidade;
+    }
+
+    public UUID getEntidadeId() {
+        return entidadeId;
+    }
+
+    public UUID getPatioId() {
+        return patioId;
+    }
+
+    public LocalDateTime getRegistradoEm() {
+        return registradoEm;
+    }
+}
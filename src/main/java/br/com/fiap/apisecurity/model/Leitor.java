@@ -1,6 +1,7 @@
 package br.com.fiap.apisecurity.model;
 
 import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.id.UuidV7;
 import jakarta.persistence.*;
 import java.util.UUID;
 
@@ -9,18 +10,18 @@ import java.util.UUID;
 public class Leitor {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private TipoLeitor tipo;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patio_id", nullable = false)
     private Patio patio;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vaga_id")
     private Vaga vaga;
 
@@ -1,6 +1,7 @@
 package br.com.fiap.apisecurity.model;
 
 import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import br.com.fiap.apisecurity.model.id.UuidV7;
 import jakarta.persistence.*;
 import java.util.UUID;
 
@@ -9,7 +10,7 @@ import java.util.UUID;
 public class Moto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(length = 7, nullable = false, unique = true)
@@ -1,5 +1,6 @@
 package br.com.fiap.apisecurity.model;
 
+import br.com.fiap.apisecurity.model.id.UuidV7;
 import jakarta.persistence.*;
 import java.util.UUID;
 
@@ -8,7 +9,7 @@ import java.util.UUID;
 public class Patio {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(nullable = false, length = 100)
@@ -1,23 +1,33 @@
 package br.com.fiap.apisecurity.model;
 
 import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.model.id.UuidV7;
 import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tb_registro")
-public class Registro {
+// Particionada por mês em data_hora no Oracle (db/oracle/registro_particionamento.sql); os índices
+// abaixo atendem o histórico recente e o histórico por moto sem varrer a tabela
+@Table(name = "tb_registro", indexes = {
+        @Index(name = "ix_registro_data_hora", columnList = "data_hora, id"),
+        @Index(name = "ix_registro_moto_data", columnList = "moto_id, data_hora")
+})
+// Persistable: o leitor pode mandar o id do evento; save() com id preenchido vira persist (INSERT direto)
+// em vez de merge, que faria um SELECT antes de cada registro
+public class Registro implements Persistable<UUID> {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "moto_id", nullable = false)
     private Moto moto;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "leitor_id", nullable = false)
     private Leitor leitor;
 
@@ -28,6 +38,9 @@ public class Registro {
     @Column(nullable = false)
     private LocalDateTime dataHora;
 
+    @Transient
+    private boolean novo = true;
+
     public Registro() {}
 
     public Registro(Moto moto, Leitor leitor, TipoMovimentacao tipo, LocalDateTime dataHora) {
@@ -37,6 +50,7 @@ public class Registro {
         this.dataHora = dataHora;
     }
 
+    @Override
     public UUID getId() {
         return id;
     }
@@ -76,5 +90,15 @@ public class Registro {
     public void setDataHora(LocalDateTime dataHora) {
         this.dataHora = dataHora;
     }
-}
 
+    @Override
+    public boolean isNew() {
+        return novo;
+    }
+
+    @PostPersist
+    @PostLoad
+    void marcarPersistido() {
+        this.novo = false;
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.fiap.apisecurity.model;
+
+import br.com.fiap.apisecurity.model.enums.Granularidade;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+// Contagem de movimentações por pátio, tipo e balde de tempo (minuto/hora/dia), mantida pelo AgregadorMovimentacoes.
+// A PK (patio, granularidade, inicio, tipo) é o próprio índice das consultas de dashboard.
+@Entity
+@Table(name = "tb_registro_agregado")
+public class RegistroAgregado {
+
+    @EmbeddedId
+    private Chave id;
+
+    @Column(nullable = false)
+    private long quantidade;
+
+    public RegistroAgregado() {}
+
+    public RegistroAgregado(Chave id, long quantidade) {
+        this.id = id;
+        this.quantidade = quantidade;
+    }
+
+    public Chave getId() {
+        return id;
+    }
+
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    public void setQuantidade(long quantidade) {
+        this.quantidade = quantidade;
+    }
+
+    @Embeddable
+    public static class Chave implements Serializable {
+
+        @Column(name = "patio_id", nullable = false)
+        private UUID patioId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 10)
+        private Granularidade granularidade;
+
+        @Column(nullable = false)
+        private LocalDateTime inicio;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 20)
+        private TipoMovimentacao tipo;
+
+        public Chave() {}
+
+        public Chave(UUID patioId, Granularidade granularidade, LocalDateTime inicio, TipoMovimentacao tipo) {
+            this.patioId = patioId;
+            this.granularidade = granularidade;
+            this.inicio = inicio;
+            this.tipo = tipo;
+        }
+
+        public UUID getPatioId() {
+            return patioId;
+        }
+
+        public Granularidade getGranularidade() {
+            return granularidade;
+        }
+
+        public LocalDateTime getInicio() {
+            return inicio;
+        }
+
+        public TipoMovimentacao getTipo() {
+            return tipo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chave c)) return false;
+            return Objects.equals(patioId, c.patioId) && granularidade == c.granularidade
+                    && Objects.equals(inicio, c.inicio) && tipo == c.tipo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patioId, granularidade, inicio, tipo);
+        }
+    }
+}
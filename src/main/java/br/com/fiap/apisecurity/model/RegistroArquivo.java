@@ -0,0 +1,58 @@
+package br.com.fiap.apisecurity.model;
+
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Camada fria do histórico: registros mais antigos que o horizonte (app.registros.arquivo.horizonte-meses),
+// movidos de tb_registro pelo ArquivadorRegistros. Sem FKs para moto/leitor e somente leitura;
+// no Oracle a tabela é particionada por mês e comprimida (db/oracle/registro_particionamento.sql).
+@Entity
+@Immutable
+@Table(name = "tb_registro_arquivo", indexes = {
+        @Index(name = "ix_registro_arq_data_hora", columnList = "data_hora"),
+        @Index(name = "ix_registro_arq_moto_data", columnList = "moto_id, data_hora")
+})
+public class RegistroArquivo {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "moto_id", nullable = false)
+    private UUID motoId;
+
+    @Column(name = "leitor_id", nullable = false)
+    private UUID leitorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoMovimentacao tipo;
+
+    @Column(nullable = false)
+    private LocalDateTime dataHora;
+
+    public RegistroArquivo() {}
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getMotoId() {
+        return motoId;
+    }
+
+    public UUID getLeitorId() {
+        return leitorId;
+    }
+
+    public TipoMovimentacao getTipo() {
+        return tipo;
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+}
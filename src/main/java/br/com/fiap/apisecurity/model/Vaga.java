@@ -1,15 +1,20 @@
 package br.com.fiap.apisecurity.model;
 
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.model.id.UuidV7;
 import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "tb_vaga")
+// índices do seletor de vagas livres (VagaRepository.findOpcoesLivres*): prefixo da identificação já em ordem
+@Table(name = "tb_vaga", indexes = {
+        @Index(name = "ix_vaga_patio_status_ident", columnList = "patio_id, status, identificacao"),
+        @Index(name = "ix_vaga_status_ident", columnList = "status, identificacao")
+})
 public class Vaga {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     private Double coordenadaLat;
@@ -21,10 +26,11 @@ public class Vaga {
     @Enumerated(EnumType.STRING)
     private StatusVaga status;
 
-    @ManyToOne
+    // LAZY por padrão; listagens e leitura por ID trazem pátio e moto via @EntityGraph no repositório
+    @ManyToOne(fetch = FetchType.LAZY)
     private Patio patio;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "moto_id")
     private Moto moto;
 
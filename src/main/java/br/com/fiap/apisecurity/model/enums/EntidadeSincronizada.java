@@ -0,0 +1,7 @@
+package br.com.fiap.apisecurity.model.enums;
+
+public enum EntidadeSincronizada {
+    MOTO,
+    VAGA,
+    LEITOR
+}
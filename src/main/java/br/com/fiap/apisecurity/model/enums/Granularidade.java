@@ -0,0 +1,26 @@
+package br.com.fiap.apisecurity.model.enums;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+// Tamanho dos baldes dos agregados de movimentação
+public enum Granularidade {
+    MINUTO(ChronoUnit.MINUTES),
+    HORA(ChronoUnit.HOURS),
+    DIA(ChronoUnit.DAYS);
+
+    private final ChronoUnit unidade;
+
+    Granularidade(ChronoUnit unidade) {
+        this.unidade = unidade;
+    }
+
+    public LocalDateTime truncar(LocalDateTime dataHora) {
+        return dataHora.truncatedTo(unidade);
+    }
+
+    public Duration duracao() {
+        return unidade.getDuration();
+    }
+}
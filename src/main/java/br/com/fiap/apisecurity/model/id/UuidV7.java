@@ -0,0 +1,18 @@
+package br.com.fiap.apisecurity.model.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+// Id UUID versão 7 (RFC 9562): prefixo de tempo em ms, então inserts novos caem no fim do índice da PK
+// em vez de espalhados pela árvore. Um id já atribuído pela aplicação é mantido.
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface UuidV7 {
+}
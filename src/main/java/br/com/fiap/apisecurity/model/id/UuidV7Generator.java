@@ -0,0 +1,49 @@
+package br.com.fiap.apisecurity.model.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hibernate.generator.EventTypeSets.INSERT_ONLY;
+
+// 48 bits de epoch ms | versão 7 | 12 bits de sequência | variante | 62 bits aleatórios.
+// A sequência dentro do mesmo ms mantém os ids da instância estritamente crescentes; se estourar, avança o ms.
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    // (epoch ms << 12) | sequência do último id gerado
+    private static final AtomicLong ultimo = new AtomicLong();
+
+    public static UUID gerar() {
+        long agora = System.currentTimeMillis() << 12;
+        long atual = ultimo.updateAndGet(anterior -> Math.max(anterior + 1, agora));
+        long ms = atual >>> 12;
+        long sequencia = atual & 0xFFF;
+        long msb = (ms << 16) | 0x7000L | sequencia;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (currentValue != null) return currentValue;
+        // no persist() o Hibernate 6.6 não repassa o id atribuído em currentValue; lê direto da entidade
+        Object atribuido = owner == null ? null : session.getEntityPersister(null, owner).getIdentifier(owner, session);
+        return atribuido != null ? atribuido : gerar();
+    }
+
+    // persist() de entidade com id preenchido insere com esse id, sem SELECT prévio
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return INSERT_ONLY;
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.fiap.apisecurity.repository;
+
+import br.com.fiap.apisecurity.model.Alteracao;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface AlteracaoRepository extends JpaRepository<Alteracao, Long> {
+
+    @Query("select a from Alteracao a where a.id > :desde order by a.id")
+    List<Alteracao> findApos(@Param("desde") long desde, Limit limit);
+
+    // ix_alteracao_patio (patio_id, id): faixa do pátio já na ordem do token
+    @Query("select a from Alteracao a where a.patioId = :patioId and a.id > :desde order by a.id")
+    List<Alteracao> findByPatioIdApos(@Param("patioId") UUID patioId, @Param("desde") long desde, Limit limit);
+
+    // último id já assentado: percorre a PK de trás para frente e para na primeira linha mais velha que o corte
+    @Query("select a.id from Alteracao a where a.registradoEm <= :ate order by a.id desc")
+    List<Long> findUltimoIdAte(@Param("ate") LocalDateTime ate, Limit limit);
+
+    @Modifying
+    @Query("delete from Alteracao a where a.registradoEm < :antesDe")
+    int removerAntigas(@Param("antesDe") LocalDateTime antesDe);
+}
@@ -1,12 +1,17 @@
 package br.com.fiap.apisecurity.repository;
 
+import br.com.fiap.apisecurity.dto.LeitorDTO;
 import br.com.fiap.apisecurity.model.Leitor;
 import br.com.fiap.apisecurity.model.Patio;
 import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,5 +29,36 @@ public interface LeitorRepository extends JpaRepository<Leitor, UUID> {
     Page<Leitor> findAllByPatio_Id(UUID patioId, Pageable pageable);
 
     List<Leitor> findByTipoAndPatio_Id(TipoLeitor tipo, UUID patioId);
+
+    // projeções das listagens: l.patio.id / l.vaga.id saem das FKs, sem join
+    @Query(value = "select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l",
+            countQuery = "select count(l) from Leitor l")
+    Page<LeitorDTO> findDtos(Pageable pageable);
+
+    @Query(value = "select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l " +
+            "where l.patio.id = :patioId",
+            countQuery = "select count(l) from Leitor l where l.patio.id = :patioId")
+    Page<LeitorDTO> findDtosByPatioId(@Param("patioId") UUID patioId, Pageable pageable);
+
+    // sincronização: estado atual dos leitores do log (IN em fatias de até 1000) e o retrato do pátio
+    @Query("select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l " +
+            "where l.id in :ids")
+    List<LeitorDTO> findDtosByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l " +
+            "where l.patio.id = :patioId")
+    List<LeitorDTO> findDtosByPatioId(@Param("patioId") UUID patioId);
+
+    @Query("select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l")
+    List<LeitorDTO> findDtos();
+
+    // keyset por id (leitor não tem outra chave natural de ordenação)
+    @Query("select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l " +
+            "where l.id > :id order by l.id")
+    List<LeitorDTO> findDtosApos(@Param("id") UUID id, Limit limit);
+
+    @Query("select new br.com.fiap.apisecurity.dto.LeitorDTO(l.id, l.tipo, l.patio.id, l.vaga.id) from Leitor l " +
+            "where l.patio.id = :patioId and l.id > :id order by l.id")
+    List<LeitorDTO> findDtosByPatioIdApos(@Param("patioId") UUID patioId, @Param("id") UUID id, Limit limit);
 }
 
@@ -1,11 +1,17 @@
 package br.com.fiap.apisecurity.repository;
 
+import br.com.fiap.apisecurity.dto.MotoDTO;
 import br.com.fiap.apisecurity.model.Moto;
 import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -13,9 +19,70 @@ public interface MotoRepository extends JpaRepository<Moto, UUID> {
 
     Optional<Moto> findByPlaca(String placa);
 
-    Page<Moto> findAllByStatus(StatusMoto status, Pageable pageable);
+    // importação: quais placas do arquivo já existem (chame em fatias de até 1000 por causa do IN do Oracle)
+    @Query("select m.placa from Moto m where m.placa in :placas")
+    List<String> findPlacasExistentes(@Param("placas") Collection<String> placas);
 
-    Page<Moto> findAllByVagaIdIn(Collection<UUID> vagaIds, Pageable pageable);
+    // painel ao vivo: placas das motos que apareceram nas vagas alteradas do intervalo
+    @Query("select m.id, m.placa from Moto m where m.id in :ids")
+    List<Object[]> findPlacasByIds(@Param("ids") Collection<UUID> ids);
 
-    Page<Moto> findAllByStatusAndVagaIdIn(StatusMoto status, Collection<UUID> vagaIds, Pageable pageable);
+    // --- projeções das listagens: DTO direto do select, sem entidade gerenciada ---
+
+    String SELECT_DTO = "select new br.com.fiap.apisecurity.dto.MotoDTO(m.id, m.placa, m.status, m.vagaId, v.identificacao) " +
+            "from Moto m left join Vaga v on v.id = m.vagaId ";
+
+    // com e sem filtro de status em métodos separados: "(:status is null or ...)" deixa o plano igual para os
+    // dois casos e o banco não usa o índice de status quando o filtro vem preenchido
+    @Query(value = SELECT_DTO, countQuery = "select count(m) from Moto m")
+    Page<MotoDTO> findDtos(Pageable pageable);
+
+    @Query(value = SELECT_DTO + "where m.status = :status",
+            countQuery = "select count(m) from Moto m where m.status = :status")
+    Page<MotoDTO> findDtosByStatus(@Param("status") StatusMoto status, Pageable pageable);
+
+    // pertence ao pátio quem está numa vaga dele (dispensa carregar os IDs de vaga e o IN)
+    @Query(value = SELECT_DTO + "where v.patio.id = :patioId",
+            countQuery = "select count(m) from Moto m join Vaga v on v.id = m.vagaId where v.patio.id = :patioId")
+    Page<MotoDTO> findDtosByPatioId(@Param("patioId") UUID patioId, Pageable pageable);
+
+    @Query(value = SELECT_DTO + "where v.patio.id = :patioId and m.status = :status",
+            countQuery = "select count(m) from Moto m join Vaga v on v.id = m.vagaId " +
+                    "where v.patio.id = :patioId and m.status = :status")
+    Page<MotoDTO> findDtosByPatioIdAndStatus(@Param("patioId") UUID patioId, @Param("status") StatusMoto status,
+                                             Pageable pageable);
+
+    // --- Slice: busca size+1 linhas para saber se há próxima página, sem COUNT ---
+
+    @Query(SELECT_DTO)
+    Slice<MotoDTO> sliceDtos(Pageable pageable);
+
+    @Query(SELECT_DTO + "where v.patio.id = :patioId")
+    Slice<MotoDTO> sliceDtosByPatioId(@Param("patioId") UUID patioId, Pageable pageable);
+
+    // sincronização: estado atual das motos do log (IN em fatias de até 1000) e o retrato completo do pátio
+    @Query(SELECT_DTO + "where m.id in :ids")
+    List<MotoDTO> findDtosByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query(SELECT_DTO + "where v.patio.id = :patioId and m.id in :ids")
+    List<MotoDTO> findDtosByPatioIdAndIds(@Param("patioId") UUID patioId, @Param("ids") Collection<UUID> ids);
+
+    @Query(SELECT_DTO + "where v.patio.id = :patioId")
+    List<MotoDTO> findDtosByPatioId(@Param("patioId") UUID patioId);
+
+    @Query(SELECT_DTO)
+    List<MotoDTO> findDtos();
+
+    @Query("select count(m) from Moto m join Vaga v on v.id = m.vagaId where v.patio.id = :patioId")
+    long countByPatioId(@Param("patioId") UUID patioId);
+
+    // --- keyset (placa, id): próxima fatia depois do cursor ---
+
+    @Query(SELECT_DTO + "where m.placa >= :placa and (m.placa > :placa or m.id > :id) order by m.placa, m.id")
+    List<MotoDTO> findDtosApos(@Param("placa") String placa, @Param("id") UUID id, Limit limit);
+
+    @Query(SELECT_DTO + "where v.patio.id = :patioId " +
+            "and m.placa >= :placa and (m.placa > :placa or m.id > :id) order by m.placa, m.id")
+    List<MotoDTO> findDtosByPatioIdApos(@Param("patioId") UUID patioId,
+                                        @Param("placa") String placa, @Param("id") UUID id, Limit limit);
 }
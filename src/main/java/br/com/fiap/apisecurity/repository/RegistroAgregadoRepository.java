@@ -0,0 +1,45 @@
+package br.com.fiap.apisecurity.repository;
+
+import br.com.fiap.apisecurity.dto.AgregadoDTO;
+import br.com.fiap.apisecurity.model.RegistroAgregado;
+import br.com.fiap.apisecurity.model.enums.Granularidade;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface RegistroAgregadoRepository extends JpaRepository<RegistroAgregado, RegistroAgregado.Chave> {
+
+    @Query("select new br.com.fiap.apisecurity.dto.AgregadoDTO(a.id.inicio, a.id.tipo, a.quantidade) " +
+            "from RegistroAgregado a " +
+            "where a.id.patioId = :patioId and a.id.granularidade = :granularidade " +
+            "and a.id.inicio >= :inicio and a.id.inicio < :fim " +
+            "and (:tipo is null or a.id.tipo = :tipo) " +
+            "order by a.id.inicio, a.id.tipo")
+    List<AgregadoDTO> findDtos(@Param("patioId") UUID patioId, @Param("granularidade") Granularidade granularidade,
+                               @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+                               @Param("tipo") TipoMovimentacao tipo);
+
+    // upsert atômico do delta no balde (várias instâncias podem descarregar o mesmo balde)
+    @Modifying
+    @Query(value = "MERGE INTO tb_registro_agregado t USING dual " +
+            "ON (t.patio_id = :patioId AND t.granularidade = :granularidade AND t.inicio = :inicio AND t.tipo = :tipo) " +
+            "WHEN MATCHED THEN UPDATE SET t.quantidade = t.quantidade + :delta " +
+            "WHEN NOT MATCHED THEN INSERT (patio_id, granularidade, inicio, tipo, quantidade) " +
+            "VALUES (:patioId, :granularidade, :inicio, :tipo, :delta)", nativeQuery = true)
+    int somar(@Param("patioId") UUID patioId, @Param("granularidade") String granularidade,
+              @Param("inicio") LocalDateTime inicio, @Param("tipo") String tipo, @Param("delta") long delta);
+
+    @Modifying
+    @Query("delete from RegistroAgregado a where a.id.inicio >= :de and a.id.inicio < :ate")
+    int removerPeriodo(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    @Modifying
+    @Query("delete from RegistroAgregado a where a.id.granularidade = :granularidade and a.id.inicio < :antesDe")
+    int removerAntigos(@Param("granularidade") Granularidade granularidade, @Param("antesDe") LocalDateTime antesDe);
+}
@@ -0,0 +1,74 @@
+package br.com.fiap.apisecurity.repository;
+
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.model.RegistroArquivo;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface RegistroArquivoRepository extends JpaRepository<RegistroArquivo, UUID> {
+
+    String SELECT_DTO = "select new br.com.fiap.apisecurity.dto.RegistroDTO(a.id, a.motoId, a.leitorId, a.tipo, a.dataHora) " +
+            "from RegistroArquivo a ";
+
+    @Query(SELECT_DTO + "where a.dataHora >= :inicio and a.dataHora <= :fim order by a.dataHora, a.id")
+    List<RegistroDTO> findDtosByPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query(SELECT_DTO + "where a.motoId = :motoId order by a.dataHora, a.id")
+    List<RegistroDTO> findDtosByMotoId(@Param("motoId") UUID motoId);
+
+    @Query(SELECT_DTO + "where a.motoId = :motoId and a.tipo = :tipo order by a.dataHora, a.id")
+    List<RegistroDTO> findDtosByMotoIdAndTipo(@Param("motoId") UUID motoId, @Param("tipo") TipoMovimentacao tipo);
+
+    // exportação da camada fria; o pátio vem do leitor (o arquivo não guarda FK)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + RegistroRepository.FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_DTO + "left join Leitor l on l.id = a.leitorId " +
+            "where a.dataHora >= :inicio and a.dataHora <= :fim " +
+            "and (:patioId is null or l.patio.id = :patioId) " +
+            "and (:motoId is null or a.motoId = :motoId) " +
+            "and (:tipo is null or a.tipo = :tipo) " +
+            "order by a.dataHora, a.id")
+    Stream<RegistroDTO> streamDtos(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+                                   @Param("patioId") UUID patioId, @Param("motoId") UUID motoId,
+                                   @Param("tipo") TipoMovimentacao tipo);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + RegistroRepository.FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select l.patio.id, a.tipo, a.dataHora, a.id from RegistroArquivo a join Leitor l on l.id = a.leitorId " +
+            "where a.dataHora >= :de and a.dataHora < :ate")
+    Stream<Object[]> streamMovimentos(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + RegistroRepository.FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a.motoId, l.patio.id, l.vaga.id, a.tipo, a.dataHora, a.id " +
+            "from RegistroArquivo a join Leitor l on l.id = a.leitorId " +
+            "where a.dataHora >= :de and a.dataHora < :ate order by a.dataHora, a.id")
+    Stream<Object[]> streamSessoes(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    @Query("select max(a.dataHora) from RegistroArquivo a")
+    LocalDateTime findMaiorDataHora();
+
+    // copia uma faixa de tempo da tabela quente (a faixa coincide com uma partição mensal: só ela é lida)
+    @Modifying(flushAutomatically = true)
+    @Query("insert into RegistroArquivo (id, motoId, leitorId, tipo, dataHora) " +
+            "select r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora from Registro r " +
+            "where r.dataHora >= :de and r.dataHora < :ate")
+    int copiarPeriodo(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+}
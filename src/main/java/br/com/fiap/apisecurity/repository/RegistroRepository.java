@@ -1,12 +1,24 @@
 package br.com.fiap.apisecurity.repository;
 
+import br.com.fiap.apisecurity.dto.RegistroDTO;
 import br.com.fiap.apisecurity.model.Moto;
 import br.com.fiap.apisecurity.model.Registro;
 import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface RegistroRepository extends JpaRepository<Registro, UUID> {
 
@@ -17,5 +29,79 @@ public interface RegistroRepository extends JpaRepository<Registro, UUID> {
     List<Registro> findByDataHoraBetween(LocalDateTime inicio, LocalDateTime fim);
 
     boolean existsByMotoId(UUID motoId);
+
+    // projeção da listagem: r.moto.id / r.leitor.id saem das FKs, sem join
+    @Query(value = "select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r",
+            countQuery = "select count(r) from Registro r")
+    Page<RegistroDTO> findDtos(Pageable pageable);
+
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r")
+    Slice<RegistroDTO> sliceDtos(Pageable pageable);
+
+    // --- histórico quente: consultas limitadas pelos índices (data_hora, id) e (moto_id, data_hora) ---
+
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r " +
+            "where r.dataHora >= :inicio and r.dataHora <= :fim order by r.dataHora, r.id")
+    List<RegistroDTO> findDtosByPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r " +
+            "where r.moto.id = :motoId order by r.dataHora, r.id")
+    List<RegistroDTO> findDtosByMotoId(@Param("motoId") UUID motoId);
+
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r " +
+            "where r.moto.id = :motoId and r.tipo = :tipo order by r.dataHora, r.id")
+    List<RegistroDTO> findDtosByMotoIdAndTipo(@Param("motoId") UUID motoId, @Param("tipo") TipoMovimentacao tipo);
+
+    // --- exportação: cursor forward-only lido em blocos de FETCH_EXPORTACAO linhas; só DTOs, nada fica no contexto ---
+
+    int FETCH_EXPORTACAO = 1000;
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) " +
+            "from Registro r join r.leitor l " +
+            "where r.dataHora >= :inicio and r.dataHora <= :fim " +
+            "and (:patioId is null or l.patio.id = :patioId) " +
+            "and (:motoId is null or r.moto.id = :motoId) " +
+            "and (:tipo is null or r.tipo = :tipo) " +
+            "order by r.dataHora, r.id")
+    Stream<RegistroDTO> streamDtos(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+                                   @Param("patioId") UUID patioId, @Param("motoId") UUID motoId,
+                                   @Param("tipo") TipoMovimentacao tipo);
+
+    // [patioId, tipo, dataHora, id] de uma faixa, para reconstruir os agregados a partir do bruto
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select l.patio.id, r.tipo, r.dataHora, r.id from Registro r join r.leitor l " +
+            "where r.dataHora >= :de and r.dataHora < :ate")
+    Stream<Object[]> streamMovimentos(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    // permanência: [motoId, patioId, vagaId, tipo, dataHora, id] em ordem de tempo para costurar as sessões numa passada
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_EXPORTACAO),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select r.moto.id, l.patio.id, l.vaga.id, r.tipo, r.dataHora, r.id from Registro r join r.leitor l " +
+            "where r.dataHora >= :de and r.dataHora < :ate order by r.dataHora, r.id")
+    Stream<Object[]> streamSessoes(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    // --- arquivamento ---
+
+    @Query("select min(r.dataHora) from Registro r")
+    LocalDateTime findMenorDataHora();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Registro r where r.dataHora >= :de and r.dataHora < :ate")
+    int removerPeriodo(@Param("de") LocalDateTime de, @Param("ate") LocalDateTime ate);
+
+    // keyset (dataHora desc, id desc): mais recentes primeiro
+    @Query("select new br.com.fiap.apisecurity.dto.RegistroDTO(r.id, r.moto.id, r.leitor.id, r.tipo, r.dataHora) from Registro r " +
+            "where r.dataHora <= :dataHora and (r.dataHora < :dataHora or r.id < :id) " +
+            "order by r.dataHora desc, r.id desc")
+    List<RegistroDTO> findDtosAntes(@Param("dataHora") LocalDateTime dataHora, @Param("id") UUID id, Limit limit);
 }
 
@@ -1,10 +1,19 @@
 package br.com.fiap.apisecurity.repository;
 
+import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
+import br.com.fiap.apisecurity.model.Moto;
 import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -13,14 +22,118 @@ import java.util.stream.Collectors;
 
 public interface VagaRepository extends JpaRepository<Vaga, UUID> {
 
+    // listagens mapeiam patio.nome e moto para o DTO: buscados no mesmo select
+    @Override
+    @EntityGraph(attributePaths = {"patio", "moto"})
+    Page<Vaga> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"patio", "moto"})
+    List<Vaga> findAll();
+
+    @EntityGraph(attributePaths = {"patio", "moto"})
     Page<Vaga> findAllByPatio_Id(UUID patioId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patio", "moto"})
     List<Vaga> findAllByPatio_Id(UUID patioId);
+
+    @EntityGraph(attributePaths = {"patio", "moto"})
     List<Vaga> findAllByPatio_IdAndStatus(UUID patioId, StatusVaga status);
+
+    // entidade devolvida (e cacheada) por VagaService.readVagaById: precisa sair inicializada
+    @EntityGraph(attributePaths = {"patio", "moto"})
+    Optional<Vaga> findDetalhadaById(UUID id);
+
     long countByPatio_Id(UUID patioId);
 
     @Query("select v.id from Vaga v where v.patio.id = :patioId")
     List<UUID> findAllIdsByPatioId(@Param("patioId") UUID patioId);
 
+    // projeção leve para reconstruir os índices em memória: id, pátio, identificação, status, lat, long
+    // (nulls last explícito: H2 e Oracle divergem no padrão, e OcupacaoPatio ordena sem identificação no fim)
+    @Query("select v.id, v.patio.id, v.identificacao, v.status, v.coordenadaLat, v.coordenadaLong " +
+            "from Vaga v where v.patio is not null order by v.patio.id, v.identificacao nulls last")
+    List<Object[]> findResumoOcupacao();
+
+    // --- projeções das listagens: DTO direto do select, sem entidade gerenciada ---
+
+    String SELECT_DTO = "select new br.com.fiap.apisecurity.dto.VagaDTO(v.id, v.coordenadaLat, v.coordenadaLong, v.status, " +
+            "v.identificacao, p.id, p.nome, m.id, m.placa, m.status, m.vagaId) " +
+            "from Vaga v left join v.patio p left join v.moto m ";
+
+    @Query(value = SELECT_DTO, countQuery = "select count(v) from Vaga v")
+    Page<VagaDTO> findDtos(Pageable pageable);
+
+    @Query(SELECT_DTO)
+    List<VagaDTO> findDtos();
+
+    @Query(value = SELECT_DTO + "where p.id = :patioId", countQuery = "select count(v) from Vaga v where v.patio.id = :patioId")
+    Page<VagaDTO> findDtosByPatioId(@Param("patioId") UUID patioId, Pageable pageable);
+
+    @Query(SELECT_DTO + "where p.id = :patioId")
+    List<VagaDTO> findDtosByPatioId(@Param("patioId") UUID patioId);
+
+    // sincronização: estado atual das vagas do log (IN em fatias de até 1000)
+    @Query(SELECT_DTO + "where v.id in :ids")
+    List<VagaDTO> findDtosByIds(@Param("ids") Collection<UUID> ids);
+
+    // Slice: sem COUNT
+    @Query(SELECT_DTO)
+    Slice<VagaDTO> sliceDtos(Pageable pageable);
+
+    @Query(SELECT_DTO + "where p.id = :patioId")
+    Slice<VagaDTO> sliceDtosByPatioId(@Param("patioId") UUID patioId, Pageable pageable);
+
+    // keyset (identificacao, id); vagas sem identificação não entram na comparação de strings e têm o próprio
+    // segmento, por id, lido antes (ver VagaService.readVagasCursor)
+    @Query(SELECT_DTO + "where v.identificacao is null and v.id > :id order by v.id")
+    List<VagaDTO> findDtosSemIdentificacaoApos(@Param("id") UUID id, Limit limit);
+
+    @Query(SELECT_DTO + "where p.id = :patioId and v.identificacao is null and v.id > :id order by v.id")
+    List<VagaDTO> findDtosByPatioIdSemIdentificacaoApos(@Param("patioId") UUID patioId,
+                                                        @Param("id") UUID id, Limit limit);
+
+    @Query(SELECT_DTO + "where v.identificacao >= :ident and (v.identificacao > :ident or v.id > :id) " +
+            "order by v.identificacao, v.id")
+    List<VagaDTO> findDtosApos(@Param("ident") String identificacao, @Param("id") UUID id, Limit limit);
+
+    @Query(SELECT_DTO + "where p.id = :patioId and v.identificacao >= :ident and (v.identificacao > :ident or v.id > :id) " +
+            "order by v.identificacao, v.id")
+    List<VagaDTO> findDtosByPatioIdApos(@Param("patioId") UUID patioId,
+                                        @Param("ident") String identificacao, @Param("id") UUID id, Limit limit);
+
+    // seletor de vaga: livres por prefixo da identificação, na ordem dos índices (patio_id|status, identificacao).
+    // Um único like por consulta, para o banco ler uma só faixa do índice; a variante em maiúsculas do prefixo,
+    // quando existe, é outra chamada (ver VagaService.readVagasLivres) em vez de um "or" que vira full scan
+    String SELECT_OPCAO = "select new br.com.fiap.apisecurity.dto.VagaOpcaoDTO(v.id, v.identificacao, p.id, p.nome) " +
+            "from Vaga v join v.patio p where v.status = :livre and v.moto is null " +
+            "and v.identificacao like :prefixo escape '\\' ";
+
+    @Query(SELECT_OPCAO + "order by v.identificacao, v.id")
+    List<VagaOpcaoDTO> findOpcoesLivres(@Param("livre") StatusVaga livre, @Param("prefixo") String prefixo,
+                                        Limit limit);
+
+    @Query(SELECT_OPCAO + "and p.id = :patioId order by v.identificacao, v.id")
+    List<VagaOpcaoDTO> findOpcoesLivresByPatioId(@Param("patioId") UUID patioId, @Param("livre") StatusVaga livre,
+                                                 @Param("prefixo") String prefixo, Limit limit);
+
+    // compare-and-set da alocação: só ocupa vaga livre e sem moto (retorna 0 quando perdeu a corrida ou a vaga
+    // está indisponível)
+    @Modifying(flushAutomatically = true)
+    @Query("update Vaga v set v.status = :ocupada, v.moto = :moto " +
+            "where v.id = :id and v.status = :livre and v.moto is null")
+    int ocuparSeLivre(@Param("id") UUID id, @Param("moto") Moto moto,
+                      @Param("ocupada") StatusVaga ocupada, @Param("livre") StatusVaga livre);
+
+    // importação: identificacao -> [id, status, motoId] do pátio inteiro num select
+    @Query("select v.identificacao, v.id, v.status, v.moto.id from Vaga v where v.patio.id = :patioId")
+    List<Object[]> findResumoByPatioId(@Param("patioId") UUID patioId);
+
+    // trava as vagas do lote até o commit para ninguém ocupá-las entre a checagem e o update
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v from Vaga v where v.id in :ids")
+    List<Vaga> findParaOcupar(@Param("ids") Collection<UUID> ids);
+
     @Query("select v.id, v.identificacao from Vaga v where v.id in :ids")
     List<Object[]> findIdAndCodigoByIdIn(@Param("ids") Set<UUID> ids);
 
@@ -0,0 +1,43 @@
+package br.com.fiap.apisecurity.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+// Credencial própria do coletor do Prometheus em GET /metrics (Authorization: Bearer <app.metricas.token>).
+// Autentica só com a autoridade METRICAS: não vale para nenhuma outra rota. Token vazio = só ADMIN logado.
+// Não é @Component de propósito, para não virar filtro de toda requisição; o SecurityConfig o põe na cadeia.
+public class ColetaMetricasFilter extends OncePerRequestFilter {
+
+    public static final String AUTORIDADE = "METRICAS";
+
+    private final byte[] token;
+
+    public ColetaMetricasFilter(String token) {
+        this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        String header = req.getHeader("Authorization");
+        if (token != null && header != null && header.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null
+                && MessageDigest.isEqual(token, header.substring(7).getBytes(StandardCharsets.UTF_8))) {
+            var auth = new UsernamePasswordAuthenticationToken("coletor-metricas", null,
+                    List.of(new SimpleGrantedAuthority(AUTORIDADE)));
+            SecurityContextHolder.getContext().setAuthentication(auth);
+        }
+        chain.doFilter(req, res);
+    }
+}
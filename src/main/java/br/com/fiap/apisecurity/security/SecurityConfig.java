@@ -1,6 +1,7 @@
 package br.com.fiap.apisecurity.security;
 
 import br.com.fiap.apisecurity.service.usuario.JwtAuthFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -49,6 +50,30 @@ public class SecurityConfig {
         return p;
     }
 
+    // GET /metrics: ADMIN logado (sessão da web) ou o coletor com o token de app.metricas.token
+    @Bean
+    @Order(0)
+    SecurityFilterChain metricas(HttpSecurity http,
+                                 @Value("${app.metricas.token:}") String tokenColeta) throws Exception {
+        http
+                .securityMatcher("/metrics")
+                .csrf(csrf -> csrf.disable())
+                .exceptionHandling(ex -> ex
+                        .authenticationEntryPoint((req, res, e) -> res.setStatus(HttpStatus.UNAUTHORIZED.value()))
+                        .accessDeniedHandler((req, res, e) -> res.setStatus(HttpStatus.FORBIDDEN.value()))
+                )
+                .authorizeHttpRequests(auth -> auth
+                        .anyRequest().hasAnyAuthority("ROLE_ADMIN", ColetaMetricasFilter.AUTORIDADE)
+                )
+                .formLogin(AbstractHttpConfigurer::disable)
+                .httpBasic(AbstractHttpConfigurer::disable)
+                .oauth2Login(AbstractHttpConfigurer::disable);
+
+        http.addFilterBefore(new ColetaMetricasFilter(tokenColeta), UsernamePasswordAuthenticationFilter.class);
+
+        return http.build();
+    }
+
     @Bean
     @Order(1)
     SecurityFilterChain api(HttpSecurity http, JwtAuthFilter jwtFilter) throws Exception {
@@ -0,0 +1,23 @@
+package br.com.fiap.apisecurity.security;
+
+import br.com.fiap.apisecurity.model.enums.CargoUsuario;
+import br.com.fiap.apisecurity.model.usuarios.Usuario;
+
+import java.util.UUID;
+
+// Retrato imutável do usuário logado (o que as regras de escopo precisam), resolvido uma vez por requisição
+public record UsuarioAutenticado(UUID id, String email, CargoUsuario cargo, UUID patioId) {
+
+    public static UsuarioAutenticado de(Usuario u) {
+        return new UsuarioAutenticado(
+                u.getId(),
+                u.getEmail(),
+                u.getCargo(),
+                u.getPatio() != null ? u.getPatio().getId() : null
+        );
+    }
+
+    public boolean isAdmin() {
+        return cargo == CargoUsuario.ADMIN;
+    }
+}
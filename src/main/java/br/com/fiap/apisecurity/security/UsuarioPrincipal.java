@@ -0,0 +1,21 @@
+package br.com.fiap.apisecurity.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// Principal montado a partir das claims do JWT (sem consulta ao banco)
+public class UsuarioPrincipal extends User {
+
+    private final UsuarioAutenticado usuario;
+
+    public UsuarioPrincipal(UsuarioAutenticado usuario, Collection<? extends GrantedAuthority> authorities) {
+        super(usuario.email(), "", authorities);
+        this.usuario = usuario;
+    }
+
+    public UsuarioAutenticado getUsuario() {
+        return usuario;
+    }
+}
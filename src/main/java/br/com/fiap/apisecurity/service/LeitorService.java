@@ -1,20 +1,26 @@
 package br.com.fiap.apisecurity.service;
 
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
 import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CursorPage;
 import br.com.fiap.apisecurity.dto.LeitorDTO;
 import br.com.fiap.apisecurity.mapper.LeitorMapper;
 import br.com.fiap.apisecurity.model.Leitor;
 import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
 import br.com.fiap.apisecurity.model.enums.TipoLeitor;
 import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.repository.LeitorRepository;
+import br.com.fiap.apisecurity.service.paginacao.Cursor;
+import br.com.fiap.apisecurity.service.sincronizacao.LogAlteracoes;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Pageable;
@@ -29,16 +35,25 @@ public class LeitorService {
     private final PatioService patioService;
     private final VagaService vagaService;
     private final Authz authz;
+    private final InvalidacaoCache invalidacaoCache;
+    private final VersoesRecursos versoes;
+    private final LogAlteracoes logAlteracoes;
 
     @Autowired
     public LeitorService(LeitorRepository leitorRepository,
                          PatioService patioService,
                          VagaService vagaService,
-                         Authz authz) {
+                         Authz authz,
+                         InvalidacaoCache invalidacaoCache,
+                         VersoesRecursos versoes,
+                         LogAlteracoes logAlteracoes) {
         this.leitorRepository = leitorRepository;
         this.patioService = patioService;
         this.vagaService = vagaService;
         this.authz = authz;
+        this.invalidacaoCache = invalidacaoCache;
+        this.versoes = versoes;
+        this.logAlteracoes = logAlteracoes;
     }
 
     @Transactional
@@ -63,7 +78,10 @@ public class LeitorService {
         leitor.setPatio(patio);
         leitor.setVaga(vaga);
 
-        return LeitorMapper.toDto(leitorRepository.save(leitor));
+        Leitor saved = leitorRepository.save(leitor);
+        limparListas(patio.getId());
+        logAlteracoes.registrar(EntidadeSincronizada.LEITOR, saved.getId(), patio.getId());
+        return LeitorMapper.toDto(saved);
     }
 
     @Transactional(readOnly = true)
@@ -84,7 +102,7 @@ public class LeitorService {
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value = "leitores", key = "'tipo-' + #tipo")
+    @Cacheable(value = "leitores", key = "@authz.escopoCache() + ':tipo-' + #tipo")
     public List<LeitorDTO> readByTipo(TipoLeitor tipo) {
         List<Leitor> leitores;
         if (authz.isAdmin()) {
@@ -137,21 +155,25 @@ public class LeitorService {
     @Transactional(readOnly = true)
     @Cacheable(
             value="leitores",
-            key="'ADMIN:all:p:' + #pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort!=null ? #pageable.sort : 'UNSORTED')",
-            condition="@authz.isAdmin()"
+            key="@authz.escopoCache() + ':all:p:' + #pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort!=null ? #pageable.sort : 'UNSORTED')"
     )
     public Page<LeitorDTO> readAllLeitores(Pageable pageable) {
-        Page<Leitor> page;
         if (authz.isAdmin()) {
-            page = leitorRepository.findAll(pageable);
-        } else {
-            UUID patioId = authz.currentUserPatioIdOrThrow();
-            page = leitorRepository.findAllByPatio_Id(patioId, pageable);
+            return leitorRepository.findDtos(pageable);
         }
-        List<LeitorDTO> dtoList = page.getContent().stream()
-                .map(LeitorMapper::toDto)
-                .toList();
-        return new PageImpl<>(dtoList, pageable, page.getTotalElements());
+        UUID patioId = authz.currentUserPatioIdOrThrow();
+        return leitorRepository.findDtosByPatioId(patioId, pageable);
+    }
+
+    // keyset só pelo id; o valor do cursor fica vazio
+    @Transactional(readOnly = true)
+    public CursorPage<LeitorDTO> readLeitoresCursor(String cursor, Integer tamanho) {
+        UUID apos = Cursor.decodificar(cursor, Cursor.INICIO_ASC).id();
+        int t = Cursor.tamanho(tamanho);
+        List<LeitorDTO> linhas = authz.isAdmin()
+                ? leitorRepository.findDtosApos(apos, Cursor.limite(t))
+                : leitorRepository.findDtosByPatioIdApos(authz.currentUserPatioIdOrThrow(), apos, Cursor.limite(t));
+        return Cursor.pagina(linhas, t, l -> Cursor.codificar("", l.getId()));
     }
 
     @Transactional
@@ -159,6 +181,7 @@ public class LeitorService {
     public LeitorDTO updateLeitor(UUID id, LeitorDTO dto) {
         Leitor leitor = leitorRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Leitor não encontrado: " + id));
+        UUID patioAnterior = leitor.getPatio() != null ? leitor.getPatio().getId() : null;
 
         if (!authz.isAdmin()) {
             UUID userPatio = authz.currentUserPatioIdOrThrow();
@@ -182,7 +205,10 @@ public class LeitorService {
         leitor.setPatio(patio);
         leitor.setVaga(vaga);
 
-        return LeitorMapper.toDto(leitorRepository.save(leitor));
+        Leitor saved = leitorRepository.save(leitor);
+        limparListas(patioAnterior, patio.getId());
+        logAlteracoes.registrar(EntidadeSincronizada.LEITOR, saved.getId(), patioAnterior, patio.getId());
+        return LeitorMapper.toDto(saved);
     }
 
     @Transactional
@@ -199,6 +225,18 @@ public class LeitorService {
             }
         }
         leitorRepository.delete(leitor);
+        UUID patioId = leitor.getPatio() != null ? leitor.getPatio().getId() : null;
+        limparListas(patioId);
+        logAlteracoes.registrar(EntidadeSincronizada.LEITOR, id, patioId);
+    }
+
+    // listagens paginadas e por tipo ficam na partição do pátio; as consultas por pátio usam a chave 'patio-<id>'
+    private void limparListas(UUID... patioIds) {
+        invalidacaoCache.limparParticao("leitores", patioIds);
+        for (UUID patioId : patioIds) {
+            if (patioId != null) invalidacaoCache.evictChave("leitores", "patio-" + patioId);
+        }
+        versoes.alterou(Recurso.LEITORES, patioIds);
     }
 }
 
@@ -1,27 +1,36 @@
 package br.com.fiap.apisecurity.service;
 
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
 import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CursorPage;
 import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
 import br.com.fiap.apisecurity.mapper.MotoMapper;
 import br.com.fiap.apisecurity.model.Moto;
 import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
 import br.com.fiap.apisecurity.model.enums.StatusMoto;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
 import br.com.fiap.apisecurity.repository.MotoRepository;
 import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.ocupacao.AlocadorVagas;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.paginacao.Cursor;
+import br.com.fiap.apisecurity.service.sincronizacao.LogAlteracoes;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class MotoService {
@@ -29,24 +38,36 @@ public class MotoService {
     private final MotoRepository motoRepository;
     private final VagaRepository vagaRepository;
     private final Authz authz;
+    private final InvalidacaoCache invalidacaoCache;
+    private final AlocadorVagas alocadorVagas;
+    private final ApplicationEventPublisher eventos;
+    private final ContagemTotais contagemTotais;
+    private final VersoesRecursos versoes;
+    private final LogAlteracoes logAlteracoes;
 
     @Autowired
     public MotoService(MotoRepository motoRepository,
                        VagaRepository vagaRepository,
-                       Authz authz) {
+                       Authz authz,
+                       InvalidacaoCache invalidacaoCache,
+                       AlocadorVagas alocadorVagas,
+                       ApplicationEventPublisher eventos,
+                       ContagemTotais contagemTotais,
+                       VersoesRecursos versoes,
+                       LogAlteracoes logAlteracoes) {
         this.motoRepository = motoRepository;
         this.vagaRepository = vagaRepository;
         this.authz = authz;
+        this.invalidacaoCache = invalidacaoCache;
+        this.alocadorVagas = alocadorVagas;
+        this.eventos = eventos;
+        this.contagemTotais = contagemTotais;
+        this.versoes = versoes;
+        this.logAlteracoes = logAlteracoes;
     }
 
     @Transactional
-    @Caching(
-            put = { @CachePut(cacheNames="motosById", key="#result.id") },
-            evict = {
-                    @CacheEvict(cacheNames="motosList", allEntries=true),
-                    @CacheEvict(cacheNames="motosListAtivas", allEntries=true)
-            }
-    )
+    @CachePut(cacheNames="motosById", key="#result.id")
     public MotoDTO createMoto(MotoDTO dto) {
 
         if (!authz.isAdmin()) {
@@ -63,19 +84,18 @@ public class MotoService {
         }
 
         Moto moto = MotoMapper.toEntity(dto);
-        if (moto.getVagaId() != null) {
-            Vaga vaga = vagaRepository.findById(moto.getVagaId())
-                    .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + moto.getVagaId()));
-            if (vaga.getStatus() == StatusVaga.OCUPADA) {
-                throw new IllegalStateException("Vaga já está ocupada.");
-            }
-            vaga.setMoto(moto);
-            vaga.setStatus(StatusVaga.OCUPADA);
-            vagaRepository.save(vaga);
-        }
-
         moto.setStatus(StatusMoto.DISPONIVEL);
         Moto saved = motoRepository.save(moto);
+
+        if (saved.getVagaId() != null) {
+            Vaga vaga = vagaRepository.findById(saved.getVagaId())
+                    .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + saved.getVagaId()));
+            alocadorVagas.ocupar(vaga, saved);
+            eventos.publishEvent(VagaAlteradaEvent.de(vaga));
+        }
+        limparListas(patioDaVaga(saved.getVagaId()));
+        invalidarVagas(saved.getVagaId());
+        registrarAlteracao(saved, null);
         return MotoMapper.toDto(saved);
     }
 
@@ -107,48 +127,63 @@ public class MotoService {
     @Transactional(readOnly = true)
     @Cacheable(
             cacheNames = "motosList",
-            key       = "(#pageable != null && #pageable.isPaged()) ? \n" +
+            key       = "@authz.escopoCache() + ':' + ((#pageable != null && #pageable.isPaged()) ? \n" +
                     "        (#pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort != null ? #pageable.sort : 'UNSORTED')) \n" +
-                    "        : 'UNPAGED'",   // usa o próprio Pageable (tem equals/hashCode)
-            condition = "@authz.isAdmin()"
+                    "        : 'UNPAGED')"   // usa o próprio Pageable (tem equals/hashCode)
     )
     public Page<MotoDTO> readAllMotos(Pageable pageable) {
         if (authz.isAdmin()) {
-            Page<Moto> page = motoRepository.findAll(pageable);
-            Map<UUID, String> idToIdent = loadVagaIdentificacao(page.getContent());
-            List<MotoDTO> content = page.getContent()
-                    .stream()
-                    .map(m -> MotoMapper.toDto(m, idToIdent.get(m.getVagaId())))
-                    .toList();
-            return new PageImpl<>(content, pageable, page.getTotalElements());
+            return motoRepository.findDtos(pageable);
         }
-
         UUID patioId = authz.currentUserPatioIdOrThrow();
-        List<UUID> vagaIds = vagaRepository.findAllIdsByPatioId(patioId);
-        if (vagaIds.isEmpty()) {
-            return Page.empty(pageable);
+        return motoRepository.findDtosByPatioId(patioId, pageable);
+    }
+
+    // ?withTotal=false: mesma página sem o COUNT; mesmo cache/partição das listagens
+    @Transactional(readOnly = true)
+    @Cacheable(
+            cacheNames = "motosList",
+            key       = "@authz.escopoCache() + ':slice:' + ((#pageable != null && #pageable.isPaged()) ? \n" +
+                    "        (#pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort != null ? #pageable.sort : 'UNSORTED')) \n" +
+                    "        : 'UNPAGED')"
+    )
+    public Slice<MotoDTO> readMotosSlice(Pageable pageable) {
+        return buscarSlice(pageable);
+    }
+
+    // ?withTotal=approx: página sem COUNT + total do cache de totais (defasagem limitada pelo TTL)
+    @Transactional(readOnly = true)
+    public Page<MotoDTO> readAllMotosTotalAproximado(Pageable pageable) {
+        return ContagemTotais.comTotal(buscarSlice(pageable), contagemTotais.motos());
+    }
+
+    private Slice<MotoDTO> buscarSlice(Pageable pageable) {
+        if (authz.isAdmin()) {
+            return motoRepository.sliceDtos(pageable);
         }
+        return motoRepository.sliceDtosByPatioId(authz.currentUserPatioIdOrThrow(), pageable);
+    }
 
-        Page<Moto> page = motoRepository.findAllByVagaIdIn(vagaIds, pageable);
-        Map<UUID, String> idToIdent = loadVagaIdentificacao(page.getContent());
-        List<MotoDTO> content = page.getContent()
-                .stream()
-                .map(m -> MotoMapper.toDto(m, idToIdent.get(m.getVagaId())))
-                .toList();
-        return new PageImpl<>(content, pageable, page.getTotalElements());
+    // keyset por (placa, id): custo constante em qualquer profundidade, sem COUNT; não passa pelo cache
+    @Transactional(readOnly = true)
+    public CursorPage<MotoDTO> readMotosCursor(String cursor, Integer tamanho) {
+        Cursor.Chave apos = Cursor.decodificar(cursor, Cursor.INICIO_ASC);
+        int t = Cursor.tamanho(tamanho);
+        List<MotoDTO> linhas = authz.isAdmin()
+                ? motoRepository.findDtosApos(apos.valor(), apos.id(), Cursor.limite(t))
+                : motoRepository.findDtosByPatioIdApos(authz.currentUserPatioIdOrThrow(), apos.valor(), apos.id(),
+                        Cursor.limite(t));
+        return Cursor.pagina(linhas, t, m -> Cursor.codificar(m.getPlaca(), m.getId()));
     }
 
     @Transactional
-    @Caching(
-            put = { @CachePut(cacheNames="motosById", key="#result.id") },
-            evict = {
-                    @CacheEvict(cacheNames="motosList", allEntries=true),
-                    @CacheEvict(cacheNames="motosListAtivas", allEntries=true)
-            }
-    )
+    @CachePut(cacheNames="motosById", key="#result.id")
     public MotoDTO updateMoto(UUID id, MotoDTO dto) {
         Moto moto = motoRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Moto não encontrada: " + id));
+        String placaAnterior = moto.getPlaca();
+        StatusMoto statusAnterior = moto.getStatus();
+        UUID vagaAnteriorId = moto.getVagaId();
 
         if (!authz.isAdmin()) {
             UUID userPatio = authz.currentUserPatioIdOrNull();
@@ -176,18 +211,54 @@ public class MotoService {
         moto.setStatus(dto.getStatus());
 
         Moto saved = motoRepository.save(moto);
+        invalidarListas(saved, placaAnterior, statusAnterior, vagaAnteriorId);
+        if (!Objects.equals(vagaAnteriorId, saved.getVagaId())) {
+            invalidarVagas(vagaAnteriorId, saved.getVagaId());
+        }
+        registrarAlteracao(saved, vagaAnteriorId);
         return MotoMapper.toDto(saved);
     }
 
+    // check-in sem vaga escolhida: ocupa a próxima vaga livre do pátio. Sem @Transactional: cada tentativa roda
+    // numa transação própria e o backoff entre elas acontece fora de transação (AlocadorVagas.comRetentativas)
+    @CachePut(cacheNames="motosById", key="#result.id")
+    public MotoDTO alocarNoPatio(UUID id, UUID patioId) {
+        if (!authz.isAdmin()) {
+            UUID userPatio = authz.currentUserPatioIdOrThrow();
+            if (!userPatio.equals(patioId)) {
+                throw new SecurityException("Operador só pode alocar motos no próprio pátio.");
+            }
+        }
+        return alocadorVagas.comRetentativas(tentadas -> {
+            Moto moto = motoRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Moto não encontrada: " + id));
+            UUID vagaAnteriorId = moto.getVagaId();
+            if (!authz.isAdmin() && vagaAnteriorId != null && !authz.currentUserPatioIdOrThrow().equals(patioDaVaga(vagaAnteriorId))) {
+                throw new SecurityException("Operador não pode alocar moto de outro pátio.");
+            }
+            ajustarVagasSeNecessario(moto, null);
+
+            return alocadorVagas.tentarNoPatio(patioId, moto, tentadas).map(vaga -> {
+                eventos.publishEvent(VagaAlteradaEvent.de(vaga));
+                moto.setVagaId(vaga.getId());
+
+                Moto saved = motoRepository.save(moto);
+                invalidarListas(saved, saved.getPlaca(), saved.getStatus(), vagaAnteriorId);
+                invalidarVagas(vagaAnteriorId, vaga.getId());
+                registrarAlteracao(saved, vagaAnteriorId);
+                return MotoMapper.toDto(saved, vaga.getIdentificacao());
+            });
+        });
+    }
+
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames="motosById", key="#id"),
-            @CacheEvict(cacheNames="motosList", allEntries=true),
-            @CacheEvict(cacheNames="motosListAtivas", allEntries=true)
-    })
+    @CacheEvict(cacheNames="motosById", key="#id")
     public void inativarMoto(UUID id) {
         Moto moto = readMotoByIdEntity(id);
         moto.setStatus(StatusMoto.INATIVADA);
+        registrarAlteracao(moto, null);
+        limparListas(patioDaVaga(moto.getVagaId()));
+        invalidarVagas(moto.getVagaId());
         if (moto.getVagaId() != null) {
             Vaga vaga = vagaRepository.findById(moto.getVagaId())
                     .orElse(null);
@@ -195,6 +266,7 @@ public class MotoService {
                 vaga.setMoto(null);
                 vaga.setStatus(StatusVaga.LIVRE);
                 vagaRepository.save(vaga);
+                eventos.publishEvent(VagaAlteradaEvent.de(vaga));
             }
             moto.setVagaId(null);
         }
@@ -222,33 +294,16 @@ public class MotoService {
     @Transactional(readOnly = true)
     @Cacheable(
             cacheNames="motosListAtivas",
-            key="(#pageable != null && #pageable.isPaged()) ? \n" +
+            key="@authz.escopoCache() + ':' + ((#pageable != null && #pageable.isPaged()) ? \n" +
                     "        (#pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort != null ? #pageable.sort : 'UNSORTED')) \n" +
-                    "        : 'UNPAGED'",
-            condition="@authz.isAdmin()"
+                    "        : 'UNPAGED')"
     )
     public Page<MotoDTO> readAllMotosAtivas(Pageable pageable) {
         if (authz.isAdmin()) {
-            Page<Moto> page = motoRepository.findAllByStatus(StatusMoto.DISPONIVEL, pageable);
-            Map<UUID, String> idToIdent = loadVagaIdentificacao(page.getContent());
-            List<MotoDTO> content = page.getContent()
-                    .stream()
-                    .map(m -> MotoMapper.toDto(m, idToIdent.get(m.getVagaId())))
-                    .toList();
-            return new PageImpl<>(content, pageable, page.getTotalElements());
+            return motoRepository.findDtosByStatus(StatusMoto.DISPONIVEL, pageable);
         }
-
         UUID patioId = authz.currentUserPatioIdOrThrow();
-        List<UUID> vagaIds = vagaRepository.findAllIdsByPatioId(patioId);
-        if (vagaIds.isEmpty()) return Page.empty(pageable);
-
-        Page<Moto> page = motoRepository.findAllByStatusAndVagaIdIn(StatusMoto.DISPONIVEL, vagaIds, pageable);
-        Map<UUID, String> idToIdent = loadVagaIdentificacao(page.getContent());
-        List<MotoDTO> content = page.getContent()
-                .stream()
-                .map(m -> MotoMapper.toDto(m, idToIdent.get(m.getVagaId())))
-                .toList();
-        return new PageImpl<>(content, pageable, page.getTotalElements());
+        return motoRepository.findDtosByPatioIdAndStatus(patioId, StatusMoto.DISPONIVEL, pageable);
     }
 
     @Transactional(readOnly = true)
@@ -256,13 +311,51 @@ public class MotoService {
         return MotoMapper.toDto(readByPlaca(placa));
     }
 
-    private Map<UUID, String> loadVagaIdentificacao(List<Moto> motos) {
-        Set<UUID> vagaIds = motos.stream()
-                .map(Moto::getVagaId)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-        if (vagaIds.isEmpty()) return Collections.emptyMap();
-        return vagaRepository.findIdentificacoesByIds(vagaIds);
+    // Placa e status definem ordem/pertencimento nas listas, assim como a troca de pátio:
+    // nesses casos as partições dos pátios envolvidos (e a do ADMIN) são descartadas.
+    // Caso contrário basta descartar as páginas que contêm a moto.
+    private void invalidarListas(Moto moto, String placaAnterior, StatusMoto statusAnterior, UUID vagaAnteriorId) {
+        UUID patioAnterior = patioDaVaga(vagaAnteriorId);
+        UUID patioAtual = patioDaVaga(moto.getVagaId());
+        boolean ordemMudou = !Objects.equals(placaAnterior, moto.getPlaca()) || statusAnterior != moto.getStatus();
+        if (ordemMudou || !Objects.equals(patioAnterior, patioAtual)) {
+            limparListas(patioAnterior, patioAtual);
+        } else {
+            invalidacaoCache.evictContendo("motosList", moto.getId());
+            invalidacaoCache.evictContendo("motosListAtivas", moto.getId());
+            versoes.alterou(Recurso.MOTOS, patioAtual);
+        }
+    }
+
+    private void limparListas(UUID... patioIds) {
+        invalidacaoCache.limparParticao("motosList", patioIds);
+        invalidacaoCache.limparParticao("motosListAtivas", patioIds);
+        versoes.alterou(Recurso.MOTOS, patioIds);
+    }
+
+    // a vaga já está no contexto de persistência nesses fluxos, então não gera nova consulta
+    private UUID patioDaVaga(UUID vagaId) {
+        if (vagaId == null) return null;
+        return vagaRepository.findById(vagaId)
+                .map(v -> v.getPatio() != null ? v.getPatio().getId() : null)
+                .orElse(null);
+    }
+
+    // as vagas exibem placa/status da moto
+    private void invalidarVagas(UUID... vagaIds) {
+        invalidacaoCache.evictContendo("vagas", vagaIds);
+        invalidacaoCache.evictContendo("vagasAll", vagaIds);
+        versoes.alterou(Recurso.VAGAS, Arrays.stream(vagaIds).map(this::patioDaVaga).toArray(UUID[]::new));
+    }
+
+    // sincronização: a moto entra no log dos pátios de antes e de agora; a vaga atual também, porque exibe
+    // placa/status dela (ocupar/liberar vaga já chega pelo VagaAlteradaEvent)
+    private void registrarAlteracao(Moto moto, UUID vagaAnteriorId) {
+        logAlteracoes.registrar(EntidadeSincronizada.MOTO, moto.getId(),
+                patioDaVaga(vagaAnteriorId), patioDaVaga(moto.getVagaId()));
+        if (moto.getVagaId() != null) {
+            logAlteracoes.registrar(EntidadeSincronizada.VAGA, moto.getVagaId(), patioDaVaga(moto.getVagaId()));
+        }
     }
 
     private void ajustarVagasSeNecessario(Moto moto, UUID novaVagaId) {
@@ -275,17 +368,14 @@ public class MotoService {
             antiga.setMoto(null);
             antiga.setStatus(StatusVaga.LIVRE);
             vagaRepository.save(antiga);
+            eventos.publishEvent(VagaAlteradaEvent.de(antiga));
         }
 
         if (novaVagaId != null) {
             Vaga nova = vagaRepository.findById(novaVagaId)
                     .orElseThrow(() -> new EntityNotFoundException("Vaga nova não encontrada: " + novaVagaId));
-            if (nova.getStatus() == StatusVaga.OCUPADA) {
-                throw new IllegalStateException("Vaga já está ocupada.");
-            }
-            nova.setMoto(moto);
-            nova.setStatus(StatusVaga.OCUPADA);
-            vagaRepository.save(nova);
+            alocadorVagas.ocupar(nova, moto);
+            eventos.publishEvent(VagaAlteradaEvent.de(nova));
             moto.setVagaId(novaVagaId);
         } else {
             moto.setVagaId(null);
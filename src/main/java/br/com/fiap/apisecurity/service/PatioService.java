@@ -1,11 +1,16 @@
 package br.com.fiap.apisecurity.service;
 
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
 import br.com.fiap.apisecurity.controller.usuario.Authz;
 import br.com.fiap.apisecurity.dto.PatioDTO;
 import br.com.fiap.apisecurity.mapper.PatioMapper;
 import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
 import br.com.fiap.apisecurity.repository.PatioRepository;
 import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.sincronizacao.LogAlteracoes;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -17,6 +22,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -26,14 +32,23 @@ public class PatioService {
     private final PatioRepository patioRepository;
     private final VagaRepository vagaRepository;
     private final Authz authz;
+    private final InvalidacaoCache invalidacaoCache;
+    private final VersoesRecursos versoes;
+    private final LogAlteracoes logAlteracoes;
 
     @Autowired
     public PatioService(PatioRepository patioRepository,
                         VagaRepository vagaRepository,
-                        Authz authz) {
+                        Authz authz,
+                        InvalidacaoCache invalidacaoCache,
+                        VersoesRecursos versoes,
+                        LogAlteracoes logAlteracoes) {
         this.patioRepository = patioRepository;
         this.vagaRepository  = vagaRepository;
         this.authz = authz;
+        this.invalidacaoCache = invalidacaoCache;
+        this.versoes = versoes;
+        this.logAlteracoes = logAlteracoes;
     }
 
     @Transactional
@@ -47,6 +62,7 @@ public class PatioService {
         }
         Patio entity = PatioMapper.toEntity(dto);
         Patio saved = patioRepository.save(entity);
+        versoes.alterou(Recurso.PATIOS, saved.getId());
         return PatioMapper.toDto(saved);
     }
 
@@ -112,13 +128,10 @@ public class PatioService {
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames="patios",    allEntries = true),
-            @CacheEvict(cacheNames="patiosAll", allEntries = true)
-    })
     public PatioDTO updatePatio(UUID id, PatioDTO dto) {
         Patio patio = patioRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Pátio não encontrado: " + id));
+        String nomeAnterior = patio.getNome();
 
         if (!authz.isAdmin()) {
             UUID userPatio = authz.currentUserPatioIdOrThrow();
@@ -129,6 +142,21 @@ public class PatioService {
 
         PatioMapper.apply(dto, patio);
         Patio saved = patioRepository.save(patio);
+
+        if (!Objects.equals(nomeAnterior, saved.getNome())) {
+            // nome ordena a listagem de pátios e aparece nas páginas de vagas
+            invalidacaoCache.limpar("patios", "patiosAll");
+            invalidacaoCache.evictContendo("vagas", id);
+            invalidacaoCache.evictContendo("vagasAll", id);
+            versoes.alterou(Recurso.VAGAS, id);
+            for (UUID vagaId : vagaRepository.findAllIdsByPatioId(id)) {
+                logAlteracoes.registrar(EntidadeSincronizada.VAGA, vagaId, id);
+            }
+        } else {
+            invalidacaoCache.evictContendo("patios", id);
+            invalidacaoCache.evictContendo("patiosAll", id);
+        }
+        versoes.alterou(Recurso.PATIOS, id);
         return PatioMapper.toDto(saved);
     }
 
@@ -152,6 +180,7 @@ public class PatioService {
             );
         }
         patioRepository.delete(patio);
+        versoes.alterou(Recurso.PATIOS, id);
     }
 
     public List<Patio> findAllEntities() {
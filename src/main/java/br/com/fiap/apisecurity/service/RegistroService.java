@@ -1,6 +1,8 @@
 package br.com.fiap.apisecurity.service;
 
+import br.com.fiap.apisecurity.dto.CursorPage;
 import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
 import br.com.fiap.apisecurity.mapper.RegistroMapper;
 import br.com.fiap.apisecurity.model.Leitor;
 import br.com.fiap.apisecurity.model.Moto;
@@ -10,40 +12,74 @@ import br.com.fiap.apisecurity.model.enums.StatusVaga;
 import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
 import br.com.fiap.apisecurity.repository.LeitorRepository;
 import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
 import br.com.fiap.apisecurity.repository.RegistroRepository;
 import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.arquivamento.ArquivadorRegistros;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.paginacao.Cursor;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 // Á SER FINALIZADA
 
 @Service
 public class RegistroService {
 
+    private static final Cursor.Chave INICIO_REGISTROS =
+            new Cursor.Chave(LocalDateTime.of(9999, 12, 31, 23, 59, 59).toString(), new UUID(-1L, -1L));
+
     private final RegistroRepository registroRepository;
     private final MotoRepository motoRepository;
     private final LeitorRepository leitorRepository;
     private final VagaRepository vagaRepository;
+    private final EntityManager entityManager;
+    private final ContagemTotais contagemTotais;
+    private final RegistroArquivoRepository arquivoRepository;
+    private final ArquivadorRegistros arquivador;
+    private final ApplicationEventPublisher eventos;
+    private final int loteMaxItens;
+    private final int loteFlush;
+
+    // Oracle limita listas IN a 1000 elementos
+    private static final int LIMITE_IN = 1000;
 
     @Autowired
-    public RegistroService(RegistroRepository registroRepository, MotoRepository motoRepository, LeitorRepository leitorRepository, VagaRepository vagaRepository) {
+    public RegistroService(RegistroRepository registroRepository, MotoRepository motoRepository, LeitorRepository leitorRepository, VagaRepository vagaRepository,
+                           EntityManager entityManager,
+                           ContagemTotais contagemTotais,
+                           RegistroArquivoRepository arquivoRepository,
+                           ArquivadorRegistros arquivador,
+                           ApplicationEventPublisher eventos,
+                           @Value("${app.registros.lote.max-itens:5000}") int loteMaxItens,
+                           @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int loteFlush) {
         this.registroRepository = registroRepository;
         this.motoRepository = motoRepository;
         this.leitorRepository = leitorRepository;
         this.vagaRepository = vagaRepository;
+        this.entityManager = entityManager;
+        this.contagemTotais = contagemTotais;
+        this.arquivoRepository = arquivoRepository;
+        this.arquivador = arquivador;
+        this.eventos = eventos;
+        this.loteMaxItens = loteMaxItens;
+        this.loteFlush = loteFlush;
     }
 
     // Create
@@ -59,36 +95,126 @@ public class RegistroService {
         registro.setMoto(moto);
         registro.setLeitor(leitor);
 
-        return RegistroMapper.toDto(registroRepository.save(registro));
+        Registro salvo = registroRepository.save(registro);
+        eventos.publishEvent(new RegistrosAlteradosEvent(List.of(RegistrosAlteradosEvent.Movimento.de(salvo, 1))));
+        return RegistroMapper.toDto(salvo);
+    }
+
+    // Create em lote: motos e leitores resolvidos em consultas por conjunto, inserts em batch JDBC
+    @Transactional
+    @CacheEvict(value = "registros", allEntries = true)
+    public List<RegistroDTO> createRegistrosBatch(List<RegistroDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) return List.of();
+        if (dtos.size() > loteMaxItens) {
+            throw new IllegalArgumentException("Lote excede o limite de " + loteMaxItens + " registros.");
+        }
+
+        for (int i = 0; i < dtos.size(); i++) {
+            RegistroDTO dto = dtos.get(i);
+            if (dto == null || dto.getMotoId() == null || dto.getLeitorId() == null
+                    || dto.getTipo() == null || dto.getDataHora() == null) {
+                throw new IllegalArgumentException("Registro #" + i + " do lote incompleto: motoId, leitorId, tipo e dataHora são obrigatórios.");
+            }
+        }
+
+        Set<UUID> motoIds = dtos.stream().map(RegistroDTO::getMotoId).collect(Collectors.toSet());
+        Set<UUID> leitorIds = dtos.stream().map(RegistroDTO::getLeitorId).collect(Collectors.toSet());
+
+        Map<UUID, Moto> motos = buscarPorIds(motoIds, motoRepository::findAllById, Moto::getId);
+        Map<UUID, Leitor> leitores = buscarPorIds(leitorIds, leitorRepository::findAllById, Leitor::getId);
+
+        if (motos.size() != motoIds.size()) {
+            motoIds.removeAll(motos.keySet());
+            throw new EntityNotFoundException("Moto(s) não encontrada(s): " + motoIds);
+        }
+        if (leitores.size() != leitorIds.size()) {
+            leitorIds.removeAll(leitores.keySet());
+            throw new EntityNotFoundException("Leitor(es) não encontrado(s): " + leitorIds);
+        }
+
+        List<RegistroDTO> criados = new ArrayList<>(dtos.size());
+        List<RegistrosAlteradosEvent.Movimento> movimentos = new ArrayList<>(dtos.size());
+        List<Registro> pendentes = new ArrayList<>(Math.min(loteFlush, dtos.size()));
+        for (RegistroDTO dto : dtos) {
+            Registro registro = new Registro(motos.get(dto.getMotoId()), leitores.get(dto.getLeitorId()), dto.getTipo(), dto.getDataHora());
+            registro.setId(dto.getId());
+            pendentes.add(registro);
+            if (pendentes.size() >= loteFlush) {
+                gravarLote(pendentes, criados, movimentos);
+            }
+        }
+        if (!pendentes.isEmpty()) gravarLote(pendentes, criados, movimentos);
+        eventos.publishEvent(new RegistrosAlteradosEvent(movimentos));
+        return criados;
     }
 
     // Read all
     @Cacheable(value = "registros", key = "#pageable")
     public Page<RegistroDTO> readAllRegistros(Pageable pageable) {
-        Page<Registro> page = registroRepository.findAll(pageable);
-        List<RegistroDTO> dtoList = page.getContent()
-                .stream()
-                .map(RegistroMapper::toDto)
-                .toList();
-        return new PageImpl<>(dtoList, pageable, page.getTotalElements());
+        return registroRepository.findDtos(pageable);
+    }
+
+    // sem COUNT: em milhões de linhas o count custa mais que a própria página
+    @Cacheable(value = "registros", key = "'slice:' + #pageable")
+    public Slice<RegistroDTO> readRegistrosSlice(Pageable pageable) {
+        return registroRepository.sliceDtos(pageable);
+    }
+
+    public Page<RegistroDTO> readAllRegistrosTotalAproximado(Pageable pageable) {
+        return ContagemTotais.comTotal(registroRepository.sliceDtos(pageable), contagemTotais.registros());
+    }
+
+    // keyset em ordem decrescente (mais recentes primeiro); o cursor inicial fica acima de qualquer registro
+    public CursorPage<RegistroDTO> readRegistrosCursor(String cursor, Integer tamanho) {
+        Cursor.Chave antes = Cursor.decodificar(cursor, INICIO_REGISTROS);
+        int t = Cursor.tamanho(tamanho);
+        LocalDateTime dataHora;
+        try {
+            dataHora = LocalDateTime.parse(antes.valor());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+        List<RegistroDTO> linhas = registroRepository.findDtosAntes(dataHora, antes.id(), Cursor.limite(t));
+        return Cursor.pagina(linhas, t, r -> Cursor.codificar(r.getDataHora().toString(), r.getId()));
     }
 
     public List<RegistroDTO> readAll() {
         return RegistroMapper.toDtoList(registroRepository.findAll());
     }
 
+    // histórico completo da moto: camada fria (se houver algo arquivado) + quente, em ordem cronológica
+    @Transactional(readOnly = true)
     public List<RegistroDTO> readByMotoId(UUID motoId) {
-        Moto moto = motoRepository.findById(motoId).orElseThrow(() -> new EntityNotFoundException("Moto não encontrada"));
-        return RegistroMapper.toDtoList(registroRepository.findByMoto(moto));
+        if (!motoRepository.existsById(motoId)) throw new EntityNotFoundException("Moto não encontrada");
+        List<RegistroDTO> quentes = registroRepository.findDtosByMotoId(motoId);
+        if (arquivador.arquivadoAte() == null) return quentes;
+        return unirCamadas(arquivoRepository.findDtosByMotoId(motoId), quentes);
     }
 
+    @Transactional(readOnly = true)
     public List<RegistroDTO> readByMotoIdAndTipo(UUID motoId, TipoMovimentacao tipo) {
-        Moto moto = motoRepository.findById(motoId).orElseThrow(() -> new EntityNotFoundException("Moto não encontrada"));
-        return RegistroMapper.toDtoList(registroRepository.findByMotoAndTipo(moto, tipo));
+        if (!motoRepository.existsById(motoId)) throw new EntityNotFoundException("Moto não encontrada");
+        List<RegistroDTO> quentes = registroRepository.findDtosByMotoIdAndTipo(motoId, tipo);
+        if (arquivador.arquivadoAte() == null) return quentes;
+        return unirCamadas(arquivoRepository.findDtosByMotoIdAndTipo(motoId, tipo), quentes);
     }
 
+    @Transactional(readOnly = true)
     public List<RegistroDTO> readByPeriodo(LocalDateTime inicio, LocalDateTime fim) {
-        return RegistroMapper.toDtoList(registroRepository.findByDataHoraBetween(inicio, fim));
+        List<RegistroDTO> quentes = registroRepository.findDtosByPeriodo(inicio, fim);
+        // só desce ao arquivo quando o período começa antes do que já foi arquivado
+        LocalDateTime arquivadoAte = arquivador.arquivadoAte();
+        if (arquivadoAte == null || inicio.isAfter(arquivadoAte)) return quentes;
+        return unirCamadas(arquivoRepository.findDtosByPeriodo(inicio, fim), quentes);
+    }
+
+    // fria (mais antiga) antes da quente; um registro em trânsito entre as duas aparece uma vez só
+    private static List<RegistroDTO> unirCamadas(List<RegistroDTO> arquivados, List<RegistroDTO> quentes) {
+        if (arquivados.isEmpty()) return quentes;
+        Map<UUID, RegistroDTO> unidos = new LinkedHashMap<>(arquivados.size() + quentes.size());
+        for (RegistroDTO r : arquivados) unidos.put(r.getId(), r);
+        for (RegistroDTO r : quentes) unidos.putIfAbsent(r.getId(), r);
+        return new ArrayList<>(unidos.values());
     }
 
     // Update
@@ -99,6 +225,7 @@ public class RegistroService {
         if (optionalRegistro.isEmpty()) return null;
 
         Registro registro = optionalRegistro.get();
+        RegistrosAlteradosEvent.Movimento anterior = RegistrosAlteradosEvent.Movimento.de(registro, -1);
 
         Moto moto = motoRepository.findById(dto.getMotoId()).orElseThrow(() -> new EntityNotFoundException("Moto não encontrada"));
         Leitor leitor = leitorRepository.findById(dto.getLeitorId()).orElseThrow(() -> new EntityNotFoundException("Leitor não encontrado"));
@@ -108,14 +235,41 @@ public class RegistroService {
         registro.setMoto(moto);
         registro.setLeitor(leitor);
 
-        return RegistroMapper.toDto(registroRepository.save(registro));
+        Registro salvo = registroRepository.save(registro);
+        eventos.publishEvent(new RegistrosAlteradosEvent(List.of(anterior, RegistrosAlteradosEvent.Movimento.de(salvo, 1))));
+        return RegistroMapper.toDto(salvo);
+    }
+
+    private void gravarLote(List<Registro> pendentes, List<RegistroDTO> criados,
+                            List<RegistrosAlteradosEvent.Movimento> movimentos) {
+        registroRepository.saveAll(pendentes);
+        entityManager.flush();
+        for (Registro r : pendentes) {
+            criados.add(RegistroMapper.toDto(r));
+            movimentos.add(RegistrosAlteradosEvent.Movimento.de(r, 1));
+        }
+        for (Registro r : pendentes) entityManager.detach(r);
+        pendentes.clear();
+    }
+
+    private static <T> Map<UUID, T> buscarPorIds(Set<UUID> ids, Function<List<UUID>, List<T>> consulta, Function<T, UUID> idDe) {
+        List<UUID> todos = new ArrayList<>(ids);
+        Map<UUID, T> encontrados = new HashMap<>(todos.size() * 2);
+        for (int i = 0; i < todos.size(); i += LIMITE_IN) {
+            List<UUID> fatia = todos.subList(i, Math.min(i + LIMITE_IN, todos.size()));
+            for (T entidade : consulta.apply(fatia)) encontrados.put(idDe.apply(entidade), entidade);
+        }
+        return encontrados;
     }
 
     // Delete
     @Transactional
     @CacheEvict(value = "registros", key = "#id")
     public void deleteRegistro(UUID id) {
-        registroRepository.deleteById(id);
+        registroRepository.findById(id).ifPresent(registro -> {
+            eventos.publishEvent(new RegistrosAlteradosEvent(List.of(RegistrosAlteradosEvent.Movimento.de(registro, -1))));
+            registroRepository.delete(registro);
+        });
     }
 
 //    @Transactional
@@ -1,7 +1,13 @@
 package br.com.fiap.apisecurity.service;
 
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
 import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CursorPage;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
 import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
+import br.com.fiap.apisecurity.dto.VagaProximaDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
 import br.com.fiap.apisecurity.mapper.VagaMapper;
 import br.com.fiap.apisecurity.model.Patio;
 import br.com.fiap.apisecurity.model.enums.StatusVaga;
@@ -9,42 +15,73 @@ import br.com.fiap.apisecurity.model.Vaga;
 import br.com.fiap.apisecurity.repository.MotoRepository;
 import br.com.fiap.apisecurity.repository.PatioRepository;
 import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.ocupacao.IndiceEspacialVagas;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.paginacao.Cursor;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
 public class VagaService {
 
+    private static final int LIMITE_PROXIMAS = 50;
+    private static final int LIMITE_OPCOES = 100;
+
     private final VagaRepository vagaRepository;
     private final MotoRepository motoRepository;
     private final PatioRepository patioRepository;
     private final Authz authz;
+    private final InvalidacaoCache invalidacaoCache;
+    private final OcupacaoIndex ocupacaoIndex;
+    private final IndiceEspacialVagas indiceEspacial;
+    private final ApplicationEventPublisher eventos;
+    private final ContagemTotais contagemTotais;
+    private final VersoesRecursos versoes;
 
     @Autowired
     public VagaService(VagaRepository vagaRepository,
                        MotoRepository motoRepository,
                        PatioRepository patioRepository,
-                       Authz authz) {
+                       Authz authz,
+                       InvalidacaoCache invalidacaoCache,
+                       OcupacaoIndex ocupacaoIndex,
+                       IndiceEspacialVagas indiceEspacial,
+                       ApplicationEventPublisher eventos,
+                       ContagemTotais contagemTotais,
+                       VersoesRecursos versoes) {
         this.vagaRepository = vagaRepository;
         this.motoRepository = motoRepository;
         this.patioRepository = patioRepository;
         this.authz = authz;
+        this.invalidacaoCache = invalidacaoCache;
+        this.ocupacaoIndex = ocupacaoIndex;
+        this.indiceEspacial = indiceEspacial;
+        this.eventos = eventos;
+        this.contagemTotais = contagemTotais;
+        this.versoes = versoes;
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = "vagas",    allEntries = true),
-            @CacheEvict(cacheNames = "vagasAll", allEntries = true)
-    })
     public VagaDTO createVaga(VagaDTO dto) {
         if (!authz.isAdmin()) {
             UUID userPatio = authz.currentUserPatioIdOrThrow();
@@ -64,13 +101,15 @@ public class VagaService {
         entity.setStatus(dto.getStatus() != null ? dto.getStatus() : StatusVaga.LIVRE);
 
         Vaga saved = vagaRepository.save(entity);
+        eventos.publishEvent(VagaAlteradaEvent.de(saved));
+        limparListas(dto.getPatioId());
         return VagaMapper.toDto(saved);
     }
 
     @Transactional(readOnly = true)
     @Cacheable(cacheNames = "vagas", key="#id")
     public Vaga readVagaById(UUID id) {
-        Vaga vaga = vagaRepository.findById(id)
+        Vaga vaga = vagaRepository.findDetalhadaById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + id));
 
         if (authz.isAdmin()) return vaga;
@@ -85,39 +124,83 @@ public class VagaService {
     @Transactional(readOnly = true)
     @Cacheable(
             cacheNames = "vagas",
-            key="(#pageable != null && #pageable.isPaged()) ? \n" +
+            key="@authz.escopoCache() + ':' + ((#pageable != null && #pageable.isPaged()) ? \n" +
                     "        (#pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort != null ? #pageable.sort : 'UNSORTED')) \n" +
-                    "        : 'UNPAGED'",
-            condition="@authz.isAdmin()"
+                    "        : 'UNPAGED')"
     )
     public Page<VagaDTO> readAllVagas(Pageable pageable) {
         if (authz.isAdmin()) {
-            Page<Vaga> page = vagaRepository.findAll(pageable);
-            return page.map(VagaMapper::toDto);
+            return vagaRepository.findDtos(pageable);
         }
         UUID patioId = authz.currentUserPatioIdOrThrow();
-        Page<Vaga> page = vagaRepository.findAllByPatio_Id(patioId, pageable);
-        return page.map(VagaMapper::toDto);
+        return vagaRepository.findDtosByPatioId(patioId, pageable);
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(cacheNames = "vagasAll", condition="@authz.isAdmin()")
+    @Cacheable(cacheNames = "vagasAll", key = "@authz.escopoCache()")
     public List<VagaDTO> readAllVagas() {
         if (authz.isAdmin()) {
-            return vagaRepository.findAll().stream().map(VagaMapper::toDto).toList();
+            return vagaRepository.findDtos();
         }
         UUID patioId = authz.currentUserPatioIdOrThrow();
-        return vagaRepository.findAllByPatio_Id(patioId).stream().map(VagaMapper::toDto).toList();
+        return vagaRepository.findDtosByPatioId(patioId);
+    }
+
+    // ?withTotal=false: sem COUNT, no mesmo cache (e partição) da listagem paginada
+    @Transactional(readOnly = true)
+    @Cacheable(
+            cacheNames = "vagas",
+            key="@authz.escopoCache() + ':slice:' + ((#pageable != null && #pageable.isPaged()) ? \n" +
+                    "        (#pageable.pageNumber + ':' + #pageable.pageSize + ':' + (#pageable.sort != null ? #pageable.sort : 'UNSORTED')) \n" +
+                    "        : 'UNPAGED')"
+    )
+    public Slice<VagaDTO> readVagasSlice(Pageable pageable) {
+        return buscarSlice(pageable);
+    }
+
+    // ?withTotal=approx: total do cache de totais
+    @Transactional(readOnly = true)
+    public Page<VagaDTO> readAllVagasTotalAproximado(Pageable pageable) {
+        return ContagemTotais.comTotal(buscarSlice(pageable), contagemTotais.vagas());
+    }
+
+    private Slice<VagaDTO> buscarSlice(Pageable pageable) {
+        if (authz.isAdmin()) {
+            return vagaRepository.sliceDtos(pageable);
+        }
+        return vagaRepository.sliceDtosByPatioId(authz.currentUserPatioIdOrThrow(), pageable);
+    }
+
+    // keyset por (identificacao, id), sem COUNT e fora do cache. Vagas sem identificação vêm primeiro, por id
+    // (cursor com valor nulo); quando esse segmento acaba, a mesma fatia continua pelas identificadas
+    @Transactional(readOnly = true)
+    public CursorPage<VagaDTO> readVagasCursor(String cursor, Integer tamanho) {
+        Cursor.Chave apos = Cursor.decodificar(cursor, Cursor.INICIO_NULOS);
+        int t = Cursor.tamanho(tamanho);
+        UUID patioId = authz.isAdmin() ? null : authz.currentUserPatioIdOrThrow();
+        List<VagaDTO> linhas = new ArrayList<>(t + 1);
+        if (apos.valor() == null) {
+            linhas.addAll(patioId == null
+                    ? vagaRepository.findDtosSemIdentificacaoApos(apos.id(), Cursor.limite(t))
+                    : vagaRepository.findDtosByPatioIdSemIdentificacaoApos(patioId, apos.id(), Cursor.limite(t)));
+            apos = Cursor.INICIO_ASC;
+        }
+        int faltam = t + 1 - linhas.size();
+        if (faltam > 0) {
+            linhas.addAll(patioId == null
+                    ? vagaRepository.findDtosApos(apos.valor(), apos.id(), Limit.of(faltam))
+                    : vagaRepository.findDtosByPatioIdApos(patioId, apos.valor(), apos.id(), Limit.of(faltam)));
+        }
+        return Cursor.pagina(linhas, t, v -> Cursor.codificar(v.getIdentificacao(), v.getId()));
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = "vagas",    allEntries = true),
-            @CacheEvict(cacheNames = "vagasAll", allEntries = true)
-    })
     public VagaDTO updateVaga(UUID id, VagaDTO dto) {
         Vaga vaga = vagaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + id));
+        String identificacaoAnterior = vaga.getIdentificacao();
+        StatusVaga statusAnterior = vaga.getStatus();
+        UUID patioAnterior = vaga.getPatio() != null ? vaga.getPatio().getId() : null;
 
         if (!authz.isAdmin()) {
             UUID userPatio = authz.currentUserPatioIdOrThrow();
@@ -132,14 +215,30 @@ public class VagaService {
                 .orElseThrow(() -> new EntityNotFoundException("Pátio não encontrado: " + idPatio)));
 
         Vaga saved = vagaRepository.save(vaga);
+        eventos.publishEvent(VagaAlteradaEvent.de(saved, patioAnterior));
+
+        // identificação, status e pátio definem ordem/pertencimento das listagens;
+        // demais campos só afetam as páginas que contêm a vaga
+        UUID patioAtual = saved.getPatio() != null ? saved.getPatio().getId() : null;
+        if (!Objects.equals(identificacaoAnterior, saved.getIdentificacao()) || statusAnterior != saved.getStatus()
+                || !Objects.equals(patioAnterior, patioAtual)) {
+            invalidacaoCache.evictContendo("vagas", id);
+            limparListas(patioAnterior, patioAtual);
+        } else {
+            invalidacaoCache.evictContendo("vagas", id);
+            invalidacaoCache.evictContendo("vagasAll", id);
+        }
+        if (!Objects.equals(identificacaoAnterior, saved.getIdentificacao())) {
+            // listagens de motos exibem a identificação da vaga
+            invalidacaoCache.evictContendo("motosList", id);
+            invalidacaoCache.evictContendo("motosListAtivas", id);
+            versoes.alterou(Recurso.MOTOS, patioAnterior, patioAtual);
+        }
         return VagaMapper.toDto(saved);
     }
 
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(cacheNames = "vagas",    allEntries = true),
-            @CacheEvict(cacheNames = "vagasAll", allEntries = true)
-    })
+    @CacheEvict(cacheNames = "vagas", key = "#id")
     public void deleteVaga(UUID id) {
         Vaga vaga = vagaRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + id));
@@ -154,6 +253,14 @@ public class VagaService {
             throw new IllegalStateException("Não é possível remover vaga ocupada.");
         }
         vagaRepository.delete(vaga);
+        UUID patioId = vaga.getPatio() != null ? vaga.getPatio().getId() : null;
+        eventos.publishEvent(VagaAlteradaEvent.removida(id, patioId));
+        limparListas(patioId);
+    }
+
+    private void limparListas(UUID... patioIds) {
+        invalidacaoCache.limparParticao("vagas", patioIds);
+        invalidacaoCache.limparParticao("vagasAll", patioIds);
     }
 
     @Transactional(readOnly = true)
@@ -167,4 +274,68 @@ public class VagaService {
         return vagaRepository.findAllByPatio_IdAndStatus(patioId, status)
                 .stream().map(VagaMapper::toDto).toList();
     }
+
+    // servido pelo índice em memória, sem consulta ao banco
+    public OcupacaoDTO readOcupacao(UUID patioId) {
+        if (!authz.isAdmin()) {
+            UUID userPatio = authz.currentUserPatioIdOrThrow();
+            if (!userPatio.equals(patioId)) {
+                throw new SecurityException("Operador só pode consultar o próprio pátio.");
+            }
+        }
+        return ocupacaoIndex.ocupacao(patioId);
+    }
+
+    // seletor de vaga dos formulários: vagas livres cuja identificação começa com o prefixo, no máximo 'limite'.
+    // Uma faixa do índice por consulta: o custo não depende do tamanho do pátio. Operador: só o próprio pátio.
+    @Transactional(readOnly = true)
+    public List<VagaOpcaoDTO> readVagasLivres(UUID patioId, String prefixo, Integer limite) {
+        if (!authz.isAdmin()) {
+            UUID userPatio = authz.currentUserPatioIdOrThrow();
+            if (patioId != null && !userPatio.equals(patioId)) {
+                throw new SecurityException("Operador só pode consultar o próprio pátio.");
+            }
+            patioId = userPatio;
+        }
+        String p = prefixo == null ? "" : prefixo.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        Limit n = Limit.of(limite == null ? 20 : Math.max(1, Math.min(limite, LIMITE_OPCOES)));
+        List<VagaOpcaoDTO> opcoes = opcoesLivres(patioId, p + "%", n);
+        String maiusculo = p.toUpperCase(Locale.ROOT);
+        if (maiusculo.equals(p)) {
+            return opcoes;
+        }
+        // prefixo com minúsculas: segunda faixa do índice (como digitado / em maiúsculas), juntadas aqui na
+        // mesma ordem das consultas e cortadas no limite
+        Map<UUID, VagaOpcaoDTO> juntas = new LinkedHashMap<>();
+        for (VagaOpcaoDTO o : opcoes) juntas.put(o.getId(), o);
+        for (VagaOpcaoDTO o : opcoesLivres(patioId, maiusculo + "%", n)) juntas.putIfAbsent(o.getId(), o);
+        return juntas.values().stream()
+                .sorted(Comparator.comparing(VagaOpcaoDTO::getIdentificacao).thenComparing(VagaOpcaoDTO::getId))
+                .limit(n.max())
+                .toList();
+    }
+
+    private List<VagaOpcaoDTO> opcoesLivres(UUID patioId, String prefixo, Limit n) {
+        return patioId == null
+                ? vagaRepository.findOpcoesLivres(StatusVaga.LIVRE, prefixo, n)
+                : vagaRepository.findOpcoesLivresByPatioId(patioId, StatusVaga.LIVRE, prefixo, n);
+    }
+
+    // K vagas livres mais próximas de um ponto do pátio (índice espacial em memória)
+    public List<VagaProximaDTO> readVagasProximas(UUID patioId, double lat, double lon, int k) {
+        if (!authz.isAdmin()) {
+            UUID userPatio = authz.currentUserPatioIdOrThrow();
+            if (!userPatio.equals(patioId)) {
+                throw new SecurityException("Operador só pode consultar o próprio pátio.");
+            }
+        }
+        return indiceEspacial.proximas(patioId, lat, lon, Math.max(1, Math.min(k, LIMITE_PROXIMAS)));
+    }
+
+    // mesma busca tendo como origem a posição de uma vaga (ex.: a vaga onde o leitor está instalado)
+    public List<VagaProximaDTO> readVagasProximas(UUID patioId, UUID vagaOrigemId, int k) {
+        double[] origem = indiceEspacial.coordenadas(patioId, vagaOrigemId)
+                .orElseThrow(() -> new IllegalArgumentException("Vaga de origem sem coordenadas no pátio: " + vagaOrigemId));
+        return readVagasProximas(patioId, origem[0], origem[1], k);
+    }
 }
\ No newline at end of file
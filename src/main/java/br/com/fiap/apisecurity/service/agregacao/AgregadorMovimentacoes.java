@@ -0,0 +1,423 @@
+package br.com.fiap.apisecurity.service.agregacao;
+
+import br.com.fiap.apisecurity.dto.AgregadoDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.model.RegistroAgregado;
+import br.com.fiap.apisecurity.model.enums.Granularidade;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroAgregadoRepository;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Agregados de movimentação por pátio/tipo em baldes de minuto, hora e dia (tb_registro_agregado).
+// Incremental: cada registro commitado vira +1 (ou -1) em memória nos três baldes; a cada flush-ms os deltas
+// vão ao banco num MERGE por balde. As consultas somam o banco e os deltas ainda não descarregados.
+// reconstruir() refaz uma faixa de dias a partir do bruto (quente + arquivo) para backfill/correção. Enquanto um dia
+// é relido, os deltas dele ficam numa janela à parte e, no fim, são conciliados por registro com o que a leitura
+// viu (um registro commitado durante a passada não é contado duas vezes nem perdido).
+@Component
+public class AgregadorMovimentacoes {
+
+    private static final Logger log = LoggerFactory.getLogger(AgregadorMovimentacoes.class);
+
+    // acima disso a consulta deve usar uma granularidade maior
+    public static final int MAX_BALDES = 10_000;
+
+    private final RegistroAgregadoRepository agregadoRepository;
+    private final RegistroRepository registroRepository;
+    private final RegistroArquivoRepository arquivoRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacao;
+    private final int retencaoMinutoDias;
+    private final int loteFlush;
+
+    // leitores (listener/consulta) usam o read lock; a troca do mapa no flush usa o write lock
+    private final ReentrantReadWriteLock trocaLock = new ReentrantReadWriteLock();
+    private volatile ConcurrentHashMap<RegistroAgregado.Chave, LongAdder> pendentes = new ConcurrentHashMap<>();
+    // um flush/reconstrução por vez
+    private final ReentrantLock escrita = new ReentrantLock();
+    // dia em reconstrução (aberta/fechada sob o write lock; o listener lê sob o read lock)
+    private volatile JanelaReconstrucao janela;
+
+    public AgregadorMovimentacoes(RegistroAgregadoRepository agregadoRepository,
+                                  RegistroRepository registroRepository,
+                                  RegistroArquivoRepository arquivoRepository,
+                                  EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.agregados.retencao-minuto-dias:14}") int retencaoMinutoDias,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int loteFlush) {
+        this.agregadoRepository = agregadoRepository;
+        this.registroRepository = registroRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.entityManager = entityManager;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.retencaoMinutoDias = retencaoMinutoDias;
+        this.loteFlush = loteFlush;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarRegistros(RegistrosAlteradosEvent evento) {
+        trocaLock.readLock().lock();
+        try {
+            JanelaReconstrucao j = janela;
+            for (RegistrosAlteradosEvent.Movimento m : evento.movimentos()) {
+                if (m.patioId() == null || m.tipo() == null || m.dataHora() == null) continue;
+                if (j != null && j.contem(m.dataHora())) {
+                    j.durante.add(m);
+                    continue;
+                }
+                acumular(pendentes, m);
+            }
+        } finally {
+            trocaLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.agregados.flush-ms:5000}")
+    public void descarregar() {
+        escrita.lock();
+        try {
+            descarregarPendentes();
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // [inicio, fim) na granularidade pedida; baldes sem movimento não aparecem
+    public List<AgregadoDTO> consultar(UUID patioId, Granularidade granularidade, LocalDateTime inicio,
+                                       LocalDateTime fim, TipoMovimentacao tipo) {
+        if (!inicio.isBefore(fim)) throw new IllegalArgumentException("Período inválido: início deve ser antes do fim.");
+        long baldes = Duration.between(granularidade.truncar(inicio), fim).dividedBy(granularidade.duracao()) + 1;
+        if (baldes > MAX_BALDES) {
+            throw new IllegalArgumentException("Período longo demais para " + granularidade + " (" + baldes
+                    + " baldes, máximo " + MAX_BALDES + "); use uma granularidade maior.");
+        }
+        LocalDateTime de = granularidade.truncar(inicio);
+
+        Map<RegistroAgregado.Chave, Long> somados = new TreeMap<>(
+                Comparator.comparing(RegistroAgregado.Chave::getInicio).thenComparing(RegistroAgregado.Chave::getTipo));
+        for (AgregadoDTO a : agregadoRepository.findDtos(patioId, granularidade, de, fim, tipo)) {
+            somados.put(new RegistroAgregado.Chave(patioId, granularidade, a.getInicio(), a.getTipo()), a.getQuantidade());
+        }
+        trocaLock.readLock().lock();
+        try {
+            pendentes.forEach((chave, delta) -> {
+                if (chave.getPatioId().equals(patioId) && chave.getGranularidade() == granularidade
+                        && !chave.getInicio().isBefore(de) && chave.getInicio().isBefore(fim)
+                        && (tipo == null || chave.getTipo() == tipo)) {
+                    somados.merge(chave, delta.sum(), Long::sum);
+                }
+            });
+        } finally {
+            trocaLock.readLock().unlock();
+        }
+
+        List<AgregadoDTO> resultado = new ArrayList<>(somados.size());
+        somados.forEach((chave, qtd) -> {
+            if (qtd != 0) resultado.add(new AgregadoDTO(chave.getInicio(), chave.getTipo(), qtd));
+        });
+        return resultado;
+    }
+
+    // Refaz os agregados dos dias [inicio, fim] a partir dos registros; um dia por transação
+    public long reconstruir(LocalDate inicio, LocalDate fim) {
+        if (inicio.isAfter(fim)) throw new IllegalArgumentException("Período inválido: início depois do fim.");
+        escrita.lock();
+        try {
+            // o que já está pendente entra antes; o que chegar para o dia em reconstrução espera a janela dele
+            descarregarPendentes();
+            long registros = 0;
+            for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+                JanelaReconstrucao j = abrirJanela(dia.atStartOfDay());
+                Long n;
+                try {
+                    n = transacao.execute(status -> reconstruirDia(j));
+                } catch (RuntimeException e) {
+                    // a transação do dia voltou atrás: deltas descartados e os da janela voltam a ser pendentes
+                    devolver(j);
+                    throw e;
+                }
+                registros += n == null ? 0 : n;
+                concluir(j);
+            }
+            log.info("Agregados reconstruídos de {} a {} ({} registros)", inicio, fim, registros);
+            return registros;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // baldes de minuto só servem para o passado recente
+    @Scheduled(cron = "${app.agregados.expurgo-cron:0 15 4 * * *}")
+    public void expurgar() {
+        LocalDateTime limite = limiteMinuto();
+        Integer n = transacao.execute(status -> agregadoRepository.removerAntigos(Granularidade.MINUTO, limite));
+        if (n != null && n > 0) log.info("Expurgados {} baldes de minuto anteriores a {}", n, limite);
+    }
+
+    public int pendentes() {
+        return pendentes.size();
+    }
+
+    private void descarregarPendentes() {
+        Map<RegistroAgregado.Chave, LongAdder> lote;
+        trocaLock.writeLock().lock();
+        try {
+            if (pendentes.isEmpty()) return;
+            lote = pendentes;
+            pendentes = new ConcurrentHashMap<>();
+        } finally {
+            trocaLock.writeLock().unlock();
+        }
+
+        try {
+            transacao.executeWithoutResult(status -> lote.forEach((chave, delta) -> {
+                long d = delta.sum();
+                if (d != 0) {
+                    agregadoRepository.somar(chave.getPatioId(), chave.getGranularidade().name(),
+                            chave.getInicio(), chave.getTipo().name(), d);
+                }
+            }));
+        } catch (RuntimeException e) {
+            // devolve os deltas para a próxima tentativa
+            log.warn("Falha ao descarregar {} baldes de agregados: {}", lote.size(), e.getMessage());
+            trocaLock.readLock().lock();
+            try {
+                lote.forEach((chave, delta) -> pendentes.computeIfAbsent(chave, k -> new LongAdder()).add(delta.sum()));
+            } finally {
+                trocaLock.readLock().unlock();
+            }
+        }
+    }
+
+    private long reconstruirDia(JanelaReconstrucao j) {
+        LocalDateTime de = j.de, ate = j.ate;
+        agregadoRepository.removerPeriodo(de, ate);
+
+        // dia já fora da retenção dos baldes de minuto: o expurgo já os removeu, não voltam
+        boolean comMinuto = !de.isBefore(limiteMinuto());
+        Map<RegistroAgregado.Chave, Long> contagens = new HashMap<>();
+        Assinaturas lidas = new Assinaturas();
+        long registros = 0;
+        try (Stream<Object[]> frios = arquivoRepository.streamMovimentos(de, ate)) {
+            registros += contar(frios, contagens, lidas, comMinuto);
+        }
+        try (Stream<Object[]> quentes = registroRepository.streamMovimentos(de, ate)) {
+            registros += contar(quentes, contagens, lidas, comMinuto);
+        }
+        // o que chegou até aqui entra nas linhas gravadas; o resto é acertado em concluir(), depois do commit
+        j.lidas = lidas;
+        j.comMinuto = comMinuto;
+        j.aplicado = conciliar(List.copyOf(j.durante), lidas, comMinuto);
+        j.aplicado.forEach((chave, d) -> contagens.merge(chave, d, Long::sum));
+        contagens.values().removeIf(c -> c == 0);
+
+        int i = 0;
+        for (Map.Entry<RegistroAgregado.Chave, Long> e : contagens.entrySet()) {
+            entityManager.persist(new RegistroAgregado(e.getKey(), e.getValue()));
+            if (++i % loteFlush == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return registros;
+    }
+
+    private static long contar(Stream<Object[]> linhas, Map<RegistroAgregado.Chave, Long> contagens,
+                               Assinaturas lidas, boolean comMinuto) {
+        long n = 0;
+        Iterator<Object[]> it = linhas.iterator();
+        while (it.hasNext()) {
+            Object[] l = it.next();
+            UUID patioId = (UUID) l[0];
+            if (patioId == null) continue;
+            TipoMovimentacao tipo = (TipoMovimentacao) l[1];
+            LocalDateTime dataHora = (LocalDateTime) l[2];
+            somar(contagens, patioId, tipo, dataHora, 1, comMinuto);
+            lidas.add(Assinaturas.de((UUID) l[3], patioId, tipo, dataHora));
+            n++;
+        }
+        return n;
+    }
+
+    // Deltas que chegaram com o dia aberto, por registro: tira o estado que a leitura viu (se viu algum dos estados
+    // da janela) e põe o estado final, se ele ainda cai neste dia. Cobre registro novo, alterado e removido, com o
+    // commit antes ou depois do instante da leitura.
+    private static Map<RegistroAgregado.Chave, Long> conciliar(List<RegistrosAlteradosEvent.Movimento> durante,
+                                                               Assinaturas lidas, boolean comMinuto) {
+        Map<RegistroAgregado.Chave, Long> ajuste = new HashMap<>();
+        Map<UUID, List<RegistrosAlteradosEvent.Movimento>> porRegistro = new LinkedHashMap<>();
+        for (RegistrosAlteradosEvent.Movimento m : durante) {
+            if (m.registroId() == null) continue;
+            porRegistro.computeIfAbsent(m.registroId(), id -> new ArrayList<>()).add(m);
+        }
+        porRegistro.forEach((id, movimentos) -> {
+            for (RegistrosAlteradosEvent.Movimento m : movimentos) {
+                if (lidas.contem(Assinaturas.de(id, m.patioId(), m.tipo(), m.dataHora()))) {
+                    somar(ajuste, m.patioId(), m.tipo(), m.dataHora(), -1, comMinuto);
+                    break;
+                }
+            }
+            RegistrosAlteradosEvent.Movimento ultimo = movimentos.get(movimentos.size() - 1);
+            if (ultimo.delta() > 0) somar(ajuste, ultimo.patioId(), ultimo.tipo(), ultimo.dataHora(), 1, comMinuto);
+        });
+        return ajuste;
+    }
+
+    private static void somar(Map<RegistroAgregado.Chave, Long> contagens, UUID patioId, TipoMovimentacao tipo,
+                              LocalDateTime dataHora, long delta, boolean comMinuto) {
+        for (Granularidade g : Granularidade.values()) {
+            if (g == Granularidade.MINUTO && !comMinuto) continue;
+            contagens.merge(new RegistroAgregado.Chave(patioId, g, g.truncar(dataHora), tipo), delta, Long::sum);
+        }
+    }
+
+    private static void acumular(Map<RegistroAgregado.Chave, LongAdder> destino, RegistrosAlteradosEvent.Movimento m) {
+        for (Granularidade g : Granularidade.values()) {
+            RegistroAgregado.Chave chave = new RegistroAgregado.Chave(m.patioId(), g, g.truncar(m.dataHora()), m.tipo());
+            destino.computeIfAbsent(chave, k -> new LongAdder()).add(m.delta());
+        }
+    }
+
+    private LocalDateTime limiteMinuto() {
+        return LocalDate.now().minusDays(retencaoMinutoDias).atStartOfDay();
+    }
+
+    // A partir daqui os deltas do dia param de ir para 'pendentes': os já pendentes são de registros commitados,
+    // que a leitura do bruto vai contar (guardados só para devolver se a transação falhar)
+    private JanelaReconstrucao abrirJanela(LocalDateTime de) {
+        JanelaReconstrucao j = new JanelaReconstrucao(de, de.plusDays(1));
+        trocaLock.writeLock().lock();
+        try {
+            pendentes.entrySet().removeIf(e -> {
+                if (!j.contem(e.getKey().getInicio())) return false;
+                j.descartados.put(e.getKey(), e.getValue().sum());
+                return true;
+            });
+            janela = j;
+        } finally {
+            trocaLock.writeLock().unlock();
+        }
+        return j;
+    }
+
+    // fechada, o que chegar do dia volta a ser delta normal (registro commitado depois da leitura)
+    private List<RegistrosAlteradosEvent.Movimento> fecharJanela(JanelaReconstrucao j) {
+        trocaLock.writeLock().lock();
+        try {
+            if (janela == j) janela = null;
+            return List.copyOf(j.durante);
+        } finally {
+            trocaLock.writeLock().unlock();
+        }
+    }
+
+    // dia commitado: a conciliação de tudo o que chegou com a janela aberta, menos o que já foi gravado, vira delta
+    private void concluir(JanelaReconstrucao j) {
+        Map<RegistroAgregado.Chave, Long> ajuste = conciliar(fecharJanela(j), j.lidas, j.comMinuto);
+        j.aplicado.forEach((chave, d) -> ajuste.merge(chave, -d, Long::sum));
+        trocaLock.readLock().lock();
+        try {
+            ajuste.forEach((chave, d) -> {
+                if (d != 0) pendentes.computeIfAbsent(chave, k -> new LongAdder()).add(d);
+            });
+        } finally {
+            trocaLock.readLock().unlock();
+        }
+    }
+
+    private void devolver(JanelaReconstrucao j) {
+        List<RegistrosAlteradosEvent.Movimento> durante = fecharJanela(j);
+        trocaLock.readLock().lock();
+        try {
+            j.descartados.forEach((chave, d) -> pendentes.computeIfAbsent(chave, k -> new LongAdder()).add(d));
+            for (RegistrosAlteradosEvent.Movimento m : durante) acumular(pendentes, m);
+        } finally {
+            trocaLock.readLock().unlock();
+        }
+    }
+
+    private static final class JanelaReconstrucao {
+        final LocalDateTime de;
+        final LocalDateTime ate;
+        final Map<RegistroAgregado.Chave, Long> descartados = new HashMap<>();
+        final Queue<RegistrosAlteradosEvent.Movimento> durante = new ConcurrentLinkedQueue<>();
+        Assinaturas lidas;
+        boolean comMinuto;
+        Map<RegistroAgregado.Chave, Long> aplicado;
+
+        JanelaReconstrucao(LocalDateTime de, LocalDateTime ate) {
+            this.de = de;
+            this.ate = ate;
+        }
+
+        boolean contem(LocalDateTime dataHora) {
+            return !dataHora.isBefore(de) && dataHora.isBefore(ate);
+        }
+    }
+
+    // (registro, pátio, tipo, dataHora) lidos do bruto, como hash de 64 bits num long[] ordenado: 8 bytes por
+    // registro em vez de um Set de objetos num dia inteiro
+    private static final class Assinaturas {
+        private long[] valores = new long[1024];
+        private int tamanho;
+
+        static long de(UUID registroId, UUID patioId, TipoMovimentacao tipo, LocalDateTime dataHora) {
+            long h = misturar(registroId.getMostSignificantBits());
+            h = misturar(h ^ registroId.getLeastSignificantBits());
+            h = misturar(h ^ patioId.getMostSignificantBits());
+            h = misturar(h ^ patioId.getLeastSignificantBits());
+            h = misturar(h ^ tipo.ordinal());
+            h = misturar(h ^ dataHora.toLocalDate().toEpochDay());
+            return misturar(h ^ dataHora.toLocalTime().toNanoOfDay());
+        }
+
+        private boolean ordenado;
+
+        void add(long valor) {
+            if (tamanho == valores.length) valores = Arrays.copyOf(valores, tamanho * 2);
+            valores[tamanho++] = valor;
+            ordenado = false;
+        }
+
+        boolean contem(long valor) {
+            if (!ordenado) {
+                Arrays.sort(valores, 0, tamanho);
+                ordenado = true;
+            }
+            return Arrays.binarySearch(valores, 0, tamanho, valor) >= 0;
+        }
+
+        // finalizador do MurmurHash3 (64 bits)
+        private static long misturar(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+}
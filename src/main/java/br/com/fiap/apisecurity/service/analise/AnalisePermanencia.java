@@ -0,0 +1,314 @@
+package br.com.fiap.apisecurity.service.analise;
+
+import br.com.fiap.apisecurity.dto.PermanenciaDTO;
+import br.com.fiap.apisecurity.dto.PermanenciaItemDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Permanência (ENTRADA -> SAIDA por moto), estadia por vaga e giro, com p50/p95/p99 por pátio.
+// Incremental: os registros commitados (RegistrosAlteradosEvent) avançam as sessões em memória.
+// reconstruir() refaz a janela dos últimos app.permanencia.janela-dias numa única passada pelos registros
+// em ordem de tempo (arquivo + quente intercalados), sem nenhuma consulta por moto. O que é commitado durante a
+// passada é reaplicado no estado novo se o registro não veio na leitura.
+@Component
+public class AnalisePermanencia {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalisePermanencia.class);
+
+    private final RegistroRepository registroRepository;
+    private final RegistroArquivoRepository arquivoRepository;
+    private final OcupacaoIndex ocupacaoIndex;
+    private final TransactionTemplate leitura;
+    private final int janelaDias;
+    private final boolean reconstruirAoIniciar;
+
+    // estado e buffer da reconstrução só são tocados com este monitor
+    private final Object monitor = new Object();
+    private EstadoPermanencia estado = new EstadoPermanencia(LocalDateTime.now());
+    private List<RegistrosAlteradosEvent.Movimento> duranteReconstrucao;
+    private long correcoes;
+
+    private final ReentrantLock reconstrucao = new ReentrantLock();
+    private volatile boolean pronto;
+
+    public AnalisePermanencia(RegistroRepository registroRepository,
+                              RegistroArquivoRepository arquivoRepository,
+                              OcupacaoIndex ocupacaoIndex,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.permanencia.janela-dias:30}") int janelaDias,
+                              @Value("${app.permanencia.reconstruir-ao-iniciar:true}") boolean reconstruirAoIniciar) {
+        this.registroRepository = registroRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.ocupacaoIndex = ocupacaoIndex;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.janelaDias = janelaDias;
+        this.reconstruirAoIniciar = reconstruirAoIniciar;
+    }
+
+    // a passada pode levar minutos em bases grandes; não segura a subida
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        if (!reconstruirAoIniciar) return;
+        Thread t = new Thread(() -> {
+            try {
+                reconstruir();
+            } catch (RuntimeException e) {
+                log.warn("Não foi possível carregar a análise de permanência na subida: {}", e.getMessage());
+            }
+        }, "permanencia-reconstrucao");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarRegistros(RegistrosAlteradosEvent evento) {
+        List<RegistrosAlteradosEvent.Movimento> novos = new ArrayList<>(evento.movimentos().size());
+        int removidos = 0;
+        for (RegistrosAlteradosEvent.Movimento m : evento.movimentos()) {
+            // edições/remoções não desfazem sessões já costuradas; a reconstrução periódica corrige
+            if (m.delta() > 0) novos.add(m);
+            else removidos++;
+        }
+        novos.sort(Comparator.comparing(RegistrosAlteradosEvent.Movimento::dataHora,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        synchronized (monitor) {
+            correcoes += removidos;
+            for (RegistrosAlteradosEvent.Movimento m : novos) aplicar(estado, m);
+            if (duranteReconstrucao != null) duranteReconstrucao.addAll(novos);
+        }
+    }
+
+    // janela deslizante: recomeça todo dia a partir dos últimos janela-dias
+    @Scheduled(cron = "${app.permanencia.cron:0 45 4 * * *}")
+    public void reconstruirAgendado() {
+        try {
+            reconstruir();
+        } catch (IllegalStateException e) {
+            log.info("Reconstrução da permanência ignorada: {}", e.getMessage());
+        }
+    }
+
+    public long reconstruir() {
+        if (!reconstrucao.tryLock()) throw new IllegalStateException("Reconstrução da permanência já em andamento.");
+        try {
+            long inicio = System.nanoTime();
+            LocalDateTime ate = LocalDateTime.now();
+            LocalDateTime de = ate.minusDays(janelaDias);
+            EstadoPermanencia novo = new EstadoPermanencia(de);
+
+            synchronized (monitor) {
+                duranteReconstrucao = new ArrayList<>();
+            }
+            IdsLidos ids = new IdsLidos();
+            Long lidos;
+            try {
+                lidos = leitura.execute(status -> {
+                    try (Stream<Object[]> frios = arquivoRepository.streamSessoes(de, ate);
+                         Stream<Object[]> quentes = registroRepository.streamSessoes(de, ate)) {
+                        return costurar(frios.iterator(), quentes.iterator(), novo, ids);
+                    }
+                });
+            } catch (RuntimeException e) {
+                synchronized (monitor) {
+                    duranteReconstrucao = null;
+                }
+                throw e;
+            }
+
+            synchronized (monitor) {
+                // commitado durante a passada: entra se a leitura não o viu (depois do snapshot ou com data >= ate)
+                List<RegistrosAlteradosEvent.Movimento> faltantes = new ArrayList<>();
+                for (RegistrosAlteradosEvent.Movimento m : duranteReconstrucao) {
+                    if (m.dataHora() == null || m.dataHora().isBefore(de)) continue;
+                    if (m.registroId() == null || !ids.contem(m.registroId())) faltantes.add(m);
+                }
+                faltantes.sort(Comparator.comparing(RegistrosAlteradosEvent.Movimento::dataHora));
+                for (RegistrosAlteradosEvent.Movimento m : faltantes) aplicar(novo, m);
+                duranteReconstrucao = null;
+                estado = novo;
+                correcoes = 0;
+            }
+            pronto = true;
+            long n = lidos == null ? 0 : lidos;
+            log.info("Permanência reconstruída desde {}: {} registros, {} sessões abertas ({} ms)",
+                    de, n, novo.sessoes.size(), (System.nanoTime() - inicio) / 1_000_000);
+            return n;
+        } finally {
+            reconstrucao.unlock();
+        }
+    }
+
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    public PermanenciaDTO patio(UUID patioId) {
+        int vagas = ocupacaoIndex.ocupacao(patioId).getTotal();
+        PermanenciaDTO dto = new PermanenciaDTO();
+        dto.setPatioId(patioId);
+        dto.setVagas(vagas);
+        synchronized (monitor) {
+            dto.setDesde(estado.desde);
+            EstadoPermanencia.PorPatio p = estado.patios.get(patioId);
+            if (p == null) return dto;
+            HistogramaLog perm = p.permanencia;
+            dto.setSessoesConcluidas(perm.getTotal());
+            dto.setSessoesAbertas(p.abertas);
+            dto.setPermanenciaMedia(arredondar(perm.getMedia()));
+            dto.setPermanenciaP50(perm.percentil(50));
+            dto.setPermanenciaP95(perm.percentil(95));
+            dto.setPermanenciaP99(perm.percentil(99));
+            dto.setPermanenciaMaxima(perm.getMaximo());
+            HistogramaLog est = p.estadias;
+            dto.setEstadiasVagaConcluidas(est.getTotal());
+            dto.setEstadiaVagaMedia(arredondar(est.getMedia()));
+            dto.setEstadiaVagaP50(est.percentil(50));
+            dto.setEstadiaVagaP95(est.percentil(95));
+            dto.setEstadiaVagaP99(est.percentil(99));
+            dto.setGiroPorVagaDia(vagas == 0 ? 0 : arredondar(est.getTotal() / (double) vagas / dias(estado.desde)));
+        }
+        return dto;
+    }
+
+    // vagas do pátio com mais giro primeiro
+    public List<PermanenciaItemDTO> vagas(UUID patioId, int limite) {
+        synchronized (monitor) {
+            double dias = dias(estado.desde);
+            return estado.vagas.entrySet().stream()
+                    .filter(e -> patioId.equals(e.getValue().patioId))
+                    .sorted(Comparator.comparingLong((Map.Entry<UUID, EstadoPermanencia.Acumulado> e) -> e.getValue().concluidas)
+                            .reversed())
+                    .limit(limite)
+                    .map(e -> item(e.getKey(), e.getValue(), dias))
+                    .toList();
+        }
+    }
+
+    public Optional<PermanenciaItemDTO> moto(UUID motoId) {
+        synchronized (monitor) {
+            EstadoPermanencia.Acumulado a = estado.motos.get(motoId);
+            return a == null ? Optional.empty() : Optional.of(item(motoId, a, dias(estado.desde)));
+        }
+    }
+
+    // eventos descartados por chegarem fora de ordem / correções ainda não refletidas
+    public Map<String, Object> status() {
+        synchronized (monitor) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("pronto", pronto);
+            s.put("desde", estado.desde);
+            s.put("eventos", estado.eventos);
+            s.put("sessoesAbertas", estado.sessoes.size());
+            s.put("semEntrada", estado.semEntrada);
+            s.put("semSaida", estado.semSaida);
+            s.put("foraDeOrdem", estado.foraDeOrdem);
+            s.put("correcoesPendentes", correcoes);
+            return s;
+        }
+    }
+
+    // intercala as duas camadas pela data; cada uma já vem ordenada
+    private static long costurar(Iterator<Object[]> frios, Iterator<Object[]> quentes, EstadoPermanencia estado,
+                                 IdsLidos ids) {
+        long n = 0;
+        Object[] f = frios.hasNext() ? frios.next() : null;
+        Object[] q = quentes.hasNext() ? quentes.next() : null;
+        while (f != null || q != null) {
+            Object[] l;
+            if (q == null || (f != null && !((LocalDateTime) f[4]).isAfter((LocalDateTime) q[4]))) {
+                l = f;
+                f = frios.hasNext() ? frios.next() : null;
+            } else {
+                l = q;
+                q = quentes.hasNext() ? quentes.next() : null;
+            }
+            estado.aplicar((UUID) l[0], (UUID) l[1], (UUID) l[2], (TipoMovimentacao) l[3], (LocalDateTime) l[4]);
+            ids.add((UUID) l[5]);
+            n++;
+        }
+        return n;
+    }
+
+    private static void aplicar(EstadoPermanencia estado, RegistrosAlteradosEvent.Movimento m) {
+        estado.aplicar(m.motoId(), m.patioId(), m.vagaId(), m.tipo(), m.dataHora());
+    }
+
+    private static PermanenciaItemDTO item(UUID id, EstadoPermanencia.Acumulado a, double dias) {
+        PermanenciaItemDTO dto = new PermanenciaItemDTO();
+        dto.setId(id);
+        dto.setPatioId(a.patioId);
+        dto.setConcluidas(a.concluidas);
+        dto.setMedia(a.concluidas == 0 ? 0 : arredondar((double) a.soma / a.concluidas));
+        dto.setMaxima(a.maxima);
+        dto.setUltima(a.ultima);
+        dto.setGiroPorDia(arredondar(a.concluidas / dias));
+        dto.setEmAndamentoDesde(a.emAndamentoDesde);
+        return dto;
+    }
+
+    // pelo menos uma hora, para o giro não explodir logo depois de uma reconstrução
+    private static double dias(LocalDateTime desde) {
+        long minutos = Math.max(60, Duration.between(desde, LocalDateTime.now()).toMinutes());
+        return minutos / 1440.0;
+    }
+
+    private static double arredondar(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    // ids dos registros lidos como hash de 64 bits num long[] ordenado no fim: 8 bytes por registro da janela
+    private static final class IdsLidos {
+        private long[] valores = new long[1024];
+        private int tamanho;
+        private boolean ordenado;
+
+        void add(UUID id) {
+            if (tamanho == valores.length) valores = Arrays.copyOf(valores, tamanho * 2);
+            valores[tamanho++] = hash(id);
+            ordenado = false;
+        }
+
+        boolean contem(UUID id) {
+            if (!ordenado) {
+                Arrays.sort(valores, 0, tamanho);
+                ordenado = true;
+            }
+            return Arrays.binarySearch(valores, 0, tamanho, hash(id)) >= 0;
+        }
+
+        // finalizador do MurmurHash3 (64 bits) sobre as duas metades
+        private static long hash(UUID id) {
+            return misturar(misturar(id.getMostSignificantBits()) ^ id.getLeastSignificantBits());
+        }
+
+        private static long misturar(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package br.com.fiap.apisecurity.service.analise;
+
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Costura das sessões a partir dos eventos em ordem de tempo; uma instância por janela analisada.
+// ENTRADA abre a sessão da moto, ALOCACAO/TROCA_DE_VAGA fecham a estadia na vaga anterior e abrem outra,
+// SAIDA fecha a estadia e a sessão. Sem sincronização própria: quem usa (AnalisePermanencia) serializa.
+class EstadoPermanencia {
+
+    final LocalDateTime desde;
+    final Map<UUID, Sessao> sessoes = new HashMap<>();       // motoId -> sessão aberta
+    final Map<UUID, PorPatio> patios = new HashMap<>();
+    final Map<UUID, Acumulado> motos = new HashMap<>();
+    final Map<UUID, Acumulado> vagas = new HashMap<>();
+
+    long eventos;
+    long foraDeOrdem;
+    long semEntrada;        // SAIDA/ALOCACAO sem ENTRADA conhecida (começou antes da janela)
+    long semSaida;          // nova ENTRADA com a sessão anterior ainda aberta
+
+    EstadoPermanencia(LocalDateTime desde) {
+        this.desde = desde;
+    }
+
+    void aplicar(UUID motoId, UUID patioId, UUID vagaId, TipoMovimentacao tipo, LocalDateTime dataHora) {
+        if (motoId == null || tipo == null || dataHora == null) return;
+        Sessao sessao = sessoes.get(motoId);
+        if (sessao != null && dataHora.isBefore(sessao.ultimo)) {
+            // chegou depois de um evento mais novo da mesma moto; fica para a próxima reconstrução
+            foraDeOrdem++;
+            return;
+        }
+        eventos++;
+
+        switch (tipo) {
+            case ENTRADA -> {
+                if (sessao != null) {
+                    semSaida++;
+                    descartar(motoId, sessao, dataHora);
+                }
+                sessao = abrir(motoId, patioId, dataHora, true);
+            }
+            case ALOCACAO, TROCA_DE_VAGA -> {
+                if (sessao == null) {
+                    semEntrada++;
+                    sessao = abrir(motoId, patioId, dataHora, false);
+                }
+                fecharEstadia(sessao, dataHora);
+                if (vagaId != null) {
+                    sessao.vagaId = vagaId;
+                    sessao.desdeVaga = dataHora;
+                    Acumulado vaga = vagas.computeIfAbsent(vagaId, id -> new Acumulado());
+                    vaga.patioId = sessao.patioId;
+                    vaga.emAndamentoDesde = dataHora;
+                }
+            }
+            case SAIDA -> {
+                if (sessao == null) {
+                    semEntrada++;
+                    return;
+                }
+                fecharEstadia(sessao, dataHora);
+                PorPatio patio = porPatio(sessao.patioId);
+                if (patio != null) patio.abertas--;
+                if (sessao.completa) {
+                    long segundos = Duration.between(sessao.entrada, dataHora).getSeconds();
+                    if (patio != null) patio.permanencia.registrar(segundos);
+                    motos.get(motoId).concluir(segundos);
+                }
+                motos.get(motoId).emAndamentoDesde = null;
+                sessoes.remove(motoId);
+                return;
+            }
+        }
+        sessao.ultimo = dataHora;
+    }
+
+    private Sessao abrir(UUID motoId, UUID patioId, LocalDateTime dataHora, boolean completa) {
+        Sessao sessao = new Sessao(patioId, dataHora, completa);
+        sessoes.put(motoId, sessao);
+        PorPatio patio = porPatio(patioId);
+        if (patio != null) patio.abertas++;
+        Acumulado moto = motos.computeIfAbsent(motoId, id -> new Acumulado());
+        moto.patioId = patioId;
+        moto.emAndamentoDesde = completa ? dataHora : null;
+        return sessao;
+    }
+
+    private void descartar(UUID motoId, Sessao sessao, LocalDateTime dataHora) {
+        fecharEstadia(sessao, dataHora);
+        PorPatio patio = porPatio(sessao.patioId);
+        if (patio != null) patio.abertas--;
+        sessoes.remove(motoId);
+    }
+
+    private void fecharEstadia(Sessao sessao, LocalDateTime dataHora) {
+        if (sessao.vagaId == null) return;
+        long segundos = Duration.between(sessao.desdeVaga, dataHora).getSeconds();
+        PorPatio patio = porPatio(sessao.patioId);
+        if (patio != null) patio.estadias.registrar(segundos);
+        Acumulado vaga = vagas.get(sessao.vagaId);
+        vaga.concluir(segundos);
+        vaga.emAndamentoDesde = null;
+        sessao.vagaId = null;
+        sessao.desdeVaga = null;
+    }
+
+    private PorPatio porPatio(UUID patioId) {
+        return patioId == null ? null : patios.computeIfAbsent(patioId, id -> new PorPatio());
+    }
+
+    static class Sessao {
+        final UUID patioId;
+        final LocalDateTime entrada;
+        // false quando a ENTRADA ficou fora da janela: a estadia na vaga conta, a permanência no pátio não
+        final boolean completa;
+        UUID vagaId;
+        LocalDateTime desdeVaga;
+        LocalDateTime ultimo;
+
+        Sessao(UUID patioId, LocalDateTime entrada, boolean completa) {
+            this.patioId = patioId;
+            this.entrada = entrada;
+            this.completa = completa;
+            this.ultimo = entrada;
+        }
+    }
+
+    static class PorPatio {
+        final HistogramaLog permanencia = new HistogramaLog();
+        final HistogramaLog estadias = new HistogramaLog();
+        long abertas;
+    }
+
+    static class Acumulado {
+        UUID patioId;
+        long concluidas;
+        long soma;
+        long maxima;
+        long ultima;
+        LocalDateTime emAndamentoDesde;
+
+        void concluir(long segundos) {
+            concluidas++;
+            soma += segundos;
+            maxima = Math.max(maxima, segundos);
+            ultima = segundos;
+        }
+    }
+}
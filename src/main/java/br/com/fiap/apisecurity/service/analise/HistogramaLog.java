@@ -0,0 +1,56 @@
+package br.com.fiap.apisecurity.service.analise;
+
+// Histograma de durações (segundos) em baldes logarítmicos: 8 baldes por potência de 2, erro relativo ~4,5%
+// no percentil, memória fixa (~1,7 KB) e independente de quantas sessões entraram. Sem sincronização própria.
+public class HistogramaLog {
+
+    private static final int BALDES_POR_OITAVA = 8;
+    // 2^26 s ~ 2 anos; acima disso tudo cai no último balde
+    private static final int BALDES = 26 * BALDES_POR_OITAVA + 1;
+
+    private final long[] contagens = new long[BALDES];
+    private long total;
+    private long soma;
+    private long maximo;
+
+    public void registrar(long segundos) {
+        long s = Math.max(0, segundos);
+        contagens[balde(s)]++;
+        total++;
+        soma += s;
+        maximo = Math.max(maximo, s);
+    }
+
+    // p em (0, 100]; devolve o ponto médio geométrico do balde, limitado ao máximo visto
+    public long percentil(double p) {
+        if (total == 0) return 0;
+        long alvo = (long) Math.ceil(total * p / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < BALDES; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) return Math.min(maximo, representante(i));
+        }
+        return maximo;
+    }
+
+    public long getTotal() { return total; }
+
+    public long getMaximo() { return maximo; }
+
+    public double getMedia() {
+        return total == 0 ? 0 : (double) soma / total;
+    }
+
+    // balde 0 = 0 s; balde i cobre [2^((i-1)/8), 2^(i/8)) s
+    private static int balde(long segundos) {
+        if (segundos < 1) return 0;
+        int i = 1 + (int) Math.floor(Math.log(segundos) / Math.log(2) * BALDES_POR_OITAVA);
+        return Math.min(i, BALDES - 1);
+    }
+
+    private static long representante(int balde) {
+        if (balde == 0) return 0;
+        double inferior = Math.pow(2, (balde - 1) / (double) BALDES_POR_OITAVA);
+        return Math.round(inferior * Math.pow(2, 0.5 / BALDES_POR_OITAVA));
+    }
+}
@@ -0,0 +1,379 @@
+package br.com.fiap.apisecurity.service.aovivo;
+
+import br.com.fiap.apisecurity.dto.MovimentoDeltaDTO;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.dto.PainelDeltaDTO;
+import br.com.fiap.apisecurity.dto.VagaDeltaDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Painel ao vivo de ocupação: um único fluxo de mudanças (eventos commitados) repartido para todos os assinantes SSE.
+// Os listeners só enfileiram; uma thread de despacho junta o intervalo (última versão de cada vaga), resolve as placas
+// numa consulta só, serializa o payload de cada pátio uma vez e entrega o mesmo texto a todos os assinantes dele.
+// Os envios rodam em poucas threads fixas (cada assinante preso a uma): cliente que não lê acumula pendências e é
+// desconectado; se quem estourou está só na fila atrás de um write travado, cai o dono do write, não ele.
+@Component
+public class PainelAoVivo {
+
+    private static final Logger log = LoggerFactory.getLogger(PainelAoVivo.class);
+
+    // chave dos assinantes sem pátio (ADMIN acompanhando todos)
+    static final UUID TODOS = new UUID(0L, 0L);
+    private static final int LIMITE_IN = 1000;
+
+    private final MotoRepository motoRepository;
+    private final OcupacaoIndex ocupacaoIndex;
+    private final ObjectMapper objectMapper;
+    private final long intervaloMs;
+    private final long heartbeatNanos;
+    private final long timeoutMs;
+    private final int maxAssinantes;
+    private final int maxPendentes;
+    private final int capacidade;
+
+    private final BlockingQueue<Object> fila;
+    private final AtomicBoolean transbordou = new AtomicBoolean();
+    private final Map<UUID, Set<Assinante>> assinantes = new ConcurrentHashMap<>();
+    private final AtomicInteger totalAssinantes = new AtomicInteger();
+    private final AtomicInteger sequencia = new AtomicInteger();
+    private final ExecutorService[] envio;
+    private final AtomicReferenceArray<Assinante> enviando;     // assinante com write em curso em cada thread
+    private Thread despacho;
+    private volatile boolean ativo;
+
+    // métricas
+    private final LongAdder recebidos = new LongAdder();
+    private final LongAdder coalescidos = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder desconectadosLentos = new LongAdder();
+    private final LongAdder ressincronizacoes = new LongAdder();
+
+    public PainelAoVivo(MotoRepository motoRepository,
+                        OcupacaoIndex ocupacaoIndex,
+                        ObjectMapper objectMapper,
+                        @Value("${app.aovivo.intervalo-ms:250}") long intervaloMs,
+                        @Value("${app.aovivo.heartbeat-ms:20000}") long heartbeatMs,
+                        @Value("${app.aovivo.timeout-ms:1800000}") long timeoutMs,
+                        @Value("${app.aovivo.max-assinantes:10000}") int maxAssinantes,
+                        @Value("${app.aovivo.max-pendentes:100}") int maxPendentes,
+                        @Value("${app.aovivo.fila:50000}") int capacidade,
+                        @Value("${app.aovivo.threads-envio:4}") int threadsEnvio) {
+        this.motoRepository = motoRepository;
+        this.ocupacaoIndex = ocupacaoIndex;
+        this.objectMapper = objectMapper;
+        this.intervaloMs = intervaloMs;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        this.timeoutMs = timeoutMs;
+        this.maxAssinantes = maxAssinantes;
+        this.maxPendentes = maxPendentes;
+        this.capacidade = capacidade;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.envio = new ExecutorService[Math.max(1, threadsEnvio)];
+        this.enviando = new AtomicReferenceArray<>(envio.length);
+        for (int i = 0; i < envio.length; i++) {
+            String nome = "aovivo-envio-" + i;
+            envio[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, nome);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PostConstruct
+    void iniciar() {
+        ativo = true;
+        despacho = new Thread(this::loopDespacho, "aovivo-despacho");
+        despacho.setDaemon(true);
+        despacho.start();
+    }
+
+    @PreDestroy
+    void encerrar() {
+        ativo = false;
+        if (despacho != null) despacho.interrupt();
+        for (Set<Assinante> conjunto : assinantes.values()) {
+            for (Assinante a : conjunto) desconectar(a);
+        }
+        for (ExecutorService e : envio) e.shutdown();
+    }
+
+    // patioId == null: todos os pátios (a autorização fica com o controller)
+    public SseEmitter assinar(UUID patioId) {
+        return assinar(patioId, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter assinar(UUID patioId, SseEmitter emitter) {
+        if (totalAssinantes.incrementAndGet() > maxAssinantes) {
+            totalAssinantes.decrementAndGet();
+            throw new IllegalStateException("Limite de assinantes do painel ao vivo atingido.");
+        }
+        UUID chave = patioId != null ? patioId : TODOS;
+        Assinante a = new Assinante(emitter, chave, Math.floorMod(sequencia.getAndIncrement(), envio.length));
+        assinantes.computeIfAbsent(chave, k -> ConcurrentHashMap.newKeySet()).add(a);
+        emitter.onCompletion(() -> remover(a));
+        emitter.onTimeout(() -> remover(a));
+        emitter.onError(e -> remover(a));
+
+        Map<String, Object> conectado = new LinkedHashMap<>();
+        conectado.put("patioId", patioId);
+        conectado.put("intervaloMs", intervaloMs);
+        if (patioId != null) conectado.put("ocupacao", ocupacao(patioId));
+        agendar(a, "conectado", json(conectado));
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarVaga(VagaAlteradaEvent evento) {
+        publicar(evento);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarRegistros(RegistrosAlteradosEvent evento) {
+        for (RegistrosAlteradosEvent.Movimento m : evento.movimentos()) {
+            // o painel só mostra movimentações novas; correções aparecem no próximo carregamento da página
+            if (m.delta() > 0) publicar(m);
+        }
+    }
+
+    public int getAssinantes() {
+        return totalAssinantes.get();
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("assinantes", totalAssinantes.get());
+        s.put("filaAtual", fila.size());
+        s.put("filaCapacidade", capacidade);
+        s.put("eventosRecebidos", recebidos.sum());
+        s.put("eventosCoalescidos", coalescidos.sum());
+        s.put("lotesDespachados", lotes.sum());
+        s.put("mensagensEnviadas", enviados.sum());
+        s.put("desconectadosLentos", desconectadosLentos.sum());
+        s.put("ressincronizacoes", ressincronizacoes.sum());
+        return s;
+    }
+
+    private void publicar(Object evento) {
+        // ninguém assistindo: nada a fazer
+        if (totalAssinantes.get() == 0) return;
+        recebidos.increment();
+        if (!fila.offer(evento)) transbordou.set(true);
+    }
+
+    private void loopDespacho() {
+        List<Object> lote = new ArrayList<>();
+        long proximoHeartbeat = System.nanoTime() + heartbeatNanos;
+        while (ativo) {
+            try {
+                Object primeiro = fila.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primeiro != null) {
+                    // segura o intervalo: uma rajada de alterações vira um envio por pátio
+                    Thread.sleep(intervaloMs);
+                    lote.add(primeiro);
+                    fila.drainTo(lote);
+                    despachar(lote);
+                    lote.clear();
+                }
+                if (System.nanoTime() - proximoHeartbeat >= 0) {
+                    // comentário SSE: mantém proxies abertos e revela conexões mortas
+                    for (Set<Assinante> conjunto : assinantes.values()) {
+                        for (Assinante a : conjunto) agendar(a, null, "ping");
+                    }
+                    proximoHeartbeat = System.nanoTime() + heartbeatNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                lote.clear();
+                log.warn("Falha ao despachar o painel ao vivo: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Chamado pela thread de despacho (e pelos testes, com a fila drenada na mão)
+    void despacharPendentes() {
+        List<Object> lote = new ArrayList<>();
+        fila.drainTo(lote);
+        despachar(lote);
+    }
+
+    private void despachar(List<Object> lote) {
+        if (transbordou.getAndSet(false)) {
+            // perdemos eventos: o cliente recarrega em vez de mostrar um estado errado
+            ressincronizacoes.increment();
+            for (Set<Assinante> conjunto : assinantes.values()) {
+                for (Assinante a : conjunto) agendar(a, "resync", "{}");
+            }
+            return;
+        }
+        if (lote.isEmpty()) return;
+        lotes.increment();
+
+        // última versão de cada vaga no intervalo
+        Map<UUID, VagaAlteradaEvent> vagas = new LinkedHashMap<>();
+        Map<UUID, PainelDeltaDTO> porPatio = new LinkedHashMap<>();
+        int eventosVaga = 0;
+        for (Object o : lote) {
+            if (o instanceof VagaAlteradaEvent e) {
+                eventosVaga++;
+                vagas.remove(e.vagaId());
+                vagas.put(e.vagaId(), e);
+            } else if (o instanceof RegistrosAlteradosEvent.Movimento m && m.patioId() != null) {
+                porPatio.computeIfAbsent(m.patioId(), PainelDeltaDTO::new).getMovimentos().add(
+                        new MovimentoDeltaDTO(m.registroId(), m.motoId(), m.patioId(), m.vagaId(), m.tipo(), m.dataHora()));
+            }
+        }
+        coalescidos.add(eventosVaga - vagas.size());
+
+        Map<UUID, String> placas = placas(vagas.values());
+        Set<UUID> ocupacaoAlterada = new HashSet<>();
+        for (VagaAlteradaEvent e : vagas.values()) {
+            if (e.patioId() != null) {
+                VagaDeltaDTO d = new VagaDeltaDTO(e.vagaId(), e.patioId(), e.identificacao(), e.status(), e.motoId());
+                d.setMotoPlaca(e.motoId() != null ? placas.get(e.motoId()) : null);
+                porPatio.computeIfAbsent(e.patioId(), PainelDeltaDTO::new).getVagas().add(d);
+                ocupacaoAlterada.add(e.patioId());
+            }
+            UUID anterior = e.patioAnteriorId();
+            if (anterior != null && !anterior.equals(e.patioId())) {
+                // removida ou trocada de pátio: sai da tela do pátio antigo
+                porPatio.computeIfAbsent(anterior, PainelDeltaDTO::new).getVagas()
+                        .add(new VagaDeltaDTO(e.vagaId(), anterior, e.identificacao(), null, null));
+                ocupacaoAlterada.add(anterior);
+            }
+        }
+
+        Set<Assinante> todos = assinantes.getOrDefault(TODOS, Set.of());
+        for (PainelDeltaDTO delta : porPatio.values()) {
+            if (ocupacaoAlterada.contains(delta.getPatioId())) delta.setOcupacao(ocupacao(delta.getPatioId()));
+            Set<Assinante> doPatio = assinantes.getOrDefault(delta.getPatioId(), Set.of());
+            if (doPatio.isEmpty() && todos.isEmpty()) continue;
+            // serializa uma vez; o mesmo texto vai para todos os assinantes do pátio
+            String texto = json(delta);
+            for (Assinante a : doPatio) agendar(a, "delta", texto);
+            for (Assinante a : todos) agendar(a, "delta", texto);
+        }
+    }
+
+    private Map<UUID, String> placas(Collection<VagaAlteradaEvent> vagas) {
+        List<UUID> ids = vagas.stream().map(VagaAlteradaEvent::motoId).filter(Objects::nonNull).distinct().toList();
+        Map<UUID, String> placas = new HashMap<>();
+        try {
+            for (int i = 0; i < ids.size(); i += LIMITE_IN) {
+                for (Object[] r : motoRepository.findPlacasByIds(ids.subList(i, Math.min(ids.size(), i + LIMITE_IN)))) {
+                    placas.put((UUID) r[0], (String) r[1]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // sem placa o delta ainda serve: a tela mostra o que já tinha
+            log.warn("Não foi possível resolver as placas do painel ao vivo: {}", e.getMessage());
+        }
+        return placas;
+    }
+
+    private OcupacaoDTO ocupacao(UUID patioId) {
+        try {
+            return ocupacaoIndex.ocupacao(patioId);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private String json(Object valor) {
+        try {
+            return objectMapper.writeValueAsString(valor);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o painel ao vivo.", e);
+        }
+    }
+
+    // evento == null envia um comentário (heartbeat)
+    private void agendar(Assinante a, String evento, String texto) {
+        if (!a.ativo.get()) return;
+        if (a.pendentes.incrementAndGet() > maxPendentes) {
+            Assinante travado = enviando.get(a.thread);
+            if (travado == null || travado == a) {
+                a.pendentes.decrementAndGet();
+                if (desconectar(a)) desconectadosLentos.increment();
+                return;
+            }
+            // a fila cresceu por causa de outro cliente segurando a thread; a mensagem deste segue
+            if (desconectar(travado)) desconectadosLentos.increment();
+        }
+        try {
+            envio[a.thread].execute(() -> {
+                a.pendentes.decrementAndGet();
+                if (!a.ativo.get()) return;
+                enviando.set(a.thread, a);
+                try {
+                    a.emitter.send(evento == null
+                            ? SseEmitter.event().comment(texto)
+                            : SseEmitter.event().name(evento).data(texto));
+                    enviados.increment();
+                } catch (IOException | IllegalStateException e) {
+                    desconectar(a);
+                } finally {
+                    enviando.set(a.thread, null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            desconectar(a);
+        }
+    }
+
+    private boolean desconectar(Assinante a) {
+        if (!remover(a)) return false;
+        try {
+            a.emitter.complete();
+        } catch (RuntimeException ignored) {
+            // conexão já encerrada pelo container
+        }
+        return true;
+    }
+
+    private boolean remover(Assinante a) {
+        if (!a.ativo.compareAndSet(true, false)) return false;
+        Set<Assinante> conjunto = assinantes.get(a.chave);
+        if (conjunto != null) conjunto.remove(a);
+        totalAssinantes.decrementAndGet();
+        return true;
+    }
+
+    private static final class Assinante {
+        final SseEmitter emitter;
+        final UUID chave;
+        final int thread;
+        final AtomicBoolean ativo = new AtomicBoolean(true);
+        final AtomicInteger pendentes = new AtomicInteger();
+
+        Assinante(SseEmitter emitter, UUID chave, int thread) {
+            this.emitter = emitter;
+            this.chave = chave;
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.fiap.apisecurity.service.arquivamento;
+
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Move o histórico mais antigo que o horizonte de tb_registro (quente) para tb_registro_arquivo (fria).
+// Anda um mês por vez, do mais antigo ao corte, cada mês numa transação própria (copia + apaga):
+// um registro nunca fica nas duas camadas nem em nenhuma. As faixas mensais coincidem com as
+// partições do Oracle, então cada passo lê e apaga só uma partição.
+@Component
+public class ArquivadorRegistros {
+
+    private static final Logger log = LoggerFactory.getLogger(ArquivadorRegistros.class);
+
+    private final RegistroRepository registroRepository;
+    private final RegistroArquivoRepository arquivoRepository;
+    private final TransactionTemplate transacao;
+    private final InvalidacaoCache invalidacaoCache;
+    private final boolean habilitado;
+    private final int horizonteMeses;
+
+    // maior dataHora já arquivada (null = arquivo vazio); decide se as consultas precisam descer à camada fria
+    private volatile LocalDateTime arquivadoAte;
+    private volatile boolean arquivadoAteCarregado;
+
+    public ArquivadorRegistros(RegistroRepository registroRepository,
+                               RegistroArquivoRepository arquivoRepository,
+                               PlatformTransactionManager transactionManager,
+                               InvalidacaoCache invalidacaoCache,
+                               @Value("${app.registros.arquivo.habilitado:false}") boolean habilitado,
+                               @Value("${app.registros.arquivo.horizonte-meses:12}") int horizonteMeses) {
+        this.registroRepository = registroRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.invalidacaoCache = invalidacaoCache;
+        this.habilitado = habilitado;
+        this.horizonteMeses = horizonteMeses;
+    }
+
+    @Scheduled(cron = "${app.registros.arquivo.cron:0 30 3 * * *}")
+    void agendado() {
+        if (habilitado) arquivar();
+    }
+
+    // registros com dataHora anterior ao corte vão para o arquivo (início do mês, 'horizonte' meses atrás)
+    public LocalDateTime corte() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(horizonteMeses).atStartOfDay();
+    }
+
+    public synchronized int arquivar() {
+        LocalDateTime corte = corte();
+        LocalDateTime menor = registroRepository.findMenorDataHora();
+        if (menor == null || !menor.isBefore(corte)) return 0;
+
+        int total = 0;
+        LocalDateTime de = menor.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        try {
+            while (de.isBefore(corte)) {
+                LocalDateTime ate = de.plusMonths(1).isAfter(corte) ? corte : de.plusMonths(1);
+                total += moverPeriodo(de, ate);
+                de = ate;
+            }
+        } finally {
+            if (total > 0) {
+                arquivadoAteCarregado = false;   // recarrega na próxima consulta
+                invalidacaoCache.limpar("registros", "totais");
+            }
+        }
+        return total;
+    }
+
+    public LocalDateTime arquivadoAte() {
+        if (!arquivadoAteCarregado) {
+            arquivadoAte = arquivoRepository.findMaiorDataHora();
+            arquivadoAteCarregado = true;
+        }
+        return arquivadoAte;
+    }
+
+    private int moverPeriodo(LocalDateTime de, LocalDateTime ate) {
+        Integer movidos = transacao.execute(status -> {
+            int copiados = arquivoRepository.copiarPeriodo(de, ate);
+            int removidos = registroRepository.removerPeriodo(de, ate);
+            // registro retroativo gravado entre a cópia e a remoção: desfaz e tenta na próxima execução
+            if (copiados != removidos) {
+                throw new IllegalStateException("Arquivamento de " + de + " a " + ate + " divergiu: "
+                        + copiados + " copiados, " + removidos + " removidos.");
+            }
+            return removidos;
+        });
+        int n = movidos == null ? 0 : movidos;
+        if (n > 0) log.info("Arquivados {} registros de {} a {}", n, de, ate);
+        return n;
+    }
+}
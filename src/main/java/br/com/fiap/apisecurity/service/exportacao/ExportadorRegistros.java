@@ -0,0 +1,122 @@
+package br.com.fiap.apisecurity.service.exportacao;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import br.com.fiap.apisecurity.service.arquivamento.ArquivadorRegistros;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Exportação do histórico de registros direto para o OutputStream da resposta: a consulta é um cursor
+// forward-only (fetch size fixo) e cada linha é escrita e descartada, então a memória não cresce com o período.
+@Component
+public class ExportadorRegistros {
+
+    // sem período informado: tudo, e todas as partições são lidas. Os limites fixos só mantêm a consulta única
+    // com uma faixa simples em data_hora (sem "is null or"), que é o que permite podar quando o período vem.
+    private static final LocalDateTime INICIO_PADRAO = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_PADRAO = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final int LINHAS_POR_FLUSH = 1000;
+
+    public enum Formato { CSV, NDJSON }
+
+    public record Filtro(UUID patioId, UUID motoId, TipoMovimentacao tipo, LocalDateTime inicio, LocalDateTime fim) {}
+
+    private final RegistroRepository registroRepository;
+    private final RegistroArquivoRepository arquivoRepository;
+    private final ArquivadorRegistros arquivador;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Authz authz;
+
+    public ExportadorRegistros(RegistroRepository registroRepository,
+                               RegistroArquivoRepository arquivoRepository,
+                               ArquivadorRegistros arquivador,
+                               EntityManager entityManager,
+                               ObjectMapper objectMapper,
+                               Authz authz) {
+        this.registroRepository = registroRepository;
+        this.arquivoRepository = arquivoRepository;
+        this.arquivador = arquivador;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.authz = authz;
+    }
+
+    // Chamado na thread da requisição: operador só exporta o próprio pátio (a escrita roda depois, em outra thread)
+    public Filtro filtroAutorizado(UUID patioId, UUID motoId, TipoMovimentacao tipo,
+                                   LocalDateTime inicio, LocalDateTime fim) {
+        if (!authz.isAdmin()) {
+            UUID userPatio = authz.currentUserPatioIdOrThrow();
+            if (patioId != null && !userPatio.equals(patioId)) {
+                throw new SecurityException("Acesso negado: recurso de outro pátio.");
+            }
+            patioId = userPatio;
+        }
+        if (inicio != null && fim != null && inicio.isAfter(fim)) {
+            throw new IllegalArgumentException("Período inválido: início depois do fim.");
+        }
+        return new Filtro(patioId, motoId, tipo,
+                inicio != null ? inicio : INICIO_PADRAO,
+                fim != null ? fim : FIM_PADRAO);
+    }
+
+    // Camada fria primeiro (mais antiga) quando o período alcança o arquivo, depois a quente
+    @Transactional(readOnly = true)
+    public long exportar(Filtro f, Formato formato, OutputStream saida) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), 64 * 1024);
+        if (formato == Formato.CSV) out.write("id,motoId,leitorId,tipo,dataHora\n");
+
+        long linhas = 0;
+        LocalDateTime arquivadoAte = arquivador.arquivadoAte();
+        if (arquivadoAte != null && !f.inicio().isAfter(arquivadoAte)) {
+            try (Stream<RegistroDTO> frios = arquivoRepository.streamDtos(f.inicio(), f.fim(), f.patioId(), f.motoId(), f.tipo())) {
+                linhas = escrever(frios, formato, out, linhas);
+            }
+        }
+        try (Stream<RegistroDTO> quentes = registroRepository.streamDtos(f.inicio(), f.fim(), f.patioId(), f.motoId(), f.tipo())) {
+            linhas = escrever(quentes, formato, out, linhas);
+        }
+        out.flush();
+        return linhas;
+    }
+
+    private long escrever(Stream<RegistroDTO> registros, Formato formato, Writer out, long linhas) throws IOException {
+        Iterator<RegistroDTO> it = registros.iterator();
+        while (it.hasNext()) {
+            RegistroDTO r = it.next();
+            if (formato == Formato.CSV) {
+                out.write(String.valueOf(r.getId()));
+                out.write(',');
+                out.write(String.valueOf(r.getMotoId()));
+                out.write(',');
+                out.write(String.valueOf(r.getLeitorId()));
+                out.write(',');
+                out.write(String.valueOf(r.getTipo()));
+                out.write(',');
+                out.write(String.valueOf(r.getDataHora()));
+            } else {
+                out.write(objectMapper.writeValueAsString(r));
+            }
+            out.write('\n');
+
+            // entrega ao cliente aos poucos; projeções não entram no contexto, mas o clear garante heap estável
+            if (++linhas % LINHAS_POR_FLUSH == 0) {
+                out.flush();
+                entityManager.clear();
+            }
+        }
+        return linhas;
+    }
+}
@@ -0,0 +1,392 @@
+package br.com.fiap.apisecurity.service.importacao;
+
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.dto.ErroImportacaoDTO;
+import br.com.fiap.apisecurity.dto.ImportacaoMotosDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.PatioRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.sincronizacao.LogAlteracoes;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Importação de motos de um pátio por CSV (placa, status, vaga = identificacao da vaga no pátio).
+// 1) validação numa passada pelo arquivo, com as vagas do pátio resolvidas num único select;
+// 2) placas já cadastradas descartadas em consultas por fatia;
+// 3) gravação em lotes paralelos, um lote por transação, inserts/updates em batch JDBC.
+// Erros ficam por linha; um lote que falhar no banco é refeito linha a linha para apontar o culpado.
+@Component
+public class ImportadorMotos {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportadorMotos.class);
+
+    public static final int MAX_ERROS = 1000;
+    // limite do IN no Oracle
+    private static final int LIMITE_IN = 1000;
+    private static final Pattern PLACA = Pattern.compile("^[A-Z0-9]{7}$");
+
+    private final MotoRepository motoRepository;
+    private final VagaRepository vagaRepository;
+    private final PatioRepository patioRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacao;
+    private final ApplicationEventPublisher eventos;
+    private final InvalidacaoCache invalidacaoCache;
+    private final VersoesRecursos versoes;
+    private final LogAlteracoes logAlteracoes;
+    private final int tamanhoLote;
+    private final int paralelismo;
+    private final int maxLinhas;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    public ImportadorMotos(MotoRepository motoRepository,
+                           VagaRepository vagaRepository,
+                           PatioRepository patioRepository,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventos,
+                           InvalidacaoCache invalidacaoCache,
+                           VersoesRecursos versoes,
+                           LogAlteracoes logAlteracoes,
+                           @Value("${app.motos.importacao.lote:1000}") int tamanhoLote,
+                           @Value("${app.motos.importacao.paralelismo:4}") int paralelismo,
+                           @Value("${app.motos.importacao.max-linhas:100000}") int maxLinhas) {
+        this.motoRepository = motoRepository;
+        this.vagaRepository = vagaRepository;
+        this.patioRepository = patioRepository;
+        this.entityManager = entityManager;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.invalidacaoCache = invalidacaoCache;
+        this.versoes = versoes;
+        this.logAlteracoes = logAlteracoes;
+        // as vagas do lote são travadas num IN só
+        this.tamanhoLote = Math.max(1, Math.min(tamanhoLote, LIMITE_IN));
+        this.paralelismo = Math.max(1, paralelismo);
+        this.maxLinhas = maxLinhas;
+    }
+
+    public ImportacaoMotosDTO importar(UUID patioId, InputStream csv, boolean somenteValidacao) throws IOException {
+        if (!patioRepository.existsById(patioId)) throw new EntityNotFoundException("Pátio não encontrado: " + patioId);
+        long inicio = System.nanoTime();
+        Erros erros = new Erros();
+
+        Map<String, VagaResumo> vagas = new HashMap<>();
+        for (Object[] r : vagaRepository.findResumoByPatioId(patioId)) {
+            if (r[0] != null) vagas.put(normalizarVaga((String) r[0]), new VagaResumo((UUID) r[1], (StatusVaga) r[2], r[3] != null));
+        }
+
+        Leitura leitura = validar(csv, vagas, erros);
+        List<Linha> validas = descartarExistentes(leitura.validas(), erros);
+
+        long importadas = 0;
+        if (!somenteValidacao && !validas.isEmpty()) {
+            importadas = gravar(validas, erros);
+            invalidarCaches(patioId, validas);
+        }
+
+        ImportacaoMotosDTO dto = new ImportacaoMotosDTO();
+        dto.setPatioId(patioId);
+        dto.setSomenteValidacao(somenteValidacao);
+        dto.setLinhas(leitura.linhas());
+        dto.setImportadas(importadas);
+        dto.setComErro(erros.total());
+        dto.setErros(erros.ordenados());
+        dto.setErrosTruncados(erros.total() > dto.getErros().size());
+        dto.setDuracaoMs((System.nanoTime() - inicio) / 1_000_000);
+        log.info("Importação de motos no pátio {}: {} linhas, {} importadas, {} com erro ({} ms){}", patioId,
+                dto.getLinhas(), importadas, dto.getComErro(), dto.getDuracaoMs(), somenteValidacao ? " [validação]" : "");
+        return dto;
+    }
+
+    // --- 1) validação em streaming ---
+
+    private Leitura validar(InputStream csv, Map<String, VagaResumo> vagas, Erros erros) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        List<Linha> validas = new ArrayList<>();
+        Map<String, Long> placasVistas = new HashMap<>();
+        Map<UUID, Long> vagasVistas = new HashMap<>();
+        Colunas colunas = null;
+        long numero = 0;
+        long linhas = 0;
+
+        String texto;
+        while ((texto = reader.readLine()) != null) {
+            numero++;
+            if (numero == 1 && texto.startsWith("\uFEFF")) texto = texto.substring(1);
+            if (texto.isBlank()) continue;
+            if (colunas == null) {
+                colunas = Colunas.de(texto);
+                if (colunas.cabecalho()) continue;
+            }
+            if (++linhas > maxLinhas) {
+                throw new IllegalArgumentException("Arquivo excede o limite de " + maxLinhas + " linhas.");
+            }
+
+            String[] campos = texto.split(colunas.separador(), -1);
+            String placa = normalizarPlaca(colunas.campo(campos, colunas.placa()));
+            String status = colunas.campo(campos, colunas.status());
+            String vaga = colunas.campo(campos, colunas.vaga());
+
+            if (!PLACA.matcher(placa).matches()) {
+                erros.add(numero, placa, "Placa inválida: deve ter 7 letras/números");
+                continue;
+            }
+            Long repetida = placasVistas.putIfAbsent(placa, numero);
+            if (repetida != null) {
+                erros.add(numero, placa, "Placa repetida no arquivo (linha " + repetida + ")");
+                continue;
+            }
+
+            StatusMoto statusMoto;
+            try {
+                statusMoto = status.isEmpty() ? StatusMoto.DISPONIVEL : StatusMoto.valueOf(status.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                erros.add(numero, placa, "Status inválido: " + status);
+                continue;
+            }
+
+            UUID vagaId = null;
+            if (!vaga.isEmpty()) {
+                VagaResumo v = vagas.get(normalizarVaga(vaga));
+                String problema = v == null ? "Vaga " + vaga + " não existe no pátio"
+                        : v.status() == StatusVaga.INDISPONIVEL ? "Vaga " + vaga + " indisponível"
+                        : v.status() == StatusVaga.OCUPADA || v.ocupada() ? "Vaga " + vaga + " já ocupada"
+                        : statusMoto == StatusMoto.INATIVADA ? "Moto INATIVADA não pode ocupar vaga"
+                        : null;
+                if (problema == null) {
+                    Long outra = vagasVistas.putIfAbsent(v.id(), numero);
+                    if (outra != null) problema = "Vaga " + vaga + " repetida no arquivo (linha " + outra + ")";
+                }
+                if (problema != null) {
+                    erros.add(numero, placa, problema);
+                    continue;
+                }
+                vagaId = v.id();
+            }
+            validas.add(new Linha(numero, placa, statusMoto, vagaId));
+        }
+        return new Leitura(linhas, validas);
+    }
+
+    // --- 2) placas já cadastradas ---
+
+    private List<Linha> descartarExistentes(List<Linha> validas, Erros erros) {
+        Set<String> existentes = new HashSet<>();
+        for (int i = 0; i < validas.size(); i += LIMITE_IN) {
+            List<String> fatia = validas.subList(i, Math.min(i + LIMITE_IN, validas.size())).stream().map(Linha::placa).toList();
+            existentes.addAll(motoRepository.findPlacasExistentes(fatia));
+        }
+        if (existentes.isEmpty()) return validas;
+
+        List<Linha> novas = new ArrayList<>(validas.size() - existentes.size());
+        for (Linha l : validas) {
+            if (existentes.contains(l.placa())) erros.add(l.numero(), l.placa(), "Placa já cadastrada");
+            else novas.add(l);
+        }
+        return novas;
+    }
+
+    // --- 3) gravação em lotes paralelos ---
+
+    private long gravar(List<Linha> validas, Erros erros) {
+        List<List<Linha>> lotes = new ArrayList<>();
+        for (int i = 0; i < validas.size(); i += tamanhoLote) {
+            lotes.add(validas.subList(i, Math.min(i + tamanhoLote, validas.size())));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(paralelismo, lotes.size()), r -> {
+            Thread t = new Thread(r, "importacao-motos-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Integer>> futuros = new ArrayList<>(lotes.size());
+            for (List<Linha> lote : lotes) futuros.add(pool.submit(() -> gravarComFallback(lote, erros)));
+            long gravadas = 0;
+            for (Future<Integer> f : futuros) gravadas += f.get();
+            return gravadas;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha inesperada na importação: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int gravarComFallback(List<Linha> lote, Erros erros) {
+        try {
+            return gravarEmTransacao(lote, erros);
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                Linha l = lote.get(0);
+                erros.add(l.numero(), l.placa(), "Falha ao gravar: " + mensagem(e));
+                return 0;
+            }
+            log.warn("Lote de {} motos rejeitado ({}); gravando linha a linha", lote.size(), mensagem(e));
+            int gravadas = 0;
+            for (Linha l : lote) gravadas += gravarComFallback(List.of(l), erros);
+            return gravadas;
+        }
+    }
+
+    // os erros do lote só valem se a transação commitar; senão o fallback refaz e reporta de novo
+    private int gravarEmTransacao(List<Linha> lote, Erros erros) {
+        Gravacao g = transacao.execute(status -> gravarLote(lote));
+        if (g == null) return 0;
+        g.erros().forEach(e -> erros.add(e.getLinha(), e.getPlaca(), e.getMensagem()));
+        return g.gravadas();
+    }
+
+    private Gravacao gravarLote(List<Linha> lote) {
+        Set<UUID> vagaIds = new HashSet<>();
+        for (Linha l : lote) if (l.vagaId() != null) vagaIds.add(l.vagaId());
+        Map<UUID, Vaga> travadas = new HashMap<>(vagaIds.size() * 2);
+        if (!vagaIds.isEmpty()) {
+            for (Vaga v : vagaRepository.findParaOcupar(vagaIds)) travadas.put(v.getId(), v);
+        }
+
+        List<ErroImportacaoDTO> erros = new ArrayList<>();
+        List<Vaga> ocupadas = new ArrayList<>(vagaIds.size());
+        int gravadas = 0;
+        for (Linha l : lote) {
+            Vaga vaga = null;
+            if (l.vagaId() != null) {
+                // entre a validação e a trava alguém pode ter ocupado a vaga
+                vaga = travadas.get(l.vagaId());
+                if (vaga == null || vaga.getStatus() != StatusVaga.LIVRE || vaga.getMoto() != null) {
+                    erros.add(new ErroImportacaoDTO(l.numero(), l.placa(), "Vaga deixou de estar livre durante a importação"));
+                    continue;
+                }
+            }
+            Moto moto = new Moto(l.placa(), l.status());
+            moto.setVagaId(l.vagaId());
+            entityManager.persist(moto);
+            // com vaga, a moto entra no log pelo VagaAlteradaEvent abaixo; sem vaga fica fora de qualquer pátio
+            if (vaga == null) logAlteracoes.registrar(EntidadeSincronizada.MOTO, moto.getId());
+            if (vaga != null) {
+                vaga.setMoto(moto);
+                vaga.setStatus(StatusVaga.OCUPADA);
+                ocupadas.add(vaga);
+            }
+            gravadas++;
+        }
+        entityManager.flush();
+        for (Vaga v : ocupadas) eventos.publishEvent(VagaAlteradaEvent.de(v));
+        entityManager.clear();
+        return new Gravacao(gravadas, erros);
+    }
+
+    private void invalidarCaches(UUID patioId, List<Linha> importadas) {
+        invalidacaoCache.limparParticao("motosList", patioId);
+        invalidacaoCache.limparParticao("motosListAtivas", patioId);
+        versoes.alterou(Recurso.MOTOS, patioId);
+        invalidacaoCache.limparParticao("vagas", patioId);
+        invalidacaoCache.limparParticao("vagasAll", patioId);
+        UUID[] vagaIds = importadas.stream().map(Linha::vagaId).filter(Objects::nonNull).toArray(UUID[]::new);
+        if (vagaIds.length > 0) invalidacaoCache.evictContendo("vagas", vagaIds);
+        invalidacaoCache.limpar("totais");
+    }
+
+    private static String normalizarPlaca(String placa) {
+        return placa.replace("-", "").replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizarVaga(String identificacao) {
+        return identificacao.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String mensagem(RuntimeException e) {
+        Throwable raiz = e;
+        while (raiz.getCause() != null && raiz.getCause() != raiz) raiz = raiz.getCause();
+        return raiz.getMessage() != null ? raiz.getMessage() : raiz.getClass().getSimpleName();
+    }
+
+    private record Linha(long numero, String placa, StatusMoto status, UUID vagaId) {}
+
+    private record VagaResumo(UUID id, StatusVaga status, boolean ocupada) {}
+
+    private record Leitura(long linhas, List<Linha> validas) {}
+
+    private record Gravacao(int gravadas, List<ErroImportacaoDTO> erros) {}
+
+    // cabeçalho opcional; sem ele as colunas são placa, status, vaga nessa ordem
+    private record Colunas(String separador, boolean cabecalho, int placa, int status, int vaga) {
+
+        static Colunas de(String primeiraLinha) {
+            String separador = primeiraLinha.contains(";") && !primeiraLinha.contains(",") ? ";" : ",";
+            String[] nomes = primeiraLinha.toLowerCase(Locale.ROOT).split(separador, -1);
+            int placa = -1, status = -1, vaga = -1;
+            for (int i = 0; i < nomes.length; i++) {
+                String nome = limpar(nomes[i]);
+                switch (nome) {
+                    case "placa" -> placa = i;
+                    case "status" -> status = i;
+                    case "vaga", "identificacao", "vaga_identificacao" -> vaga = i;
+                    default -> { }
+                }
+            }
+            if (placa < 0) return new Colunas(separador, false, 0, 1, 2);
+            return new Colunas(separador, true, placa, status, vaga);
+        }
+
+        String campo(String[] campos, int indice) {
+            return indice < 0 || indice >= campos.length ? "" : limpar(campos[indice]);
+        }
+
+        private static String limpar(String valor) {
+            String v = valor.trim();
+            if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) v = v.substring(1, v.length() - 1).trim();
+            return v;
+        }
+    }
+
+    // compartilhado entre os lotes paralelos; guarda só os primeiros MAX_ERROS, conta todos
+    private static class Erros {
+        private final List<ErroImportacaoDTO> lista = new ArrayList<>();
+        private long total;
+
+        synchronized void add(long linha, String placa, String mensagem) {
+            total++;
+            if (lista.size() < MAX_ERROS) lista.add(new ErroImportacaoDTO(linha, placa, mensagem));
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        synchronized List<ErroImportacaoDTO> ordenados() {
+            List<ErroImportacaoDTO> copia = new ArrayList<>(lista);
+            copia.sort(Comparator.comparingLong(ErroImportacaoDTO::getLinha));
+            return copia;
+        }
+    }
+}
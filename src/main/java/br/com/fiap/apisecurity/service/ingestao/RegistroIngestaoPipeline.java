@@ -0,0 +1,205 @@
+package br.com.fiap.apisecurity.service.ingestao;
+
+import br.com.fiap.apisecurity.dto.IngestaoStatusDTO;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.service.RegistroService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pipeline assíncrono dos leitores: valida -> fila limitada -> coalesce -> grava em lote (RegistroService)
+@Component
+public class RegistroIngestaoPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroIngestaoPipeline.class);
+
+    private final RegistroService registroService;
+    private final BlockingQueue<EventoPendente> fila;
+    private final int capacidade;
+    private final int tamanhoLote;
+    private final long flushNanos;
+    private final int escritores;
+
+    private final AtomicLong sequencia = new AtomicLong();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean ativo;
+
+    // métricas
+    private final LongAdder aceitos = new LongAdder();
+    private final LongAdder rejeitados = new LongAdder();
+    private final LongAdder coalescidos = new LongAdder();
+    private final LongAdder gravados = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder eventosEmLotes = new LongAdder();
+    private final LongAdder tempoEscritaNanos = new LongAdder();
+    private final AtomicLong maiorEscritaNanos = new AtomicLong();
+    private final AtomicInteger ultimoLote = new AtomicInteger();
+    private final AtomicInteger maiorLote = new AtomicInteger();
+    private final AtomicLong ultimaSequenciaGravada = new AtomicLong();
+
+    public RegistroIngestaoPipeline(RegistroService registroService,
+                                    @Value("${app.registros.ingestao.capacidade:10000}") int capacidade,
+                                    @Value("${app.registros.ingestao.lote:500}") int tamanhoLote,
+                                    @Value("${app.registros.ingestao.flush-ms:200}") long flushMs,
+                                    @Value("${app.registros.ingestao.escritores:2}") int escritores) {
+        this.registroService = registroService;
+        this.capacidade = capacidade;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.tamanhoLote = tamanhoLote;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMs);
+        this.escritores = escritores;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        ativo = true;
+        for (int i = 0; i < escritores; i++) {
+            Thread t = new Thread(this::loopEscrita, "registro-ingestao-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException {
+        ativo = false;
+        for (Thread t : threads) t.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    // Retorna a sequência atribuída ou vazio quando a fila está cheia (back-pressure)
+    public OptionalLong enfileirar(RegistroDTO dto) {
+        validar(dto);
+        if (dto.getDataHora() == null) dto.setDataHora(LocalDateTime.now());
+
+        long seq = sequencia.incrementAndGet();
+        if (!ativo || !fila.offer(new EventoPendente(seq, dto))) {
+            rejeitados.increment();
+            return OptionalLong.empty();
+        }
+        aceitos.increment();
+        return OptionalLong.of(seq);
+    }
+
+    public int tamanhoFila() {
+        return fila.size();
+    }
+
+    public IngestaoStatusDTO status() {
+        long qtdLotes = lotes.sum();
+        IngestaoStatusDTO s = new IngestaoStatusDTO();
+        s.setFilaAtual(fila.size());
+        s.setFilaCapacidade(capacidade);
+        s.setEventosAceitos(aceitos.sum());
+        s.setEventosRejeitados(rejeitados.sum());
+        s.setEventosCoalescidos(coalescidos.sum());
+        s.setEventosGravados(gravados.sum());
+        s.setEventosComFalha(falhas.sum());
+        s.setLotesGravados(qtdLotes);
+        s.setUltimoLote(ultimoLote.get());
+        s.setMaiorLote(maiorLote.get());
+        s.setMediaLote(qtdLotes == 0 ? 0 : (double) eventosEmLotes.sum() / qtdLotes);
+        s.setLatenciaEscritaMediaMs(qtdLotes == 0 ? 0 : tempoEscritaNanos.sum() / 1_000_000.0 / qtdLotes);
+        s.setLatenciaEscritaMaximaMs(maiorEscritaNanos.get() / 1_000_000.0);
+        s.setUltimaSequencia(ultimaSequenciaGravada.get());
+        return s;
+    }
+
+    private void validar(RegistroDTO dto) {
+        if (dto == null) throw new IllegalArgumentException("Evento ausente.");
+        if (dto.getMotoId() == null) throw new IllegalArgumentException("O ID da moto é obrigatório");
+        if (dto.getLeitorId() == null) throw new IllegalArgumentException("O ID do leitor é obrigatório");
+        if (dto.getTipo() == null) throw new IllegalArgumentException("O tipo de movimentação é obrigatório");
+    }
+
+    private void loopEscrita() {
+        List<EventoPendente> lote = new ArrayList<>(tamanhoLote);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                EventoPendente primeiro = fila.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (primeiro == null) continue;
+                lote.add(primeiro);
+
+                // flush por tamanho ou por tempo, o que vier primeiro
+                long prazo = System.nanoTime() + flushNanos;
+                while (lote.size() < tamanhoLote) {
+                    fila.drainTo(lote, tamanhoLote - lote.size());
+                    if (lote.size() >= tamanhoLote) break;
+                    long restante = prazo - System.nanoTime();
+                    if (restante <= 0) break;
+                    EventoPendente proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) break;
+                    lote.add(proximo);
+                }
+                gravar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Falha inesperada no escritor de ingestão", e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravar(List<EventoPendente> lote) {
+        // coalesce: leituras repetidas do mesmo evento (mesma moto, leitor, tipo e instante) viram uma só
+        Map<ChaveEvento, EventoPendente> unicos = new LinkedHashMap<>(lote.size() * 2);
+        long maiorSeq = 0;
+        for (EventoPendente e : lote) {
+            unicos.putIfAbsent(ChaveEvento.de(e.dto()), e);
+            maiorSeq = Math.max(maiorSeq, e.sequencia());
+        }
+        coalescidos.add(lote.size() - unicos.size());
+
+        List<RegistroDTO> dtos = unicos.values().stream().map(EventoPendente::dto).toList();
+        long inicio = System.nanoTime();
+        try {
+            registroService.createRegistrosBatch(dtos);
+            gravados.add(dtos.size());
+        } catch (RuntimeException e) {
+            log.warn("Lote de {} eventos rejeitado ({}); gravando individualmente", dtos.size(), e.getMessage());
+            for (RegistroDTO dto : dtos) {
+                try {
+                    registroService.createRegistro(dto);
+                    gravados.increment();
+                } catch (RuntimeException individual) {
+                    falhas.increment();
+                    log.warn("Evento descartado (moto {}, leitor {}): {}", dto.getMotoId(), dto.getLeitorId(), individual.getMessage());
+                }
+            }
+        }
+        long duracao = System.nanoTime() - inicio;
+
+        lotes.increment();
+        eventosEmLotes.add(dtos.size());
+        tempoEscritaNanos.add(duracao);
+        maiorEscritaNanos.accumulateAndGet(duracao, Math::max);
+        ultimoLote.set(dtos.size());
+        maiorLote.accumulateAndGet(dtos.size(), Math::max);
+        ultimaSequenciaGravada.accumulateAndGet(maiorSeq, Math::max);
+    }
+
+    private record EventoPendente(long sequencia, RegistroDTO dto) {}
+
+    private record ChaveEvento(UUID motoId, UUID leitorId, TipoMovimentacao tipo, LocalDateTime dataHora) {
+        static ChaveEvento de(RegistroDTO dto) {
+            return new ChaveEvento(dto.getMotoId(), dto.getLeitorId(), dto.getTipo(), dto.getDataHora());
+        }
+    }
+}
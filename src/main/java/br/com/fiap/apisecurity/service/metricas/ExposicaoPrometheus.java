@@ -0,0 +1,148 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+import br.com.fiap.apisecurity.dto.IngestaoStatusDTO;
+import br.com.fiap.apisecurity.service.ingestao.RegistroIngestaoPipeline;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+// Página de métricas (GET /metrics): os histogramas dos serviços e, lidos na hora da coleta, os contadores que
+// já existem em outros componentes — estatísticas dos caches Caffeine, fila de ingestão dos leitores, pool Hikari,
+// estatísticas do Hibernate (hibernate.generate_statistics) e memória da JVM. Nada aqui roda fora da coleta.
+@Component
+public class ExposicaoPrometheus {
+
+    private final MetricasServicos metricasServicos;
+    private final CacheManager cacheManager;
+    private final RegistroIngestaoPipeline ingestao;
+    private final DataSource dataSource;
+    private final Statistics hibernate;
+
+    public ExposicaoPrometheus(MetricasServicos metricasServicos,
+                               CacheManager cacheManager,
+                               RegistroIngestaoPipeline ingestao,
+                               DataSource dataSource,
+                               EntityManagerFactory entityManagerFactory) {
+        this.metricasServicos = metricasServicos;
+        this.cacheManager = cacheManager;
+        this.ingestao = ingestao;
+        this.dataSource = dataSource;
+        this.hibernate = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public String coletar() throws IOException {
+        StringBuilder s = new StringBuilder(16 * 1024);
+        metricasServicos.escrever(s);
+        caches(s);
+        ingestao(s);
+        pool(s);
+        hibernate(s);
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        cabecalho(s, "app_jvm_heap_bytes", "gauge", "Heap da JVM");
+        s.append("app_jvm_heap_bytes{area=\"usada\"} ").append(heap.getUsed()).append('\n');
+        s.append("app_jvm_heap_bytes{area=\"comprometida\"} ").append(heap.getCommitted()).append('\n');
+        s.append("app_jvm_heap_bytes{area=\"maxima\"} ").append(heap.getMax()).append('\n');
+        return s.toString();
+    }
+
+    private void caches(StringBuilder s) {
+        List<String> nomes = new ArrayList<>();
+        List<CacheStats> stats = new ArrayList<>();
+        List<Long> tamanhos = new ArrayList<>();
+        for (String nome : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nome);
+            if (cache == null
+                    || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativo)) {
+                continue;
+            }
+            nomes.add(Prometheus.escapar(nome));
+            stats.add(nativo.stats());
+            tamanhos.add(nativo.estimatedSize());
+        }
+        cabecalho(s, "app_cache_acertos_total", "counter", "Leituras atendidas pelo cache");
+        for (int i = 0; i < nomes.size(); i++) serie(s, "app_cache_acertos_total", nomes.get(i), stats.get(i).hitCount());
+        cabecalho(s, "app_cache_falhas_total", "counter", "Leituras que foram ao banco");
+        for (int i = 0; i < nomes.size(); i++) serie(s, "app_cache_falhas_total", nomes.get(i), stats.get(i).missCount());
+        cabecalho(s, "app_cache_remocoes_total", "counter", "Entradas removidas por tamanho/expiração");
+        for (int i = 0; i < nomes.size(); i++) serie(s, "app_cache_remocoes_total", nomes.get(i), stats.get(i).evictionCount());
+        cabecalho(s, "app_cache_taxa_acerto", "gauge", "Acertos / leituras desde a subida");
+        for (int i = 0; i < nomes.size(); i++) {
+            s.append("app_cache_taxa_acerto{cache=\"").append(nomes.get(i)).append("\"} ")
+                    .append(Prometheus.numero(stats.get(i).hitRate())).append('\n');
+        }
+        cabecalho(s, "app_cache_entradas", "gauge", "Entradas no cache (estimativa)");
+        for (int i = 0; i < nomes.size(); i++) serie(s, "app_cache_entradas", nomes.get(i), tamanhos.get(i));
+    }
+
+    private void ingestao(StringBuilder s) {
+        IngestaoStatusDTO st = ingestao.status();
+        cabecalho(s, "app_ingestao_eventos_total", "counter", "Eventos dos leitores por destino");
+        s.append("app_ingestao_eventos_total{resultado=\"aceito\"} ").append(st.getEventosAceitos()).append('\n');
+        s.append("app_ingestao_eventos_total{resultado=\"rejeitado\"} ").append(st.getEventosRejeitados()).append('\n');
+        s.append("app_ingestao_eventos_total{resultado=\"coalescido\"} ").append(st.getEventosCoalescidos()).append('\n');
+        s.append("app_ingestao_eventos_total{resultado=\"gravado\"} ").append(st.getEventosGravados()).append('\n');
+        s.append("app_ingestao_eventos_total{resultado=\"falha\"} ").append(st.getEventosComFalha()).append('\n');
+        cabecalho(s, "app_ingestao_fila", "gauge", "Eventos aguardando gravação");
+        s.append("app_ingestao_fila ").append(st.getFilaAtual()).append('\n');
+        cabecalho(s, "app_ingestao_fila_capacidade", "gauge", "Capacidade da fila de ingestão");
+        s.append("app_ingestao_fila_capacidade ").append(st.getFilaCapacidade()).append('\n');
+        cabecalho(s, "app_ingestao_lotes_total", "counter", "Lotes gravados");
+        s.append("app_ingestao_lotes_total ").append(st.getLotesGravados()).append('\n');
+        cabecalho(s, "app_ingestao_lote_maximo", "gauge", "Maior lote gravado desde a subida");
+        s.append("app_ingestao_lote_maximo ").append(st.getMaiorLote()).append('\n');
+        cabecalho(s, "app_ingestao_escrita_segundos_max", "gauge", "Maior tempo de gravação de um lote");
+        s.append("app_ingestao_escrita_segundos_max ").append(Prometheus.numero(st.getLatenciaEscritaMaximaMs() / 1000.0))
+                .append('\n');
+    }
+
+    private void pool(StringBuilder s) {
+        if (!(dataSource instanceof HikariDataSource hikari)) return;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null) return; // pool ainda não iniciado
+        cabecalho(s, "app_hikari_conexoes", "gauge", "Conexões do pool por estado");
+        s.append("app_hikari_conexoes{estado=\"ativas\"} ").append(pool.getActiveConnections()).append('\n');
+        s.append("app_hikari_conexoes{estado=\"ociosas\"} ").append(pool.getIdleConnections()).append('\n');
+        s.append("app_hikari_conexoes{estado=\"total\"} ").append(pool.getTotalConnections()).append('\n');
+        s.append("app_hikari_conexoes{estado=\"aguardando\"} ").append(pool.getThreadsAwaitingConnection()).append('\n');
+        cabecalho(s, "app_hikari_conexoes_max", "gauge", "Tamanho máximo do pool");
+        s.append("app_hikari_conexoes_max ").append(hikari.getMaximumPoolSize()).append('\n');
+    }
+
+    // contadores ficam zerados com hibernate.generate_statistics desligado: melhor não publicar
+    private void hibernate(StringBuilder s) {
+        if (!hibernate.isStatisticsEnabled()) return;
+        cabecalho(s, "app_hibernate_statements_total", "counter", "Statements JDBC preparados pelo Hibernate");
+        s.append("app_hibernate_statements_total ").append(hibernate.getPrepareStatementCount()).append('\n');
+        cabecalho(s, "app_hibernate_consultas_total", "counter", "Consultas HQL/SQL executadas");
+        s.append("app_hibernate_consultas_total ").append(hibernate.getQueryExecutionCount()).append('\n');
+        cabecalho(s, "app_hibernate_entidades_carregadas_total", "counter", "Entidades carregadas do banco");
+        s.append("app_hibernate_entidades_carregadas_total ").append(hibernate.getEntityLoadCount()).append('\n');
+        cabecalho(s, "app_hibernate_colecoes_buscadas_total", "counter", "Coleções buscadas sob demanda");
+        s.append("app_hibernate_colecoes_buscadas_total ").append(hibernate.getCollectionFetchCount()).append('\n');
+        cabecalho(s, "app_hibernate_transacoes_total", "counter", "Transações concluídas");
+        s.append("app_hibernate_transacoes_total ").append(hibernate.getTransactionCount()).append('\n');
+    }
+
+    private static void cabecalho(StringBuilder s, String nome, String tipo, String ajuda) {
+        s.append("# HELP ").append(nome).append(' ').append(ajuda).append('\n');
+        s.append("# TYPE ").append(nome).append(' ').append(tipo).append('\n');
+    }
+
+    private static void serie(StringBuilder s, String nome, String cache, long valor) {
+        s.append(nome).append("{cache=\"").append(cache).append("\"} ").append(valor).append('\n');
+    }
+}
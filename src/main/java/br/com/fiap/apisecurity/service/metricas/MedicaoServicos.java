@@ -0,0 +1,87 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import jakarta.persistence.EntityNotFoundException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Mede toda operação pública de MotoService, VagaService, RegistroService e LeitorService (chamadas vindas de
+// fora do bean; as internas já entram no tempo de quem chamou). Pátio: o argumento patioId só quando a operação
+// terminou com sucesso (o serviço já validou o acesso a ele); senão o pátio do operador logado ("todos" para
+// ADMIN, "sistema" fora de requisição autenticada). Assim um patioId inventado não ocupa vaga no limite de pátios.
+@Aspect
+@Component
+public class MedicaoServicos {
+
+    private static final int SEM_POSICAO = -1;
+
+    private final MetricasServicos metricas;
+    private final Authz authz;
+    // posição do parâmetro patioId (UUID) de cada método, resolvida uma vez
+    private final Map<Method, Integer> posicaoPatio = new ConcurrentHashMap<>();
+
+    public MedicaoServicos(MetricasServicos metricas, Authz authz) {
+        this.metricas = metricas;
+        this.authz = authz;
+    }
+
+    @Around("execution(public * br.com.fiap.apisecurity.service.MotoService.*(..)) || "
+            + "execution(public * br.com.fiap.apisecurity.service.VagaService.*(..)) || "
+            + "execution(public * br.com.fiap.apisecurity.service.RegistroService.*(..)) || "
+            + "execution(public * br.com.fiap.apisecurity.service.LeitorService.*(..))")
+    public Object medir(ProceedingJoinPoint pjp) throws Throwable {
+        long inicio = System.nanoTime();
+        String resultado = "sucesso";
+        try {
+            return pjp.proceed();
+        } catch (Throwable e) {
+            resultado = resultado(e);
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - inicio;
+            MethodSignature assinatura = (MethodSignature) pjp.getSignature();
+            String patio = "sucesso".equals(resultado) ? patioDoArgumento(assinatura, pjp.getArgs()) : null;
+            metricas.registrar(assinatura.getDeclaringType().getSimpleName(), assinatura.getName(), resultado,
+                    patio != null ? patio : patioDoUsuario(), nanos);
+        }
+    }
+
+    // conjunto fechado, para não abrir uma série por mensagem de erro
+    static String resultado(Throwable e) {
+        if (e instanceof SecurityException) return "negado";
+        if (e instanceof EntityNotFoundException) return "nao_encontrado";
+        if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) return "invalido";
+        return "erro";
+    }
+
+    private String patioDoArgumento(MethodSignature assinatura, Object[] args) {
+        int i = posicaoPatio.computeIfAbsent(assinatura.getMethod(), m -> {
+            String[] nomes = assinatura.getParameterNames();
+            Class<?>[] tipos = assinatura.getParameterTypes();
+            for (int p = 0; nomes != null && p < nomes.length; p++) {
+                if ("patioId".equals(nomes[p]) && tipos[p] == UUID.class) return p;
+            }
+            return SEM_POSICAO;
+        });
+        return i != SEM_POSICAO && args[i] != null ? args[i].toString() : null;
+    }
+
+    private String patioDoUsuario() {
+        try {
+            if (!authz.isAuthenticated()) return MetricasServicos.SISTEMA;
+            if (authz.isAdmin()) return MetricasServicos.TODOS;
+            UUID patioId = authz.currentUserPatioIdOrNull();
+            return patioId != null ? patioId.toString() : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Duração e contagem das operações dos serviços, por serviço, operação, resultado e pátio, em histogramas de
+// baldes fixos (formato de histograma do Prometheus). Registrar custa um lookup no mapa e dois LongAdder:
+// dá para deixar ligado sob carga. A cardinalidade do pátio é limitada: passados app.metricas.max-patios
+// pátios distintos, os novos entram como "outros" (os rótulos fixos abaixo não contam no limite). Quem chama só
+// deve mandar pátio já validado (ver MedicaoServicos).
+@Component
+public class MetricasServicos {
+
+    public static final String NOME = "app_servico_segundos";
+    public static final String OUTROS = "outros";
+    public static final String TODOS = "todos";
+    public static final String SISTEMA = "sistema";
+    public static final String SEM_PATIO = "-";
+
+    // limites superiores dos baldes, em segundos (+Inf implícito)
+    static final double[] BALDES = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final int maxPatios;
+    private final Map<Serie, Temporizador> series = new ConcurrentHashMap<>();
+    private final Set<String> patios = ConcurrentHashMap.newKeySet();
+
+    public MetricasServicos(@Value("${app.metricas.max-patios:100}") int maxPatios) {
+        this.maxPatios = maxPatios;
+    }
+
+    public void registrar(String servico, String operacao, String resultado, String patio, long nanos) {
+        Serie serie = new Serie(servico, operacao, resultado, limitarPatio(patio));
+        series.computeIfAbsent(serie, s -> new Temporizador()).registrar(nanos);
+    }
+
+    // formato texto de exposição do Prometheus (0.0.4)
+    public void escrever(Appendable saida) throws IOException {
+        saida.append("# HELP ").append(NOME).append(" Duração das operações dos serviços\n");
+        saida.append("# TYPE ").append(NOME).append(" histogram\n");
+        List<Map.Entry<Serie, Temporizador>> ordenadas = new ArrayList<>(series.entrySet());
+        ordenadas.sort(Map.Entry.comparingByKey(Comparator.comparing(Serie::servico)
+                .thenComparing(Serie::operacao).thenComparing(Serie::resultado).thenComparing(Serie::patio)));
+        for (Map.Entry<Serie, Temporizador> e : ordenadas) {
+            Serie s = e.getKey();
+            String rotulos = "servico=\"" + Prometheus.escapar(s.servico())
+                    + "\",operacao=\"" + Prometheus.escapar(s.operacao())
+                    + "\",resultado=\"" + Prometheus.escapar(s.resultado())
+                    + "\",patio=\"" + Prometheus.escapar(s.patio()) + "\"";
+            Temporizador t = e.getValue();
+            long acumulado = 0;
+            for (int i = 0; i <= BALDES.length; i++) {
+                acumulado += t.baldes[i].sum();
+                String le = i < BALDES.length ? Prometheus.numero(BALDES[i]) : "+Inf";
+                saida.append(NOME).append("_bucket{").append(rotulos).append(",le=\"").append(le).append("\"} ")
+                        .append(Long.toString(acumulado)).append('\n');
+            }
+            saida.append(NOME).append("_sum{").append(rotulos).append("} ")
+                    .append(Prometheus.numero(t.somaNanos.sum() / 1e9)).append('\n');
+            saida.append(NOME).append("_count{").append(rotulos).append("} ")
+                    .append(Long.toString(acumulado)).append('\n');
+        }
+    }
+
+    public int getSeries() {
+        return series.size();
+    }
+
+    private String limitarPatio(String patio) {
+        if (patio == null) return SEM_PATIO;
+        if (TODOS.equals(patio) || SISTEMA.equals(patio) || patios.contains(patio)) return patio;
+        // a corrida pode deixar passar um ou outro além do limite; o conjunto continua limitado
+        if (patios.size() >= maxPatios) return OUTROS;
+        patios.add(patio);
+        return patio;
+    }
+
+    private record Serie(String servico, String operacao, String resultado, String patio) {}
+
+    private static final class Temporizador {
+        final LongAdder[] baldes = new LongAdder[BALDES.length + 1];
+        final LongAdder somaNanos = new LongAdder();
+
+        Temporizador() {
+            for (int i = 0; i < baldes.length; i++) baldes[i] = new LongAdder();
+        }
+
+        void registrar(long nanos) {
+            double segundos = nanos / 1e9;
+            int i = 0;
+            while (i < BALDES.length && segundos > BALDES[i]) i++;
+            baldes[i].increment();
+            somaNanos.add(nanos);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+// Utilitários do formato texto de exposição do Prometheus
+final class Prometheus {
+
+    private Prometheus() {}
+
+    static String escapar(String valor) {
+        if (valor == null) return "";
+        return valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static String numero(double v) {
+        if (Double.isNaN(v)) return "NaN";
+        if (Double.isInfinite(v)) return v > 0 ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+}
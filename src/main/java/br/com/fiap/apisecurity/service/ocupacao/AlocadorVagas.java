@@ -0,0 +1,166 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.dto.AlocacaoStatusDTO;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Alocação de vagas sem dupla ocupação e sem travar o pátio inteiro:
+//  - a exclusividade vem do UPDATE condicional no banco (compare-and-set na linha da vaga);
+//  - na alocação automática, o índice de ocupação reserva a candidata para que alocações concorrentes
+//    escolham outra; conflito (índice defasado) => rollback, backoff e nova candidata.
+// ocupar/tentarNoPatio rodam dentro da transação do serviço; reservas são desfeitas ao fim dela (commit ou
+// rollback). comRetentativas abre uma transação por tentativa e espera o backoff fora dela, sem segurar
+// conexão do pool nem as travas de linha da tentativa anterior.
+@Component
+public class AlocadorVagas {
+
+    private final VagaRepository vagaRepository;
+    private final OcupacaoIndex ocupacaoIndex;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacao;
+    private final int maxTentativas;
+    private final long backoffMs;
+
+    // métricas de contenção
+    private final LongAdder tentativas = new LongAdder();
+    private final LongAdder sucessos = new LongAdder();
+    private final LongAdder conflitos = new LongAdder();
+    private final LongAdder esgotadas = new LongAdder();
+    private final LongAdder semVagaLivre = new LongAdder();
+    private final LongAdder tempoNanos = new LongAdder();
+
+    public AlocadorVagas(VagaRepository vagaRepository,
+                         OcupacaoIndex ocupacaoIndex,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.vagas.alocacao.tentativas:5}") int maxTentativas,
+                         @Value("${app.vagas.alocacao.backoff-ms:5}") long backoffMs) {
+        this.vagaRepository = vagaRepository;
+        this.ocupacaoIndex = ocupacaoIndex;
+        this.entityManager = entityManager;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.maxTentativas = maxTentativas;
+        this.backoffMs = backoffMs;
+    }
+
+    // Ocupa uma vaga escolhida pelo usuário. Não há o que tentar de novo: ou estava livre, ou não.
+    public void ocupar(Vaga vaga, Moto moto) {
+        long inicio = System.nanoTime();
+        try {
+            tentativas.increment();
+            if (vagaRepository.ocuparSeLivre(vaga.getId(), moto, StatusVaga.OCUPADA, StatusVaga.LIVRE) == 0) {
+                conflitos.increment();
+                throw new IllegalStateException("Vaga não está livre.");
+            }
+            sucessos.increment();
+            entityManager.refresh(vaga);
+        } finally {
+            tempoNanos.add(System.nanoTime() - inicio);
+        }
+    }
+
+    // Uma tentativa, na transação do chamador: reserva a próxima candidata ainda não tentada e faz o
+    // compare-and-set. Vazio = conflito (outra transação ocupou antes); o chamador deve desfazer a transação.
+    public Optional<Vaga> tentarNoPatio(UUID patioId, Moto moto, Set<UUID> tentadas) {
+        long inicio = System.nanoTime();
+        try {
+            UUID vagaId = ocupacaoIndex.reservarProximaLivre(patioId, tentadas).orElse(null);
+            if (vagaId == null) {
+                semVagaLivre.increment();
+                throw new IllegalStateException("Nenhuma vaga livre no pátio: " + patioId);
+            }
+            tentadas.add(vagaId);
+            liberarReservaAoFinal(patioId, vagaId);
+
+            tentativas.increment();
+            if (vagaRepository.ocuparSeLivre(vagaId, moto, StatusVaga.OCUPADA, StatusVaga.LIVRE) == 0) {
+                conflitos.increment();
+                return Optional.empty();
+            }
+            sucessos.increment();
+            Vaga vaga = vagaRepository.findById(vagaId)
+                    .orElseThrow(() -> new EntityNotFoundException("Vaga não encontrada: " + vagaId));
+            entityManager.refresh(vaga);
+            return Optional.of(vaga);
+        } finally {
+            tempoNanos.add(System.nanoTime() - inicio);
+        }
+    }
+
+    // Executa a tentativa (que chama tentarNoPatio) cada vez numa transação nova. Vazio => rollback, backoff
+    // fora da transação e nova tentativa; o conjunto de vagas já tentadas passa de uma para a outra.
+    public <T> T comRetentativas(Function<Set<UUID>, Optional<T>> tentativa) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Alocação com retentativas deve ser chamada fora de transação.");
+        }
+        Set<UUID> tentadas = new HashSet<>();
+        for (int i = 0; i < maxTentativas; i++) {
+            Optional<T> resultado = transacao.execute(status -> {
+                Optional<T> r = tentativa.apply(tentadas);
+                if (r.isEmpty()) status.setRollbackOnly();
+                return r;
+            });
+            if (resultado != null && resultado.isPresent()) return resultado.get();
+            aguardar(i);
+        }
+        esgotadas.increment();
+        throw new IllegalStateException("Não foi possível alocar vaga no pátio após " + maxTentativas + " tentativas.");
+    }
+
+    public AlocacaoStatusDTO status() {
+        long total = tentativas.sum();
+        AlocacaoStatusDTO s = new AlocacaoStatusDTO();
+        s.setTentativas(total);
+        s.setSucessos(sucessos.sum());
+        s.setConflitos(conflitos.sum());
+        s.setEsgotadas(esgotadas.sum());
+        s.setSemVagaLivre(semVagaLivre.sum());
+        s.setTaxaConflito(total == 0 ? 0 : (double) conflitos.sum() / total);
+        s.setLatenciaMediaMs(total == 0 ? 0 : tempoNanos.sum() / 1_000_000.0 / total);
+        return s;
+    }
+
+    private void liberarReservaAoFinal(UUID patioId, UUID vagaId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // sem transação o UPDATE já está efetivado; a reserva não é mais necessária
+            ocupacaoIndex.liberarReserva(patioId, vagaId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ocupacaoIndex.liberarReserva(patioId, vagaId);
+            }
+        });
+    }
+
+    // backoff exponencial com jitter, limitado a 32x o intervalo base
+    private void aguardar(int tentativa) {
+        long base = backoffMs << Math.min(tentativa, 5);
+        long espera = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Alocação interrompida.", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Grade uniforme de um pátio: coordenadas projetadas em metros (equiretangular em torno da 1ª vaga,
+// precisa o bastante na escala de um pátio). Só vagas LIVRE entram nas células; todas ficam em 'pontos'
+// para servir de origem (ex.: vaga do leitor). A busca expande anéis de células a partir da origem.
+class GradeEspacial {
+
+    private static final double METROS_POR_GRAU_LAT = 110_574.0;
+    private static final double METROS_POR_GRAU_LON = 111_320.0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final double celulaMetros;
+    private double cosLatRef = Double.NaN;
+
+    private final Map<UUID, Ponto> pontos = new HashMap<>();
+    private final Map<Long, List<Ponto>> celulas = new HashMap<>();
+    private int livres;
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+    // uma célula de borda esvaziou: os limites acima podem estar largos demais (recalculados na próxima busca)
+    private boolean limitesSujos;
+
+    GradeEspacial(double celulaMetros) {
+        this.celulaMetros = celulaMetros;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    // chamado com o lock adquirido
+    void aplicar(UUID vagaId, String identificacao, Double lat, Double lon, StatusVaga status) {
+        remover(vagaId);
+        if (lat == null || lon == null) return;
+        if (Double.isNaN(cosLatRef)) cosLatRef = Math.cos(Math.toRadians(lat));
+
+        Ponto p = new Ponto(vagaId, identificacao, lat, lon, x(lon), y(lat), status == StatusVaga.LIVRE);
+        pontos.put(vagaId, p);
+        if (!p.livre) return;
+
+        int cx = celula(p.x), cy = celula(p.y);
+        celulas.computeIfAbsent(chave(cx, cy), k -> new ArrayList<>()).add(p);
+        livres++;
+        minCx = Math.min(minCx, cx); maxCx = Math.max(maxCx, cx);
+        minCy = Math.min(minCy, cy); maxCy = Math.max(maxCy, cy);
+    }
+
+    // chamado com o lock adquirido
+    void remover(UUID vagaId) {
+        Ponto p = pontos.remove(vagaId);
+        if (p == null || !p.livre) return;
+        long chave = chave(celula(p.x), celula(p.y));
+        List<Ponto> lista = celulas.get(chave);
+        if (lista != null && lista.remove(p)) {
+            livres--;
+            if (lista.isEmpty()) {
+                celulas.remove(chave);
+                int cx = celula(p.x), cy = celula(p.y);
+                if (cx == minCx || cx == maxCx || cy == minCy || cy == maxCy) limitesSujos = true;
+            }
+        }
+    }
+
+    double[] coordenadas(UUID vagaId) {
+        Ponto p = pontos.get(vagaId);
+        return p == null ? null : new double[]{p.lat, p.lon};
+    }
+
+    // K vagas LIVRE mais próximas de (lat, lon), em ordem crescente de distância
+    List<Proxima> proximas(double lat, double lon, int k) {
+        if (livres == 0 || Double.isNaN(cosLatRef)) return List.of();
+        double qx = x(lon), qy = y(lat);
+        int cx = celula(qx), cy = celula(qy);
+
+        if (limitesSujos) recalcularLimites();
+
+        // max-heap com as k melhores até agora
+        PriorityQueue<Proxima> melhores = new PriorityQueue<>(Comparator.comparingDouble(Proxima::distanciaMetros).reversed());
+        int raioMax = Math.max(Math.max(Math.abs(cx - minCx), Math.abs(maxCx - cx)),
+                               Math.max(Math.abs(cy - minCy), Math.abs(maxCy - cy)));
+        // anéis mais perto que a caixa das células ocupadas estão vazios: origem fora do pátio começa na borda dele
+        int raioMin = Math.max(Math.max(minCx - cx, cx - maxCx), Math.max(minCy - cy, cy - maxCy));
+
+        long sondadas = 0;
+        for (int r = Math.max(0, raioMin); r <= raioMax; r++) {
+            // células já sondadas somadas às do próximo anel passam do número de vagas livres: varrer todas as
+            // células ocupadas sai mais barato (pátio esparso ou origem longe)
+            sondadas += r == 0 ? 1 : 8L * r;
+            if (sondadas > livres) {
+                melhores.clear();
+                for (List<Ponto> lista : celulas.values()) considerar(lista, qx, qy, k, melhores);
+                break;
+            }
+            for (int dx = -r; dx <= r; dx++) {
+                boolean borda = dx == -r || dx == r;
+                for (int dy = -r; dy <= r; dy += borda ? 1 : 2 * r) {
+                    List<Ponto> lista = celulas.get(chave(cx + dx, cy + dy));
+                    if (lista != null) considerar(lista, qx, qy, k, melhores);
+                    if (r == 0) break;
+                }
+            }
+            // qualquer ponto fora dos anéis já vistos está a pelo menos r * célula da origem
+            if (melhores.size() == k && melhores.peek().distanciaMetros() <= r * celulaMetros) break;
+        }
+
+        List<Proxima> resultado = new ArrayList<>(melhores);
+        resultado.sort(Comparator.comparingDouble(Proxima::distanciaMetros));
+        return resultado;
+    }
+
+    private void recalcularLimites() {
+        minCx = minCy = Integer.MAX_VALUE;
+        maxCx = maxCy = Integer.MIN_VALUE;
+        for (long chave : celulas.keySet()) {
+            int cx = (int) (chave >> 32), cy = (int) chave;
+            minCx = Math.min(minCx, cx); maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy); maxCy = Math.max(maxCy, cy);
+        }
+        limitesSujos = false;
+    }
+
+    private void considerar(List<Ponto> lista, double qx, double qy, int k, PriorityQueue<Proxima> melhores) {
+        for (Ponto p : lista) {
+            double d = Math.hypot(p.x - qx, p.y - qy);
+            if (melhores.size() < k) {
+                melhores.add(new Proxima(p.vagaId, p.identificacao, p.lat, p.lon, d));
+            } else if (d < melhores.peek().distanciaMetros()) {
+                melhores.poll();
+                melhores.add(new Proxima(p.vagaId, p.identificacao, p.lat, p.lon, d));
+            }
+        }
+    }
+
+    private double x(double lon) {
+        return lon * METROS_POR_GRAU_LON * cosLatRef;
+    }
+
+    private double y(double lat) {
+        return lat * METROS_POR_GRAU_LAT;
+    }
+
+    private int celula(double metros) {
+        return (int) Math.floor(metros / celulaMetros);
+    }
+
+    private static long chave(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private record Ponto(UUID vagaId, String identificacao, double lat, double lon, double x, double y, boolean livre) {}
+
+    record Proxima(UUID vagaId, String identificacao, double lat, double lon, double distanciaMetros) {}
+}
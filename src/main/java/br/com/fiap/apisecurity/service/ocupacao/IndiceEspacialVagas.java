@@ -0,0 +1,128 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.dto.VagaProximaDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice espacial (grade por pátio) para "K vagas livres mais próximas" de um ponto ou de uma vaga.
+// Mesmo ciclo de vida do OcupacaoIndex: carga na subida e VagaAlteradaEvent após o commit.
+@Component
+public class IndiceEspacialVagas {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceEspacialVagas.class);
+
+    private final VagaRepository vagaRepository;
+    private final double celulaMetros;
+    private final Map<UUID, GradeEspacial> patios = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock reconstrucao = new ReentrantReadWriteLock();
+    private volatile boolean pronto;
+
+    public IndiceEspacialVagas(VagaRepository vagaRepository,
+                               @Value("${app.vagas.espacial.celula-metros:10}") double celulaMetros) {
+        this.vagaRepository = vagaRepository;
+        this.celulaMetros = celulaMetros;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível carregar o índice espacial de vagas na subida: {}", e.getMessage());
+        }
+    }
+
+    public void reconstruir() {
+        reconstrucao.writeLock().lock();
+        try {
+            Map<UUID, GradeEspacial> novo = new HashMap<>();
+            for (Object[] r : vagaRepository.findResumoOcupacao()) {
+                GradeEspacial grade = novo.computeIfAbsent((UUID) r[1], id -> new GradeEspacial(celulaMetros));
+                grade.aplicar((UUID) r[0], (String) r[2], (Double) r[4], (Double) r[5], (StatusVaga) r[3]);
+            }
+            patios.clear();
+            patios.putAll(novo);
+            pronto = true;
+        } finally {
+            reconstrucao.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarVaga(VagaAlteradaEvent evento) {
+        reconstrucao.readLock().lock();
+        try {
+            UUID anterior = evento.patioAnteriorId();
+            if (anterior != null && (evento.isRemocao() || !anterior.equals(evento.patioId()))) {
+                GradeEspacial grade = patios.get(anterior);
+                if (grade != null) {
+                    grade.lock().lock();
+                    try {
+                        grade.remover(evento.vagaId());
+                    } finally {
+                        grade.lock().unlock();
+                    }
+                }
+            }
+            if (evento.isRemocao() || evento.patioId() == null) return;
+
+            GradeEspacial grade = patios.computeIfAbsent(evento.patioId(), id -> new GradeEspacial(celulaMetros));
+            grade.lock().lock();
+            try {
+                grade.aplicar(evento.vagaId(), evento.identificacao(),
+                        evento.coordenadaLat(), evento.coordenadaLong(), evento.status());
+            } finally {
+                grade.lock().unlock();
+            }
+        } finally {
+            reconstrucao.readLock().unlock();
+        }
+    }
+
+    public List<VagaProximaDTO> proximas(UUID patioId, double lat, double lon, int k) {
+        garantirPronto();
+        GradeEspacial grade = patios.get(patioId);
+        if (grade == null) return List.of();
+        grade.lock().lock();
+        try {
+            return grade.proximas(lat, lon, k).stream()
+                    .map(p -> new VagaProximaDTO(p.vagaId(), p.identificacao(), p.lat(), p.lon(), p.distanciaMetros()))
+                    .toList();
+        } finally {
+            grade.lock().unlock();
+        }
+    }
+
+    // coordenadas de uma vaga do pátio (qualquer status); vazio quando a vaga não tem coordenadas
+    public Optional<double[]> coordenadas(UUID patioId, UUID vagaId) {
+        garantirPronto();
+        GradeEspacial grade = patios.get(patioId);
+        if (grade == null) return Optional.empty();
+        grade.lock().lock();
+        try {
+            return Optional.ofNullable(grade.coordenadas(vagaId));
+        } finally {
+            grade.lock().unlock();
+        }
+    }
+
+    private void garantirPronto() {
+        if (pronto) return;
+        synchronized (this) {
+            if (!pronto) reconstruir();
+        }
+    }
+}
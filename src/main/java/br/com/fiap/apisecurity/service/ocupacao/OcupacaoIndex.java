@@ -0,0 +1,183 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice de ocupação em memória por pátio: responde livres / próxima livre / % ocupação sem ir ao Oracle.
+// Reconstruído do banco na subida e mantido pelos VagaAlteradaEvent aplicados após o commit.
+@Component
+public class OcupacaoIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OcupacaoIndex.class);
+
+    private final VagaRepository vagaRepository;
+    private final Map<UUID, OcupacaoPatio> patios = new ConcurrentHashMap<>();
+
+    // eventos aplicam com o read lock; a reconstrução troca tudo com o write lock, sem perder eventos no meio
+    private final ReentrantReadWriteLock reconstrucao = new ReentrantReadWriteLock();
+    private volatile boolean pronto;
+
+    public OcupacaoIndex(VagaRepository vagaRepository) {
+        this.vagaRepository = vagaRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            // sobe mesmo sem banco; a primeira consulta tenta de novo
+            log.warn("Não foi possível carregar o índice de ocupação na subida: {}", e.getMessage());
+        }
+    }
+
+    public void reconstruir() {
+        reconstrucao.writeLock().lock();
+        try {
+            long inicio = System.nanoTime();
+            Map<UUID, OcupacaoPatio> novo = new HashMap<>();
+            List<Object[]> linhas = vagaRepository.findResumoOcupacao();
+            for (Object[] r : linhas) {
+                OcupacaoPatio patio = novo.computeIfAbsent((UUID) r[1], id -> new OcupacaoPatio());
+                patio.aplicar((UUID) r[0], (String) r[2], (StatusVaga) r[3]);
+            }
+            patios.clear();
+            patios.putAll(novo);
+            pronto = true;
+            log.info("Índice de ocupação carregado: {} vagas em {} pátios ({} ms)",
+                    linhas.size(), novo.size(), (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            reconstrucao.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarVaga(VagaAlteradaEvent evento) {
+        reconstrucao.readLock().lock();
+        try {
+            UUID anterior = evento.patioAnteriorId();
+            if (anterior != null && (evento.isRemocao() || !anterior.equals(evento.patioId()))) {
+                OcupacaoPatio patio = patios.get(anterior);
+                if (patio != null) {
+                    patio.lock().lock();
+                    try {
+                        patio.remover(evento.vagaId());
+                    } finally {
+                        patio.lock().unlock();
+                    }
+                }
+            }
+            if (evento.isRemocao() || evento.patioId() == null) return;
+
+            OcupacaoPatio patio = patios.computeIfAbsent(evento.patioId(), id -> new OcupacaoPatio());
+            patio.lock().lock();
+            try {
+                patio.aplicar(evento.vagaId(), evento.identificacao(), evento.status());
+            } finally {
+                patio.lock().unlock();
+            }
+        } finally {
+            reconstrucao.readLock().unlock();
+        }
+    }
+
+    public OcupacaoDTO ocupacao(UUID patioId) {
+        garantirPronto();
+        OcupacaoDTO dto = new OcupacaoDTO();
+        dto.setPatioId(patioId);
+        OcupacaoPatio patio = patios.get(patioId);
+        if (patio == null) return dto;
+
+        patio.lock().lock();
+        try {
+            int total = patio.total();
+            int ocupadas = patio.quantidade(StatusVaga.OCUPADA);
+            int proxima = patio.proximaLivre(Set.of());
+            dto.setTotal(total);
+            dto.setLivres(patio.quantidade(StatusVaga.LIVRE));
+            dto.setOcupadas(ocupadas);
+            dto.setIndisponiveis(patio.quantidade(StatusVaga.INDISPONIVEL));
+            dto.setPercentualOcupacao(total == 0 ? 0 : Math.round(ocupadas * 10000.0 / total) / 100.0);
+            dto.setProximaVagaLivreId(patio.vagaNoSlot(proxima));
+            dto.setProximaVagaLivreIdentificacao(patio.identificacaoNoSlot(proxima));
+        } finally {
+            patio.lock().unlock();
+        }
+        return dto;
+    }
+
+    public int livres(UUID patioId) {
+        garantirPronto();
+        OcupacaoPatio patio = patios.get(patioId);
+        if (patio == null) return 0;
+        patio.lock().lock();
+        try {
+            return patio.quantidade(StatusVaga.LIVRE);
+        } finally {
+            patio.lock().unlock();
+        }
+    }
+
+    public Optional<UUID> proximaLivre(UUID patioId) {
+        garantirPronto();
+        OcupacaoPatio patio = patios.get(patioId);
+        if (patio == null) return Optional.empty();
+        patio.lock().lock();
+        try {
+            return Optional.ofNullable(patio.vagaNoSlot(patio.proximaLivre(Set.of())));
+        } finally {
+            patio.lock().unlock();
+        }
+    }
+
+    // reserva a próxima vaga livre para uma alocação; outras alocações concorrentes passam a pulá-la
+    public Optional<UUID> reservarProximaLivre(UUID patioId, Set<UUID> ignorar) {
+        garantirPronto();
+        OcupacaoPatio patio = patios.get(patioId);
+        if (patio == null) return Optional.empty();
+        patio.lock().lock();
+        try {
+            int slot = patio.proximaLivre(ignorar);
+            if (slot < 0) return Optional.empty();
+            patio.reservar(slot);
+            return Optional.of(patio.vagaNoSlot(slot));
+        } finally {
+            patio.lock().unlock();
+        }
+    }
+
+    public void liberarReserva(UUID patioId, UUID vagaId) {
+        OcupacaoPatio patio = patios.get(patioId);
+        if (patio == null) return;
+        patio.lock().lock();
+        try {
+            patio.liberarReserva(vagaId);
+        } finally {
+            patio.lock().unlock();
+        }
+    }
+
+    public boolean isPronto() {
+        return pronto;
+    }
+
+    private void garantirPronto() {
+        if (pronto) return;
+        synchronized (this) {
+            if (!pronto) reconstruir();
+        }
+    }
+}
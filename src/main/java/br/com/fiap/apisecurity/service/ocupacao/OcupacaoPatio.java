@@ -0,0 +1,135 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ocupação de um pátio: cada vaga ocupa um slot fixo e cada status tem um BitSet com os slots nele.
+// Na reconstrução os slots seguem a ordem de identificação, então "próxima livre" = menor identificação livre.
+// Vaga criada/renomeada depois disso que quebraria a ordem vira "avulsa": fica num TreeSet por identificação e
+// a próxima livre é a menor entre a primeira livre em ordem e a primeira avulsa livre (a reconstrução reordena).
+// Vagas reservadas por uma alocação em andamento continuam LIVRE mas são puladas pelas demais.
+// Toda leitura/escrita passa pelo lock do pátio.
+class OcupacaoPatio {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<UUID> slots = new ArrayList<>();
+    private final List<String> identificacoes = new ArrayList<>();
+    private final Map<UUID, Integer> slotPorVaga = new HashMap<>();
+    private final EnumMap<StatusVaga, BitSet> porStatus = new EnumMap<>(StatusVaga.class);
+    private final BitSet vagos = new BitSet(); // slots liberados por remoção, reaproveitados
+    private final BitSet reservadas = new BitSet();
+    private final BitSet avulsas = new BitSet();
+    private final Comparator<Integer> porIdentificacao = Comparator
+            .comparing((Integer slot) -> identificacoes.get(slot), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Comparator.naturalOrder());
+    // comparador lê 'identificacoes': sai do conjunto antes de a identificação mudar
+    private final TreeSet<Integer> avulsasOrdenadas = new TreeSet<>(porIdentificacao);
+    private int ultimaEmOrdem = -1;
+
+    OcupacaoPatio() {
+        for (StatusVaga s : StatusVaga.values()) porStatus.put(s, new BitSet());
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    // chamado com o lock adquirido
+    void aplicar(UUID vagaId, String identificacao, StatusVaga status) {
+        Integer slot = slotPorVaga.get(vagaId);
+        if (slot == null) {
+            int livre = vagos.nextSetBit(0);
+            if (livre >= 0) {
+                // slot do meio: a posição não diz nada sobre a identificação
+                vagos.clear(livre);
+                slots.set(livre, vagaId);
+                identificacoes.set(livre, identificacao);
+                slot = livre;
+                tornarAvulsa(slot);
+            } else {
+                slot = slots.size();
+                slots.add(vagaId);
+                identificacoes.add(identificacao);
+                // a reconstrução chega ordenada e cai sempre aqui
+                if (ultimaEmOrdem < 0 || porIdentificacao.compare(ultimaEmOrdem, slot) <= 0) ultimaEmOrdem = slot;
+                else tornarAvulsa(slot);
+            }
+            slotPorVaga.put(vagaId, slot);
+        } else if (!Objects.equals(identificacoes.get(slot), identificacao)) {
+            avulsasOrdenadas.remove(slot);
+            identificacoes.set(slot, identificacao);
+            tornarAvulsa(slot);
+        }
+        for (Map.Entry<StatusVaga, BitSet> e : porStatus.entrySet()) {
+            e.getValue().set(slot, e.getKey() == status);
+        }
+    }
+
+    // chamado com o lock adquirido
+    void remover(UUID vagaId) {
+        Integer slot = slotPorVaga.remove(vagaId);
+        if (slot == null) return;
+        for (BitSet bits : porStatus.values()) bits.clear(slot);
+        reservadas.clear(slot);
+        if (avulsas.get(slot)) {
+            avulsasOrdenadas.remove(slot);
+            avulsas.clear(slot);
+        }
+        slots.set(slot, null);
+        identificacoes.set(slot, null);
+        vagos.set(slot);
+    }
+
+    int total() {
+        return slotPorVaga.size();
+    }
+
+    int quantidade(StatusVaga status) {
+        return porStatus.get(status).cardinality();
+    }
+
+    // vaga livre de menor identificação, não reservada e fora de 'ignorar'; -1 quando não há
+    int proximaLivre(Set<UUID> ignorar) {
+        BitSet livres = porStatus.get(StatusVaga.LIVRE);
+        int emOrdem = -1;
+        for (int slot = livres.nextSetBit(0); slot >= 0; slot = livres.nextSetBit(slot + 1)) {
+            if (!avulsas.get(slot) && disponivel(slot, ignorar)) {
+                emOrdem = slot;
+                break;
+            }
+        }
+        for (int slot : avulsasOrdenadas) {
+            if (emOrdem >= 0 && porIdentificacao.compare(emOrdem, slot) < 0) break;
+            if (livres.get(slot) && disponivel(slot, ignorar)) return slot;
+        }
+        return emOrdem;
+    }
+
+    private boolean disponivel(int slot, Set<UUID> ignorar) {
+        return !reservadas.get(slot) && !ignorar.contains(slots.get(slot));
+    }
+
+    private void tornarAvulsa(int slot) {
+        avulsas.set(slot);
+        avulsasOrdenadas.add(slot);
+    }
+
+    void reservar(int slot) {
+        reservadas.set(slot);
+    }
+
+    void liberarReserva(UUID vagaId) {
+        Integer slot = slotPorVaga.get(vagaId);
+        if (slot != null) reservadas.clear(slot);
+    }
+
+    UUID vagaNoSlot(int slot) {
+        return slot >= 0 ? slots.get(slot) : null;
+    }
+
+    String identificacaoNoSlot(int slot) {
+        return slot >= 0 ? identificacoes.get(slot) : null;
+    }
+}
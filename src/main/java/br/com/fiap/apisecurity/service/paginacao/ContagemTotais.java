@@ -0,0 +1,62 @@
+package br.com.fiap.apisecurity.service.paginacao;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Totais aproximados das listagens (?withTotal=approx): o COUNT roda no máximo uma vez por escopo
+// dentro da janela do cache "totais" (app.cache.specs.totais, expireAfterWrite = defasagem máxima).
+// Escritas não invalidam esse cache de propósito: o total pode ficar defasado até a entrada expirar.
+@Component
+public class ContagemTotais {
+
+    private final MotoRepository motoRepository;
+    private final VagaRepository vagaRepository;
+    private final RegistroRepository registroRepository;
+    private final Authz authz;
+
+    public ContagemTotais(MotoRepository motoRepository,
+                          VagaRepository vagaRepository,
+                          RegistroRepository registroRepository,
+                          Authz authz) {
+        this.motoRepository = motoRepository;
+        this.vagaRepository = vagaRepository;
+        this.registroRepository = registroRepository;
+        this.authz = authz;
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "totais", key = "@authz.escopoCache() + ':motos'")
+    public long motos() {
+        if (authz.isAdmin()) return motoRepository.count();
+        return motoRepository.countByPatioId(authz.currentUserPatioIdOrThrow());
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "totais", key = "@authz.escopoCache() + ':vagas'")
+    public long vagas() {
+        if (authz.isAdmin()) return vagaRepository.count();
+        return vagaRepository.countByPatio_Id(authz.currentUserPatioIdOrThrow());
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = "totais", key = "'registros'")
+    public long registros() {
+        return registroRepository.count();
+    }
+
+    // Page sobre uma fatia já buscada; o total nunca fica abaixo do que a própria fatia prova existir
+    public static <T> Page<T> comTotal(Slice<T> fatia, long totalAproximado) {
+        long minimo = fatia.getPageable().isPaged()
+                ? fatia.getPageable().getOffset() + fatia.getNumberOfElements() + (fatia.hasNext() ? 1 : 0)
+                : fatia.getNumberOfElements();
+        return new PageImpl<>(fatia.getContent(), fatia.getPageable(), Math.max(totalAproximado, minimo));
+    }
+}
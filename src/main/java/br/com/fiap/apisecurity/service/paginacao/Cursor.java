@@ -0,0 +1,65 @@
+package br.com.fiap.apisecurity.service.paginacao;
+
+import br.com.fiap.apisecurity.dto.CursorPage;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Cursor opaco da paginação keyset: base64url de "<valor da ordenação>\n<id>" do último item entregue.
+// As consultas usam "chave >= :valor and (chave > :valor or id > :id)" (ou o inverso na ordem desc),
+// que o Oracle resolve com range scan no índice, em vez de OFFSET + COUNT(*).
+public final class Cursor {
+
+    public static final int TAMANHO_PADRAO = 20;
+    public static final int TAMANHO_MAXIMO = 200;
+
+    // cursor inicial das ordens ascendentes: nenhuma placa/identificação começa abaixo do espaço
+    // ('' não serve: no Oracle string vazia é NULL)
+    public static final Chave INICIO_ASC = new Chave(" ", new UUID(0L, 0L));
+
+    // cursor inicial quando a chave pode ser NULL: as linhas sem valor vêm num segmento à frente, por id
+    public static final Chave INICIO_NULOS = new Chave(null, new UUID(0L, 0L));
+
+    private Cursor() {}
+
+    public record Chave(String valor, UUID id) {}
+
+    // valor NULL vai como vazio e volta como null
+    public static String codificar(String valor, UUID id) {
+        String bruto = (valor == null ? "" : valor) + "\n" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null/vazio => primeira página (cursor inicial informado)
+    public static Chave decodificar(String token, Chave inicio) {
+        if (token == null || token.isBlank()) return inicio;
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = bruto.lastIndexOf('\n');
+            String valor = bruto.substring(0, sep);
+            return new Chave(valor.isEmpty() ? null : valor, UUID.fromString(bruto.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+    }
+
+    public static int tamanho(Integer pedido) {
+        if (pedido == null || pedido <= 0) return TAMANHO_PADRAO;
+        return Math.min(pedido, TAMANHO_MAXIMO);
+    }
+
+    // busca um item a mais para saber se existe próxima página sem precisar de COUNT
+    public static Limit limite(int tamanho) {
+        return Limit.of(tamanho + 1);
+    }
+
+    public static <T> CursorPage<T> pagina(List<T> linhas, int tamanho, Function<T, String> cursorDe) {
+        if (linhas.size() <= tamanho) return new CursorPage<>(linhas, null, tamanho);
+        List<T> conteudo = linhas.subList(0, tamanho);
+        return new CursorPage<>(List.copyOf(conteudo), cursorDe.apply(conteudo.get(tamanho - 1)), tamanho);
+    }
+}
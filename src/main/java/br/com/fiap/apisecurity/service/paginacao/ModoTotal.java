@@ -0,0 +1,19 @@
+package br.com.fiap.apisecurity.service.paginacao;
+
+// Parâmetro ?withTotal= das listagens paginadas:
+// true (padrão) = Page com COUNT exato; false = Slice sem COUNT; approx = Page com total em cache (pode estar defasado)
+public enum ModoTotal {
+    EXATO, SEM_TOTAL, APROXIMADO;
+
+    // cabeçalho das respostas cujo total veio do cache de totais
+    public static final String HEADER_APROXIMADO = "X-Total-Aproximado";
+
+    public static ModoTotal de(String valor) {
+        if (valor == null) return EXATO;
+        return switch (valor.trim().toLowerCase()) {
+            case "false" -> SEM_TOTAL;
+            case "approx", "aproximado" -> APROXIMADO;
+            default -> EXATO;
+        };
+    }
+}
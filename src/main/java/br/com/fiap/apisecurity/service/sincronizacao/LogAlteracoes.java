@@ -0,0 +1,105 @@
+package br.com.fiap.apisecurity.service.sincronizacao;
+
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.Alteracao;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
+import br.com.fiap.apisecurity.repository.AlteracaoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Escrita do log de alterações (tb_alteracao) que alimenta a sincronização incremental.
+// Os serviços registram o que mudou durante a transação; as linhas só são gravadas no beforeCommit, na mesma
+// transação: rollback não deixa rastro, e o id da sequência sai logo antes do commit, então a ordem dos ids
+// acompanha a ordem em que as alterações ficam visíveis (o Sincronizador ainda guarda uma margem para isso).
+@Component
+public class LogAlteracoes {
+
+    private static final Logger log = LoggerFactory.getLogger(LogAlteracoes.class);
+
+    private final AlteracaoRepository repository;
+    private final TransactionTemplate transacao;
+    private final int retencaoDias;
+
+    public LogAlteracoes(AlteracaoRepository repository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.sync.retencao-dias:7}") int retencaoDias) {
+        this.repository = repository;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.retencaoDias = retencaoDias;
+    }
+
+    // uma linha por pátio informado (o de antes e o de depois); sem pátio, uma linha que só o ADMIN vê
+    public void registrar(EntidadeSincronizada entidade, UUID id, UUID... patioIds) {
+        if (id == null) return;
+        Set<Chave> chaves = new LinkedHashSet<>();
+        for (UUID patioId : patioIds) if (patioId != null) chaves.add(new Chave(entidade, id, patioId));
+        if (chaves.isEmpty()) chaves.add(new Chave(entidade, id, null));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            gravar(chaves);
+            return;
+        }
+        Pendentes pendentes = (Pendentes) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            pendentes = new Pendentes();
+            TransactionSynchronizationManager.bindResource(this, pendentes);
+            TransactionSynchronizationManager.registerSynchronization(pendentes);
+        }
+        pendentes.chaves.addAll(chaves);
+    }
+
+    // vaga criada/alterada/removida, em qualquer fluxo (ainda dentro da transação); a moto dela vai junto de pátio
+    @EventListener
+    public void aoAlterarVaga(VagaAlteradaEvent evento) {
+        registrar(EntidadeSincronizada.VAGA, evento.vagaId(), evento.patioId(), evento.patioAnteriorId());
+        registrar(EntidadeSincronizada.MOTO, evento.motoId(), evento.patioId(), evento.patioAnteriorId());
+    }
+
+    // tokens mais velhos que a retenção caem no retrato completo (Sincronizador), então o log pode encolher
+    @Scheduled(cron = "${app.sync.expurgo-cron:0 0 5 * * *}")
+    public void expurgar() {
+        LocalDateTime limite = LocalDate.now().minusDays(retencaoDias).atStartOfDay();
+        Integer n = transacao.execute(status -> repository.removerAntigas(limite));
+        if (n != null && n > 0) log.info("Expurgadas {} alterações anteriores a {}", n, limite);
+    }
+
+    public int getRetencaoDias() {
+        return retencaoDias;
+    }
+
+    private void gravar(Collection<Chave> chaves) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<Alteracao> linhas = new ArrayList<>(chaves.size());
+        for (Chave c : chaves) linhas.add(new Alteracao(c.entidade(), c.id(), c.patioId(), agora));
+        repository.saveAll(linhas);
+    }
+
+    private record Chave(EntidadeSincronizada entidade, UUID id, UUID patioId) {}
+
+    // alterações da transação corrente, já sem repetição (a mesma moto mexida várias vezes vira uma linha)
+    private final class Pendentes implements TransactionSynchronization {
+        final Set<Chave> chaves = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!chaves.isEmpty()) gravar(chaves);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LogAlteracoes.this);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package br.com.fiap.apisecurity.service.sincronizacao;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.LeitorDTO;
+import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.SincronizacaoDTO;
+import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.model.Alteracao;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
+import br.com.fiap.apisecurity.repository.AlteracaoRepository;
+import br.com.fiap.apisecurity.repository.LeitorRepository;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+// Sincronização incremental dos coletores (GET /api/sync): motos, vagas e leitores alterados no escopo desde o
+// token do cliente, lidos do log (tb_alteracao) e devolvidos com o estado atual; o que sumiu do escopo vai
+// nos removidos. Sem token, token de outro escopo ou mais velho que a retenção do log: retrato completo.
+//
+// Token: <último id entregue>.<instante coberto>.<escopo>, em base 36. Linhas mais novas que a margem não
+// avançam o token (uma transação com id menor pode ainda não ter commitado); voltam na chamada seguinte.
+@Component
+public class Sincronizador {
+
+    private static final int LIMITE_IN = 1000;
+
+    private final AlteracaoRepository alteracaoRepository;
+    private final MotoRepository motoRepository;
+    private final VagaRepository vagaRepository;
+    private final LeitorRepository leitorRepository;
+    private final LogAlteracoes logAlteracoes;
+    private final Authz authz;
+    private final int limitePadrao;
+    private final int limiteMaximo;
+    private final long margemMs;
+
+    public Sincronizador(AlteracaoRepository alteracaoRepository,
+                         MotoRepository motoRepository,
+                         VagaRepository vagaRepository,
+                         LeitorRepository leitorRepository,
+                         LogAlteracoes logAlteracoes,
+                         Authz authz,
+                         @Value("${app.sync.limite:1000}") int limitePadrao,
+                         @Value("${app.sync.limite-max:5000}") int limiteMaximo,
+                         @Value("${app.sync.margem-ms:5000}") long margemMs) {
+        this.alteracaoRepository = alteracaoRepository;
+        this.motoRepository = motoRepository;
+        this.vagaRepository = vagaRepository;
+        this.leitorRepository = leitorRepository;
+        this.logAlteracoes = logAlteracoes;
+        this.authz = authz;
+        this.limitePadrao = limitePadrao;
+        this.limiteMaximo = limiteMaximo;
+        this.margemMs = margemMs;
+    }
+
+    // patioId: ADMIN escolhe (sem ele, todos os pátios); operador só o próprio, que já é o padrão
+    @Transactional(readOnly = true)
+    public SincronizacaoDTO sincronizar(String since, UUID patioId, Integer limite) {
+        UUID escopo = escopo(patioId);
+        int n = limite == null ? limitePadrao : Math.max(1, Math.min(limite, limiteMaximo));
+        LocalDateTime assentado = LocalDateTime.now().minusNanos(margemMs * 1_000_000);
+
+        Token token = Token.ler(since, escopo);
+        LocalDateTime corte = LocalDate.now().minusDays(logAlteracoes.getRetencaoDias()).atStartOfDay();
+        if (token == null || token.coberto().minusNanos(margemMs * 1_000_000).isBefore(corte)) {
+            return completo(escopo, assentado);
+        }
+
+        List<Alteracao> linhas = escopo == null
+                ? alteracaoRepository.findApos(token.id(), Limit.of(n + 1))
+                : alteracaoRepository.findByPatioIdApos(escopo, token.id(), Limit.of(n + 1));
+        boolean temMais = linhas.size() > n;
+        if (temMais) linhas = linhas.subList(0, n);
+
+        long proximo = token.id();
+        LocalDateTime coberto = assentado;
+        boolean recente = false;
+        Map<EntidadeSincronizada, Set<UUID>> ids = new EnumMap<>(EntidadeSincronizada.class);
+        for (Alteracao a : linhas) {
+            ids.computeIfAbsent(a.getEntidade(), e -> new LinkedHashSet<>()).add(a.getEntidadeId());
+            // as recentes já vão agora, mas o token para antes delas e elas se repetem na próxima chamada
+            recente |= a.getRegistradoEm().isAfter(assentado);
+            if (!recente) {
+                proximo = a.getId();
+                coberto = a.getRegistradoEm();
+            }
+        }
+        // com o token parado, temMais faria o cliente repetir na hora a mesma página
+        if (recente) temMais = false;
+        // tudo o que já assentou foi entregue: o token cobre até a margem
+        if (!temMais) coberto = assentado;
+
+        SincronizacaoDTO dto = new SincronizacaoDTO();
+        dto.setTemMais(temMais);
+        dto.setToken(new Token(proximo, coberto, escopo).texto());
+
+        Set<UUID> motoIds = ids.getOrDefault(EntidadeSincronizada.MOTO, Set.of());
+        dto.setMotos(buscar(new ArrayList<>(motoIds), fatia -> escopo == null
+                ? motoRepository.findDtosByIds(fatia)
+                : motoRepository.findDtosByPatioIdAndIds(escopo, fatia)));
+        dto.setMotosRemovidas(removidos(motoIds, dto.getMotos(), MotoDTO::getId));
+
+        Set<UUID> vagaIds = ids.getOrDefault(EntidadeSincronizada.VAGA, Set.of());
+        dto.setVagas(buscar(new ArrayList<>(vagaIds), vagaRepository::findDtosByIds).stream()
+                .filter(v -> escopo == null || escopo.equals(v.getPatioId())).toList());
+        dto.setVagasRemovidas(removidos(vagaIds, dto.getVagas(), VagaDTO::getId));
+
+        Set<UUID> leitorIds = ids.getOrDefault(EntidadeSincronizada.LEITOR, Set.of());
+        dto.setLeitores(buscar(new ArrayList<>(leitorIds), leitorRepository::findDtosByIds).stream()
+                .filter(l -> escopo == null || escopo.equals(l.getPatioId())).toList());
+        dto.setLeitoresRemovidos(removidos(leitorIds, dto.getLeitores(), LeitorDTO::getId));
+        return dto;
+    }
+
+    private UUID escopo(UUID patioId) {
+        if (authz.isAdmin()) return patioId;
+        UUID userPatio = authz.currentUserPatioIdOrThrow();
+        if (patioId != null && !userPatio.equals(patioId)) {
+            throw new SecurityException("Operador só pode sincronizar o próprio pátio.");
+        }
+        return userPatio;
+    }
+
+    // o token é lido antes das listas: o que mudar durante a leitura volta no próximo delta
+    private SincronizacaoDTO completo(UUID escopo, LocalDateTime assentado) {
+        List<Long> ultimo = alteracaoRepository.findUltimoIdAte(assentado, Limit.of(1));
+        SincronizacaoDTO dto = new SincronizacaoDTO();
+        dto.setCompleto(true);
+        dto.setToken(new Token(ultimo.isEmpty() ? 0 : ultimo.get(0), assentado, escopo).texto());
+        if (escopo == null) {
+            dto.setMotos(motoRepository.findDtos());
+            dto.setVagas(vagaRepository.findDtos());
+            dto.setLeitores(leitorRepository.findDtos());
+        } else {
+            dto.setMotos(motoRepository.findDtosByPatioId(escopo));
+            dto.setVagas(vagaRepository.findDtosByPatioId(escopo));
+            dto.setLeitores(leitorRepository.findDtosByPatioId(escopo));
+        }
+        return dto;
+    }
+
+    private static <T> List<T> buscar(List<UUID> ids, Function<List<UUID>, List<T>> consulta) {
+        List<T> encontrados = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i += LIMITE_IN) {
+            encontrados.addAll(consulta.apply(ids.subList(i, Math.min(ids.size(), i + LIMITE_IN))));
+        }
+        return encontrados;
+    }
+
+    private static <T> List<UUID> removidos(Set<UUID> alterados, List<T> encontrados, Function<T, UUID> id) {
+        Set<UUID> presentes = new HashSet<>();
+        for (T t : encontrados) presentes.add(id.apply(t));
+        return alterados.stream().filter(a -> !presentes.contains(a)).toList();
+    }
+
+    record Token(long id, LocalDateTime coberto, UUID escopo) {
+
+        String texto() {
+            long segundos = coberto.atZone(ZoneId.systemDefault()).toEpochSecond();
+            return Long.toString(id, 36) + "." + Long.toString(segundos, 36) + "." + crc(escopo);
+        }
+
+        // null quando ausente, ilegível ou de outro escopo (ex.: operador trocado de pátio)
+        static Token ler(String texto, UUID escopo) {
+            if (texto == null || texto.isBlank()) return null;
+            String[] partes = texto.trim().split("\\.");
+            if (partes.length != 3 || !partes[2].equals(crc(escopo))) return null;
+            try {
+                long id = Long.parseLong(partes[0], 36);
+                long segundos = Long.parseLong(partes[1], 36);
+                if (id < 0) return null;
+                LocalDateTime coberto = LocalDateTime.ofInstant(Instant.ofEpochSecond(segundos), ZoneId.systemDefault());
+                return new Token(id, coberto, escopo);
+            } catch (NumberFormatException | java.time.DateTimeException e) {
+                return null;
+            }
+        }
+
+        private static String crc(UUID escopo) {
+            CRC32 crc = new CRC32();
+            crc.update((escopo == null ? "*" : escopo.toString()).getBytes(StandardCharsets.UTF_8));
+            return Long.toString(crc.getValue(), 36);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.fiap.apisecurity.service.usuario;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.io.IOException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -18,10 +19,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwt;
     private final UserDetailsService uds;
+    private final TokenRevogacaoService revogacao;
 
-    public JwtAuthFilter(JwtService jwt, UserDetailsService uds) {
+    public JwtAuthFilter(JwtService jwt, UserDetailsService uds, TokenRevogacaoService revogacao) {
         this.jwt = jwt;
         this.uds = uds;
+        this.revogacao = revogacao;
     }
 
     @Override
@@ -36,16 +39,19 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String header = req.getHeader("Authorization");
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            String email = null;
-            try { email = jwt.extractSubject(token); } catch (Exception ignored) {}
+            Claims claims = null;
+            try { claims = jwt.parse(token); } catch (Exception ignored) {}
 
-            if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails user = uds.loadUserByUsername(email);
-                if (jwt.isValid(token, user)) {
-                    var auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                }
+            if (claims != null && claims.getSubject() != null
+                    && SecurityContextHolder.getContext().getAuthentication() == null
+                    && !revogacao.isRevogado(claims.getSubject(), jwt.emitidoEm(claims))) {
+                // tokens antigos (sem cargo/pátio nas claims) ainda caem na consulta ao usuário
+                UserDetails user = jwt.hasUsuarioClaims(claims)
+                        ? jwt.toPrincipal(claims)
+                        : uds.loadUserByUsername(claims.getSubject());
+                var auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
+                SecurityContextHolder.getContext().setAuthentication(auth);
             }
         }
         chain.doFilter(req, res);
@@ -1,10 +1,15 @@
 package br.com.fiap.apisecurity.service.usuario;
 
+import br.com.fiap.apisecurity.model.enums.CargoUsuario;
+import br.com.fiap.apisecurity.model.usuarios.Usuario;
+import br.com.fiap.apisecurity.security.UsuarioAutenticado;
+import br.com.fiap.apisecurity.security.UsuarioPrincipal;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
@@ -13,11 +18,20 @@ import java.time.temporal.ChronoUnit;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @ConditionalOnProperty(name = "app.jwt.secret")
 public class JwtService {
 
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_USUARIO_ID = "uid";
+    private static final String CLAIM_CARGO = "cargo";
+    private static final String CLAIM_PATIO_ID = "patioId";
+    // "iat" só tem segundos: a revogação compara com o instante de emissão em milissegundos
+    private static final String CLAIM_EMITIDO_MS = "emitidoMs";
+
     private final SecretKey key;
     private final long expMinutes;
 
@@ -31,13 +45,65 @@ public class JwtService {
         Instant now = Instant.now();
         return Jwts.builder()
                 .subject(subject) // email
-                .claim("roles", roles.stream().map(GrantedAuthority::getAuthority).toList())
+                .claim(CLAIM_ROLES, roles.stream().map(GrantedAuthority::getAuthority).toList())
+                .claim(CLAIM_EMITIDO_MS, now.toEpochMilli())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(now.plus(expMinutes, ChronoUnit.MINUTES)))
                 .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
+    // Embute id, cargo e pátio para o filtro montar a autenticação sem consultar o usuário
+    public String generate(Usuario usuario, Collection<? extends GrantedAuthority> roles) {
+        Instant now = Instant.now();
+        var builder = Jwts.builder()
+                .subject(usuario.getEmail())
+                .claim(CLAIM_ROLES, roles.stream().map(GrantedAuthority::getAuthority).toList())
+                .claim(CLAIM_USUARIO_ID, usuario.getId().toString())
+                .claim(CLAIM_CARGO, usuario.getCargo().name())
+                .claim(CLAIM_EMITIDO_MS, now.toEpochMilli());
+        if (usuario.getPatio() != null) {
+            builder.claim(CLAIM_PATIO_ID, usuario.getPatio().getId().toString());
+        }
+        return builder
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(expMinutes, ChronoUnit.MINUTES)))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    // Verifica assinatura e expiração uma única vez; lança JwtException se o token for inválido
+    public Claims parse(String token) {
+        return Jwts.parser().verifyWith(key).build()
+                .parseSignedClaims(token).getPayload();
+    }
+
+    // tokens sem a claim em milissegundos caem no "iat" (segundos)
+    public Instant emitidoEm(Claims claims) {
+        Number ms = claims.get(CLAIM_EMITIDO_MS, Number.class);
+        if (ms != null) return Instant.ofEpochMilli(ms.longValue());
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+    }
+
+    public boolean hasUsuarioClaims(Claims claims) {
+        return claims.get(CLAIM_USUARIO_ID) != null && claims.get(CLAIM_CARGO) != null;
+    }
+
+    public UsuarioPrincipal toPrincipal(Claims claims) {
+        String patioId = claims.get(CLAIM_PATIO_ID, String.class);
+        var usuario = new UsuarioAutenticado(
+                UUID.fromString(claims.get(CLAIM_USUARIO_ID, String.class)),
+                claims.getSubject(),
+                CargoUsuario.valueOf(claims.get(CLAIM_CARGO, String.class)),
+                patioId != null ? UUID.fromString(patioId) : null
+        );
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        var authorities = roles == null
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + usuario.cargo().name()))
+                : roles.stream().map(r -> new SimpleGrantedAuthority(String.valueOf(r))).toList();
+        return new UsuarioPrincipal(usuario, authorities);
+    }
+
     public String extractSubject(String token) {
         return Jwts.parser().verifyWith(key).build()
                 .parseSignedClaims(token).getPayload().getSubject();
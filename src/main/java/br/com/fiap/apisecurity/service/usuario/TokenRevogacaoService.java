@@ -0,0 +1,50 @@
+package br.com.fiap.apisecurity.service.usuario;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Denylist em memória: tokens emitidos até o instante da revogação de um usuário deixam de valer (mesmo milissegundo
+// incluído; um login logo depois da troca de senha recebe token novo, emitido depois).
+// Cada entrada só precisa viver o tempo de vida de um token (app.jwt.exp-min).
+@Service
+public class TokenRevogacaoService {
+
+    private final Map<String, Instant> revogadosEm = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public TokenRevogacaoService(@Value("${app.jwt.exp-min:120}") long expMinutes) {
+        this.ttl = Duration.ofMinutes(expMinutes);
+    }
+
+    public void revogarTokensDe(String email) {
+        if (email == null) return;
+        revogadosEm.put(normalizar(email), Instant.now());
+        limparExpirados();
+    }
+
+    public boolean isRevogado(String email, Instant emitidoEm) {
+        if (revogadosEm.isEmpty() || email == null) return false;
+        Instant revogadoEm = revogadosEm.get(normalizar(email));
+        if (revogadoEm == null) return false;
+        if (revogadoEm.plus(ttl).isBefore(Instant.now())) {
+            revogadosEm.remove(normalizar(email), revogadoEm);
+            return false;
+        }
+        return emitidoEm == null || !emitidoEm.isAfter(revogadoEm);
+    }
+
+    private void limparExpirados() {
+        Instant limite = Instant.now().minus(ttl);
+        revogadosEm.values().removeIf(revogadoEm -> revogadoEm.isBefore(limite));
+    }
+
+    private static String normalizar(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
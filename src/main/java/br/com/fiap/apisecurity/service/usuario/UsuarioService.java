@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -25,15 +26,18 @@ public class UsuarioService {
     private final PasswordEncoder encoder;
     private final PatioService patioService;
     private final Authz authz;
+    private final TokenRevogacaoService tokenRevogacao;
 
     public UsuarioService(UsuarioRepository repo,
                           PasswordEncoder encoder,
                           PatioService patioService,
-                          Authz authz) {
+                          Authz authz,
+                          TokenRevogacaoService tokenRevogacao) {
         this.repo = repo;
         this.encoder = encoder;
         this.patioService = patioService;
         this.authz = authz;
+        this.tokenRevogacao = tokenRevogacao;
     }
 
     @Transactional
@@ -94,6 +98,35 @@ public class UsuarioService {
     }
 
 
+    // E-mail, cargo e pátio vão nas claims do JWT (a senha não: é a credencial que emitiu os tokens). Mudou
+    // qualquer um deles, ou a senha, os tokens já emitidos deixam de valer (revogação pelo e-mail anterior).
+    @Transactional
+    public Usuario atualizarPerfil(Usuario usuario, String novoEmail, String novaSenha, CargoUsuario novoCargo) {
+        String emailAnterior = usuario.getEmail();
+        UUID patioAnterior = usuario.getPatio() != null ? usuario.getPatio().getId() : null;
+        CargoUsuario cargoAnterior = usuario.getCargo();
+        boolean senhaMudou = false;
+
+        if (novoEmail != null && !novoEmail.isBlank()) {
+            usuario.setEmail(novoEmail.trim().toLowerCase(Locale.ROOT));
+        }
+        if (novaSenha != null && !novaSenha.isBlank()) {
+            usuario.setSenha(encoder.encode(novaSenha));
+            senhaMudou = true;
+        }
+        if (novoCargo != null) {
+            usuario.setCargo(novoCargo);
+        }
+
+        Usuario salvo = repo.save(usuario);
+        UUID patioAtual = salvo.getPatio() != null ? salvo.getPatio().getId() : null;
+        if (senhaMudou || !Objects.equals(emailAnterior, salvo.getEmail()) || cargoAnterior != salvo.getCargo()
+                || !Objects.equals(patioAnterior, patioAtual)) {
+            tokenRevogacao.revogarTokensDe(emailAnterior);
+        }
+        return salvo;
+    }
+
     public Usuario requireByEmail(String email) {
         return repo.findByEmail(email.trim().toLowerCase(Locale.ROOT))
                 .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado"));
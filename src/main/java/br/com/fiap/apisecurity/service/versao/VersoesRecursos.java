@@ -0,0 +1,110 @@
+package br.com.fiap.apisecurity.service.versao;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Contadores de versão por recurso e pátio, para GET condicional (ETag / If-None-Match -> 304).
+// O escopo do usuário escolhe o contador: ADMIN usa o geral do recurso (muda com qualquer pátio), operador o do
+// seu pátio. A ETag junta esse contador, a época da subida e a URL pedida, então o 304 sai sem banco e sem DTO.
+// Os contadores só avançam depois do commit: quem leu a versão antes de consultar nunca marca dado velho com
+// versão nova. Em memória, como os demais índices: vale para uma instância.
+@Component
+public class VersoesRecursos {
+
+    public enum Recurso { MOTOS, VAGAS, PATIOS, LEITORES }
+
+    private final Authz authz;
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Recurso, Versoes> versoes = new EnumMap<>(Recurso.class);
+
+    public VersoesRecursos(Authz authz) {
+        this.authz = authz;
+        for (Recurso r : Recurso.values()) versoes.put(r, new Versoes());
+    }
+
+    // patioIds nulos são ignorados: o que não tem pátio só aparece para o ADMIN, que usa o contador geral
+    public void alterou(Recurso recurso, UUID... patioIds) {
+        Set<UUID> patios = new HashSet<>();
+        for (UUID id : patioIds) if (id != null) patios.add(id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            avancar(recurso, patios);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                avancar(recurso, patios);
+            }
+        });
+    }
+
+    // vaga criada/alterada/removida (já depois do commit); a moto dela muda de pátio junto
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarVaga(VagaAlteradaEvent evento) {
+        Set<UUID> patios = new HashSet<>();
+        if (evento.patioId() != null) patios.add(evento.patioId());
+        if (evento.patioAnteriorId() != null) patios.add(evento.patioAnteriorId());
+        avancar(Recurso.VAGAS, patios);
+        if (evento.motoId() != null && !Objects.equals(evento.patioId(), evento.patioAnteriorId())) {
+            avancar(Recurso.MOTOS, patios);
+        }
+    }
+
+    public long versao(Recurso recurso, UUID patioId) {
+        Versoes v = versoes.get(recurso);
+        if (patioId == null) return v.geral.get();
+        AtomicLong p = v.porPatio.get(patioId);
+        return p == null ? 0 : p.get();
+    }
+
+    // ETag forte da resposta que a requisição produziria agora: recurso, escopo, versão e URL (path + query)
+    public String etag(Recurso recurso, WebRequest request) {
+        String escopo = authz.escopoCache();
+        UUID patioId = escopo.startsWith("P:") ? UUID.fromString(escopo.substring(2)) : null;
+        long versao = versao(recurso, patioId);
+
+        CRC32 crc = new CRC32();
+        crc.update(escopo.getBytes(StandardCharsets.UTF_8));
+        crc.update(request.getDescription(false).getBytes(StandardCharsets.UTF_8));
+        String query = request instanceof ServletWebRequest s
+                ? s.getRequest().getQueryString() : null;
+        if (query != null) crc.update(query.getBytes(StandardCharsets.UTF_8));
+
+        return "\"" + recurso.name().toLowerCase(Locale.ROOT) + "-" + epoca + "-" + versao + "-"
+                + Long.toString(crc.getValue(), 36) + "\"";
+    }
+
+    // true quando o If-None-Match bate: a resposta já saiu como 304 (o handler devolve null).
+    // Troca o no-store padrão do Spring Security: o cliente guarda o corpo e sempre revalida com a ETag.
+    public boolean naoModificado(Recurso recurso, WebRequest request) {
+        if (request instanceof ServletWebRequest s && s.getResponse() != null) {
+            s.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        }
+        return request.checkNotModified(etag(recurso, request));
+    }
+
+    private void avancar(Recurso recurso, Set<UUID> patios) {
+        Versoes v = versoes.get(recurso);
+        for (UUID id : patios) v.porPatio.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet();
+        v.geral.incrementAndGet();
+    }
+
+    private static final class Versoes {
+        final AtomicLong geral = new AtomicLong();
+        final Map<UUID, AtomicLong> porPatio = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,40 @@
+-- =====================================================================
+-- Particionamento mensal do histórico de registros (Oracle 12.2+)
+-- A aplicação roda com ddl-auto=update, então este script NÃO é aplicado sozinho:
+-- executar uma vez pelo DBA, depois que o Hibernate já criou tb_registro e tb_registro_arquivo.
+-- =====================================================================
+
+-- 1) Camada quente: partição por intervalo mensal em DATA_HORA, conversão online (a ingestão continua).
+--    Consultas por período (findDtosByPeriodo, cursor de registros) ficam restritas às partições do intervalo;
+--    os índices viram locais, então cada partição tem o seu (data_hora, id) e (moto_id, data_hora).
+ALTER TABLE tb_registro MODIFY
+    PARTITION BY RANGE (data_hora) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+    (PARTITION p_inicial VALUES LESS THAN (TIMESTAMP '2020-01-01 00:00:00'))
+    ONLINE
+    UPDATE INDEXES (ix_registro_data_hora LOCAL, ix_registro_moto_data LOCAL);
+
+-- 2) Camada fria: mesma partição mensal, comprimida. A tabela criada pelo Hibernate ainda está vazia.
+DROP TABLE tb_registro_arquivo PURGE;
+
+CREATE TABLE tb_registro_arquivo (
+    id        RAW(16)            NOT NULL,
+    moto_id   RAW(16)            NOT NULL,
+    leitor_id RAW(16)            NOT NULL,
+    tipo      VARCHAR2(255 CHAR) NOT NULL,
+    data_hora TIMESTAMP(6)       NOT NULL,
+    CONSTRAINT pk_registro_arquivo PRIMARY KEY (id)
+)
+ROW STORE COMPRESS BASIC
+PARTITION BY RANGE (data_hora) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+(PARTITION p_inicial VALUES LESS THAN (TIMESTAMP '2020-01-01 00:00:00'));
+
+CREATE INDEX ix_registro_arq_data_hora ON tb_registro_arquivo (data_hora) LOCAL COMPRESS;
+CREATE INDEX ix_registro_arq_moto_data ON tb_registro_arquivo (moto_id, data_hora) LOCAL COMPRESS 1;
+
+-- =====================================================================
+-- Manutenção (periódica, após o ArquivadorRegistros rodar)
+-- =====================================================================
+-- O arquivador copia e apaga mês a mês; as partições quentes esvaziadas podem ser descartadas:
+--   ALTER TABLE tb_registro DROP PARTITION FOR (TIMESTAMP '2024-01-01 00:00:00') UPDATE GLOBAL INDEXES;
+-- O INSERT ... SELECT do arquivador é convencional (não direct-path); para compactar de fato um mês arquivado:
+--   ALTER TABLE tb_registro_arquivo MOVE PARTITION FOR (TIMESTAMP '2024-01-01 00:00:00') ROW STORE COMPRESS BASIC ONLINE UPDATE INDEXES;
@@ -0,0 +1,66 @@
+package br.com.fiap.apisecurity;
+
+import br.com.fiap.apisecurity.model.Leitor;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import jakarta.persistence.EntityManager;
+
+// Massa comum dos testes com banco: cada método persiste a entidade e a devolve com id
+public final class DadosTeste {
+
+    private DadosTeste() {}
+
+    public static Patio patio(EntityManager em, String nome) {
+        Patio patio = new Patio(nome, "Rua A", "1", "Centro", "São Paulo", "SP", "Brasil");
+        em.persist(patio);
+        return patio;
+    }
+
+    public static Vaga vaga(EntityManager em, Patio patio, String identificacao) {
+        return vaga(em, patio, identificacao, StatusVaga.LIVRE);
+    }
+
+    public static Vaga vaga(EntityManager em, Patio patio, String identificacao, StatusVaga status) {
+        Vaga vaga = new Vaga();
+        vaga.setPatio(patio);
+        vaga.setIdentificacao(identificacao);
+        vaga.setStatus(status);
+        em.persist(vaga);
+        return vaga;
+    }
+
+    public static Moto moto(EntityManager em, String placa) {
+        Moto moto = new Moto(placa, StatusMoto.DISPONIVEL);
+        em.persist(moto);
+        return moto;
+    }
+
+    // moto estacionada: preenche os dois lados da relação e marca a vaga como ocupada
+    public static Moto motoNaVaga(EntityManager em, String placa, Vaga vaga) {
+        Moto moto = moto(em, placa);
+        moto.setVagaId(vaga.getId());
+        vaga.setMoto(moto);
+        vaga.setStatus(StatusVaga.OCUPADA);
+        return moto;
+    }
+
+    public static Leitor leitor(EntityManager em, TipoLeitor tipo, Patio patio, Vaga vaga) {
+        Leitor leitor = new Leitor(tipo, patio, vaga);
+        em.persist(leitor);
+        return leitor;
+    }
+
+    // para os testes que commitam de verdade (@Transactional NOT_SUPPORTED): chamar dentro de uma transação
+    public static void limpar(EntityManager em) {
+        em.createQuery("update Vaga v set v.moto = null").executeUpdate();
+        em.createQuery("delete from Leitor").executeUpdate();
+        em.createQuery("delete from Vaga").executeUpdate();
+        em.createQuery("delete from Moto").executeUpdate();
+        em.createQuery("delete from Patio").executeUpdate();
+        em.createQuery("delete from Alteracao").executeUpdate();
+    }
+}
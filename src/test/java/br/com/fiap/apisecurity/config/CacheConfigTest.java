@@ -0,0 +1,95 @@
+package br.com.fiap.apisecurity.config;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cada cache com a spec Caffeine dele (ou a padrão), estatísticas ligadas e, com maximumWeight, peso = itens guardados
+class CacheConfigTest {
+
+    private final CacheManager manager = criar(Map.of(
+            "listas", "maximumWeight=10,expireAfterWrite=5m",
+            "porId", "maximumSize=3,expireAfterAccess=30m"));
+
+    @Test
+    void cachesComSpecPropriaExistemDesdeASubida() {
+        assertEquals(Set.of("listas", "porId"), Set.copyOf(manager.getCacheNames()));
+    }
+
+    @Test
+    void cadaCacheUsaASuaSpec() {
+        Policy<?, ?> listas = nativo("listas").policy();
+        assertTrue(listas.eviction().orElseThrow().isWeighted());
+        assertEquals(10, listas.eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofMinutes(5), listas.expireAfterWrite().orElseThrow().getExpiresAfter());
+
+        Policy<?, ?> porId = nativo("porId").policy();
+        assertFalse(porId.eviction().orElseThrow().isWeighted());
+        assertEquals(3, porId.eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofMinutes(30), porId.expireAfterAccess().orElseThrow().getExpiresAfter());
+        assertTrue(porId.expireAfterWrite().isEmpty());
+    }
+
+    @Test
+    void cacheSemSpecUsaAPadrao() {
+        Policy<?, ?> outro = nativo("outro").policy();
+        assertEquals(7, outro.eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofSeconds(45), outro.expireAfterWrite().orElseThrow().getExpiresAfter());
+    }
+
+    @Test
+    void estatisticasLigadasEmTodos() {
+        Cache cache = manager.getCache("outro");
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("b");
+
+        assertEquals(1, nativo("outro").stats().hitCount());
+        assertEquals(1, nativo("outro").stats().missCount());
+    }
+
+    @Test
+    void pesoEhAQuantidadeDeItens() {
+        assertEquals(3, CacheConfig.peso("k", List.of(1, 2, 3)));
+        assertEquals(1, CacheConfig.peso("k", List.of()));
+        assertEquals(2, CacheConfig.peso("k", new SliceImpl<>(List.of("a", "b"), PageRequest.of(0, 20), true)));
+        assertEquals(1, CacheConfig.peso("k", new SliceImpl<>(List.of(), PageRequest.of(3, 20), false)));
+        assertEquals(1, CacheConfig.peso("k", "dto"));
+    }
+
+    @Test
+    void maximumWeightContaItensENaoEntradas() {
+        Cache cache = manager.getCache("listas");
+        cache.put("ADMIN:0", List.of(1, 2, 3, 4, 5, 6));
+        cache.put("ADMIN:1", List.of(1, 2, 3));
+        nativo("listas").cleanUp();
+        assertEquals(2, nativo("listas").estimatedSize());
+
+        cache.put("ADMIN:2", List.of(1, 2, 3, 4));
+        nativo("listas").cleanUp();
+
+        assertTrue(nativo("listas").policy().eviction().orElseThrow().weightedSize().orElseThrow() <= 10);
+        assertTrue(nativo("listas").estimatedSize() < 3);
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<?, ?> nativo(String nome) {
+        return (com.github.benmanes.caffeine.cache.Cache<?, ?>) manager.getCache(nome).getNativeCache();
+    }
+
+    private static CacheManager criar(Map<String, String> specs) {
+        CacheProperties props = new CacheProperties();
+        props.setPadrao("maximumSize=7,expireAfterWrite=45s");
+        props.getSpecs().putAll(specs);
+        return new CacheConfig().cacheManager(props);
+    }
+}
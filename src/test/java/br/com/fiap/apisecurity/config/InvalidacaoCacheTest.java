@@ -0,0 +1,104 @@
+package br.com.fiap.apisecurity.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// limparParticao: tira só as chaves "P:<pátio>" informadas e as do ADMIN, em qualquer tipo de cache, e só depois
+// do commit quando há transação
+class InvalidacaoCacheTest {
+
+    private final UUID patio = UUID.randomUUID();
+    private final UUID outro = UUID.randomUUID();
+    private final UUID terceiro = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void cacheRastreadoPerdeSoAParticaoEOAdmin() {
+        CacheProperties props = new CacheProperties();
+        props.getSpecs().put("vagas", "maximumWeight=1000");
+        CacheManager manager = new CacheConfig().cacheManager(props);
+        Cache cache = preencher(manager.getCache("vagas"));
+
+        new InvalidacaoCache(manager).limparParticao("vagas", patio);
+
+        assertRestantes(cache, "P:" + outro + ":0", "P:" + terceiro + ":0", "ADMINISTRACAO:0", "solta");
+    }
+
+    @Test
+    void variosPatiosENuloIgnorado() {
+        CacheManager manager = new CaffeineCacheManager("vagas");
+        Cache cache = preencher(manager.getCache("vagas"));
+
+        new InvalidacaoCache(manager).limparParticao("vagas", patio, null, terceiro);
+
+        assertRestantes(cache, "P:" + outro + ":0", "ADMINISTRACAO:0", "solta");
+    }
+
+    @Test
+    void cacheSemAcessoAsChavesEhLimpoInteiro() {
+        CacheManager manager = new ConcurrentMapCacheManager("vagas");
+        Cache cache = preencher(manager.getCache("vagas"));
+
+        new InvalidacaoCache(manager).limparParticao("vagas", patio);
+
+        assertNull(cache.get("P:" + outro + ":0"));
+        assertNull(cache.get("solta"));
+    }
+
+    @Test
+    void dentroDeTransacaoEsperaOCommit() {
+        CacheManager manager = new CaffeineCacheManager("vagas");
+        Cache cache = preencher(manager.getCache("vagas"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        new InvalidacaoCache(manager).limparParticao("vagas", patio);
+        assertNotNull(cache.get("P:" + patio + ":0"));
+        assertNotNull(cache.get("ADMIN:0"));
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertNull(cache.get("P:" + patio + ":0"));
+        assertNull(cache.get("ADMIN:0"));
+        assertNotNull(cache.get("P:" + outro + ":0"));
+    }
+
+    @Test
+    void cacheInexistenteNaoFalha() {
+        assertDoesNotThrow(() -> new InvalidacaoCache(new CaffeineCacheManager("vagas")).limparParticao("nenhum", patio));
+    }
+
+    private Cache preencher(Cache cache) {
+        cache.put("ADMIN", "todas");
+        cache.put("ADMIN:0", "admin");
+        cache.put("ADMIN:slice:1", "admin");
+        cache.put("P:" + patio + ":0", "patio");
+        cache.put("P:" + patio + ":cursor:abc", "patio");
+        cache.put("P:" + outro + ":0", "outro");
+        cache.put("P:" + terceiro + ":0", "terceiro");
+        cache.put("ADMINISTRACAO:0", "prefixo parecido");
+        cache.put("solta", "sem partição");
+        cache.put(patio, "chave não textual");
+        return cache;
+    }
+
+    private void assertRestantes(Cache cache, String... restantes) {
+        Map<?, ?> chaves = ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache()).asMap();
+        assertEquals(restantes.length + 1, chaves.size(), "restaram " + chaves.keySet());
+        for (String chave : restantes) assertTrue(chaves.containsKey(chave), chave);
+        assertTrue(chaves.containsKey(patio));
+    }
+}
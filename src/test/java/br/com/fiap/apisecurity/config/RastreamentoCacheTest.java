@@ -0,0 +1,93 @@
+package br.com.fiap.apisecurity.config;
+
+import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Índice id -> chaves acompanha o que de fato está no cache: páginas descartadas por tamanho, TTL, evict ou
+// partição não ficam nele, e ele não transborda só por tráfego normal
+class RastreamentoCacheTest {
+
+    private static final int LIMITE = 100;
+
+    private final CacheManager manager = criar(Map.of(
+            "lista", "maximumWeight=4",
+            "curta", "maximumWeight=1000,expireAfterWrite=PT0.05S"));
+    private final InvalidacaoCache invalidacao = new InvalidacaoCache(manager);
+
+    @Test
+    void paginasDescartadasPorTamanhoSaemDoIndice() {
+        RastreamentoCache cache = (RastreamentoCache) manager.getCache("lista");
+        MotoDTO fixa = moto();
+        for (int i = 0; i < 50; i++) {
+            cache.put("ADMIN:" + i, List.of(fixa, moto())); // peso 2: cabem duas páginas
+        }
+        nativo(cache).cleanUp();
+
+        long paginas = nativo(cache).estimatedSize();
+        assertTrue(paginas >= 1 && paginas <= 2);
+        assertEquals(4 * paginas, cache.tamanhoIndice(), "por página: 2 motos x (id, vaga)");
+
+        // 50 páginas x 4 pares passariam do limite (100); sem transbordo a invalidação continua dirigida
+        UUID outra = UUID.randomUUID();
+        ((RastreamentoCache) manager.getCache("curta")).put("ADMIN:0", List.of(moto()));
+        invalidacao.evictContendo("lista", fixa.getId());
+        nativo(cache).cleanUp();
+        assertEquals(0, nativo(cache).estimatedSize());
+        assertEquals(0, cache.tamanhoIndice());
+        invalidacao.evictContendo("curta", outra);
+        assertNotNull(manager.getCache("curta").get("ADMIN:0"));
+    }
+
+    @Test
+    void paginasExpiradasSaemDoIndice() throws InterruptedException {
+        RastreamentoCache cache = (RastreamentoCache) manager.getCache("curta");
+        for (int i = 0; i < 20; i++) cache.put("ADMIN:" + i, List.of(moto()));
+        assertEquals(40, cache.tamanhoIndice());
+
+        Thread.sleep(120);
+        nativo(cache).cleanUp();
+
+        assertEquals(0, cache.tamanhoIndice());
+    }
+
+    @Test
+    void evictEParticaoTiramAsChavesDoIndice() {
+        RastreamentoCache cache = (RastreamentoCache) manager.getCache("curta");
+        UUID patio = UUID.randomUUID();
+        UUID outro = UUID.randomUUID();
+        cache.put("ADMIN:0", List.of(moto()));
+        cache.put("P:" + patio + ":0", List.of(moto()));
+        cache.put("P:" + outro + ":0", List.of(moto()));
+        cache.put("P:" + outro + ":1", List.of(moto()));
+
+        cache.evict("P:" + outro + ":1");
+        assertEquals(6, cache.tamanhoIndice());
+
+        invalidacao.limparParticao("curta", patio);
+        assertEquals(2, cache.tamanhoIndice(), "só a página do outro pátio continua indexada");
+        assertNotNull(cache.get("P:" + outro + ":0"));
+    }
+
+    private static CacheManager criar(Map<String, String> specs) {
+        CacheProperties props = new CacheProperties();
+        props.getSpecs().putAll(specs);
+        props.setLimiteRastreamento(LIMITE);
+        return new CacheConfig().cacheManager(props);
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<?, ?> nativo(RastreamentoCache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+    }
+
+    private static MotoDTO moto() {
+        return new MotoDTO(UUID.randomUUID(), "ABC1234", StatusMoto.DISPONIVEL, UUID.randomUUID());
+    }
+}
@@ -0,0 +1,144 @@
+package br.com.fiap.apisecurity.controller.usuario;
+
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.CargoUsuario;
+import br.com.fiap.apisecurity.model.usuarios.Usuario;
+import br.com.fiap.apisecurity.repository.UsuarioRepository;
+import br.com.fiap.apisecurity.security.UsuarioAutenticado;
+import br.com.fiap.apisecurity.security.UsuarioPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// Usuário logado resolvido uma vez por requisição: do principal do JWT, do atributo da requisição ou do banco;
+// e a partição de cache que sai dele
+class AuthzTest {
+
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final Authz authz = new Authz(usuarioRepository);
+    private final UUID patioId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        usuario("operador@patio.com", CargoUsuario.OPERADOR_PATIO, patioId);
+        usuario("admin@patio.com", CargoUsuario.ADMIN, null);
+        usuario("avulso@patio.com", CargoUsuario.OPERADOR_PATIO, null);
+        novaRequisicao();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void mesmaRequisicaoConsultaOBancoUmaVez() {
+        logar("operador@patio.com");
+
+        authz.currentUsuarioOrThrow();
+        authz.isAdmin();
+        authz.currentUserPatioIdOrThrow();
+        authz.requireAdminOrSamePatio(patioId);
+
+        verify(usuarioRepository, times(1)).findByEmail("operador@patio.com");
+    }
+
+    @Test
+    void novaRequisicaoConsultaDeNovo() {
+        logar("operador@patio.com");
+        authz.currentUsuarioOrThrow();
+
+        novaRequisicao();
+        authz.currentUsuarioOrThrow();
+
+        verify(usuarioRepository, times(2)).findByEmail("operador@patio.com");
+    }
+
+    @Test
+    void trocaDeUsuarioNaMesmaRequisicaoNaoReaproveitaOAnterior() {
+        logar("operador@patio.com");
+        assertFalse(authz.isAdmin());
+
+        logar("admin@patio.com");
+
+        assertTrue(authz.isAdmin());
+        verify(usuarioRepository).findByEmail("admin@patio.com");
+    }
+
+    @Test
+    void principalDoJwtDispensaOBanco() {
+        UsuarioAutenticado doToken = new UsuarioAutenticado(UUID.randomUUID(), "operador@patio.com",
+                CargoUsuario.OPERADOR_PATIO, patioId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new UsuarioPrincipal(doToken, List.of()), null, List.of()));
+
+        assertSame(doToken, authz.currentUsuarioOrThrow());
+        assertEquals(patioId, authz.currentUserPatioIdOrThrow());
+        verify(usuarioRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void foraDeRequisicaoConsultaACadaChamada() {
+        RequestContextHolder.resetRequestAttributes();
+        logar("operador@patio.com");
+
+        authz.currentUsuarioOrThrow();
+        authz.currentUsuarioOrThrow();
+
+        verify(usuarioRepository, times(2)).findByEmail("operador@patio.com");
+    }
+
+    @Test
+    void escopoDoCacheSeparaAdminDeCadaPatio() {
+        logar("admin@patio.com");
+        assertEquals("ADMIN", authz.escopoCache());
+
+        logar("operador@patio.com");
+        assertEquals("P:" + patioId, authz.escopoCache());
+
+        logar("avulso@patio.com");
+        assertThrows(SecurityException.class, authz::escopoCache);
+    }
+
+    @Test
+    void semAutenticacaoRecusa() {
+        assertThrows(SecurityException.class, authz::currentUsuarioOrThrow);
+        logar("sumido@patio.com");
+        assertThrows(SecurityException.class, authz::currentUsuarioOrThrow);
+    }
+
+    private void logar(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+
+    private static void novaRequisicao() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    private void usuario(String email, CargoUsuario cargo, UUID patio) {
+        Usuario u = new Usuario();
+        u.setId(UUID.randomUUID());
+        u.setEmail(email);
+        u.setCargo(cargo);
+        if (patio != null) {
+            Patio p = new Patio();
+            p.setId(patio);
+            u.setPatio(p);
+        }
+        when(usuarioRepository.findByEmail(email)).thenReturn(Optional.of(u));
+    }
+}
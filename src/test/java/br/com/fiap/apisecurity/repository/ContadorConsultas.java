@@ -0,0 +1,42 @@
+package br.com.fiap.apisecurity.repository;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+// Conta os SQL preparados pelo Hibernate na thread (janela aberta com iniciar()).
+// Usado nos testes de plano de busca para pegar regressões de N+1; entra no contexto com @Import(ContadorConsultas.Config.class).
+public class ContadorConsultas implements StatementInspector {
+
+    private final ThreadLocal<long[]> daThread = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        daThread.get()[0]++;
+        return sql;
+    }
+
+    public void iniciar() {
+        daThread.get()[0] = 0;
+    }
+
+    public long daThread() {
+        return daThread.get()[0];
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public ContadorConsultas contadorConsultas() {
+            return new ContadorConsultas();
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer inspetorConsultas(ContadorConsultas contadorConsultas) {
+            return props -> props.put(AvailableSettings.STATEMENT_INSPECTOR, contadorConsultas);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package br.com.fiap.apisecurity.repository;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.dto.LeitorDTO;
+import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.mapper.LeitorMapper;
+import br.com.fiap.apisecurity.mapper.RegistroMapper;
+import br.com.fiap.apisecurity.mapper.VagaMapper;
+import br.com.fiap.apisecurity.model.*;
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.paginacao.Cursor;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Quantidade de SQL por caso de uso (consulta + mapeamento para DTO, como nos endpoints).
+// Com N+1 esses números cresceriam com o tamanho da massa; aqui devem ficar constantes.
+@DataJpaTest
+@Import(ContadorConsultas.Config.class)
+@ActiveProfiles("test")
+class PlanoDeBuscaTest {
+
+    private static final int QTD = 40;
+
+    @Autowired private EntityManager em;
+    @Autowired private ContadorConsultas contador;
+    @Autowired private VagaRepository vagaRepository;
+    @Autowired private LeitorRepository leitorRepository;
+    @Autowired private RegistroRepository registroRepository;
+    @Autowired private MotoRepository motoRepository;
+
+    private UUID patioId;
+    private UUID vagaId;
+    private UUID motoId;
+    private UUID leitorId;
+
+    @BeforeEach
+    void setUp() {
+        Patio patio = DadosTeste.patio(em, "Pátio Teste");
+        patioId = patio.getId();
+
+        for (int i = 0; i < QTD; i++) {
+            Vaga vaga = DadosTeste.vaga(em, patio, "A" + i);
+            vaga.setCoordenadaLat(-23.5);
+            vaga.setCoordenadaLong(-46.6);
+            Moto moto = DadosTeste.motoNaVaga(em, String.format("ABC%04d", i), vaga);
+            vagaId = vaga.getId();
+
+            Leitor leitor = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, vaga);
+            em.persist(new Registro(moto, leitor, TipoMovimentacao.ENTRADA, LocalDateTime.now()));
+            motoId = moto.getId();
+            leitorId = leitor.getId();
+        }
+        DadosTeste.leitor(em, TipoLeitor.VAGA, patio, null);   // leitor sem vaga também aparece nas listagens
+        DadosTeste.moto(em, "SEM0001");                         // moto sem vaga: só na visão do ADMIN
+        em.flush();
+        em.clear();
+        contador.iniciar();
+    }
+
+    @Test
+    void registroComIdDoLeitorEntraSemSelectAntes() {
+        UUID id = UUID.randomUUID();
+        Registro registro = new Registro(em.getReference(Moto.class, motoId), em.getReference(Leitor.class, leitorId),
+                TipoMovimentacao.SAIDA, LocalDateTime.now());
+        registro.setId(id);
+
+        registroRepository.save(registro);
+        em.flush();
+
+        assertEquals(id, registro.getId());
+        assertEquals(1, contador.daThread(), "só o INSERT");
+    }
+
+    @Test
+    void idsGeradosSaoUuidV7Crescentes() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Registro r = new Registro(em.getReference(Moto.class, motoId), em.getReference(Leitor.class, leitorId),
+                    TipoMovimentacao.ENTRADA, LocalDateTime.now());
+            registroRepository.save(r);
+            ids.add(r.getId());
+        }
+        em.flush();
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(7, ids.get(i).version());
+            if (i > 0) assertTrue(ids.get(i - 1).getMostSignificantBits() < ids.get(i).getMostSignificantBits());
+        }
+    }
+
+    @Test
+    void listagemPaginadaDeVagasNaoCarregaPatioEMotoUmAUm() {
+        List<VagaDTO> dtos = vagaRepository.findAll(PageRequest.of(0, QTD)).map(VagaMapper::toDto).getContent();
+
+        assertEquals(QTD, dtos.size());
+        assertNotNull(dtos.get(0).getPatioNome());
+        assertNotNull(dtos.get(0).getMoto());
+        assertTrue(contador.daThread() <= 2, "select + count, obtido: " + contador.daThread());
+    }
+
+    @Test
+    void listagemDeVagasDoPatioUsaUmUnicoSelect() {
+        List<VagaDTO> dtos = vagaRepository.findAllByPatio_Id(patioId).stream().map(VagaMapper::toDto).toList();
+
+        assertEquals(QTD, dtos.size());
+        assertEquals(1, contador.daThread());
+    }
+
+    @Test
+    void vagaPorIdSaiInicializada() {
+        Vaga vaga = vagaRepository.findDetalhadaById(vagaId).orElseThrow();
+        em.clear(); // como a entidade cacheada: desanexada
+
+        VagaDTO dto = VagaMapper.toDto(vaga);
+
+        assertNotNull(dto.getPatioNome());
+        assertNotNull(dto.getMoto().getPlaca());
+        assertEquals(1, contador.daThread());
+    }
+
+    @Test
+    void listagemDeLeitoresNaoCarregaPatioNemVaga() {
+        List<LeitorDTO> dtos = leitorRepository.findAllByPatio_Id(patioId, PageRequest.of(0, QTD))
+                .map(LeitorMapper::toDto).getContent();
+
+        assertEquals(QTD, dtos.size());
+        assertNotNull(dtos.get(0).getVagaId());
+        assertTrue(contador.daThread() <= 2, "select + count, obtido: " + contador.daThread());
+    }
+
+    // --- projeções: DTO direto do select, nada no contexto de persistência ---
+
+    @Test
+    void projecaoDeMotosTrazIdentificacaoDaVagaSemEntidades() {
+        var page = motoRepository.findDtos(PageRequest.of(0, 10, Sort.by("placa")));
+
+        assertEquals(QTD + 1, page.getTotalElements());
+        MotoDTO primeira = page.getContent().get(0);
+        assertEquals("ABC0000", primeira.getPlaca());
+        assertEquals("A0", primeira.getVagaIdentificacao());
+        assertEquals(2, contador.daThread());
+        assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void projecaoDeMotosDoPatioDispensaListaDeVagas() {
+        var page = motoRepository.findDtosByPatioIdAndStatus(patioId, StatusMoto.DISPONIVEL, PageRequest.of(0, QTD + 10));
+
+        assertEquals(QTD, page.getTotalElements());
+        assertTrue(page.getContent().stream().allMatch(m -> m.getVagaIdentificacao() != null));
+        assertEquals(1, contador.daThread());   // página incompleta: Spring Data dispensa o count
+    }
+
+    @Test
+    void projecaoDeVagasMontaPatioEMoto() {
+        List<VagaDTO> dtos = vagaRepository.findDtosByPatioId(patioId);
+
+        assertEquals(QTD, dtos.size());
+        assertEquals("Pátio Teste", dtos.get(0).getPatioNome());
+        assertNotNull(dtos.get(0).getMoto().getPlaca());
+        assertEquals(1, contador.daThread());
+        assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void projecoesDeLeitoresERegistrosUsamSoAsFks() {
+        var leitores = leitorRepository.findDtosByPatioId(patioId, PageRequest.of(0, QTD + 10));
+        var registros = registroRepository.findDtos(PageRequest.of(0, QTD + 10));
+
+        assertEquals(QTD + 1, leitores.getTotalElements());
+        assertEquals(QTD, registros.getTotalElements());
+        assertNotNull(registros.getContent().get(0).getLeitorId());
+        assertEquals(2, contador.daThread());
+        assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void listagemDeRegistrosNaoCarregaMotoNemLeitor() {
+        List<RegistroDTO> dtos = registroRepository.findAll(PageRequest.of(0, QTD)).map(RegistroMapper::toDto).getContent();
+
+        assertEquals(QTD, dtos.size());
+        assertNotNull(dtos.get(0).getMotoId());
+        assertNotNull(dtos.get(0).getLeitorId());
+        assertTrue(contador.daThread() <= 2, "select + count, obtido: " + contador.daThread());
+    }
+
+    // --- keyset: percorre tudo pelo cursor, uma consulta por fatia e nenhum COUNT ---
+
+    @Test
+    void cursorDeMotosPercorreTudoSemRepetirNemPular() {
+        List<String> placas = new ArrayList<>();
+        Cursor.Chave apos = Cursor.INICIO_ASC;
+        int fatias = 0;
+        while (true) {
+            List<MotoDTO> linhas = motoRepository.findDtosApos(apos.valor(), apos.id(), Cursor.limite(7));
+            var pagina = Cursor.pagina(linhas, 7, m -> Cursor.codificar(m.getPlaca(), m.getId()));
+            pagina.getContent().forEach(m -> placas.add(m.getPlaca()));
+            fatias++;
+            if (!pagina.isTemMais()) break;
+            apos = Cursor.decodificar(pagina.getProximoCursor(), Cursor.INICIO_ASC);
+        }
+
+        assertEquals(QTD + 1, placas.size());
+        assertEquals(placas.size(), new HashSet<>(placas).size());
+        assertEquals(placas.stream().sorted().toList(), placas);
+        assertEquals(fatias, contador.daThread());
+    }
+
+    @Test
+    void cursorDeVagasDoPatioDesempataPeloId() {
+        // identificações repetidas: o id desempata e nenhuma vaga se perde entre fatias
+        vagaRepository.findAll().forEach(v -> v.setIdentificacao("MESMA"));
+        em.flush();
+        em.clear();
+        contador.iniciar();
+
+        var ids = new HashSet<UUID>();
+        Cursor.Chave apos = Cursor.INICIO_ASC;
+        while (true) {
+            List<VagaDTO> linhas = vagaRepository.findDtosByPatioIdApos(patioId, apos.valor(), apos.id(), Cursor.limite(6));
+            var pagina = Cursor.pagina(linhas, 6, v -> Cursor.codificar(v.getIdentificacao(), v.getId()));
+            pagina.getContent().forEach(v -> assertTrue(ids.add(v.getId()), "vaga repetida"));
+            if (!pagina.isTemMais()) break;
+            apos = Cursor.decodificar(pagina.getProximoCursor(), Cursor.INICIO_ASC);
+        }
+
+        assertEquals(QTD, ids.size());
+    }
+
+    @Test
+    void cursorDeRegistrosVemDoMaisRecenteAoMaisAntigo() {
+        LocalDateTime dataHora = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+        UUID id = new UUID(-1L, -1L);
+        List<RegistroDTO> todos = new ArrayList<>();
+        while (true) {
+            List<RegistroDTO> linhas = registroRepository.findDtosAntes(dataHora, id, Cursor.limite(9));
+            var pagina = Cursor.pagina(linhas, 9, r -> Cursor.codificar(r.getDataHora().toString(), r.getId()));
+            todos.addAll(pagina.getContent());
+            if (!pagina.isTemMais()) break;
+            RegistroDTO ultimo = pagina.getContent().get(pagina.getContent().size() - 1);
+            dataHora = ultimo.getDataHora();
+            id = ultimo.getId();
+        }
+
+        assertEquals(QTD, todos.size());
+        assertEquals(QTD, todos.stream().map(RegistroDTO::getId).distinct().count());
+        for (int i = 1; i < todos.size(); i++) {
+            assertFalse(todos.get(i).getDataHora().isAfter(todos.get(i - 1).getDataHora()));
+        }
+    }
+
+    @Test
+    void cursorInvalidoEhRejeitado() {
+        assertThrows(IllegalArgumentException.class, () -> Cursor.decodificar("@@nao-eh-cursor@@", Cursor.INICIO_ASC));
+        assertSame(Cursor.INICIO_ASC, Cursor.decodificar(null, Cursor.INICIO_ASC));
+    }
+
+    // --- Slice: página sem COUNT ---
+
+    @Test
+    void sliceDeRegistrosNaoContaATabela() {
+        var fatia = registroRepository.sliceDtos(PageRequest.of(1, 15, Sort.by(Sort.Direction.DESC, "dataHora")));
+
+        assertEquals(15, fatia.getNumberOfElements());
+        assertTrue(fatia.hasNext());
+        assertEquals(1, contador.daThread());
+    }
+
+    @Test
+    void sliceDeMotosDoPatioSabeQueEhAUltima() {
+        var fatia = motoRepository.sliceDtosByPatioId(patioId, PageRequest.of(3, 10, Sort.by("placa")));
+
+        assertEquals(10, fatia.getNumberOfElements());
+        assertFalse(fatia.hasNext());
+        assertEquals(1, contador.daThread());
+    }
+
+    @Test
+    void totalAproximadoNuncaFicaAbaixoDoQueAFatiaMostra() {
+        var fatia = vagaRepository.sliceDtos(PageRequest.of(2, 10));
+
+        var pagina = ContagemTotais.comTotal(fatia, 5);   // total defasado (vagas criadas depois da contagem)
+
+        assertEquals(31, pagina.getTotalElements());
+        assertFalse(pagina.isLast());
+        assertEquals(QTD, ContagemTotais.comTotal(fatia, QTD).getTotalElements());
+    }
+}
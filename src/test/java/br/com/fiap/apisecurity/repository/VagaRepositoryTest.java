@@ -0,0 +1,67 @@
+package br.com.fiap.apisecurity.repository;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guarda do compare-and-set da alocação rodando no SQL de verdade (o AlocadorVagasTest usa um repositório falso)
+@DataJpaTest
+@ActiveProfiles("test")
+class VagaRepositoryTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private VagaRepository vagaRepository;
+
+    private Patio patio;
+
+    @BeforeEach
+    void setUp() {
+        patio = DadosTeste.patio(em, "Pátio Teste");
+    }
+
+    @Test
+    void ocuparSeLivreSoTomaVagaLivreESemMoto() {
+        Vaga livre = DadosTeste.vaga(em, patio, "L1");
+        Vaga indisponivel = DadosTeste.vaga(em, patio, "I1", StatusVaga.INDISPONIVEL);
+        Moto primeira = DadosTeste.moto(em, "CAS0001");
+        Moto segunda = DadosTeste.moto(em, "CAS0002");
+        em.flush();
+
+        assertEquals(0, ocupar(indisponivel, primeira), "vaga fora de serviço não pode ser ocupada");
+        assertEquals(1, ocupar(livre, primeira));
+        assertEquals(0, ocupar(livre, segunda), "vaga já ganha por outra moto");
+
+        em.clear();
+        Vaga ocupada = em.find(Vaga.class, livre.getId());
+        assertEquals(StatusVaga.OCUPADA, ocupada.getStatus());
+        assertEquals(primeira.getId(), ocupada.getMoto().getId());
+        Vaga foraDeServico = em.find(Vaga.class, indisponivel.getId());
+        assertEquals(StatusVaga.INDISPONIVEL, foraDeServico.getStatus());
+        assertNull(foraDeServico.getMoto());
+    }
+
+    @Test
+    void ocuparSeLivreRecusaVagaLivreComMotoVinculada() {
+        // estado inconsistente (status LIVRE mas com moto): a guarda olha as duas colunas
+        Vaga vaga = DadosTeste.vaga(em, patio, "X1");
+        vaga.setMoto(DadosTeste.moto(em, "CAS0003"));
+        Moto outra = DadosTeste.moto(em, "CAS0004");
+        em.flush();
+
+        assertEquals(0, ocupar(vaga, outra));
+    }
+
+    private int ocupar(Vaga vaga, Moto moto) {
+        return vagaRepository.ocuparSeLivre(vaga.getId(), moto, StatusVaga.OCUPADA, StatusVaga.LIVRE);
+    }
+}
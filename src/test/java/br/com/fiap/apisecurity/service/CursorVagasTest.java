@@ -0,0 +1,71 @@
+package br.com.fiap.apisecurity.service;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.CursorPage;
+import br.com.fiap.apisecurity.dto.VagaDTO;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.service.ocupacao.IndiceEspacialVagas;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Cursor de vagas (VagaService.readVagasCursor) com identificações nulas: segmento próprio à frente, sem perder
+// nem repetir vaga na troca de segmento
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(VagaService.class)
+class CursorVagasTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private VagaService vagaService;
+    @MockitoBean private Authz authz;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+    @MockitoBean private OcupacaoIndex ocupacaoIndex;
+    @MockitoBean private IndiceEspacialVagas indiceEspacial;
+    @MockitoBean private ContagemTotais contagemTotais;
+    @MockitoBean private VersoesRecursos versoes;
+
+    @Test
+    void vagasSemIdentificacaoVemPrimeiroENenhumaSePerde() {
+        Patio patio = DadosTeste.patio(em, "Norte");
+        Patio outro = DadosTeste.patio(em, "Sul");
+        for (int i = 0; i < 5; i++) DadosTeste.vaga(em, patio, null);
+        for (int i = 0; i < 6; i++) DadosTeste.vaga(em, patio, "V" + i);
+        DadosTeste.vaga(em, outro, null);
+        DadosTeste.vaga(em, outro, "S1");
+        em.flush();
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(patio.getId());
+
+        List<VagaDTO> todas = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<VagaDTO> pagina = vagaService.readVagasCursor(cursor, 3);
+            todas.addAll(pagina.getContent());
+            cursor = pagina.getProximoCursor();
+        } while (cursor != null);
+
+        assertEquals(11, todas.size());
+        assertEquals(11, new HashSet<UUID>(todas.stream().map(VagaDTO::getId).toList()).size());
+        todas.subList(0, 5).forEach(v -> assertNull(v.getIdentificacao()));
+        assertEquals(List.of("V0", "V1", "V2", "V3", "V4", "V5"),
+                todas.subList(5, 11).stream().map(VagaDTO::getIdentificacao).toList());
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.fiap.apisecurity.service;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.model.Leitor;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import br.com.fiap.apisecurity.service.arquivamento.ArquivadorRegistros;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// POST /api/registros/batch (RegistroService.createRegistrosBatch): ids resolvidos em fatias do limite do IN,
+// lote inteiro recusado por id desconhecido ou acima de max-itens, um único evento com todos os movimentos
+@DataJpaTest
+@Import(RegistroService.class)
+@ActiveProfiles("test")
+@RecordApplicationEvents
+@TestPropertySource(properties = "app.registros.lote.max-itens=1100")
+class RegistrosEmLoteTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 3, 10, 8, 0);
+
+    @Autowired private EntityManager em;
+    @Autowired private RegistroService registroService;
+    @Autowired private RegistroRepository registroRepository;
+    @Autowired private ApplicationEvents eventos;
+    @MockitoSpyBean private MotoRepository motoRepository;
+    @MockitoBean private ContagemTotais contagemTotais;
+    @MockitoBean private ArquivadorRegistros arquivador;
+
+    private Leitor leitor;
+
+    @BeforeEach
+    void setUp() {
+        Patio patio = DadosTeste.patio(em, "Pátio Teste");
+        leitor = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, null);
+    }
+
+    @Test
+    void motosAlemDoLimiteDoInSaoBuscadasEmFatias() {
+        List<RegistroDTO> lote = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            Moto moto = DadosTeste.moto(em, String.format("L%06d", i));
+            lote.add(dto(moto.getId(), leitor.getId(), i));
+        }
+        em.flush();
+
+        List<RegistroDTO> criados = registroService.createRegistrosBatch(lote);
+
+        assertEquals(1001, criados.size());
+        assertTrue(criados.stream().allMatch(r -> r.getId() != null));
+        assertEquals(1001, registroRepository.count());
+        verify(motoRepository).findAllById(argThat(ids -> tamanho(ids) == 1000));
+        verify(motoRepository).findAllById(argThat(ids -> tamanho(ids) == 1));
+    }
+
+    @Test
+    void idDesconhecidoRecusaOLoteInteiro() {
+        Moto moto = DadosTeste.moto(em, "LOT0001");
+        em.flush();
+        UUID fantasma = UUID.randomUUID();
+
+        EntityNotFoundException motoErro = assertThrows(EntityNotFoundException.class, () -> registroService.createRegistrosBatch(
+                List.of(dto(moto.getId(), leitor.getId(), 0), dto(fantasma, leitor.getId(), 1))));
+        EntityNotFoundException leitorErro = assertThrows(EntityNotFoundException.class, () -> registroService.createRegistrosBatch(
+                List.of(dto(moto.getId(), leitor.getId(), 0), dto(moto.getId(), fantasma, 1))));
+
+        assertTrue(motoErro.getMessage().contains(fantasma.toString()));
+        assertTrue(leitorErro.getMessage().contains(fantasma.toString()));
+        assertEquals(0, registroRepository.count());
+        assertEquals(0, eventos.stream(RegistrosAlteradosEvent.class).count());
+    }
+
+    @Test
+    void loteAcimaDoLimiteEhRecusadoAntesDeConsultar() {
+        List<RegistroDTO> lote = new ArrayList<>();
+        for (int i = 0; i < 1101; i++) lote.add(dto(UUID.randomUUID(), leitor.getId(), i));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> registroService.createRegistrosBatch(lote));
+
+        assertTrue(e.getMessage().contains("1100"));
+        verify(motoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void loteGravadoPublicaUmEventoComTodosOsMovimentos() {
+        Moto a = DadosTeste.moto(em, "LOT0001");
+        Moto b = DadosTeste.moto(em, "LOT0002");
+        em.flush();
+
+        registroService.createRegistrosBatch(List.of(dto(a.getId(), leitor.getId(), 0), dto(b.getId(), leitor.getId(), 1),
+                dto(a.getId(), leitor.getId(), 2)));
+
+        List<RegistrosAlteradosEvent> publicados = eventos.stream(RegistrosAlteradosEvent.class).toList();
+        assertEquals(1, publicados.size());
+        List<RegistrosAlteradosEvent.Movimento> movimentos = publicados.get(0).movimentos();
+        assertEquals(3, movimentos.size());
+        assertTrue(movimentos.stream().allMatch(m -> m.delta() == 1 && m.registroId() != null));
+        assertEquals(2, movimentos.stream().filter(m -> m.motoId().equals(a.getId())).count());
+        assertEquals(leitor.getPatio().getId(), movimentos.get(0).patioId());
+    }
+
+    private static RegistroDTO dto(UUID motoId, UUID leitorId, int minutos) {
+        RegistroDTO dto = new RegistroDTO();
+        dto.setMotoId(motoId);
+        dto.setLeitorId(leitorId);
+        dto.setTipo(TipoMovimentacao.ENTRADA);
+        dto.setDataHora(BASE.plusMinutes(minutos));
+        return dto;
+    }
+
+    private static int tamanho(Iterable<UUID> ids) {
+        int n = 0;
+        for (UUID ignored : ids) n++;
+        return n;
+    }
+}
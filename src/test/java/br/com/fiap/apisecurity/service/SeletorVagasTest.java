@@ -0,0 +1,118 @@
+package br.com.fiap.apisecurity.service;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.VagaOpcaoDTO;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.service.ocupacao.IndiceEspacialVagas;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Seletor de vagas livres (VagaService.readVagasLivres) contra o SQL de verdade: filtro de pátio, escape do
+// prefixo, limite e as duas faixas (como digitado / maiúsculas)
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(VagaService.class)
+class SeletorVagasTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private VagaService vagaService;
+    @MockitoBean private Authz authz;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+    @MockitoBean private OcupacaoIndex ocupacaoIndex;
+    @MockitoBean private IndiceEspacialVagas indiceEspacial;
+    @MockitoBean private ContagemTotais contagemTotais;
+    @MockitoBean private VersoesRecursos versoes;
+
+    private Patio norte;
+    private Patio sul;
+
+    @BeforeEach
+    void setUp() {
+        norte = DadosTeste.patio(em, "Norte");
+        sul = DadosTeste.patio(em, "Sul");
+        when(authz.isAdmin()).thenReturn(true);
+    }
+
+    @Test
+    void filtraPorPatioESoTrazLivres() {
+        DadosTeste.vaga(em, norte, "N1");
+        DadosTeste.vaga(em, norte, "N2", StatusVaga.OCUPADA);
+        DadosTeste.vaga(em, sul, "N3");
+        em.flush();
+
+        assertEquals(List.of("N1", "N3"), identificacoes(vagaService.readVagasLivres(null, "N", null)));
+        List<VagaOpcaoDTO> doNorte = vagaService.readVagasLivres(norte.getId(), "N", null);
+        assertEquals(List.of("N1"), identificacoes(doNorte));
+        assertEquals("Norte", doNorte.get(0).getPatioNome());
+    }
+
+    @Test
+    void curingasDoPrefixoSaoLiterais() {
+        DadosTeste.vaga(em, norte, "A_1");
+        DadosTeste.vaga(em, norte, "AB1");
+        DadosTeste.vaga(em, norte, "A%2");
+        DadosTeste.vaga(em, norte, "AX2");
+        em.flush();
+
+        assertEquals(List.of("A_1"), identificacoes(vagaService.readVagasLivres(null, "A_", null)));
+        assertEquals(List.of("A%2"), identificacoes(vagaService.readVagasLivres(null, "A%", null)));
+    }
+
+    @Test
+    void prefixoMinusculoJuntaAsDuasFaixasNoLimite() {
+        DadosTeste.vaga(em, norte, "A1");
+        DadosTeste.vaga(em, norte, "A2");
+        DadosTeste.vaga(em, norte, "a3");
+        DadosTeste.vaga(em, norte, "B1");
+        em.flush();
+
+        assertEquals(List.of("A1", "A2", "a3"), identificacoes(vagaService.readVagasLivres(null, "a", null)));
+        assertEquals(List.of("A1", "A2"), identificacoes(vagaService.readVagasLivres(null, "a", 2)));
+        assertEquals(List.of("A1", "A2"), identificacoes(vagaService.readVagasLivres(null, "A", null)));
+    }
+
+    @Test
+    void limiteFicaEntreUmECem() {
+        for (int i = 0; i < 105; i++) {
+            DadosTeste.vaga(em, norte, String.format("V%03d", i));
+        }
+        em.flush();
+
+        assertEquals(20, vagaService.readVagasLivres(null, "V", null).size());
+        assertEquals(100, vagaService.readVagasLivres(null, "V", 1000).size());
+        assertEquals(1, vagaService.readVagasLivres(null, "V", 0).size());
+    }
+
+    @Test
+    void operadorFicaPresoAoProprioPatio() {
+        DadosTeste.vaga(em, norte, "N1");
+        DadosTeste.vaga(em, sul, "S1");
+        em.flush();
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(norte.getId());
+
+        assertEquals(List.of("N1"), identificacoes(vagaService.readVagasLivres(null, "", null)));
+        assertThrows(SecurityException.class, () -> vagaService.readVagasLivres(sul.getId(), "", null));
+    }
+
+    private static List<String> identificacoes(List<VagaOpcaoDTO> opcoes) {
+        return opcoes.stream().map(VagaOpcaoDTO::getIdentificacao).toList();
+    }
+}
@@ -0,0 +1,171 @@
+package br.com.fiap.apisecurity.service.agregacao;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.dto.AgregadoDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.model.*;
+import br.com.fiap.apisecurity.model.enums.Granularidade;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroAgregadoRepository;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// Incremental (eventos + flush via MERGE) e reconstrução a partir do bruto têm de chegar aos mesmos baldes
+@DataJpaTest
+@Import(AgregadorMovimentacoes.class)
+@ActiveProfiles("test")
+class AgregadorMovimentacoesTest {
+
+    // dentro da retenção dos baldes de minuto
+    private static final LocalDateTime BASE = LocalDate.now().minusDays(1).atTime(8, 0);
+
+    @Autowired private EntityManager em;
+    @Autowired private AgregadorMovimentacoes agregador;
+    @Autowired private RegistroAgregadoRepository agregadoRepository;
+    @MockitoBean private RegistroArquivoRepository arquivoRepository;
+
+    private UUID patioId;
+    private Moto moto;
+    private Leitor leitor;
+    private final List<RegistrosAlteradosEvent.Movimento> movimentos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Patio patio = DadosTeste.patio(em, "Pátio Teste");
+        patioId = patio.getId();
+        moto = DadosTeste.moto(em, "AGR0001");
+        leitor = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, null);
+
+        // 3 horas, 20 entradas e 10 saídas por hora espalhadas nos minutos
+        for (int h = 0; h < 3; h++) {
+            for (int i = 0; i < 30; i++) {
+                TipoMovimentacao tipo = i < 20 ? TipoMovimentacao.ENTRADA : TipoMovimentacao.SAIDA;
+                Registro r = new Registro(moto, leitor, tipo, BASE.plusHours(h).plusMinutes(i * 2L));
+                em.persist(r);
+                movimentos.add(RegistrosAlteradosEvent.Movimento.de(r, 1));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void deltasPendentesJaAparecemNaConsulta() {
+        agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(movimentos));
+
+        List<AgregadoDTO> porHora = agregador.consultar(patioId, Granularidade.HORA, BASE, BASE.plusHours(3), TipoMovimentacao.ENTRADA);
+
+        assertEquals(3, porHora.size());
+        assertTrue(porHora.stream().allMatch(a -> a.getQuantidade() == 20));
+        assertEquals(0, agregadoRepository.count());
+    }
+
+    @Test
+    void flushGravaOsBaldesESomaNasExecucoesSeguintes() {
+        agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(movimentos));
+        agregador.descarregar();
+        agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(movimentos.get(0))));
+        agregador.descarregar();
+
+        assertEquals(0, agregador.pendentes());
+        List<AgregadoDTO> porDia = agregador.consultar(patioId, Granularidade.DIA, BASE, BASE.plusDays(1), null);
+        assertEquals(2, porDia.size());
+        assertEquals(61, porDia.stream().filter(a -> a.getTipo() == TipoMovimentacao.ENTRADA).findFirst().orElseThrow().getQuantidade());
+        assertEquals(30, porDia.stream().filter(a -> a.getTipo() == TipoMovimentacao.SAIDA).findFirst().orElseThrow().getQuantidade());
+    }
+
+    @Test
+    void reconstrucaoReproduzOIncremental() {
+        agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(movimentos));
+        agregador.descarregar();
+        List<AgregadoDTO> incremental = agregador.consultar(patioId, Granularidade.MINUTO, BASE, BASE.plusHours(3), null);
+
+        long registros = agregador.reconstruir(BASE.toLocalDate(), BASE.toLocalDate());
+        List<AgregadoDTO> reconstruido = agregador.consultar(patioId, Granularidade.MINUTO, BASE, BASE.plusHours(3), null);
+
+        assertEquals(90, registros);
+        assertEquals(90, reconstruido.size());
+        for (int i = 0; i < incremental.size(); i++) {
+            assertEquals(incremental.get(i).getInicio(), reconstruido.get(i).getInicio());
+            assertEquals(incremental.get(i).getQuantidade(), reconstruido.get(i).getQuantidade());
+        }
+    }
+
+    @Test
+    void registroJaCommitadoCujoEventoChegaDuranteALeituraContaUmaVez() {
+        RegistrosAlteradosEvent.Movimento atrasado = movimentos.get(0);
+        aoLerOArquivo(() -> agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(atrasado))));
+
+        agregador.reconstruir(BASE.toLocalDate(), BASE.toLocalDate());
+        agregador.descarregar();
+
+        assertEquals(60, quantidade(Granularidade.DIA, TipoMovimentacao.ENTRADA));
+        assertEquals(20, agregador.consultar(patioId, Granularidade.HORA, BASE, BASE.plusHours(1), TipoMovimentacao.ENTRADA)
+                .get(0).getQuantidade());
+    }
+
+    @Test
+    void registroCommitadoDepoisDaLeituraEntraUmaVez() {
+        LocalDateTime quando = BASE.plusHours(5);
+        RegistrosAlteradosEvent.Movimento novo = new RegistrosAlteradosEvent.Movimento(UUID.randomUUID(), moto.getId(),
+                leitor.getId(), patioId, null, TipoMovimentacao.ENTRADA, quando, 1);
+        aoLerOArquivo(() -> agregador.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(novo))));
+
+        agregador.reconstruir(BASE.toLocalDate(), BASE.toLocalDate());
+        agregador.descarregar();
+
+        assertEquals(61, quantidade(Granularidade.DIA, TipoMovimentacao.ENTRADA));
+        assertEquals(1, agregador.consultar(patioId, Granularidade.HORA, quando, quando.plusHours(1), null).size());
+    }
+
+    @Test
+    void diaForaDaRetencaoNaoRecriaBaldesDeMinuto() {
+        LocalDateTime antigo = BASE.minusDays(60);
+        em.persist(new Registro(moto, leitor, TipoMovimentacao.ENTRADA, antigo));
+        em.flush();
+        em.clear();
+
+        assertEquals(1, agregador.reconstruir(antigo.toLocalDate(), antigo.toLocalDate()));
+
+        assertTrue(agregador.consultar(patioId, Granularidade.MINUTO, antigo, antigo.plusHours(1), null).isEmpty());
+        assertEquals(1, agregador.consultar(patioId, Granularidade.HORA, antigo, antigo.plusHours(1), null).size());
+    }
+
+    @Test
+    void periodoComBaldesDemaisEhRecusado() {
+        assertThrows(IllegalArgumentException.class,
+                () -> agregador.consultar(patioId, Granularidade.MINUTO, BASE, BASE.plusDays(30), null));
+    }
+
+    // o evento chega com o dia já aberto, antes de o bruto quente ser lido (o arquivo está vazio neste teste)
+    private void aoLerOArquivo(Runnable evento) {
+        doAnswer(inv -> {
+            evento.run();
+            return Stream.empty();
+        }).when(arquivoRepository).streamMovimentos(any(), any());
+    }
+
+    private long quantidade(Granularidade granularidade, TipoMovimentacao tipo) {
+        return agregador.consultar(patioId, granularidade, BASE.toLocalDate().atStartOfDay(),
+                BASE.toLocalDate().plusDays(1).atStartOfDay(), tipo).get(0).getQuantidade();
+    }
+}
@@ -0,0 +1,194 @@
+package br.com.fiap.apisecurity.service.analise;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.dto.PermanenciaDTO;
+import br.com.fiap.apisecurity.dto.PermanenciaItemDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.model.*;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+// Sessões costuradas pelos eventos e pela passada única de reconstrução têm de dar os mesmos números
+@DataJpaTest
+@Import(AnalisePermanencia.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.permanencia.reconstruir-ao-iniciar=false")
+class AnalisePermanenciaTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.now().minusDays(2).truncatedTo(ChronoUnit.MINUTES);
+
+    @Autowired private EntityManager em;
+    @Autowired private AnalisePermanencia analise;
+    @MockitoSpyBean private RegistroRepository registroRepository;
+    @Autowired private RegistroArquivoRepository arquivoRepository;
+    @MockitoBean private OcupacaoIndex ocupacaoIndex;
+
+    private UUID patioId;
+    private Vaga vagaA;
+    private Vaga vagaB;
+    private Leitor portao;
+    private Leitor leitorA;
+    private Leitor leitorB;
+    private final List<RegistrosAlteradosEvent.Movimento> movimentos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Patio patio = DadosTeste.patio(em, "Pátio Teste");
+        patioId = patio.getId();
+        vagaA = DadosTeste.vaga(em, patio, "A1");
+        vagaB = DadosTeste.vaga(em, patio, "B1");
+        portao = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, null);
+        leitorA = DadosTeste.leitor(em, TipoLeitor.VAGA, patio, vagaA);
+        leitorB = DadosTeste.leitor(em, TipoLeitor.VAGA, patio, vagaB);
+
+        // moto 1: 130 min no pátio, 60 min em A e 60 em B
+        Moto m1 = DadosTeste.moto(em, "PRM0001");
+        registrar(m1, portao, TipoMovimentacao.ENTRADA, 0);
+        registrar(m1, leitorA, TipoMovimentacao.ALOCACAO, 10);
+        registrar(m1, leitorB, TipoMovimentacao.TROCA_DE_VAGA, 70);
+        registrar(m1, portao, TipoMovimentacao.SAIDA, 130);
+        // moto 2: 195 min no pátio, 120 em A
+        Moto m2 = DadosTeste.moto(em, "PRM0002");
+        registrar(m2, portao, TipoMovimentacao.ENTRADA, 5);
+        registrar(m2, leitorA, TipoMovimentacao.ALOCACAO, 80);
+        registrar(m2, portao, TipoMovimentacao.SAIDA, 200);
+        // moto 3: ainda em B
+        Moto m3 = DadosTeste.moto(em, "PRM0003");
+        registrar(m3, portao, TipoMovimentacao.ENTRADA, 300);
+        registrar(m3, leitorB, TipoMovimentacao.ALOCACAO, 310);
+        em.flush();
+        em.clear();
+
+        OcupacaoDTO ocupacao = new OcupacaoDTO();
+        ocupacao.setTotal(2);
+        when(ocupacaoIndex.ocupacao(any())).thenReturn(ocupacao);
+    }
+
+    @Test
+    void eventosCosturamAsSessoes() {
+        List<RegistrosAlteradosEvent.Movimento> embaralhados = new ArrayList<>(movimentos);
+        Collections.shuffle(embaralhados, new Random(7));
+        analise.aoAlterarRegistros(new RegistrosAlteradosEvent(embaralhados));
+
+        PermanenciaDTO p = analise.patio(patioId);
+
+        assertEquals(2, p.getSessoesConcluidas());
+        assertEquals(1, p.getSessoesAbertas());
+        assertEquals(195 * 60, p.getPermanenciaMaxima());
+        assertEquals(162.5 * 60, p.getPermanenciaMedia(), 0.01);
+        assertProximo(130 * 60, p.getPermanenciaP50());
+        assertProximo(195 * 60, p.getPermanenciaP99());
+        assertEquals(3, p.getEstadiasVagaConcluidas());
+        assertProximo(60 * 60, p.getEstadiaVagaP50());
+        assertTrue(p.getGiroPorVagaDia() > 0);
+
+        List<PermanenciaItemDTO> vagas = analise.vagas(patioId, 10);
+        assertEquals(vagaA.getId(), vagas.get(0).getId());
+        assertEquals(2, vagas.get(0).getConcluidas());
+        assertEquals(90 * 60, vagas.get(0).getMedia(), 0.01);
+        assertEquals(BASE.plusMinutes(310), vagas.get(1).getEmAndamentoDesde());
+    }
+
+    @Test
+    void reconstrucaoIntercalaArquivoEQuenteEChegaAoMesmoResultado() {
+        analise.aoAlterarRegistros(new RegistrosAlteradosEvent(movimentos));
+        PermanenciaDTO incremental = analise.patio(patioId);
+
+        // a primeira hora vai para o arquivo: as sessões atravessam as duas camadas
+        arquivoRepository.copiarPeriodo(BASE, BASE.plusHours(1));
+        registroRepository.removerPeriodo(BASE, BASE.plusHours(1));
+
+        assertEquals(movimentos.size(), analise.reconstruir());
+        PermanenciaDTO reconstruido = analise.patio(patioId);
+
+        assertEquals(incremental.getSessoesConcluidas(), reconstruido.getSessoesConcluidas());
+        assertEquals(incremental.getSessoesAbertas(), reconstruido.getSessoesAbertas());
+        assertEquals(incremental.getPermanenciaP50(), reconstruido.getPermanenciaP50());
+        assertEquals(incremental.getPermanenciaMaxima(), reconstruido.getPermanenciaMaxima());
+        assertEquals(incremental.getEstadiasVagaConcluidas(), reconstruido.getEstadiasVagaConcluidas());
+        assertEquals(incremental.getEstadiaVagaP95(), reconstruido.getEstadiaVagaP95());
+        assertEquals(0L, analise.status().get("foraDeOrdem"));
+    }
+
+    @Test
+    void eventoAtrasadoDaMesmaMotoNaoReabreSessao() {
+        analise.aoAlterarRegistros(new RegistrosAlteradosEvent(movimentos));
+        UUID motoId = movimentos.get(movimentos.size() - 1).motoId();
+
+        analise.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(new RegistrosAlteradosEvent.Movimento(
+                UUID.randomUUID(), motoId, portao.getId(), patioId, null, TipoMovimentacao.SAIDA, BASE.plusMinutes(305), 1))));
+
+        assertEquals(1L, analise.status().get("foraDeOrdem"));
+        assertEquals(BASE.plusMinutes(300), analise.moto(motoId).orElseThrow().getEmAndamentoDesde());
+    }
+
+    @Test
+    void commitadosDuranteAPassadaEntramUmaVezSeALeituraNaoOsViu() {
+        Moto m4 = DadosTeste.moto(em, "PRM0004");
+        // já na leitura, mas o evento chega com a passada em andamento
+        RegistrosAlteradosEvent.Movimento lido = movimentos.get(movimentos.size() - 1);
+        // commitado depois do snapshot, com data dentro da janela
+        RegistrosAlteradosEvent.Movimento naoLido = new RegistrosAlteradosEvent.Movimento(UUID.randomUUID(),
+                m4.getId(), portao.getId(), patioId, null, TipoMovimentacao.ENTRADA, BASE.plusMinutes(400), 1);
+        // o spy do repositório (proxy JPA) delega pela resposta padrão
+        Answer<?> real = mockingDetails(registroRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(inv -> {
+            Object quentes = real.answer(inv);
+            analise.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(lido, naoLido)));
+            return quentes;
+        }).when(registroRepository).streamSessoes(any(), any());
+
+        assertEquals(movimentos.size(), analise.reconstruir());
+
+        assertEquals(2, analise.patio(patioId).getSessoesAbertas());
+        assertEquals(BASE.plusMinutes(400), analise.moto(m4.getId()).orElseThrow().getEmAndamentoDesde());
+        assertEquals((long) movimentos.size() + 1, analise.status().get("eventos"));
+        assertEquals(0L, analise.status().get("foraDeOrdem"));
+    }
+
+    @Test
+    void histogramaErraPoucoNosPercentis() {
+        HistogramaLog h = new HistogramaLog();
+        for (int s = 1; s <= 100_000; s++) h.registrar(s);
+
+        assertProximo(50_000, h.percentil(50));
+        assertProximo(95_000, h.percentil(95));
+        assertProximo(99_000, h.percentil(99));
+        assertEquals(100_000, h.getMaximo());
+    }
+
+    private static void assertProximo(long esperado, long obtido) {
+        assertEquals(esperado, obtido, esperado * 0.05, "fora da tolerância do histograma");
+    }
+
+    private void registrar(Moto moto, Leitor leitor, TipoMovimentacao tipo, int minutos) {
+        Registro r = new Registro(moto, leitor, tipo, BASE.plusMinutes(minutos));
+        em.persist(r);
+        movimentos.add(RegistrosAlteradosEvent.Movimento.de(r, 1));
+    }
+}
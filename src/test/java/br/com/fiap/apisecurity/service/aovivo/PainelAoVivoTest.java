@@ -0,0 +1,196 @@
+package br.com.fiap.apisecurity.service.aovivo;
+
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.event.RegistrosAlteradosEvent;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// Fan-out do painel: um lote coalescido vira uma mensagem por pátio, entregue igual a todos os assinantes dele;
+// cliente lento cai sem atrasar os outros e fila estourada manda todo mundo ressincronizar.
+class PainelAoVivoTest {
+
+    private final UUID patioA = UUID.randomUUID();
+    private final UUID patioB = UUID.randomUUID();
+    private final UUID vagaId = UUID.randomUUID();
+    private final UUID motoId = UUID.randomUUID();
+
+    private MotoRepository motoRepository;
+    private PainelAoVivo painel;
+
+    @BeforeEach
+    void setUp() {
+        motoRepository = mock(MotoRepository.class);
+        when(motoRepository.findPlacasByIds(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{motoId, "AOV0001"}));
+        OcupacaoIndex ocupacaoIndex = mock(OcupacaoIndex.class);
+        when(ocupacaoIndex.ocupacao(any())).thenAnswer(inv -> {
+            OcupacaoDTO o = new OcupacaoDTO();
+            o.setPatioId(inv.getArgument(0));
+            o.setTotal(10);
+            o.setOcupadas(1);
+            return o;
+        });
+        painel = novoPainel(motoRepository, ocupacaoIndex, 5, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        painel.encerrar();
+    }
+
+    @Test
+    void coalesceVagasEEntregaOMesmoPayloadATodosDoPatio() {
+        List<Captura> doA = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) doA.add(assinar(patioA));
+        List<Captura> doB = List.of(assinar(patioB), assinar(patioB));
+        Captura admin = assinar(null);
+
+        for (int i = 0; i < 50; i++) {
+            painel.aoAlterarVaga(new VagaAlteradaEvent(vagaId, patioA, patioA, "A01",
+                    i % 2 == 0 ? StatusVaga.LIVRE : StatusVaga.OCUPADA, null, null, i % 2 == 0 ? null : motoId));
+        }
+        painel.aoAlterarRegistros(new RegistrosAlteradosEvent(List.of(new RegistrosAlteradosEvent.Movimento(
+                UUID.randomUUID(), motoId, UUID.randomUUID(), patioA, vagaId, TipoMovimentacao.ALOCACAO,
+                LocalDateTime.now(), 1))));
+        painel.despacharPendentes();
+
+        aguardar(() -> doA.stream().allMatch(c -> c.eventos("delta").size() == 1)
+                && admin.eventos("delta").size() == 1);
+        Set<String> payloads = doA.stream().map(c -> c.eventos("delta").get(0)).collect(Collectors.toSet());
+        assertEquals(1, payloads.size());
+        String payload = payloads.iterator().next();
+        assertTrue(payload.contains("\"status\":\"OCUPADA\""));
+        assertTrue(payload.contains("\"motoPlaca\":\"AOV0001\""));
+        assertTrue(payload.contains("\"tipo\":\"ALOCACAO\""));
+        assertTrue(payload.contains("\"ocupadas\":1"));
+        assertEquals(payload, admin.eventos("delta").get(0));
+        doB.forEach(c -> assertTrue(c.eventos("delta").isEmpty()));
+        verify(motoRepository, times(1)).findPlacasByIds(anyCollection());
+        assertEquals(49L, painel.status().get("eventosCoalescidos"));
+    }
+
+    @Test
+    void clienteTravadoEDesconectadoSemDerrubarOsOutros() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Captura lento = new Captura(liberar);
+        painel.assinar(patioA, lento);
+        List<Captura> outros = new ArrayList<>();
+        for (int i = 0; i < 20; i++) outros.add(assinar(patioA));
+        // rodízio das threads de envio: o lento ficou na 0, junto com os índices 3, 7, 11...
+        List<Captura> outrasThreads = new ArrayList<>();
+        for (int i = 0; i < outros.size(); i++) if ((i + 1) % 4 != 0) outrasThreads.add(outros.get(i));
+
+        for (int i = 0; i < 10; i++) {
+            painel.aoAlterarVaga(new VagaAlteradaEvent(UUID.randomUUID(), patioA, patioA, "A" + i,
+                    StatusVaga.LIVRE, null, null, null));
+            painel.despacharPendentes();
+            int rodada = i + 1;
+            aguardar(() -> outrasThreads.stream().allMatch(c -> c.eventos("delta").size() == rodada));
+        }
+
+        assertTrue(lento.completo);
+        assertEquals(1L, painel.status().get("desconectadosLentos"));
+        assertEquals(20, painel.getAssinantes());
+
+        // os que esperavam atrás do write travado continuam assinando e recebem tudo quando a thread volta
+        liberar.countDown();
+        aguardar(() -> outros.stream().allMatch(c -> c.eventos("delta").size() == 10));
+    }
+
+    @Test
+    void filaCheiaPedeRessincronizacao() {
+        painel.encerrar();
+        painel = novoPainel(motoRepository, mock(OcupacaoIndex.class), 100, 3);
+        Captura c = assinar(patioA);
+
+        for (int i = 0; i < 10; i++) {
+            painel.aoAlterarVaga(new VagaAlteradaEvent(UUID.randomUUID(), patioA, patioA, "A" + i,
+                    StatusVaga.LIVRE, null, null, null));
+        }
+        painel.despacharPendentes();
+
+        aguardar(() -> c.eventos("resync").size() == 1);
+        assertTrue(c.eventos("delta").isEmpty());
+        assertEquals(1L, painel.status().get("ressincronizacoes"));
+    }
+
+    private PainelAoVivo novoPainel(MotoRepository motos, OcupacaoIndex index, int maxPendentes, int fila) {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        return new PainelAoVivo(motos, index, json, 250, 20_000, 60_000, 10_000, maxPendentes, fila, 4);
+    }
+
+    private Captura assinar(UUID patioId) {
+        Captura c = new Captura(null);
+        painel.assinar(patioId, c);
+        return c;
+    }
+
+    private static void aguardar(BooleanSupplier condicao) {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicao.getAsBoolean()) {
+            if (System.nanoTime() > limite) fail("tempo esgotado esperando as entregas");
+            Thread.onSpinWait();
+        }
+    }
+
+    // guarda o que seria escrito na conexão; com latch, trava no primeiro envio como um cliente que não lê
+    private static class Captura extends SseEmitter {
+        private final CountDownLatch bloqueio;
+        private final List<String[]> recebidos = new CopyOnWriteArrayList<>();
+        volatile boolean completo;
+
+        Captura(CountDownLatch bloqueio) {
+            this.bloqueio = bloqueio;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (bloqueio != null) {
+                try {
+                    bloqueio.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType d : builder.build()) sb.append(d.getData());
+            String bruto = sb.toString();
+            String nome = bruto.startsWith("event:") ? bruto.substring(6, bruto.indexOf('\n')) : "";
+            int inicio = bruto.indexOf("data:");
+            recebidos.add(new String[]{nome, inicio < 0 ? "" : bruto.substring(inicio + 5).trim()});
+        }
+
+        @Override
+        public synchronized void complete() {
+            completo = true;
+        }
+
+        List<String> eventos(String nome) {
+            return recebidos.stream().filter(r -> r[0].equals(nome)).map(r -> r[1]).toList();
+        }
+    }
+}
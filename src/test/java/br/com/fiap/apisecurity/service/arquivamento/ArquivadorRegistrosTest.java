@@ -0,0 +1,82 @@
+package br.com.fiap.apisecurity.service.arquivamento;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.model.*;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.repository.RegistroArquivoRepository;
+import br.com.fiap.apisecurity.repository.RegistroRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Camadas quente/fria: o que passa do horizonte sai de tb_registro e aparece uma única vez no arquivo
+@DataJpaTest
+@Import(ArquivadorRegistros.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.registros.arquivo.horizonte-meses=6")
+class ArquivadorRegistrosTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private ArquivadorRegistros arquivador;
+    @Autowired private RegistroRepository registroRepository;
+    @Autowired private RegistroArquivoRepository arquivoRepository;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+
+    private UUID motoId;
+
+    @BeforeEach
+    void setUp() {
+        Patio patio = DadosTeste.patio(em, "Pátio Teste");
+        Moto moto = DadosTeste.moto(em, "ARQ0001");
+        motoId = moto.getId();
+        Leitor leitor = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, null);
+
+        LocalDateTime agora = LocalDateTime.now();
+        for (int meses = 0; meses < 24; meses++) {
+            em.persist(new Registro(moto, leitor, TipoMovimentacao.ENTRADA, agora.minusMonths(meses)));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void moveSoOQuePassouDoHorizonte() {
+        LocalDateTime corte = arquivador.corte();
+        long antigos = registroRepository.findAll().stream().filter(r -> r.getDataHora().isBefore(corte)).count();
+
+        int movidos = arquivador.arquivar();
+
+        assertEquals(antigos, movidos);
+        assertEquals(antigos, arquivoRepository.count());
+        assertEquals(24 - antigos, registroRepository.count());
+        assertTrue(registroRepository.findMenorDataHora().compareTo(corte) >= 0);
+        assertTrue(arquivador.arquivadoAte().isBefore(corte));
+        assertEquals(0, arquivador.arquivar(), "segunda execução não tem o que mover");
+    }
+
+    @Test
+    void historicoDaMotoContinuaCompletoSomandoAsCamadas() {
+        arquivador.arquivar();
+
+        List<RegistroDTO> frios = arquivoRepository.findDtosByMotoId(motoId);
+        List<RegistroDTO> quentes = registroRepository.findDtosByMotoId(motoId);
+
+        assertEquals(24, frios.size() + quentes.size());
+        assertTrue(frios.get(frios.size() - 1).getDataHora().isBefore(quentes.get(0).getDataHora()));
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.fiap.apisecurity.service.exportacao;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.model.*;
+import br.com.fiap.apisecurity.model.enums.TipoLeitor;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.service.arquivamento.ArquivadorRegistros;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({ExportadorRegistros.class, ArquivadorRegistros.class, JacksonAutoConfiguration.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.registros.arquivo.horizonte-meses=6")
+class ExportadorRegistrosTest {
+
+    private static final int POR_PATIO = 30;
+
+    @Autowired private EntityManager em;
+    @Autowired private ExportadorRegistros exportador;
+    @Autowired private ArquivadorRegistros arquivador;
+    @MockitoBean private Authz authz;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+
+    private UUID patioA;
+    private UUID motoA;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime agora = LocalDateTime.now();
+        for (String nome : new String[]{"A", "B"}) {
+            Patio patio = DadosTeste.patio(em, "Pátio " + nome);
+            Moto moto = DadosTeste.moto(em, "EXP000" + nome);
+            Leitor leitor = DadosTeste.leitor(em, TipoLeitor.ENTRADA, patio, null);
+            for (int i = 0; i < POR_PATIO; i++) {
+                TipoMovimentacao tipo = i % 2 == 0 ? TipoMovimentacao.ENTRADA : TipoMovimentacao.SAIDA;
+                em.persist(new Registro(moto, leitor, tipo, agora.minusMonths(i)));
+            }
+            if (patioA == null) {
+                patioA = patio.getId();
+                motoA = moto.getId();
+            }
+        }
+        em.flush();
+        em.clear();
+        when(authz.isAdmin()).thenReturn(true);
+    }
+
+    @Test
+    void csvTrazCabecalhoEUmaLinhaPorRegistroDasDuasCamadas() throws Exception {
+        arquivador.arquivar();
+
+        String csv = exportar(exportador.filtroAutorizado(null, null, null, null, null), ExportadorRegistros.Formato.CSV);
+
+        String[] linhas = csv.split("\n");
+        assertEquals("id,motoId,leitorId,tipo,dataHora", linhas[0]);
+        assertEquals(2 * POR_PATIO + 1, linhas.length);
+    }
+
+    @Test
+    void ndjsonRespeitaFiltrosDePatioMotoTipoEPeriodo() throws Exception {
+        LocalDateTime inicio = LocalDateTime.now().minusMonths(10).minusDays(1);
+        var filtro = exportador.filtroAutorizado(patioA, motoA, TipoMovimentacao.ENTRADA, inicio, null);
+
+        String ndjson = exportar(filtro, ExportadorRegistros.Formato.NDJSON);
+
+        String[] linhas = ndjson.split("\n");
+        assertEquals(6, linhas.length);   // meses 0, 2, 4, 6, 8, 10
+        for (String l : linhas) {
+            assertTrue(l.startsWith("{") && l.contains("\"tipo\":\"ENTRADA\""), l);
+            assertTrue(l.contains(motoA.toString()));
+        }
+    }
+
+    @Test
+    void operadorExportaSoOProprioPatio() {
+        UUID proprio = UUID.randomUUID();
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(proprio);
+
+        assertEquals(proprio, exportador.filtroAutorizado(null, null, null, null, null).patioId());
+        assertThrows(SecurityException.class, () -> exportador.filtroAutorizado(patioA, null, null, null, null));
+    }
+
+    private String exportar(ExportadorRegistros.Filtro filtro, ExportadorRegistros.Formato formato) throws Exception {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        exportador.exportar(filtro, formato, saida);
+        return saida.toString(StandardCharsets.UTF_8);
+    }
+}
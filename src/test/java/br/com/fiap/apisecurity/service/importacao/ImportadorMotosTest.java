@@ -0,0 +1,148 @@
+package br.com.fiap.apisecurity.service.importacao;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.dto.ErroImportacaoDTO;
+import br.com.fiap.apisecurity.dto.ImportacaoMotosDTO;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusMoto;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.sincronizacao.LogAlteracoes;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Importação por CSV: lotes paralelos em transações próprias (por isso o teste não roda numa transação só)
+@DataJpaTest
+@Import(ImportadorMotos.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "app.motos.importacao.lote=100",
+        "app.motos.importacao.paralelismo=4"
+})
+class ImportadorMotosTest {
+
+    private static final int VAGAS = 300;
+
+    @Autowired private EntityManager em;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ImportadorMotos importador;
+    @Autowired private MotoRepository motoRepository;
+    @Autowired private VagaRepository vagaRepository;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+    @MockitoBean private VersoesRecursos versoes;
+    @MockitoBean private LogAlteracoes logAlteracoes;
+
+    private TransactionTemplate tx;
+    private UUID patioId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(s -> {
+            Patio patio = DadosTeste.patio(em, "Pátio Novo");
+            patioId = patio.getId();
+            for (int i = 0; i < VAGAS; i++) DadosTeste.vaga(em, patio, String.format("V%03d", i));
+        });
+    }
+
+    @AfterEach
+    void limpar() {
+        tx.executeWithoutResult(s -> DadosTeste.limpar(em));
+    }
+
+    @Test
+    void importaMilharesDeLinhasEmLotesParalelos() throws Exception {
+        StringBuilder csv = new StringBuilder("placa;status;vaga\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append(String.format("IMP%04d;%s;%s\n", i, i % 10 == 0 ? "EM_MANUTENCAO" : "",
+                    i < VAGAS ? String.format("v%03d", i) : ""));
+        }
+
+        ImportacaoMotosDTO r = importar(csv.toString(), false);
+
+        assertEquals(2500, r.getLinhas());
+        assertEquals(2500, r.getImportadas());
+        assertEquals(0, r.getComErro());
+        assertEquals(2500, motoRepository.count());
+        List<Vaga> vagas = tx.execute(s -> vagaRepository.findAllByPatio_Id(patioId));
+        assertTrue(vagas.stream().allMatch(v -> v.getStatus() == StatusVaga.OCUPADA && v.getMoto() != null));
+        Map<UUID, UUID> vagaDaMoto = motoRepository.findAll().stream()
+                .filter(m -> m.getVagaId() != null).collect(Collectors.toMap(Moto::getId, Moto::getVagaId));
+        assertEquals(VAGAS, vagaDaMoto.size());
+        vagas.forEach(v -> assertEquals(v.getId(), vagaDaMoto.get(v.getMoto().getId())));
+        assertEquals(StatusMoto.EM_MANUTENCAO, motoRepository.findByPlaca("IMP0010").orElseThrow().getStatus());
+    }
+
+    @Test
+    void errosFicamNaLinhaEAsDemaisSaoImportadas() throws Exception {
+        tx.executeWithoutResult(s -> {
+            em.persist(new Moto("EXI0001", StatusMoto.DISPONIVEL));
+            Vaga ocupada = vagaRepository.findAllByPatio_Id(patioId).stream()
+                    .filter(v -> v.getIdentificacao().equals("V299")).findFirst().orElseThrow();
+            ocupada.setStatus(StatusVaga.OCUPADA);
+        });
+        String csv = """
+                placa,status,vaga
+                OKA0001,,V001
+                AB1,,
+                OKA0001,,
+                OKA0002,QUEBRADA,
+                OKA0003,,Z999
+                OKA0004,,V001
+                EXI0001,,
+                OKA0005,,V299
+                OKA-0006,DISPONIVEL,V002
+                """;
+
+        ImportacaoMotosDTO r = importar(csv, false);
+
+        assertEquals(9, r.getLinhas());
+        assertEquals(2, r.getImportadas());
+        assertEquals(7, r.getComErro());
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L, 9L), r.getErros().stream().map(ErroImportacaoDTO::getLinha).toList());
+        assertTrue(r.getErros().get(1).getMensagem().contains("linha 2"));
+        assertTrue(motoRepository.findByPlaca("OKA0006").isPresent());
+        assertEquals(3, motoRepository.count());
+    }
+
+    @Test
+    void somenteValidarNaoGrava() throws Exception {
+        ImportacaoMotosDTO r = importar("ABC1234,DISPONIVEL,V000\nABC1235,,\n", true);
+
+        assertEquals(2, r.getLinhas());
+        assertEquals(0, r.getImportadas());
+        assertEquals(0, r.getComErro());
+        assertEquals(0, motoRepository.count());
+    }
+
+    private ImportacaoMotosDTO importar(String csv, boolean somenteValidar) throws Exception {
+        return importador.importar(patioId, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), somenteValidar);
+    }
+}
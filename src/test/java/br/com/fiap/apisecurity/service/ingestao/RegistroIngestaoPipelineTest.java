@@ -0,0 +1,137 @@
+package br.com.fiap.apisecurity.service.ingestao;
+
+import br.com.fiap.apisecurity.dto.IngestaoStatusDTO;
+import br.com.fiap.apisecurity.dto.RegistroDTO;
+import br.com.fiap.apisecurity.model.enums.TipoMovimentacao;
+import br.com.fiap.apisecurity.service.RegistroService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+// Fila limitada, flush por tamanho e por tempo, coalescência e queda para gravação individual
+class RegistroIngestaoPipelineTest {
+
+    private static final LocalDateTime INSTANTE = LocalDateTime.of(2026, 3, 10, 8, 0);
+
+    private final RegistroService registroService = mock(RegistroService.class);
+    private RegistroIngestaoPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) pipeline.encerrar();
+    }
+
+    @Test
+    void filaCheiaRecusaSemBloquear() {
+        // sem escritores: nada sai da fila
+        pipeline = iniciar(2, 10, 50, 0);
+
+        assertTrue(pipeline.enfileirar(evento(0)).isPresent());
+        assertTrue(pipeline.enfileirar(evento(1)).isPresent());
+        assertTrue(pipeline.enfileirar(evento(2)).isEmpty());
+
+        IngestaoStatusDTO s = pipeline.status();
+        assertEquals(2, s.getFilaAtual());
+        assertEquals(2, s.getEventosAceitos());
+        assertEquals(1, s.getEventosRejeitados());
+        verifyNoInteractions(registroService);
+    }
+
+    @Test
+    void loteCheioGravaAntesDoPrazo() {
+        pipeline = iniciar(100, 3, 3_000, 1);
+
+        for (int i = 0; i < 3; i++) pipeline.enfileirar(evento(i));
+
+        // o prazo é de 3 s: só o tamanho explica a gravação dentro de 2 s
+        verify(registroService, timeout(2_000)).createRegistrosBatch(argThat(l -> l.size() == 3));
+        aguardar(() -> pipeline.status().getEventosGravados() == 3);
+        assertEquals(3, pipeline.status().getMaiorLote());
+    }
+
+    @Test
+    void prazoGravaLoteIncompleto() {
+        pipeline = iniciar(100, 500, 50, 1);
+
+        pipeline.enfileirar(evento(0));
+
+        verify(registroService, timeout(2_000)).createRegistrosBatch(argThat(l -> l.size() == 1));
+        aguardar(() -> pipeline.status().getLotesGravados() == 1);
+        assertEquals(1, pipeline.status().getUltimaSequencia());
+    }
+
+    @Test
+    void leiturasRepetidasDoMesmoEventoViramUma() {
+        pipeline = iniciar(100, 3, 3_000, 1);
+        RegistroDTO original = evento(0);
+        RegistroDTO repetido = copia(original);
+
+        pipeline.enfileirar(original);
+        pipeline.enfileirar(repetido);
+        pipeline.enfileirar(evento(1));
+
+        verify(registroService, timeout(2_000)).createRegistrosBatch(argThat(l -> l.size() == 2));
+        aguardar(() -> pipeline.status().getLotesGravados() == 1);
+        assertEquals(1, pipeline.status().getEventosCoalescidos());
+        assertEquals(2, pipeline.status().getEventosGravados());
+    }
+
+    @Test
+    void loteRecusadoCaiParaGravacaoIndividual() {
+        RegistroDTO bom = evento(0);
+        RegistroDTO ruim = evento(1);
+        when(registroService.createRegistrosBatch(anyList())).thenThrow(new IllegalArgumentException("Leitor não encontrado"));
+        when(registroService.createRegistro(ruim)).thenThrow(new IllegalArgumentException("Leitor não encontrado"));
+        pipeline = iniciar(100, 2, 3_000, 1);
+
+        pipeline.enfileirar(bom);
+        pipeline.enfileirar(ruim);
+
+        aguardar(() -> pipeline.status().getLotesGravados() == 1);
+        verify(registroService).createRegistro(bom);
+        verify(registroService).createRegistro(ruim);
+        IngestaoStatusDTO s = pipeline.status();
+        assertEquals(1, s.getEventosGravados());
+        assertEquals(1, s.getEventosComFalha());
+    }
+
+    private RegistroIngestaoPipeline iniciar(int capacidade, int lote, long flushMs, int escritores) {
+        RegistroIngestaoPipeline p = new RegistroIngestaoPipeline(registroService, capacidade, lote, flushMs, escritores);
+        p.iniciar();
+        return p;
+    }
+
+    private static RegistroDTO evento(int segundos) {
+        RegistroDTO dto = new RegistroDTO();
+        dto.setMotoId(UUID.randomUUID());
+        dto.setLeitorId(UUID.randomUUID());
+        dto.setTipo(TipoMovimentacao.ENTRADA);
+        dto.setDataHora(INSTANTE.plusSeconds(segundos));
+        return dto;
+    }
+
+    private static RegistroDTO copia(RegistroDTO dto) {
+        RegistroDTO c = new RegistroDTO();
+        c.setMotoId(dto.getMotoId());
+        c.setLeitorId(dto.getLeitorId());
+        c.setTipo(dto.getTipo());
+        c.setDataHora(dto.getDataHora());
+        return c;
+    }
+
+    private static void aguardar(BooleanSupplier condicao) {
+        long prazo = System.nanoTime() + 2_000_000_000L;
+        while (!condicao.getAsBoolean()) {
+            if (System.nanoTime() > prazo) fail("condição não atingida em 2 s");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.PatioRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.VagaService;
+import br.com.fiap.apisecurity.service.ocupacao.IndiceEspacialVagas;
+import br.com.fiap.apisecurity.service.ocupacao.OcupacaoIndex;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+// O aspecto tem de pegar o bean de serviço de verdade (proxy do contexto), não só o registro chamado à mão
+@SpringJUnitConfig(MedicaoServicosTest.Config.class)
+class MedicaoServicosTest {
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    @Import({VagaService.class, MedicaoServicos.class, MetricasServicos.class})
+    static class Config {}
+
+    @Autowired private VagaService vagaService;
+    @Autowired private MetricasServicos metricas;
+    @MockitoBean private Authz authz;
+    @MockitoBean private VagaRepository vagaRepository;
+    @MockitoBean private MotoRepository motoRepository;
+    @MockitoBean private PatioRepository patioRepository;
+    @MockitoBean private InvalidacaoCache invalidacaoCache;
+    @MockitoBean private OcupacaoIndex ocupacaoIndex;
+    @MockitoBean private IndiceEspacialVagas indiceEspacial;
+    @MockitoBean private ContagemTotais contagemTotais;
+    @MockitoBean private VersoesRecursos versoes;
+
+    @Test
+    void operacaoDoServicoViraSerieComPatioValidadoOuDoOperador() throws IOException {
+        UUID proprio = UUID.randomUUID();
+        UUID inventado = UUID.randomUUID();
+        when(authz.isAuthenticated()).thenReturn(true);
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(proprio);
+        when(authz.currentUserPatioIdOrNull()).thenReturn(proprio);
+        when(ocupacaoIndex.ocupacao(any())).thenReturn(new OcupacaoDTO());
+        assertTrue(AopUtils.isAopProxy(vagaService));
+
+        vagaService.readOcupacao(proprio);
+        assertThrows(SecurityException.class, () -> vagaService.readOcupacao(inventado));
+
+        StringBuilder saida = new StringBuilder();
+        metricas.escrever(saida);
+        String texto = saida.toString();
+        assertTrue(texto.contains(MetricasServicos.NOME + "_count{servico=\"VagaService\",operacao=\"readOcupacao\","
+                + "resultado=\"sucesso\",patio=\"" + proprio + "\"} 1\n"), texto);
+        // a chamada negada conta no pátio do operador: o id inventado não vira série
+        assertTrue(texto.contains(MetricasServicos.NOME + "_count{servico=\"VagaService\",operacao=\"readOcupacao\","
+                + "resultado=\"negado\",patio=\"" + proprio + "\"} 1\n"), texto);
+        assertFalse(texto.contains(inventado.toString()));
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.fiap.apisecurity.service.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricasServicosTest {
+
+    @Test
+    void escreveHistogramaCumulativoComSomaEContagem() throws IOException {
+        MetricasServicos metricas = new MetricasServicos(100);
+        metricas.registrar("MotoService", "readById", "sucesso", "p1", 2_000_000);   // 2 ms
+        metricas.registrar("MotoService", "readById", "sucesso", "p1", 300_000_000); // 300 ms
+        metricas.registrar("MotoService", "readById", "negado", "p1", 500_000);
+
+        StringBuilder saida = new StringBuilder();
+        metricas.escrever(saida);
+        String texto = saida.toString();
+
+        String rotulos = "servico=\"MotoService\",operacao=\"readById\",resultado=\"sucesso\",patio=\"p1\"";
+        assertTrue(texto.contains("# TYPE app_servico_segundos histogram\n"));
+        assertTrue(texto.contains("app_servico_segundos_bucket{" + rotulos + ",le=\"0.001\"} 0\n"));
+        assertTrue(texto.contains("app_servico_segundos_bucket{" + rotulos + ",le=\"0.0025\"} 1\n"));
+        assertTrue(texto.contains("app_servico_segundos_bucket{" + rotulos + ",le=\"0.25\"} 1\n"));
+        assertTrue(texto.contains("app_servico_segundos_bucket{" + rotulos + ",le=\"0.5\"} 2\n"));
+        assertTrue(texto.contains("app_servico_segundos_bucket{" + rotulos + ",le=\"+Inf\"} 2\n"));
+        assertTrue(texto.contains("app_servico_segundos_sum{" + rotulos + "} 0.302\n"));
+        assertTrue(texto.contains("app_servico_segundos_count{" + rotulos + "} 2\n"));
+        assertTrue(texto.contains("resultado=\"negado\",patio=\"p1\",le=\"0.001\"} 1\n"));
+        assertEquals(2, metricas.getSeries());
+    }
+
+    @Test
+    void patiosAlemDoLimiteViramOutros() throws IOException {
+        MetricasServicos metricas = new MetricasServicos(2);
+        for (String patio : new String[]{"p1", "p2", "p3", "p4", "p1", null}) {
+            metricas.registrar("VagaService", "readAll", "sucesso", patio, 1_000);
+        }
+
+        StringBuilder saida = new StringBuilder();
+        metricas.escrever(saida);
+        String texto = saida.toString();
+
+        assertTrue(texto.contains("patio=\"p1\"} "));
+        assertTrue(texto.contains("patio=\"p2\"} "));
+        assertFalse(texto.contains("patio=\"p3\""));
+        assertTrue(texto.contains("app_servico_segundos_count{servico=\"VagaService\",operacao=\"readAll\","
+                + "resultado=\"sucesso\",patio=\"outros\"} 2\n"));
+        assertTrue(texto.contains("patio=\"-\"} "));
+        assertEquals(4, metricas.getSeries());
+    }
+
+    @Test
+    void resultadoTemConjuntoFechado() {
+        assertEquals("negado", MedicaoServicos.resultado(new SecurityException("x")));
+        assertEquals("nao_encontrado", MedicaoServicos.resultado(new jakarta.persistence.EntityNotFoundException()));
+        assertEquals("invalido", MedicaoServicos.resultado(new IllegalArgumentException()));
+        assertEquals("erro", MedicaoServicos.resultado(new RuntimeException("qualquer mensagem")));
+    }
+}
@@ -0,0 +1,169 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Stress de alocação: muitos alocadores em paralelo contra um "banco" que só aplica o compare-and-set.
+// Nenhuma vaga pode terminar com duas motos e nenhuma moto pode receber vaga que o banco não lhe deu.
+class AlocadorVagasTest {
+
+    private static final int VAGAS = 300;
+    private static final int THREADS = 32;
+
+    // transação sem banco: só o ciclo begin/commit/rollback com as sincronizações (que liberam as reservas)
+    private static final PlatformTransactionManager SEM_BANCO = new AbstractPlatformTransactionManager() {
+        @Override protected Object doGetTransaction() { return new Object(); }
+        @Override protected void doBegin(Object transacao, TransactionDefinition definicao) {}
+        @Override protected void doCommit(DefaultTransactionStatus status) {}
+        @Override protected void doRollback(DefaultTransactionStatus status) {}
+    };
+
+    private final UUID patioId = UUID.randomUUID();
+    private final List<UUID> vagaIds = new ArrayList<>();
+    private final ConcurrentMap<UUID, UUID> ocupantes = new ConcurrentHashMap<>();   // vagaId -> motoId
+
+    private VagaRepository vagaRepository;
+    private OcupacaoIndex ocupacaoIndex;
+
+    @BeforeEach
+    void setUp() {
+        vagaRepository = mock(VagaRepository.class);
+        List<Object[]> linhas = new ArrayList<>();
+        for (int i = 0; i < VAGAS; i++) {
+            UUID id = UUID.randomUUID();
+            vagaIds.add(id);
+            linhas.add(new Object[]{id, patioId, String.format("A%03d", i), StatusVaga.LIVRE, null, null});
+        }
+        when(vagaRepository.findResumoOcupacao()).thenReturn(linhas);
+        when(vagaRepository.ocuparSeLivre(any(), any(), any(), any())).thenAnswer(inv -> {
+            UUID vagaId = inv.getArgument(0);
+            Moto moto = inv.getArgument(1);
+            return ocupantes.putIfAbsent(vagaId, moto.getId()) == null ? 1 : 0;
+        });
+        when(vagaRepository.findById(any())).thenAnswer(inv -> Optional.of(vaga(inv.getArgument(0))));
+
+        ocupacaoIndex = new OcupacaoIndex(vagaRepository);
+        ocupacaoIndex.reconstruir();
+    }
+
+    @Test
+    void alocacoesConcorrentesNaoDisputamAMesmaVaga() throws Exception {
+        AlocadorVagas alocador = new AlocadorVagas(vagaRepository, ocupacaoIndex, mock(EntityManager.class), SEM_BANCO, 5, 1);
+        int motos = VAGAS + 100;
+
+        Resultado r = executar(motos, moto -> alocar(alocador, moto));
+
+        assertEquals(VAGAS, r.alocadas.size());
+        assertEquals(VAGAS, new HashSet<>(r.alocadas.values()).size(), "vaga entregue a duas motos");
+        assertEquals(motos - VAGAS, r.falhas.get());
+        r.alocadas.forEach((moto, vaga) -> assertEquals(moto, ocupantes.get(vaga)));
+        // com as reservas do índice os alocadores nunca escolhem a mesma candidata
+        assertEquals(0, alocador.status().getConflitos());
+        assertEquals(0, alocador.status().getEsgotadas());
+        assertEquals(0, ocupacaoIndex.livres(patioId));
+    }
+
+    @Test
+    void indiceDefasadoGeraConflitoMasNuncaDuplaOcupacao() throws Exception {
+        // metade das vagas foi ocupada "por fora" (outra instância), sem o índice saber
+        for (int i = 0; i < VAGAS; i += 2) ocupantes.put(vagaIds.get(i), UUID.randomUUID());
+        Set<UUID> ocupadasPorFora = new HashSet<>(ocupantes.keySet());
+        AlocadorVagas alocador = new AlocadorVagas(vagaRepository, ocupacaoIndex, mock(EntityManager.class), SEM_BANCO, VAGAS, 0);
+
+        Resultado r = executar(VAGAS / 2, moto -> alocar(alocador, moto));
+
+        assertEquals(r.alocadas.size(), new HashSet<>(r.alocadas.values()).size(), "vaga entregue a duas motos");
+        r.alocadas.forEach((moto, vaga) -> {
+            assertFalse(ocupadasPorFora.contains(vaga));
+            assertEquals(moto, ocupantes.get(vaga));
+        });
+        assertTrue(alocador.status().getConflitos() > 0);
+    }
+
+    @Test
+    void disputaPelaMesmaVagaTemUmUnicoVencedor() throws Exception {
+        AlocadorVagas alocador = new AlocadorVagas(vagaRepository, ocupacaoIndex, mock(EntityManager.class), SEM_BANCO, 5, 1);
+        UUID alvo = vagaIds.get(0);
+
+        Resultado r = executar(THREADS * 4, moto -> {
+            alocador.ocupar(vaga(alvo), moto);
+            return alvo;
+        });
+
+        assertEquals(1, r.alocadas.size());
+        assertEquals(THREADS * 4 - 1, r.falhas.get());
+        assertEquals(r.alocadas.keySet().iterator().next(), ocupantes.get(alvo));
+    }
+
+    // como o MotoService: uma transação por tentativa; o evento AFTER_COMMIT atualiza o índice
+    private UUID alocar(AlocadorVagas alocador, Moto moto) {
+        return alocador.comRetentativas(tentadas -> alocador.tentarNoPatio(patioId, moto, tentadas).map(vaga -> {
+            ocupacaoIndex.aoAlterarVaga(VagaAlteradaEvent.de(vaga));
+            return vaga.getId();
+        }));
+    }
+
+    private Resultado executar(int motos, Alocacao alocacao) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        Resultado r = new Resultado();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < motos; i++) {
+            Moto moto = new Moto();
+            moto.setId(UUID.randomUUID());
+            futuros.add(pool.submit(() -> {
+                largada.await();
+                try {
+                    r.alocadas.put(moto.getId(), alocacao.executar(moto));
+                } catch (IllegalStateException e) {
+                    r.falhas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> f : futuros) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        return r;
+    }
+
+    private Vaga vaga(UUID id) {
+        Patio patio = new Patio();
+        patio.setId(patioId);
+        Vaga vaga = new Vaga();
+        vaga.setId(id);
+        vaga.setPatio(patio);
+        vaga.setIdentificacao("A" + vagaIds.indexOf(id));
+        vaga.setStatus(ocupantes.containsKey(id) ? StatusVaga.OCUPADA : StatusVaga.LIVRE);
+        return vaga;
+    }
+
+    private interface Alocacao {
+        UUID executar(Moto moto);
+    }
+
+    private static class Resultado {
+        final ConcurrentMap<UUID, UUID> alocadas = new ConcurrentHashMap<>();   // motoId -> vagaId
+        final AtomicInteger falhas = new AtomicInteger();
+    }
+}
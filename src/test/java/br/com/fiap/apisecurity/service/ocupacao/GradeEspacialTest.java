@@ -0,0 +1,116 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Busca por anéis da grade comparada com a força bruta: ordem por distância, k maior que as livres, origem fora do
+// pátio e limites da grade depois de remoções
+class GradeEspacialTest {
+
+    private static final double LAT0 = -23.5640;
+    private static final double LON0 = -46.6527;
+    private static final double METROS_POR_GRAU_LAT = 110_574.0;
+    private static final double METROS_POR_GRAU_LON = 111_320.0;
+
+    private final GradeEspacial grade = new GradeEspacial(10);
+    private final Map<UUID, double[]> livres = new HashMap<>();
+
+    @Test
+    void devolveAsKMaisProximasEmOrdemCrescente() {
+        Random aleatorio = new Random(42);
+        vaga("REF", LAT0, LON0, StatusVaga.OCUPADA); // referência da projeção
+        for (int i = 0; i < 2_000; i++) {
+            vaga("V" + i, LAT0 + aleatorio.nextDouble() * 0.004, LON0 + aleatorio.nextDouble() * 0.004,
+                    i % 5 == 0 ? StatusVaga.OCUPADA : StatusVaga.LIVRE);
+        }
+
+        for (int consulta = 0; consulta < 50; consulta++) {
+            double lat = LAT0 + aleatorio.nextDouble() * 0.004;
+            double lon = LON0 + aleatorio.nextDouble() * 0.004;
+            conferir(lat, lon, 15);
+        }
+    }
+
+    @Test
+    void kMaiorQueAsLivresDevolveTodasAsLivres() {
+        vaga("A", LAT0, LON0, StatusVaga.LIVRE);
+        vaga("B", LAT0 + 0.0001, LON0, StatusVaga.LIVRE);
+        vaga("C", LAT0 + 0.0002, LON0, StatusVaga.OCUPADA);
+
+        List<GradeEspacial.Proxima> resultado = grade.proximas(LAT0, LON0, 10);
+
+        assertEquals(List.of("A", "B"), resultado.stream().map(GradeEspacial.Proxima::identificacao).toList());
+    }
+
+    @Test
+    void origemLongeDoPatioAchaAsDaBordaMaisProxima() {
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 30; j++) {
+                vaga("V" + i + "-" + j, LAT0 + i * 0.0001, LON0 + j * 0.0001, StatusVaga.LIVRE);
+            }
+        }
+        // ~10 km ao norte e ~10 km a leste
+        conferir(LAT0 + 0.09, LON0 + 0.1, 5);
+        conferir(LAT0 - 0.09, LON0 + 0.0015, 5);
+    }
+
+    @Test
+    void atualizacoesIncrementaisEncolhemOsLimites() {
+        UUID perto = vaga("PERTO", LAT0, LON0, StatusVaga.LIVRE);
+        UUID longe = vaga("LONGE", LAT0 + 0.01, LON0 + 0.01, StatusVaga.LIVRE);
+        vaga("MEIO", LAT0 + 0.002, LON0 + 0.002, StatusVaga.LIVRE);
+
+        atualizar(perto, "PERTO", LAT0, LON0, StatusVaga.OCUPADA);
+        grade.remover(longe);
+        livres.remove(longe);
+        assertEquals(List.of("MEIO"), identificacoes(grade.proximas(LAT0, LON0, 3)));
+
+        atualizar(perto, "PERTO", LAT0, LON0, StatusVaga.LIVRE);
+        assertEquals(List.of("PERTO", "MEIO"), identificacoes(grade.proximas(LAT0, LON0, 3)));
+        assertArrayEquals(new double[]{LAT0, LON0}, grade.coordenadas(perto));
+        assertNull(grade.coordenadas(longe));
+        conferir(LAT0 + 0.02, LON0 + 0.02, 2);
+    }
+
+    private void conferir(double lat, double lon, int k) {
+        List<GradeEspacial.Proxima> resultado = grade.proximas(lat, lon, k);
+
+        List<Map.Entry<UUID, Double>> esperadas = livres.entrySet().stream()
+                .map(e -> Map.entry(e.getKey(), distancia(lat, lon, e.getValue()[0], e.getValue()[1])))
+                .sorted(Map.Entry.comparingByValue())
+                .limit(k)
+                .toList();
+        assertEquals(esperadas.size(), resultado.size());
+        for (int i = 0; i < resultado.size(); i++) {
+            assertEquals(esperadas.get(i).getValue(), resultado.get(i).distanciaMetros(), 1e-6);
+        }
+    }
+
+    private UUID vaga(String identificacao, double lat, double lon, StatusVaga status) {
+        UUID id = UUID.randomUUID();
+        atualizar(id, identificacao, lat, lon, status);
+        return id;
+    }
+
+    private void atualizar(UUID id, String identificacao, double lat, double lon, StatusVaga status) {
+        grade.aplicar(id, identificacao, lat, lon, status);
+        if (status == StatusVaga.LIVRE) livres.put(id, new double[]{lat, lon});
+        else livres.remove(id);
+    }
+
+    // mesma projeção da grade (equiretangular em torno da primeira vaga)
+    private static double distancia(double lat1, double lon1, double lat2, double lon2) {
+        double cos = Math.cos(Math.toRadians(LAT0));
+        double dx = (lon1 - lon2) * METROS_POR_GRAU_LON * cos;
+        double dy = (lat1 - lat2) * METROS_POR_GRAU_LAT;
+        return Math.hypot(dx, dy);
+    }
+
+    private static List<String> identificacoes(List<GradeEspacial.Proxima> proximas) {
+        return proximas.stream().map(GradeEspacial.Proxima::identificacao).toList();
+    }
+}
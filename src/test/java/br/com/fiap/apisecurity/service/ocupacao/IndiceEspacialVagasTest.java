@@ -0,0 +1,125 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.config.InvalidacaoCache;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.VagaProximaDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.PatioRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import br.com.fiap.apisecurity.service.VagaService;
+import br.com.fiap.apisecurity.service.paginacao.ContagemTotais;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Índice espacial por pátio: carga inicial, eventos de vaga após o commit e o endpoint de K mais próximas
+// (VagaService.readVagasProximas) por cima dele
+class IndiceEspacialVagasTest {
+
+    private static final double LAT0 = -23.5640;
+    private static final double LON0 = -46.6527;
+    private static final double PASSO = 0.0001; // ~11 m
+
+    private final UUID patioA = UUID.randomUUID();
+    private final UUID patioB = UUID.randomUUID();
+    private final List<UUID> fila = new ArrayList<>();
+
+    private IndiceEspacialVagas indice;
+    private Authz authz;
+    private VagaService vagaService;
+
+    @BeforeEach
+    void setUp() {
+        VagaRepository vagaRepository = mock(VagaRepository.class);
+        List<Object[]> linhas = new ArrayList<>();
+        // pátio A: 60 vagas numa fila para o norte, a cada ~11 m; as pares ocupadas
+        for (int i = 0; i < 60; i++) {
+            UUID id = UUID.randomUUID();
+            fila.add(id);
+            linhas.add(new Object[]{id, patioA, String.format("A%02d", i),
+                    i % 2 == 0 ? StatusVaga.OCUPADA : StatusVaga.LIVRE, LAT0 + i * PASSO, LON0});
+        }
+        linhas.add(new Object[]{UUID.randomUUID(), patioB, "B00", StatusVaga.LIVRE, LAT0, LON0});
+        when(vagaRepository.findResumoOcupacao()).thenReturn(linhas);
+        indice = new IndiceEspacialVagas(vagaRepository, 10);
+        indice.reconstruir();
+
+        authz = mock(Authz.class);
+        when(authz.isAdmin()).thenReturn(true);
+        vagaService = new VagaService(vagaRepository, mock(MotoRepository.class), mock(PatioRepository.class), authz,
+                mock(InvalidacaoCache.class), mock(OcupacaoIndex.class), indice, mock(ApplicationEventPublisher.class),
+                mock(ContagemTotais.class), mock(VersoesRecursos.class));
+    }
+
+    @Test
+    void cargaSoTrazLivresDoProprioPatioEmOrdemDeDistancia() {
+        List<VagaProximaDTO> proximas = indice.proximas(patioA, LAT0, LON0, 3);
+
+        assertEquals(List.of("A01", "A03", "A05"), identificacoes(proximas));
+        assertTrue(proximas.get(0).getDistanciaMetros() < proximas.get(1).getDistanciaMetros());
+        assertEquals(30, indice.proximas(patioA, LAT0, LON0, 100).size());
+        assertTrue(indice.proximas(UUID.randomUUID(), LAT0, LON0, 3).isEmpty());
+    }
+
+    @Test
+    void eventosAtualizamOIndiceAposOCommit() {
+        // A00 liberada, A01 ocupada, A03 removida, A05 levada para o pátio B
+        indice.aoAlterarVaga(evento(0, patioA, patioA, StatusVaga.LIVRE));
+        indice.aoAlterarVaga(evento(1, patioA, patioA, StatusVaga.OCUPADA));
+        indice.aoAlterarVaga(VagaAlteradaEvent.removida(fila.get(3), patioA));
+        indice.aoAlterarVaga(evento(5, patioB, patioA, StatusVaga.LIVRE));
+
+        assertEquals(List.of("A00", "A07", "A09"), identificacoes(indice.proximas(patioA, LAT0, LON0, 3)));
+        assertEquals(List.of("B00", "A05"), identificacoes(indice.proximas(patioB, LAT0, LON0, 5)));
+        assertTrue(indice.coordenadas(patioA, fila.get(3)).isEmpty());
+
+        // vaga nova num pátio que ainda não tinha grade
+        UUID patioC = UUID.randomUUID();
+        indice.aoAlterarVaga(new VagaAlteradaEvent(UUID.randomUUID(), patioC, patioC, "C00", StatusVaga.LIVRE,
+                LAT0, LON0, null));
+        assertEquals(List.of("C00"), identificacoes(indice.proximas(patioC, LAT0, LON0, 5)));
+    }
+
+    @Test
+    void endpointLimitaKEAceitaVagaDeOrigem() {
+        assertEquals(30, vagaService.readVagasProximas(patioA, LAT0, LON0, 1000).size());
+        assertEquals(1, vagaService.readVagasProximas(patioA, LAT0, LON0, 0).size());
+
+        // origem na vaga A20 (ocupada): vizinhas livres A19 e A21, depois A17 e A23
+        List<VagaProximaDTO> daVaga = vagaService.readVagasProximas(patioA, fila.get(20), 4);
+        assertEquals(List.of("A19", "A21"), identificacoes(daVaga.subList(0, 2)).stream().sorted().toList());
+        assertEquals(List.of("A17", "A23"), identificacoes(daVaga.subList(2, 4)).stream().sorted().toList());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> vagaService.readVagasProximas(patioA, UUID.randomUUID(), 4));
+    }
+
+    @Test
+    void operadorSoConsultaOProprioPatio() {
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(patioA);
+
+        assertEquals(2, vagaService.readVagasProximas(patioA, LAT0, LON0, 2).size());
+        assertThrows(SecurityException.class, () -> vagaService.readVagasProximas(patioB, LAT0, LON0, 2));
+    }
+
+    private VagaAlteradaEvent evento(int i, UUID patio, UUID anterior, StatusVaga status) {
+        return new VagaAlteradaEvent(fila.get(i), patio, anterior, String.format("A%02d", i), status,
+                LAT0 + i * PASSO, LON0, null);
+    }
+
+    private static List<String> identificacoes(List<VagaProximaDTO> proximas) {
+        return proximas.stream().map(VagaProximaDTO::getIdentificacao).toList();
+    }
+}
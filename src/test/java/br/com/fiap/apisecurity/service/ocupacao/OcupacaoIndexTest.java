@@ -0,0 +1,155 @@
+package br.com.fiap.apisecurity.service.ocupacao;
+
+import br.com.fiap.apisecurity.dto.OcupacaoDTO;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Índice de ocupação: eventos e reconstrução chegam ao mesmo estado e a próxima livre é sempre a de menor
+// identificação, inclusive para vagas criadas ou renomeadas depois da reconstrução
+class OcupacaoIndexTest {
+
+    private final UUID patioId = UUID.randomUUID();
+    private final Map<String, UUID> vagas = new LinkedHashMap<>();
+    private final Map<UUID, StatusVaga> status = new HashMap<>();
+    private final Map<UUID, String> identificacoes = new HashMap<>();
+
+    private VagaRepository vagaRepository;
+    private OcupacaoIndex indice;
+
+    @BeforeEach
+    void setUp() {
+        vagaRepository = mock(VagaRepository.class);
+        when(vagaRepository.findResumoOcupacao()).thenAnswer(inv -> linhas());
+        for (String identificacao : List.of("B1", "B2", "B3", "B4")) criar(identificacao, StatusVaga.LIVRE);
+        indice = new OcupacaoIndex(vagaRepository);
+        indice.reconstruir();
+    }
+
+    @Test
+    void eventosDeStatusChegamAoMesmoEstadoDaReconstrucao() {
+        alterar("B1", StatusVaga.OCUPADA);
+        alterar("B3", StatusVaga.INDISPONIVEL);
+        alterar("B2", StatusVaga.OCUPADA);
+        alterar("B2", StatusVaga.LIVRE);
+        OcupacaoDTO incremental = indice.ocupacao(patioId);
+
+        indice.reconstruir();
+        OcupacaoDTO reconstruido = indice.ocupacao(patioId);
+
+        assertEquals(4, incremental.getTotal());
+        assertEquals(2, incremental.getLivres());
+        assertEquals(1, incremental.getOcupadas());
+        assertEquals(1, incremental.getIndisponiveis());
+        assertEquals(25.0, incremental.getPercentualOcupacao());
+        assertEquals("B2", incremental.getProximaVagaLivreIdentificacao());
+        assertEquals(incremental.getLivres(), reconstruido.getLivres());
+        assertEquals(incremental.getOcupadas(), reconstruido.getOcupadas());
+        assertEquals(incremental.getIndisponiveis(), reconstruido.getIndisponiveis());
+        assertEquals(incremental.getProximaVagaLivreId(), reconstruido.getProximaVagaLivreId());
+    }
+
+    @Test
+    void proximaLivreSegueAIdentificacaoEPulaReservadas() {
+        alterar("B1", StatusVaga.OCUPADA);
+        assertEquals(vagas.get("B2"), indice.proximaLivre(patioId).orElseThrow());
+
+        assertEquals(vagas.get("B2"), indice.reservarProximaLivre(patioId, Set.of()).orElseThrow());
+        assertEquals(vagas.get("B4"), indice.reservarProximaLivre(patioId, Set.of(vagas.get("B3"))).orElseThrow());
+
+        indice.liberarReserva(patioId, vagas.get("B2"));
+        alterar("B1", StatusVaga.LIVRE);
+        assertEquals(vagas.get("B1"), indice.proximaLivre(patioId).orElseThrow());
+    }
+
+    @Test
+    void vagaCriadaDepoisDaReconstrucaoEntraNaOrdem() {
+        criar("A9", StatusVaga.LIVRE);
+        assertEquals(vagas.get("A9"), indice.proximaLivre(patioId).orElseThrow());
+
+        alterar("A9", StatusVaga.OCUPADA);
+        criar("B5", StatusVaga.LIVRE);
+        assertEquals(vagas.get("B1"), indice.proximaLivre(patioId).orElseThrow());
+
+        // slot reaproveitado depois de uma remoção
+        remover("B1");
+        criar("B0", StatusVaga.LIVRE);
+        assertEquals(vagas.get("B0"), indice.proximaLivre(patioId).orElseThrow());
+        assertEquals(5, indice.livres(patioId));
+    }
+
+    @Test
+    void vagaRenomeadaMudaDeLugarNaOrdem() {
+        renomear("B4", "A1");
+        assertEquals(vagas.get("A1"), indice.proximaLivre(patioId).orElseThrow());
+
+        renomear("A1", "C1");
+        assertEquals(vagas.get("B1"), indice.proximaLivre(patioId).orElseThrow());
+        for (String b : List.of("B1", "B2", "B3")) alterar(b, StatusVaga.OCUPADA);
+        assertEquals(vagas.get("C1"), indice.proximaLivre(patioId).orElseThrow());
+    }
+
+    @Test
+    void reservasSeguemAOrdemComVagasAvulsas() {
+        criar("A5", StatusVaga.LIVRE);
+        criar("B25", StatusVaga.LIVRE);
+
+        List<UUID> reservadas = new ArrayList<>();
+        for (Optional<UUID> v = indice.reservarProximaLivre(patioId, Set.of()); v.isPresent();
+             v = indice.reservarProximaLivre(patioId, Set.of())) {
+            reservadas.add(v.get());
+        }
+
+        assertEquals(List.of("A5", "B1", "B2", "B25", "B3", "B4"), reservadas.stream().map(identificacoes::get).toList());
+    }
+
+    // o "banco" devolve como a consulta: por identificação, sem identificação no fim
+    private List<Object[]> linhas() {
+        return vagas.values().stream()
+                .sorted(Comparator.comparing(identificacoes::get, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(id -> new Object[]{id, patioId, identificacoes.get(id), status.get(id), null, null})
+                .toList();
+    }
+
+    private void criar(String identificacao, StatusVaga s) {
+        UUID id = UUID.randomUUID();
+        vagas.put(identificacao, id);
+        identificacoes.put(id, identificacao);
+        status.put(id, s);
+        publicar(id);
+    }
+
+    private void alterar(String identificacao, StatusVaga s) {
+        UUID id = vagas.get(identificacao);
+        status.put(id, s);
+        publicar(id);
+    }
+
+    private void renomear(String de, String para) {
+        UUID id = vagas.remove(de);
+        vagas.put(para, id);
+        identificacoes.put(id, para);
+        publicar(id);
+    }
+
+    private void remover(String identificacao) {
+        UUID id = vagas.remove(identificacao);
+        identificacoes.remove(id);
+        status.remove(id);
+        if (indice != null) indice.aoAlterarVaga(VagaAlteradaEvent.removida(id, patioId));
+    }
+
+    private void publicar(UUID id) {
+        if (indice == null) return;
+        indice.aoAlterarVaga(new VagaAlteradaEvent(id, patioId, patioId, identificacoes.get(id), status.get(id),
+                null, null, null));
+    }
+}
@@ -0,0 +1,157 @@
+package br.com.fiap.apisecurity.service.sincronizacao;
+
+import br.com.fiap.apisecurity.DadosTeste;
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.dto.MotoDTO;
+import br.com.fiap.apisecurity.dto.SincronizacaoDTO;
+import br.com.fiap.apisecurity.model.Moto;
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.Vaga;
+import br.com.fiap.apisecurity.model.enums.EntidadeSincronizada;
+import br.com.fiap.apisecurity.repository.AlteracaoRepository;
+import br.com.fiap.apisecurity.repository.LeitorRepository;
+import br.com.fiap.apisecurity.repository.MotoRepository;
+import br.com.fiap.apisecurity.repository.VagaRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// O log só é gravado no commit, então o teste faz cada alteração numa transação própria
+@DataJpaTest
+@Import({Sincronizador.class, LogAlteracoes.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.sync.margem-ms=0")
+class SincronizadorTest {
+
+    @Autowired private EntityManager em;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private Sincronizador sincronizador;
+    @Autowired private LogAlteracoes logAlteracoes;
+    @Autowired private AlteracaoRepository alteracaoRepository;
+    @Autowired private MotoRepository motoRepository;
+    @Autowired private VagaRepository vagaRepository;
+    @Autowired private LeitorRepository leitorRepository;
+    @MockitoBean private Authz authz;
+
+    private TransactionTemplate tx;
+    private UUID patioA;
+    private UUID patioB;
+    private UUID vagaA;
+    private UUID vagaB;
+    private UUID motoId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(s -> {
+            Patio a = DadosTeste.patio(em, "Pátio A");
+            Patio b = DadosTeste.patio(em, "Pátio B");
+            patioA = a.getId();
+            patioB = b.getId();
+            Vaga va = DadosTeste.vaga(em, a, "A1");
+            vagaA = va.getId();
+            vagaB = DadosTeste.vaga(em, b, "B1").getId();
+            DadosTeste.vaga(em, a, "A2");
+            motoId = DadosTeste.motoNaVaga(em, "SYN0001", va).getId();
+        });
+        when(authz.isAdmin()).thenReturn(false);
+        when(authz.currentUserPatioIdOrThrow()).thenReturn(patioA);
+    }
+
+    @AfterEach
+    void limpar() {
+        tx.executeWithoutResult(s -> DadosTeste.limpar(em));
+    }
+
+    @Test
+    void semTokenVemRetratoDoPatioEDepoisSoODelta() {
+        SincronizacaoDTO inicial = sincronizador.sincronizar(null, null, null);
+
+        assertTrue(inicial.isCompleto());
+        assertEquals(List.of(motoId), inicial.getMotos().stream().map(MotoDTO::getId).toList());
+        assertEquals(2, inicial.getVagas().size());
+
+        // placa trocada: a moto volta no delta, nada mais
+        tx.executeWithoutResult(s -> {
+            em.find(Moto.class, motoId).setPlaca("SYN0002");
+            logAlteracoes.registrar(EntidadeSincronizada.MOTO, motoId, patioA);
+        });
+        SincronizacaoDTO delta = sincronizador.sincronizar(inicial.getToken(), null, null);
+
+        assertFalse(delta.isCompleto());
+        assertEquals("SYN0002", delta.getMotos().get(0).getPlaca());
+        assertTrue(delta.getVagas().isEmpty());
+        assertTrue(delta.getMotosRemovidas().isEmpty());
+
+        // mudou para o pátio B: para o operador de A ela sai, e o mesmo token não repete nada
+        tx.executeWithoutResult(s -> {
+            em.find(Vaga.class, vagaA).setMoto(null);
+            em.find(Moto.class, motoId).setVagaId(vagaB);
+            em.find(Vaga.class, vagaB).setMoto(em.find(Moto.class, motoId));
+            logAlteracoes.registrar(EntidadeSincronizada.MOTO, motoId, patioA, patioB);
+            logAlteracoes.registrar(EntidadeSincronizada.VAGA, vagaA, patioA);
+            logAlteracoes.registrar(EntidadeSincronizada.VAGA, vagaB, patioB);
+        });
+        SincronizacaoDTO saida = sincronizador.sincronizar(delta.getToken(), null, null);
+
+        assertEquals(List.of(motoId), saida.getMotosRemovidas());
+        assertTrue(saida.getMotos().isEmpty());
+        assertEquals(List.of(vagaA), saida.getVagas().stream().map(v -> v.getId()).toList());
+        SincronizacaoDTO vazio = sincronizador.sincronizar(saida.getToken(), null, null);
+        assertTrue(vazio.getMotos().isEmpty() && vazio.getVagas().isEmpty() && vazio.getMotosRemovidas().isEmpty());
+    }
+
+    @Test
+    void paginaPeloLimiteESoAvancaOTokenAteOQueJaAssentou() {
+        String token = sincronizador.sincronizar(null, null, null).getToken();
+        tx.executeWithoutResult(s -> logAlteracoes.registrar(EntidadeSincronizada.MOTO, motoId, patioA));
+        tx.executeWithoutResult(s -> logAlteracoes.registrar(EntidadeSincronizada.VAGA, vagaA, patioA));
+
+        SincronizacaoDTO primeira = sincronizador.sincronizar(token, null, 1);
+        assertTrue(primeira.isTemMais());
+        assertEquals(1, primeira.getMotos().size());
+        SincronizacaoDTO segunda = sincronizador.sincronizar(primeira.getToken(), null, 1);
+        assertFalse(segunda.isTemMais());
+        assertEquals(1, segunda.getVagas().size());
+        assertTrue(segunda.getMotos().isEmpty());
+
+        // margem grande: tudo é recente, vai na resposta mas o token não sai do lugar
+        Sincronizador comMargem = new Sincronizador(alteracaoRepository, motoRepository, vagaRepository,
+                leitorRepository, logAlteracoes, authz, 1000, 5000, 60_000);
+        SincronizacaoDTO recente = comMargem.sincronizar(token, null, 1);
+        assertFalse(recente.isTemMais());
+        assertEquals(1, recente.getMotos().size());
+        assertEquals(recente.getToken().split("\\.")[0], token.split("\\.")[0]);
+    }
+
+    @Test
+    void tokenVelhoOuDeOutroPatioCaiNoRetratoCompleto() {
+        String velho = new Sincronizador.Token(1, LocalDateTime.now().minusDays(30), patioA).texto();
+        assertTrue(sincronizador.sincronizar(velho, null, null).isCompleto());
+
+        String deB = new Sincronizador.Token(1, LocalDateTime.now(), patioB).texto();
+        assertTrue(sincronizador.sincronizar(deB, null, null).isCompleto());
+        assertTrue(sincronizador.sincronizar("lixo", null, null).isCompleto());
+
+        assertThrows(SecurityException.class, () -> sincronizador.sincronizar(null, patioB, null));
+    }
+}
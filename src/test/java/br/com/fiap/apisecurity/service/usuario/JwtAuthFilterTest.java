@@ -0,0 +1,108 @@
+package br.com.fiap.apisecurity.service.usuario;
+
+import br.com.fiap.apisecurity.model.Patio;
+import br.com.fiap.apisecurity.model.enums.CargoUsuario;
+import br.com.fiap.apisecurity.model.usuarios.Usuario;
+import br.com.fiap.apisecurity.security.UsuarioPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// Filtro JWT da API: claims viram o principal sem consulta ao banco; assinatura adulterada e tokens revogados
+// não autenticam; token emitido depois da revogação volta a valer
+class JwtAuthFilterTest {
+
+    private static final String SEGREDO = Base64.getEncoder().encodeToString(new byte[64]);
+
+    private final JwtService jwt = new JwtService(SEGREDO, 120);
+    private final TokenRevogacaoService revogacao = new TokenRevogacaoService(120);
+    private final UserDetailsService uds = mock(UserDetailsService.class);
+    private final JwtAuthFilter filtro = new JwtAuthFilter(jwt, uds, revogacao);
+
+    private final Usuario usuario = usuario();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenValidoMontaPrincipalDasClaims() throws Exception {
+        Authentication auth = autenticar(gerar());
+
+        assertNotNull(auth);
+        var principal = assertInstanceOf(UsuarioPrincipal.class, auth.getPrincipal());
+        assertEquals(usuario.getId(), principal.getUsuario().id());
+        assertEquals("op@teste.com", principal.getUsuario().email());
+        assertEquals(CargoUsuario.OPERADOR_PATIO, principal.getUsuario().cargo());
+        assertEquals(usuario.getPatio().getId(), principal.getUsuario().patioId());
+        assertEquals(List.of("ROLE_OPERADOR_PATIO"),
+                auth.getAuthorities().stream().map(Object::toString).toList());
+        verifyNoInteractions(uds);
+    }
+
+    @Test
+    void assinaturaAdulteradaNaoAutentica() throws Exception {
+        String token = gerar();
+        int assinatura = token.lastIndexOf('.') + 1;
+        char trocado = token.charAt(assinatura) == 'A' ? 'B' : 'A';
+        String adulterado = token.substring(0, assinatura) + trocado + token.substring(assinatura + 1);
+
+        assertNull(autenticar(adulterado));
+        verifyNoInteractions(uds);
+    }
+
+    @Test
+    void tokenEmitidoAteARevogacaoNaoAutentica() throws Exception {
+        String token = gerar();
+        revogacao.revogarTokensDe("OP@teste.com");
+
+        assertNull(autenticar(token));
+    }
+
+    @Test
+    void tokenEmitidoDepoisDaRevogacaoAutentica() throws Exception {
+        revogacao.revogarTokensDe("op@teste.com");
+        Thread.sleep(5); // emissão em milissegundo posterior ao da revogação
+
+        assertNotNull(autenticar(gerar()));
+    }
+
+    private String gerar() {
+        return jwt.generate(usuario, List.of(new SimpleGrantedAuthority("ROLE_OPERADOR_PATIO")));
+    }
+
+    private Authentication autenticar(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/vagas");
+        req.setServletPath("/api/vagas");
+        req.addHeader("Authorization", "Bearer " + token);
+        filtro.doFilter(req, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static Usuario usuario() {
+        Patio patio = new Patio();
+        patio.setId(UUID.randomUUID());
+        Usuario u = new Usuario();
+        u.setId(UUID.randomUUID());
+        u.setEmail("op@teste.com");
+        u.setCargo(CargoUsuario.OPERADOR_PATIO);
+        u.setPatio(patio);
+        return u;
+    }
+}
@@ -0,0 +1,94 @@
+package br.com.fiap.apisecurity.service.versao;
+
+import br.com.fiap.apisecurity.controller.usuario.Authz;
+import br.com.fiap.apisecurity.event.VagaAlteradaEvent;
+import br.com.fiap.apisecurity.model.enums.StatusVaga;
+import br.com.fiap.apisecurity.service.versao.VersoesRecursos.Recurso;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ETag por escopo: 304 enquanto nada do escopo mudou, e a versão só avança depois do commit
+class VersoesRecursosTest {
+
+    private final UUID patioA = UUID.randomUUID();
+    private final UUID patioB = UUID.randomUUID();
+
+    private Authz authz;
+    private VersoesRecursos versoes;
+
+    @BeforeEach
+    void setUp() {
+        authz = mock(Authz.class);
+        when(authz.escopoCache()).thenReturn("P:" + patioA);
+        versoes = new VersoesRecursos(authz);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void mesmaVersaoRespondeNaoModificado() {
+        String etag = versoes.etag(Recurso.VAGAS, get("page=0&size=20", null));
+        assertTrue(etag.startsWith("\"vagas-"));
+
+        ServletWebRequest condicional = get("page=0&size=20", etag);
+        assertTrue(versoes.naoModificado(Recurso.VAGAS, condicional));
+        assertEquals(304, condicional.getResponse().getStatus());
+        assertEquals("private, no-cache", condicional.getResponse().getHeader("Cache-Control"));
+
+        // outra página é outra representação
+        assertFalse(versoes.naoModificado(Recurso.VAGAS, get("page=1&size=20", etag)));
+    }
+
+    @Test
+    void alteracaoDeOutroPatioNaoInvalidaOperadorMasInvalidaAdmin() {
+        String operador = versoes.etag(Recurso.VAGAS, get(null, null));
+        when(authz.escopoCache()).thenReturn("ADMIN");
+        String admin = versoes.etag(Recurso.VAGAS, get(null, null));
+
+        versoes.aoAlterarVaga(new VagaAlteradaEvent(UUID.randomUUID(), patioB, patioB, "B1",
+                StatusVaga.OCUPADA, null, null, UUID.randomUUID()));
+
+        assertNotEquals(admin, versoes.etag(Recurso.VAGAS, get(null, null)));
+        when(authz.escopoCache()).thenReturn("P:" + patioA);
+        assertEquals(operador, versoes.etag(Recurso.VAGAS, get(null, null)));
+
+        versoes.alterou(Recurso.VAGAS, patioA);
+        assertNotEquals(operador, versoes.etag(Recurso.VAGAS, get(null, null)));
+    }
+
+    @Test
+    void versaoSoAvancaDepoisDoCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        versoes.alterou(Recurso.MOTOS, patioA, null);
+        assertEquals(0, versoes.versao(Recurso.MOTOS, patioA));
+
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) s.afterCommit();
+        assertEquals(1, versoes.versao(Recurso.MOTOS, patioA));
+        assertEquals(1, versoes.versao(Recurso.MOTOS, null));
+        assertEquals(0, versoes.versao(Recurso.VAGAS, patioA));
+    }
+
+    private static ServletWebRequest get(String query, String ifNoneMatch) {
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/vagas");
+        req.setQueryString(query);
+        if (ifNoneMatch != null) req.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(req, new MockHttpServletResponse());
+    }
+}